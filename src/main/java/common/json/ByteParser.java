@@ -0,0 +1,853 @@
+package common.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Разбирает JSON-данные в кодировке UTF-8 прямо из {@code ByteBuffer} в структуры
+ * {@code JSONList} или {@code JSONObject}. В отличие от {@link Parser} данные не нужно
+ * предварительно декодировать в строку: структура документа разбирается по байтам,
+ * а в символы декодируется только содержимое строковых значений и ключей.
+ * Буфер может быть отображённым в память файлом (см. {@link #map(Path)}).
+ * Разбор, как и в {@code Parser}, линейный и без рекурсии. Пробельные символы и тела строк
+ * пропускаются по 8 байт за раз с помощью {@link Swar}. Неверные последовательности UTF-8
+ * в строках отклоняются с {@code ParseException}, как и в {@link PushParser}, а не заменяются
+ * символом U+FFFD. Строки без неверных байтов проверяются без дополнительного прохода
+ */
+public class ByteParser{
+
+	/** Начальная ёмкость стека контейнеров */
+	private static final int STACK_CAPACITY = 16;
+
+	/** Ключевое слово {@code null} которое не оборачивается в кавычки в JSON-структуре */
+	private static final String KEYWORD_NULL = "null";
+	/** Ключевое слово {@code true} которое не оборачивается в кавычки в JSON-структуре */
+	private static final String KEYWORD_TRUE = "true";
+	/** Ключевое слово {@code false} которое не оборачивается в кавычки в JSON-структуре */
+	private static final String KEYWORD_FALSE = "false";
+
+	/** Разбираемые данные. Позиция и лимит буфера не изменяются парсером */
+	private final ByteBuffer raw;
+
+	/** Представление {@link #raw} с порядком байтов для пословного сканирования */
+	private final ByteBuffer words;
+	/** Индекс первого байта данных в буфере */
+	private int start;
+	/** Индекс за последним байтом данных в буфере */
+	private int end;
+	/** Позиция курсора (абсолютный индекс в буфере) */
+	private int pos;
+	/** Стек открытых на данный момент контейнеров. Вершина стека - {@code stack[depth - 1]} */
+	private JSONComplex[] stack = new JSONComplex[STACK_CAPACITY];
+	/** Глубина вложенных JSON-структур */
+	private int depth = 0;
+	/** Таблица канонических ключей или {@code null}, если ключи не кешируются */
+	private KeyCache keys;
+	/** Дерево форм объектов или {@code null}, если объекты создаются с {@code LinkedHashMap} */
+	private Shapes shapes;
+	/** Проекция или {@code null}, если разбираются все ключи */
+	private Projection projection;
+	/** Проверяются ли пропущенные проекцией значения */
+	private boolean validateSkipped = true;
+	/** Создаются ли строковые значения срезами буфера {@link JSONSlice} */
+	private boolean slices = false;
+	/** Узлы проекции открытых контейнеров. {@code null} - контейнер разбирается целиком */
+	private Projection.Node[] nodes = new Projection.Node[STACK_CAPACITY];
+	/** Типы пропускаемых контейнеров, которым в стеке соответствует {@code null}: {@code true} для объектов */
+	private boolean[] skipped = new boolean[STACK_CAPACITY];
+	/** Разбирается ли фрагмент списка без скобок (см. {@link #parseElements(int, int)}) */
+	private boolean fragment = false;
+	/** Буфер для строк, содержащих экранированные последовательности */
+	private StringBuilder buffer = new StringBuilder();
+	/** Промежуточный массив для декодирования строк из буферов, не имеющих доступного массива */
+	private byte[] scratch = new byte[64];
+
+	/**
+	 * Создаёт экземпляр парсера. Разбираются байты от текущей позиции буфера до его лимита
+	 * @param data JSON-данные в кодировке UTF-8
+	 */
+	public ByteParser(ByteBuffer data){
+		this.raw = data;
+		this.words = Swar.words(data);
+		this.start = data.position();
+		this.end = data.limit();
+	}
+
+	/**
+	 * Создаёт экземпляр парсера для массива байтов
+	 * @param data JSON-данные в кодировке UTF-8
+	 */
+	public ByteParser(byte[] data){
+		this(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Создаёт парсер для файла, отображённого в память. Файл не читается целиком в кучу,
+	 * операционная система подгружает страницы по мере разбора.
+	 * Размер файла ограничен {@code Integer.MAX_VALUE} байтами
+	 * @param file Путь к файлу с JSON-данными в кодировке UTF-8
+	 * @return Парсер для файла
+	 * @throws IOException Если файл не удалось открыть или отобразить в память
+	 */
+	public static ByteParser map(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			return new ByteParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Включает кеширование ключей объектов. Одну таблицу можно передать нескольким парсерам,
+	 * чтобы одинаковые ключи всех разобранных документов ссылались на одни и те же строки.
+	 * Из байтов кешируются только ключи, состоящие из символов ASCII
+	 * @param keys Таблица канонических ключей или {@code null}, чтобы отключить кеширование
+	 * @return Этот же парсер
+	 */
+	public ByteParser setKeyCache(KeyCache keys){
+		this.keys = keys;
+		return this;
+	}
+
+	/**
+	 * Включает компактное представление объектов. Объекты с одинаковыми ключами в одинаковом порядке
+	 * будут делить общую форму из переданного дерева и хранить только массивы значений
+	 * @param shapes Дерево форм или {@code null}, чтобы создавать объекты с {@code LinkedHashMap}
+	 * @return Этот же парсер
+	 */
+	public ByteParser setShapes(Shapes shapes){
+		this.shapes = shapes;
+		return this;
+	}
+
+	/**
+	 * Включает разбор только выбранных путей ключей. Значения остальных ключей не создаются:
+	 * они проверяются по грамматике JSON или, если проверка отключена, пропускаются
+	 * сканированием кавычек и скобок (см. {@link #setValidateSkipped(boolean)})
+	 * @param projection Пути ключей или {@code null}, чтобы разбирать все ключи
+	 * @return Этот же парсер
+	 */
+	public ByteParser setProjection(Projection projection){
+		this.projection = projection;
+		return this;
+	}
+
+	/**
+	 * Определяет, проверяются ли значения, пропущенные проекцией. Без проверки пропуск
+	 * отслеживает только строки и парность скобок, поэтому ошибки внутри таких значений
+	 * могут остаться незамеченными. По умолчанию проверка включена
+	 * @param validate Проверять ли пропущенные значения
+	 * @return Этот же парсер
+	 */
+	public ByteParser setValidateSkipped(boolean validate){
+		this.validateSkipped = validate;
+		return this;
+	}
+
+	/**
+	 * Включает создание строковых значений срезами буфера {@link JSONSlice}. Строки проверяются
+	 * при разборе, но не копируются и не декодируются до первого обращения к значению.
+	 * Ключи объектов по-прежнему создаются строками. Буфер не должен изменяться, пока используются срезы
+	 * @param slices Создавать ли срезы вместо копий строк
+	 * @return Этот же парсер
+	 */
+	public ByteParser setSlices(boolean slices){
+		this.slices = slices;
+		return this;
+	}
+
+	/**
+	 * Разбирает отдельный документ, занимающий часть буфера. Позиции ошибок отсчитываются от {@code from}.
+	 * Последующие вызовы {@link #parse()} разбирают этот же участок
+	 * @param from Индекс первого байта документа
+	 * @param to Индекс за последним байтом документа
+	 * @return Один из объектов {@code JSONList} или {@code JSONObject}
+	 * @throws ParseException Если входные данные оказались невалидными
+	 */
+	JSONComplex parse(int from, int to) throws ParseException {
+		this.start = from;
+		this.end = to;
+		return this.parse();
+	}
+
+	/**
+	 * Разбирает фрагмент списка: элементы, разделённые запятыми, без окружающих квадратных скобок.
+	 * Позиции ошибок отсчитываются от {@code from}
+	 * @param from Индекс первого байта фрагмента
+	 * @param to Индекс за последним байтом фрагмента
+	 * @return Список разобранных элементов
+	 * @throws ParseException Если фрагмент не является последовательностью валидных элементов
+	 */
+	JSONList parseElements(int from, int to) throws ParseException {
+		this.start = from;
+		this.end = to;
+		this.pos = from;
+		JSONList root = new JSONList();
+		this.stack[0] = root;
+		this.nodes[0] = this.projection == null ? null : this.projection.root;
+		this.depth = 1;
+		this.fragment = true;
+		try {
+			this.parseContents();
+		} finally {
+			this.fragment = false;
+			Arrays.fill(this.stack, 0, this.depth, null);
+			Arrays.fill(this.nodes, 0, this.depth, null);
+		}
+		return root;
+	}
+
+	/**
+	 * Начинает разбор JSON-данных
+	 * @return Один из объектов {@code JSONList} или {@code JSONObject}
+	 * @throws ParseException Если входные данные оказались невалидными
+	 */
+	public JSONComplex parse() throws ParseException {
+		this.pos = this.start;
+		this.depth = 0;
+		this.skipWhitespace();
+		if(this.pos == this.end)
+			throw new ParseException("Empty string", 0);
+		int c = this.byteAt(this.pos);
+		if(c != '[' && c != '{')
+			this.throwException(c, "Expected open brace");
+		JSONComplex root = this.open(c, this.projection == null ? null : this.projection.root);
+		try {
+			this.parseContents();
+		} finally {
+			Arrays.fill(this.stack, 0, this.depth, null);
+			Arrays.fill(this.nodes, 0, this.depth, null);
+		}
+		this.skipWhitespace();
+		if(this.pos < this.end)
+			this.throwException(this.byteAt(this.pos), "There should be no characters after data ending except for spaces");
+		return root;
+	}
+
+	/**
+	 * Разбирает содержимое корневого контейнера, открытого методом {@link #open(int)}.
+	 * Каждая итерация внешнего цикла начинается сразу после открывающей скобки или запятой.
+	 * Пропускаемые проекцией контейнеры проверяются этим же циклом: в стек для них кладётся
+	 * {@code null}, ключи и значения проверяются без создания объектов
+	 * @throws ParseException Если входные данные оказались невалидными
+	 */
+	private void parseContents() throws ParseException {
+		boolean first = true;
+		while(true){
+			JSONComplex top = this.stack[this.depth - 1];
+			Projection.Node node = this.nodes[this.depth - 1];
+			boolean isObject = this.isObject(this.depth - 1);
+			int c = this.nextToken();
+			if(first && c == (isObject ? '}' : ']')){
+				this.pos++;
+				this.nodes[this.depth - 1] = null;
+				this.stack[--this.depth] = null;
+			} else {
+				String key = null;
+				Projection.Node child = node;
+				boolean skip = top == null;
+				if(isObject){
+					if(c != '"')
+						this.throwException(c, "Expected double quote or closing brace");
+					int index = -1;
+					if(skip)
+						this.skipString(true);
+					else if(node == null)
+						key = this.readString(true);
+					else
+						index = this.readProjectedKey(node);
+					c = this.nextToken();
+					if(c != ':')
+						this.throwException(c, "Expected colon");
+					this.pos++;
+					c = this.nextToken();
+					if(node != null){
+						if(index >= 0){
+							key = node.names.get(index);
+							child = node.children[index];
+						}
+						skip = index < 0 || child != null && c != '{' && c != '[';
+					}
+				}
+				if(skip && (c == '{' || c == '[')){
+					if(this.validateSkipped){
+						this.openSkipped(c);
+						first = true;
+						continue;
+					}
+					this.skipBalanced();
+				} else if(skip){
+					this.skipScalar(c);
+				} else if(c == '{' || c == '['){
+					top.add(key, this.open(c, child));
+					first = true;
+					continue;
+				} else {
+					top.add(key, this.readScalar(c));
+				}
+			}
+			if(this.closeContainers())
+				return;
+			first = false;
+		}
+	}
+
+	/**
+	 * Проверяет байты после очередного значения: закрывает завершившиеся контейнеры
+	 * и останавливается на запятой
+	 * @return {@code true} если был закрыт корневой контейнер
+	 * @throws ParseException Если встретилось что-то кроме запятой или закрывающей скобки
+	 */
+	private boolean closeContainers() throws ParseException {
+		while(this.depth > 0){
+			if(this.fragment && this.depth == 1){
+				this.skipWhitespace();
+				if(this.pos == this.end){
+					this.stack[--this.depth] = null;
+					return true;
+				}
+			}
+			int c = this.nextToken();
+			boolean isObject = this.isObject(this.depth - 1);
+			if(c == ','){
+				this.pos++;
+				return false;
+			} else if(c == ']'){
+				if(this.fragment && this.depth == 1)
+					this.throwException(c, "Unexpected closing bracket in list fragment");
+				if(isObject)
+					this.throwException(c, "Wrong closing bracket for object json type");
+			} else if(c == '}'){
+				if(!isObject)
+					this.throwException(c, "Wrong closing bracket for list json type");
+			} else {
+				this.throwException(c, "Expected comma or closing bracket");
+			}
+			this.nodes[this.depth - 1] = null;
+			this.stack[--this.depth] = null;
+			this.pos++;
+		}
+		return true;
+	}
+
+	/**
+	 * Создаёт новый контейнер по открывающей скобке и кладёт его на вершину стека
+	 * @param c Открывающая скобка [ или {
+	 * @param node Узел проекции для содержимого контейнера или {@code null}, если контейнер разбирается целиком
+	 * @return Созданный контейнер
+	 */
+	private JSONComplex open(int c, Projection.Node node){
+		JSONComplex container = c == '[' ? new JSONList() : this.shapes == null ? new JSONObject() : this.shapes.newObject();
+		this.push(container, node, c == '{');
+		return container;
+	}
+
+	/**
+	 * Открывает пропускаемый контейнер, который проверяется, но не создаётся
+	 * @param c Открывающая скобка [ или {
+	 */
+	private void openSkipped(int c){
+		this.push(null, null, c == '{');
+	}
+
+	private void push(JSONComplex container, Projection.Node node, boolean object){
+		if(this.depth == this.stack.length){
+			this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+			this.nodes = Arrays.copyOf(this.nodes, this.depth << 1);
+			this.skipped = Arrays.copyOf(this.skipped, this.depth << 1);
+		}
+		this.skipped[this.depth] = object;
+		this.nodes[this.depth] = node;
+		this.stack[this.depth++] = container;
+		this.pos++;
+	}
+
+	/**
+	 * Проверяет, является ли контейнер на заданной глубине объектом
+	 */
+	private boolean isObject(int level){
+		JSONComplex container = this.stack[level];
+		return container == null ? this.skipped[level] : container.getType() == JSONType.OBJECT;
+	}
+
+	/**
+	 * Считывает скалярное значение (строку, число или ключевое слово), начинающееся с текущей позиции
+	 * @param c Первый байт значения
+	 * @return Разобранное значение. {@code null} для ключевого слова {@code null}
+	 * @throws ParseException Если значение указано некорректно
+	 */
+	private JSONEntity readScalar(int c) throws ParseException {
+		switch(c){
+			case '"':
+				if(this.slices){
+					int start = this.pos + 1;
+					boolean escaped = this.skipString(true);
+					return new JSONSlice(this.raw, start, this.pos - 1, escaped);
+				}
+				return new JSONString(this.readString(false));
+			case 't':
+				this.readKeyword(KEYWORD_TRUE);
+				return JSONBoolean.TRUE;
+			case 'f':
+				this.readKeyword(KEYWORD_FALSE);
+				return JSONBoolean.FALSE;
+			case 'n':
+				this.readKeyword(KEYWORD_NULL);
+				return null;
+			default:
+				if(c == '-' || isDigit(c))
+					return NumberParser.parse(this.raw, this.pos, this.readNumber());
+				this.throwException(c, "Unknown value type");
+				return null;
+		}
+	}
+
+	/**
+	 * Считывает ключ объекта и ищет его в узле проекции. Ключи без экранированных
+	 * последовательностей сравниваются прямо в буфере без создания строки. Байты ключей,
+	 * которых нет в проекции, проверяются на UTF-8, если включена проверка пропущенных значений,
+	 * поэтому проекция не меняет того, какие документы принимаются
+	 * @param node Узел проекции объекта
+	 * @return Номер ключа в узле или {@code -1}, если ключа нет в проекции
+	 * @throws ParseException Если строка ключа невалидна
+	 */
+	private int readProjectedKey(Projection.Node node) throws ParseException {
+		int start = this.pos + 1;
+		int i = Swar.indexOfStringEnd(this.words, start, this.end);
+		if(i < this.end && this.byteAt(i) == '"'){
+			int index = node.names.indexOf(this.raw, start, i);
+			// Ключ из проекции совпал с корректными байтами имени, остальные ключи проверяются как пропущенные строки
+			if(index < 0 && this.validateSkipped)
+				this.validateUtf8(start, i);
+			this.pos = i + 1;
+			return index;
+		}
+		return node.names.indexOf(this.readString(false));
+	}
+
+	/**
+	 * Пропускает скалярное значение. Без проверки значение заканчивается на первом
+	 * структурном или пробельном байте
+	 * @param c Первый байт значения
+	 * @throws ParseException Если значение невалидно
+	 */
+	private void skipScalar(int c) throws ParseException {
+		if(c == '"'){
+			this.skipString(this.validateSkipped);
+		} else if(!this.validateSkipped){
+			int from = this.pos;
+			while(this.pos < this.end && !Swar.isStructural(c = this.byteAt(this.pos)) && !isWhitespace(c))
+				this.pos++;
+			if(this.pos == from)
+				this.throwException(c, "Unknown value type");
+		} else if(c == 't'){
+			this.readKeyword(KEYWORD_TRUE);
+		} else if(c == 'f'){
+			this.readKeyword(KEYWORD_FALSE);
+		} else if(c == 'n'){
+			this.readKeyword(KEYWORD_NULL);
+		} else if(c == '-' || isDigit(c)){
+			this.readNumber();
+		} else {
+			this.throwException(c, "Unknown value type");
+		}
+	}
+
+	/**
+	 * Пропускает строку, начинающуюся с двойной кавычки в текущей позиции, не декодируя её
+	 * @param validate Проверять ли экранированные последовательности, управляющие символы и UTF-8 так же, как при разборе
+	 * @return {@code true} если строка содержит экранированные последовательности
+	 * @throws ParseException Если строка не закрыта или невалидна
+	 */
+	private boolean skipString(boolean validate) throws ParseException {
+		boolean escaped = false;
+		int from = ++this.pos;
+		while(true){
+			this.pos = Swar.indexOfStringEnd(this.words, this.pos, this.end);
+			if(this.pos >= this.end)
+				throw new ParseException("Unexpected end of input. Expected closing double quote", this.end - this.start);
+			int c = this.byteAt(this.pos);
+			if(c == '"'){
+				if(validate)
+					this.validateUtf8(from, this.pos);
+				this.pos++;
+				return escaped;
+			}
+			if(c != '\\'){
+				if(validate)
+					this.throwException(c, "Unescaped control character in string");
+				this.pos++;
+				continue;
+			}
+			escaped = true;
+			if(++this.pos == this.end)
+				continue;
+			if(validate)
+				this.readEscape();
+			this.pos++;
+		}
+	}
+
+	/**
+	 * Пропускает контейнер без проверки: отслеживаются только строки и глубина скобок
+	 * @throws ParseException Если данные закончились раньше, чем контейнер был закрыт
+	 */
+	private void skipBalanced() throws ParseException {
+		int level = 0;
+		while(true){
+			this.pos = Swar.indexOfStructural(this.words, this.pos, this.end);
+			if(this.pos == this.end)
+				throw new ParseException("Unexpected end of input. Expected closing bracket", this.pos - this.start);
+			switch(this.byteAt(this.pos)){
+				case '"':
+					this.skipString(false);
+					continue;
+				case '{':
+				case '[':
+					level++;
+					break;
+				case '}':
+				case ']':
+					if(--level == 0){
+						this.pos++;
+						return;
+					}
+					break;
+			}
+			this.pos++;
+		}
+	}
+
+	/**
+	 * Считывает строку, начинающуюся с двойной кавычки в текущей позиции.
+	 * Если строка не содержит экранированных последовательностей, то она
+	 * декодируется из буфера целиком, без промежуточного {@code StringBuilder}
+	 * @return Значение строки без кавычек
+	 * @throws ParseException Если строка не закрыта или содержит неверные экранированные последовательности
+	 */
+	private String readString(boolean key) throws ParseException {
+		int start = ++this.pos;
+		int i = Swar.indexOfStringEnd(this.words, start, this.end);
+		if(i < this.end){
+			int c = this.byteAt(i);
+			if(c == '"'){
+				this.pos = i + 1;
+				if(key && this.keys != null){
+					String result = this.keys.intern(this.raw, start, i);
+					if(result != null)
+						return result;
+				}
+				return this.decode(start, i);
+			}
+			if(c == '\\'){
+				this.buffer.setLength(0);
+				this.pos = i;
+				return this.readEscapedString(start, key);
+			}
+			this.pos = i;
+			this.throwException(c, "Unescaped control character in string");
+		}
+		this.pos = this.end;
+		throw new ParseException("Unexpected end of input. Expected closing double quote", this.pos - this.start);
+	}
+
+	/**
+	 * Возвращает ключ, собранный в буфере
+	 * @param buffer Буфер с ключом
+	 * @return Канонический ключ, если включено кеширование, иначе новая строка
+	 */
+	private String key(StringBuilder buffer){
+		return this.keys == null ? buffer.toString() : this.keys.intern(buffer, 0, buffer.length());
+	}
+
+	/**
+	 * Дочитывает строку, содержащую экранированные последовательности, в буфер.
+	 * Участки между экранированными последовательностями декодируются целиком
+	 * @param segment Начало ещё не декодированного участка строки
+	 * @param key Является ли строка ключом объекта
+	 * @return Значение строки без кавычек
+	 * @throws ParseException Если строка не закрыта или содержит неверные экранированные последовательности
+	 */
+	private String readEscapedString(int segment, boolean key) throws ParseException {
+		while(this.pos < this.end){
+			int c = this.byteAt(this.pos);
+			if(c == '"'){
+				this.buffer.append(this.decode(segment, this.pos++));
+				return key ? this.key(this.buffer) : this.buffer.toString();
+			}
+			if(c == '\\'){
+				this.buffer.append(this.decode(segment, this.pos++));
+				if(this.pos == this.end)
+					break;
+				this.buffer.append(this.readEscape());
+				segment = ++this.pos;
+			} else if(c < ' '){
+				this.throwException(c, "Unescaped control character in string");
+			} else {
+				this.pos = Swar.indexOfStringEnd(this.words, this.pos, this.end);
+			}
+		}
+		throw new ParseException("Unexpected end of input. Expected closing double quote", this.pos - this.start);
+	}
+
+	/**
+	 * Считывает экранированную последовательность. Курсор при этом находится на символе
+	 * после обратной косой черты и остаётся на последнем символе последовательности
+	 * @return Закодированный символ
+	 * @throws ParseException Если последовательность неизвестна или неполная
+	 */
+	private char readEscape() throws ParseException {
+		int c = this.byteAt(this.pos);
+		switch(c){
+			case '"':
+			case '\\':
+			case '/':
+				return (char) c;
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				return this.readUnicode();
+			default:
+				this.throwException(c, "Unknown escape sequence");
+				return 0;
+		}
+	}
+
+	/**
+	 * Считывает четыре шестнадцатеричные цифры последовательности {@code \}{@code uXXXX}.
+	 * Курсор при этом находится на символе {@code u} и остаётся на последней цифре
+	 * @return Закодированный символ
+	 * @throws ParseException Если последовательность неполная или содержит не шестнадцатеричные цифры
+	 */
+	private char readUnicode() throws ParseException {
+		if(this.pos + 4 >= this.end)
+			throw new ParseException("Unexpected end of input. Expected unicode escape sequence", this.pos - this.start);
+		int code = 0;
+		for(int i = 0; i < 4; i++){
+			int c = this.byteAt(++this.pos);
+			int digit = Character.digit(c, 16);
+			if(digit < 0)
+				this.throwException(c, "Expected hexadecimal digit");
+			code = code << 4 | digit;
+		}
+		return (char) code;
+	}
+
+	/**
+	 * Декодирует участок буфера из UTF-8 в строку
+	 * @param from Индекс первого байта
+	 * @param to Индекс за последним байтом
+	 * @return Декодированная строка
+	 */
+	private String decode(int from, int to) throws ParseException {
+		int length = to - from;
+		String result;
+		if(this.raw.hasArray()){
+			result = new String(this.raw.array(), this.raw.arrayOffset() + from, length, StandardCharsets.UTF_8);
+		} else {
+			if(this.scratch.length < length)
+				this.scratch = new byte[Math.max(length, this.scratch.length << 1)];
+			for(int i = 0; i < length; i++)
+				this.scratch[i] = this.raw.get(from + i);
+			result = new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+		}
+		// Декодер заменяет неверные последовательности на U+FFFD, только тогда байты нужно проверить
+		if(result.indexOf('\uFFFD') >= 0)
+			this.validateUtf8(from, to);
+		return result;
+	}
+
+	/**
+	 * Проверяет, что участок буфера записан в корректной кодировке UTF-8: без лишних байтов
+	 * продолжения, неполных и избыточных последовательностей, суррогатов и символов больше U+10FFFF.
+	 * Участки из ASCII проверяются по 8 байт за раз
+	 * @param from Индекс первого байта
+	 * @param to Индекс за последним байтом. Байт по этому индексу должен существовать
+	 * @throws ParseException Если участок содержит неверную последовательность
+	 */
+	private void validateUtf8(int from, int to) throws ParseException {
+		int i = from;
+		while(i < to){
+			if(i + Long.BYTES <= to && (this.words.getLong(i) & 0x8080808080808080L) == 0){
+				i += Long.BYTES;
+				continue;
+			}
+			int c = this.byteAt(i);
+			if(c < 0x80){
+				i++;
+				continue;
+			}
+			int pending;
+			int code;
+			int min;
+			if(c >= 0xC2 && c <= 0xDF){
+				pending = 1;
+				code = c & 0x1F;
+				min = 0x80;
+			} else if(c >= 0xE0 && c <= 0xEF){
+				pending = 2;
+				code = c & 0x0F;
+				min = 0x800;
+			} else if(c >= 0xF0 && c <= 0xF4){
+				pending = 3;
+				code = c & 0x07;
+				min = 0x10000;
+			} else {
+				this.pos = i;
+				this.throwException(c, "Invalid UTF-8 lead byte");
+				return;
+			}
+			int lead = i++;
+			for(; pending > 0; pending--, i++){
+				c = this.byteAt(i);
+				if(i == to || (c & 0xC0) != 0x80){
+					this.pos = i;
+					this.throwException(c, "Invalid UTF-8 continuation byte");
+				}
+				code = code << 6 | c & 0x3F;
+			}
+			if(code < min || code > Character.MAX_CODE_POINT || Character.MIN_SURROGATE <= code && code <= Character.MAX_SURROGATE)
+				throw new ParseException("Invalid UTF-8 sequence at position " + (lead - this.start), lead - this.start);
+		}
+	}
+
+	/**
+	 * Проверяет, что с текущей позиции начинается ожидаемое ключевое слово, и пропускает его
+	 * @param keyword Одно из ключевых слов {@code null}, {@code true} или {@code false}
+	 * @throws ParseException Если ключевое слово записано неверно
+	 */
+	private void readKeyword(String keyword) throws ParseException {
+		int length = keyword.length();
+		for(int i = 0; i < length; i++, this.pos++){
+			if(this.pos == this.end)
+				throw new ParseException("Unexpected end of input. Expected " + keyword + " value", this.pos - this.start);
+			int c = this.byteAt(this.pos);
+			if(c != keyword.charAt(i))
+				this.throwException(c, "Expected " + keyword + " value");
+		}
+	}
+
+	/**
+	 * Проверяет число по грамматике JSON (знак, целая часть без ведущих нулей,
+	 * дробная часть и экспонента) и перемещает курсор за его последний байт
+	 * @return Позиция сразу после числа
+	 * @throws ParseException Если число записано некорректно
+	 */
+	private int readNumber() throws ParseException {
+		if(this.byteAt(this.pos) == '-')
+			this.pos++;
+		int c = this.byteAtPos();
+		if(c == '0'){
+			this.pos++;
+		} else if(isDigit(c)){
+			this.skipDigits();
+		} else {
+			this.throwException(c, "Expected digit token");
+		}
+		if(this.byteAtPos() == '.'){
+			this.pos++;
+			if(!isDigit(this.byteAtPos()))
+				this.throwException(this.byteAtPos(), "Expected digit token");
+			this.skipDigits();
+		}
+		c = this.byteAtPos();
+		if(c == 'e' || c == 'E'){
+			this.pos++;
+			c = this.byteAtPos();
+			if(c == '+' || c == '-')
+				this.pos++;
+			if(!isDigit(this.byteAtPos()))
+				this.throwException(this.byteAtPos(), "Expected digit token");
+			this.skipDigits();
+		}
+		return this.pos;
+	}
+
+	/**
+	 * Перемещает курсор за последнюю подряд идущую цифру
+	 */
+	private void skipDigits(){
+		while(this.pos < this.end && isDigit(this.byteAt(this.pos)))
+			this.pos++;
+	}
+
+	/**
+	 * Возвращает байт по абсолютному индексу как беззнаковое число
+	 * @param index Индекс в буфере
+	 * @return Значение байта от 0 до 255
+	 */
+	private int byteAt(int index){
+		return this.raw.get(index) & 0xFF;
+	}
+
+	/**
+	 * Возвращает байт в текущей позиции курсора
+	 * @return Значение байта или {@code 0}, если достигнут конец данных
+	 */
+	private int byteAtPos(){
+		return this.pos < this.end ? this.byteAt(this.pos) : 0;
+	}
+
+	/**
+	 * Пропускает пробельные символы и возвращает первый значащий байт, не перемещая на него курсор
+	 * @return Первый непробельный байт
+	 * @throws ParseException Если данные закончились раньше, чем были закрыты все структуры
+	 */
+	private int nextToken() throws ParseException {
+		this.skipWhitespace();
+		if(this.pos == this.end)
+			throw new ParseException("Unexpected end of input. Expected " + (this.isObject(this.depth - 1) ? '}' : ']'), this.pos - this.start);
+		return this.byteAt(this.pos);
+	}
+
+	/**
+	 * Перемещает курсор за последний подряд идущий пробельный символ.
+	 * Одиночные пробелы между токенами проверяются побайтово, длинные отступы - пословно
+	 */
+	private void skipWhitespace(){
+		if(this.pos < this.end && isWhitespace(this.byteAt(this.pos)))
+			this.pos = Swar.skipWhitespace(this.words, this.pos + 1, this.end);
+	}
+
+	/**
+	 * Бросает ошибку парсинга со стандартным текстом. Позиция ошибки отсчитывается
+	 * в байтах от начала данных
+	 * @param c Байт на котором произошла ошибка
+	 * @param additional Дополнительная информация об ошибке
+	 */
+	private void throwException(int c, String additional) throws ParseException {
+		int position = this.pos - this.start;
+		String token = c < 0x80 ? String.valueOf((char) c) : String.format("0x%02X", c);
+		throw new ParseException("Unexpected token \"" + token + "\" at position " + position + ". " + additional, position);
+	}
+
+	/**
+	 * Проверяет, является ли переданный байт пробельным символом
+	 * @param c Проверяемый байт
+	 * @return {@code true} если байт пробельный
+	 */
+	private static boolean isWhitespace(int c){
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\0';
+	}
+
+	/**
+	 * Проверяет, является ли переданный байт цифрой от 0 до 9
+	 * @param c Проверяемый байт
+	 * @return {@code true} если байт это цифра
+	 */
+	private static boolean isDigit(int c){
+		return '0' <= c && c <= '9';
+	}
+}
@@ -0,0 +1,466 @@
+package common.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Декодирует данные CBOR (RFC 8949) в структуры {@code JSONEntity}.
+ * Данные читаются из потока через внутренний буфер или прямо из {@code ByteBuffer}.
+ * Несколько значений подряд (последовательность CBOR, RFC 8742) читаются повторными вызовами
+ * {@link #read()}. Вложенные структуры и цепочки тегов разбираются без рекурсии.
+ * Целые числа превращаются в целые {@code JSONNumber}, числа с плавающей точкой - в дробные,
+ * большие целые (теги 2 и 3) и десятичные дроби (тег 4) - в {@code BigDecimal}.
+ * Остальные теги пропускаются, {@code undefined} читается как {@code null}.
+ * Ключами словарей могут быть только текстовые строки, строки байтов не поддерживаются.
+ * Текстовые строки с неверными последовательностями UTF-8 отклоняются, как и в {@link ByteParser}
+ */
+public final class CBORDecoder implements Closeable{
+
+	/** Размер внутреннего буфера при чтении из потока */
+	private static final int BUFFER_SIZE = 8192;
+	/** Начальная ёмкость стека структур */
+	private static final int STACK_CAPACITY = 16;
+	/** Количество оставшихся элементов структуры неопределённой длины */
+	private static final long INDEFINITE = -1;
+
+	/** Поток с данными или {@code null}, если данные читаются из буфера */
+	private final InputStream in;
+	/** Буфер с данными. При чтении из потока - внутренний буфер в режиме чтения */
+	private final ByteBuffer buffer;
+	/** Количество прочитанных байтов до начала буфера */
+	private long offset = 0;
+
+	/** Стек незавершённых структур */
+	private JSONComplex[] stack = new JSONComplex[STACK_CAPACITY];
+	/** Количество оставшихся элементов каждой структуры. Для словаря учитываются и ключи, и значения */
+	private long[] remaining = new long[STACK_CAPACITY];
+	/** Прочитанный ключ словаря, ожидающий значения */
+	private String[] keys = new String[STACK_CAPACITY];
+	/** Глубина вложенности */
+	private int depth = 0;
+	/** Декодер для проверки строк, в которых встретились неверные байты. Создаётся при первой необходимости */
+	private CharsetDecoder utf8;
+
+	/**
+	 * Создаёт декодировщик, читающий из потока
+	 * @param in Поток с данными CBOR
+	 */
+	public CBORDecoder(InputStream in){
+		this.in = in;
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.buffer.limit(0);
+	}
+
+	/**
+	 * Создаёт декодировщик, читающий из буфера начиная с его текущей позиции.
+	 * Позиция буфера сдвигается по мере чтения
+	 * @param in Буфер с данными CBOR
+	 */
+	public CBORDecoder(ByteBuffer in){
+		this.in = null;
+		this.buffer = in;
+	}
+
+	/**
+	 * Декодирует массив, содержащий ровно одно значение
+	 * @param data Данные CBOR
+	 * @return Значение
+	 * @throws ParseException Если данные невалидны или после значения есть лишние байты
+	 */
+	public static JSONEntity decode(byte[] data) throws ParseException {
+		CBORDecoder decoder = new CBORDecoder(ByteBuffer.wrap(data));
+		try {
+			JSONEntity result = decoder.read();
+			if(decoder.hasNext())
+				throw decoder.exception("There should be no bytes after data ending");
+			return result;
+		} catch(IOException ex){
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Проверяет, есть ли ещё данные
+	 * @return {@code true} если можно прочитать следующее значение
+	 * @throws IOException Если не удалось прочитать данные из потока
+	 */
+	public boolean hasNext() throws IOException {
+		return this.buffer.hasRemaining() || this.in != null && this.fill(1);
+	}
+
+	/**
+	 * Читает следующее значение
+	 * @return Значение. {@code null} соответствует {@code null} и {@code undefined} CBOR
+	 * @throws IOException Если не удалось прочитать данные из потока
+	 * @throws ParseException Если данные невалидны или содержат неподдерживаемые типы
+	 */
+	public JSONEntity read() throws IOException, ParseException {
+		this.depth = 0;
+		try {
+			return this.readValue();
+		} finally {
+			Arrays.fill(this.stack, 0, this.depth, null);
+			Arrays.fill(this.keys, 0, this.depth, null);
+		}
+	}
+
+	/**
+	 * Читает элементы данных, пока не будет собрано одно значение верхнего уровня
+	 */
+	private JSONEntity readValue() throws IOException, ParseException {
+		// Был ли пропущен неизвестный тег, который должен относиться к следующему элементу
+		boolean tagged = false;
+		while(true){
+			JSONEntity value;
+			if(this.depth > 0 && this.remaining[this.depth - 1] == 0){
+				value = this.pop();
+			} else {
+				int initial = this.next();
+				int major = initial >>> 5;
+				int info = initial & 0x1F;
+				if(major == CBOREncoder.MAJOR_TAG){
+					long tag = this.argument(info);
+					if(tag != CBOREncoder.TAG_POSITIVE_BIGNUM && tag != CBOREncoder.TAG_NEGATIVE_BIGNUM && tag != CBOREncoder.TAG_DECIMAL_FRACTION){
+						tagged = true;
+						continue;
+					}
+					value = this.readTag(tag);
+				} else if(initial == CBOREncoder.BREAK){
+					if(tagged)
+						throw this.exception("Missing value after tag");
+					if(this.depth == 0 || this.remaining[this.depth - 1] != INDEFINITE)
+						throw this.exception("Unexpected break");
+					if(this.keys[this.depth - 1] != null)
+						throw this.exception("Missing value for key \"" + this.keys[this.depth - 1] + "\"");
+					value = this.pop();
+				} else if(major == CBOREncoder.MAJOR_ARRAY || major == CBOREncoder.MAJOR_MAP){
+					long count = info == 31 ? INDEFINITE : this.argument(info);
+					if(count != INDEFINITE && (count < 0 || major == CBOREncoder.MAJOR_MAP && count > Long.MAX_VALUE >> 1))
+						throw this.exception("Too many elements");
+					this.push(major == CBOREncoder.MAJOR_ARRAY ? new JSONList() : new JSONObject(), major == CBOREncoder.MAJOR_MAP && count != INDEFINITE ? count << 1 : count);
+					tagged = false;
+					continue;
+				} else {
+					value = this.readScalar(major, info);
+				}
+			}
+			tagged = false;
+			if(this.depth == 0)
+				return value;
+			int top = this.depth - 1;
+			JSONComplex container = this.stack[top];
+			if(this.remaining[top] > 0)
+				this.remaining[top]--;
+			if(container instanceof JSONObject){
+				if(this.keys[top] == null){
+					if(!(value instanceof JSONString))
+						throw this.exception("Only text string keys are supported");
+					this.keys[top] = ((JSONString) value).stringValue();
+					continue;
+				}
+				container.add(this.keys[top], value);
+				this.keys[top] = null;
+			} else {
+				container.add(null, value);
+			}
+		}
+	}
+
+	/**
+	 * Читает скалярное значение
+	 * @param major Главный тип
+	 * @param info Дополнительная информация начального байта
+	 */
+	private JSONEntity readScalar(int major, int info) throws IOException, ParseException {
+		switch(major){
+			case CBOREncoder.MAJOR_UNSIGNED: {
+				long value = this.argument(info);
+				return value >= 0 ? new JSONNumber(value) : new JSONNumber(new BigDecimal(Long.toUnsignedString(value)));
+			}
+			case CBOREncoder.MAJOR_NEGATIVE: {
+				long value = this.argument(info);
+				return value >= 0 ? new JSONNumber(-1 - value) : new JSONNumber(new BigDecimal(Long.toUnsignedString(value)).negate().subtract(BigDecimal.ONE));
+			}
+			case CBOREncoder.MAJOR_BYTES:
+				throw this.exception("Byte strings are not supported");
+			case CBOREncoder.MAJOR_TEXT:
+				return new JSONString(this.readText(info));
+			default:
+				return this.readSimple(info);
+		}
+	}
+
+	/**
+	 * Читает значение после тега большого целого или десятичной дроби.
+	 * Остальные теги пропускаются в {@link #readValue()}
+	 * @param tag Номер тега 2, 3 или 4
+	 */
+	private JSONEntity readTag(long tag) throws IOException, ParseException {
+		if(tag == CBOREncoder.TAG_DECIMAL_FRACTION){
+			int initial = this.next();
+			if(initial != (CBOREncoder.MAJOR_ARRAY << 5 | 2))
+				throw this.exception("Decimal fraction must be an array of two integers");
+			BigInteger exponent = this.readInteger();
+			if(exponent.bitLength() >= Integer.SIZE || exponent.intValue() == Integer.MIN_VALUE)
+				throw this.exception("Decimal fraction exponent is out of range");
+			return new JSONNumber(new BigDecimal(this.readInteger(), -exponent.intValue()));
+		}
+		return new JSONNumber(new BigDecimal(this.readBignum(tag)));
+	}
+
+	/**
+	 * Читает целое число, которое может быть большим целым с тегом
+	 */
+	private BigInteger readInteger() throws IOException, ParseException {
+		int initial = this.next();
+		int major = initial >>> 5;
+		int info = initial & 0x1F;
+		if(major == CBOREncoder.MAJOR_UNSIGNED || major == CBOREncoder.MAJOR_NEGATIVE){
+			BigInteger value = new BigInteger(Long.toUnsignedString(this.argument(info)));
+			return major == CBOREncoder.MAJOR_UNSIGNED ? value : value.negate().subtract(BigInteger.ONE);
+		}
+		if(major == CBOREncoder.MAJOR_TAG){
+			long tag = this.argument(info);
+			if(tag == CBOREncoder.TAG_POSITIVE_BIGNUM || tag == CBOREncoder.TAG_NEGATIVE_BIGNUM)
+				return this.readBignum(tag);
+		}
+		throw this.exception("Expected integer");
+	}
+
+	/**
+	 * Читает строку байтов большого целого
+	 * @param tag Тег 2 или 3
+	 */
+	private BigInteger readBignum(long tag) throws IOException, ParseException {
+		int initial = this.next();
+		if(initial >>> 5 != CBOREncoder.MAJOR_BYTES || (initial & 0x1F) == 31)
+			throw this.exception("Bignum must be a definite byte string");
+		BigInteger value = new BigInteger(1, this.readBytes(this.length(initial & 0x1F)));
+		return tag == CBOREncoder.TAG_POSITIVE_BIGNUM ? value : value.negate().subtract(BigInteger.ONE);
+	}
+
+	/**
+	 * Читает простое значение или число с плавающей точкой
+	 * @param info Дополнительная информация начального байта
+	 */
+	private JSONEntity readSimple(int info) throws IOException, ParseException {
+		switch(info){
+			case CBOREncoder.FALSE & 0x1F:
+				return JSONBoolean.FALSE;
+			case CBOREncoder.TRUE & 0x1F:
+				return JSONBoolean.TRUE;
+			case CBOREncoder.NULL & 0x1F:
+			case CBOREncoder.UNDEFINED & 0x1F:
+				return null;
+			case CBOREncoder.HALF & 0x1F:
+				return new JSONNumber(CBOREncoder.fromHalf((int) this.readUnsigned(2)));
+			case CBOREncoder.SINGLE & 0x1F:
+				return new JSONNumber((double) Float.intBitsToFloat((int) this.readUnsigned(4)));
+			case CBOREncoder.DOUBLE & 0x1F:
+				return new JSONNumber(Double.longBitsToDouble(this.readUnsigned(8)));
+			default:
+				throw this.exception("Unsupported simple value " + info);
+		}
+	}
+
+	/**
+	 * Читает текстовую строку определённой или неопределённой длины
+	 * @param info Дополнительная информация начального байта
+	 */
+	private String readText(int info) throws IOException, ParseException {
+		if(info != 31)
+			return this.decode(this.length(info));
+		StringBuilder result = new StringBuilder();
+		while(true){
+			int initial = this.next();
+			if(initial == CBOREncoder.BREAK)
+				return result.toString();
+			if(initial >>> 5 != CBOREncoder.MAJOR_TEXT || (initial & 0x1F) == 31)
+				throw this.exception("Indefinite text string chunks must be definite text strings");
+			result.append(this.decode(this.length(initial & 0x1F)));
+		}
+	}
+
+	/**
+	 * Декодирует строку UTF-8 заданной длины
+	 */
+	private String decode(int length) throws IOException, ParseException {
+		if(this.buffer.hasArray() && this.ensure(length)){
+			int position = this.buffer.position();
+			this.buffer.position(position + length);
+			return this.decode(this.buffer.array(), this.buffer.arrayOffset() + position, length);
+		}
+		return this.decode(this.readBytes(length), 0, length);
+	}
+
+	/**
+	 * Декодирует строку UTF-8 из массива. Строка проверяется декодером, только если
+	 * при декодировании появился символ U+FFFD: иначе неверных байтов в ней нет
+	 * @throws ParseException Если строка содержит неверную последовательность UTF-8
+	 */
+	private String decode(byte[] array, int offset, int length) throws ParseException {
+		String result = new String(array, offset, length, StandardCharsets.UTF_8);
+		if(result.indexOf('\uFFFD') >= 0){
+			if(this.utf8 == null)
+				this.utf8 = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+			try {
+				this.utf8.decode(ByteBuffer.wrap(array, offset, length));
+			} catch(CharacterCodingException ex){
+				throw this.exception("Invalid UTF-8 sequence");
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Читает заданное количество байтов в новый массив
+	 */
+	private byte[] readBytes(int length) throws IOException, ParseException {
+		byte[] result = new byte[length];
+		int done = 0;
+		while(done < length){
+			if(!this.buffer.hasRemaining() && !(this.in != null && this.fill(1)))
+				throw this.exception("Unexpected end of input");
+			int chunk = Math.min(length - done, this.buffer.remaining());
+			this.buffer.get(result, done, chunk);
+			done += chunk;
+		}
+		return result;
+	}
+
+	/**
+	 * Читает длину строки
+	 * @param info Дополнительная информация начального байта
+	 */
+	private int length(int info) throws IOException, ParseException {
+		long length = this.argument(info);
+		if(length < 0 || length > Integer.MAX_VALUE - 8)
+			throw this.exception("String is too long");
+		return (int) length;
+	}
+
+	/**
+	 * Читает аргумент элемента данных
+	 * @param info Дополнительная информация начального байта
+	 * @return Аргумент как число без знака
+	 */
+	private long argument(int info) throws IOException, ParseException {
+		if(info < 24)
+			return info;
+		switch(info){
+			case 24:
+				return this.readUnsigned(1);
+			case 25:
+				return this.readUnsigned(2);
+			case 26:
+				return this.readUnsigned(4);
+			case 27:
+				return this.readUnsigned(8);
+			default:
+				throw this.exception("Invalid additional information " + info);
+		}
+	}
+
+	/**
+	 * Читает число без знака в порядке байтов от старшего к младшему
+	 * @param length Количество байтов
+	 */
+	private long readUnsigned(int length) throws IOException, ParseException {
+		if(!this.ensure(length))
+			throw this.exception("Unexpected end of input");
+		long result = 0;
+		for(int i = 0; i < length; i++)
+			result = result << 8 | this.buffer.get() & 0xFF;
+		return result;
+	}
+
+	/**
+	 * Читает один байт
+	 */
+	private int next() throws IOException, ParseException {
+		if(!this.ensure(1))
+			throw this.exception("Unexpected end of input");
+		return this.buffer.get() & 0xFF;
+	}
+
+	/**
+	 * Проверяет, что в буфере доступно заданное количество байтов, дочитывая поток при необходимости
+	 * @param length Количество байтов, не больше размера внутреннего буфера для потоков
+	 * @return {@code true} если байты доступны
+	 */
+	private boolean ensure(int length) throws IOException {
+		if(this.buffer.remaining() >= length)
+			return true;
+		return this.in != null && length <= this.buffer.capacity() && this.fill(length);
+	}
+
+	/**
+	 * Дочитывает поток во внутренний буфер
+	 * @param length Минимальное количество байтов, которое нужно получить
+	 * @return {@code true} если удалось получить заданное количество байтов
+	 */
+	private boolean fill(int length) throws IOException {
+		this.offset += this.buffer.position();
+		this.buffer.compact();
+		try {
+			while(this.buffer.position() < length){
+				int read = this.in.read(this.buffer.array(), this.buffer.position(), this.buffer.remaining());
+				if(read < 0)
+					return false;
+				this.buffer.position(this.buffer.position() + read);
+			}
+			return true;
+		} finally {
+			this.buffer.flip();
+		}
+	}
+
+	/**
+	 * Кладёт структуру на вершину стека
+	 * @param container Структура
+	 * @param count Количество элементов или {@link #INDEFINITE}
+	 */
+	private void push(JSONComplex container, long count){
+		if(this.depth == this.stack.length){
+			this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+			this.remaining = Arrays.copyOf(this.remaining, this.depth << 1);
+			this.keys = Arrays.copyOf(this.keys, this.depth << 1);
+		}
+		this.stack[this.depth] = container;
+		this.remaining[this.depth] = count;
+		this.depth++;
+	}
+
+	/**
+	 * Снимает завершённую структуру с вершины стека
+	 */
+	private JSONComplex pop(){
+		JSONComplex result = this.stack[--this.depth];
+		this.stack[this.depth] = null;
+		return result;
+	}
+
+	/**
+	 * Создаёт ошибку разбора с текущей позицией
+	 */
+	private ParseException exception(String message){
+		long position = this.offset + this.buffer.position();
+		return new ParseException(message + " at position " + position, (int) Math.min(position, Integer.MAX_VALUE));
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(this.in != null)
+			this.in.close();
+	}
+}
@@ -0,0 +1,447 @@
+package common.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кодирует структуры {@code JSONEntity} в двоичный формат CBOR (RFC 8949).
+ * Данные накапливаются во внутреннем буфере и по мере заполнения сбрасываются в поток
+ * или в {@code ByteBuffer}, поэтому документы любого размера кодируются в постоянной памяти.
+ * Подряд записанные значения образуют последовательность CBOR (RFC 8742).
+ * Целые числа кодируются как целые CBOR, дробные - как числа с плавающей точкой
+ * в наименьшем формате (половинной, одинарной или двойной точности), который хранит значение точно.
+ * {@code BigDecimal} за пределами {@code long} кодируется тегами 2/3 (большие целые)
+ * и 4 (десятичная дробь)
+ */
+public final class CBOREncoder implements Closeable, Flushable{
+
+	/** Размер внутреннего буфера */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Главный тип: целое без знака */
+	static final int MAJOR_UNSIGNED = 0;
+	/** Главный тип: отрицательное целое */
+	static final int MAJOR_NEGATIVE = 1;
+	/** Главный тип: строка байтов */
+	static final int MAJOR_BYTES = 2;
+	/** Главный тип: текстовая строка */
+	static final int MAJOR_TEXT = 3;
+	/** Главный тип: массив */
+	static final int MAJOR_ARRAY = 4;
+	/** Главный тип: словарь */
+	static final int MAJOR_MAP = 5;
+	/** Главный тип: тег */
+	static final int MAJOR_TAG = 6;
+	/** Главный тип: простые значения и числа с плавающей точкой */
+	static final int MAJOR_SIMPLE = 7;
+
+	/** Тег положительного большого целого */
+	static final int TAG_POSITIVE_BIGNUM = 2;
+	/** Тег отрицательного большого целого */
+	static final int TAG_NEGATIVE_BIGNUM = 3;
+	/** Тег десятичной дроби */
+	static final int TAG_DECIMAL_FRACTION = 4;
+
+	static final int FALSE = 0xF4;
+	static final int TRUE = 0xF5;
+	static final int NULL = 0xF6;
+	static final int UNDEFINED = 0xF7;
+	static final int HALF = 0xF9;
+	static final int SINGLE = 0xFA;
+	static final int DOUBLE = 0xFB;
+	static final int BREAK = 0xFF;
+
+	/** Поток, в который сбрасывается буфер, или {@code null} */
+	private final OutputStream out;
+	/** Буфер, в который сбрасывается внутренний буфер, или {@code null} */
+	private final ByteBuffer target;
+	/** Внутренний буфер */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	/** Количество байтов во внутреннем буфере */
+	private int count = 0;
+
+	/**
+	 * Создаёт кодировщик, пишущий в поток
+	 * @param out Поток для данных CBOR
+	 */
+	public CBOREncoder(OutputStream out){
+		this.out = out;
+		this.target = null;
+	}
+
+	/**
+	 * Создаёт кодировщик, пишущий в буфер начиная с его текущей позиции
+	 * @param target Буфер для данных CBOR. Если места не хватит, то будет брошено {@code BufferOverflowException}
+	 */
+	public CBOREncoder(ByteBuffer target){
+		this.out = null;
+		this.target = target;
+	}
+
+	/**
+	 * Кодирует значение в массив байтов
+	 * @param entity Значение
+	 * @return Данные CBOR
+	 */
+	public static byte[] encode(JSONEntity entity){
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try(CBOREncoder encoder = new CBOREncoder(result)){
+			encoder.write(entity);
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+		return result.toByteArray();
+	}
+
+	/**
+	 * Кодирует значение. Вложенные структуры обходятся без рекурсии
+	 * @param entity Значение или {@code null}
+	 * @return Этот же кодировщик
+	 * @throws IOException Если не удалось записать данные
+	 * @throws IllegalArgumentException Если встретился неизвестный тип значения
+	 */
+	public CBOREncoder write(JSONEntity entity) throws IOException {
+		Iterator<?>[] iterators = new Iterator<?>[8];
+		int size = 0;
+		Iterator<?> children = this.open(entity);
+		if(children == null)
+			return this;
+		iterators[size++] = children;
+		while(size > 0){
+			Iterator<?> top = iterators[size - 1];
+			if(!top.hasNext()){
+				iterators[--size] = null;
+				continue;
+			}
+			Object next = top.next();
+			JSONEntity child;
+			if(next instanceof Map.Entry){
+				@SuppressWarnings("unchecked")
+				Map.Entry<String, JSONEntity> entry = (Map.Entry<String, JSONEntity>) next;
+				this.writeString(entry.getKey());
+				child = entry.getValue();
+			} else {
+				child = (JSONEntity) next;
+			}
+			children = this.open(child);
+			if(children != null){
+				if(size == iterators.length)
+					iterators = Arrays.copyOf(iterators, size << 1);
+				iterators[size++] = children;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Записывает скалярное значение или заголовок структуры
+	 * @param entity Значение
+	 * @return Итератор потомков структуры или {@code null} для скалярных значений и числовых списков
+	 */
+	private Iterator<?> open(JSONEntity entity) throws IOException {
+		if(entity instanceof JSONObject){
+			Map<String, JSONEntity> value = ((JSONObject) entity).value;
+			this.writeHeader(MAJOR_MAP, value.size());
+			return value.entrySet().iterator();
+		}
+		if(entity instanceof JSONList){
+			List<JSONEntity> value = ((JSONList) entity).value;
+			this.writeHeader(MAJOR_ARRAY, value.size());
+			if(value instanceof ElementList){
+				ElementList elements = (ElementList) value;
+				if(elements.isLongs()){
+					for(int i = 0; i < elements.size(); i++)
+						this.writeLong(elements.getLong(i));
+					return null;
+				}
+				if(elements.isDoubles()){
+					for(int i = 0; i < elements.size(); i++)
+						this.writeDouble(elements.getDouble(i));
+					return null;
+				}
+			}
+			return value.iterator();
+		}
+		if(entity == null){
+			this.write(NULL);
+		} else if(entity instanceof JSONString){
+			this.writeString(((JSONString) entity).stringValue());
+		} else if(entity instanceof JSONNumber){
+			JSONNumber number = (JSONNumber) entity;
+			if(number.isLong())
+				this.writeLong(number.longValue());
+			else if(number.isBig())
+				this.writeBigDecimal(number.bigDecimalValue());
+			else
+				this.writeDouble(number.doubleValue());
+		} else if(entity instanceof JSONBoolean){
+			this.write(((JSONBoolean) entity).value.booleanValue() ? TRUE : FALSE);
+		} else {
+			throw new IllegalArgumentException("Unsupported entity type " + entity.getClass().getName());
+		}
+		return null;
+	}
+
+	/**
+	 * Записывает заголовок элемента данных в кратчайшей форме
+	 * @param major Главный тип
+	 * @param argument Аргумент, рассматриваемый как число без знака
+	 */
+	private void writeHeader(int major, long argument) throws IOException {
+		this.reserve(9);
+		int type = major << 5;
+		if(argument >= 0 && argument < 24){
+			this.buffer[this.count++] = (byte) (type | (int) argument);
+		} else if(argument >= 0 && argument < 0x100){
+			this.buffer[this.count++] = (byte) (type | 24);
+			this.buffer[this.count++] = (byte) argument;
+		} else if(argument >= 0 && argument < 0x10000){
+			this.buffer[this.count++] = (byte) (type | 25);
+			this.putBytes(argument, 2);
+		} else if(argument >= 0 && argument < 0x100000000L){
+			this.buffer[this.count++] = (byte) (type | 26);
+			this.putBytes(argument, 4);
+		} else {
+			this.buffer[this.count++] = (byte) (type | 27);
+			this.putBytes(argument, 8);
+		}
+	}
+
+	/**
+	 * Записывает целое число
+	 */
+	private void writeLong(long value) throws IOException {
+		if(value >= 0)
+			this.writeHeader(MAJOR_UNSIGNED, value);
+		else
+			this.writeHeader(MAJOR_NEGATIVE, -1 - value);
+	}
+
+	/**
+	 * Записывает дробное число в наименьшем формате, хранящем его точно
+	 */
+	private void writeDouble(double value) throws IOException {
+		this.reserve(9);
+		float single = (float) value;
+		if(single != value && !Double.isNaN(value)){
+			this.buffer[this.count++] = (byte) DOUBLE;
+			this.putBytes(Double.doubleToLongBits(value), 8);
+			return;
+		}
+		int half = toHalf(single);
+		if(half >= 0){
+			this.buffer[this.count++] = (byte) HALF;
+			this.putBytes(half, 2);
+		} else {
+			this.buffer[this.count++] = (byte) SINGLE;
+			this.putBytes(Float.floatToIntBits(single), 4);
+		}
+	}
+
+	/**
+	 * Записывает число произвольной точности
+	 */
+	private void writeBigDecimal(BigDecimal value) throws IOException {
+		if(value.scale() <= 0 || value.stripTrailingZeros().scale() <= 0){
+			this.writeBigInteger(value.toBigIntegerExact());
+			return;
+		}
+		this.writeHeader(MAJOR_TAG, TAG_DECIMAL_FRACTION);
+		this.writeHeader(MAJOR_ARRAY, 2);
+		this.writeLong(-value.scale());
+		this.writeBigInteger(value.unscaledValue());
+	}
+
+	/**
+	 * Записывает целое число произвольной точности
+	 */
+	private void writeBigInteger(BigInteger value) throws IOException {
+		if(value.bitLength() < 64){
+			this.writeLong(value.longValue());
+			return;
+		}
+		boolean negative = value.signum() < 0;
+		BigInteger magnitude = negative ? value.negate().subtract(BigInteger.ONE) : value;
+		if(magnitude.bitLength() <= 64){
+			this.writeHeader(negative ? MAJOR_NEGATIVE : MAJOR_UNSIGNED, magnitude.longValue());
+			return;
+		}
+		this.writeHeader(MAJOR_TAG, negative ? TAG_NEGATIVE_BIGNUM : TAG_POSITIVE_BIGNUM);
+		byte[] bytes = magnitude.toByteArray();
+		int offset = bytes[0] == 0 ? 1 : 0;
+		this.writeHeader(MAJOR_BYTES, bytes.length - offset);
+		this.write(bytes, offset, bytes.length - offset);
+	}
+
+	/**
+	 * Записывает текстовую строку, кодируя её в UTF-8 прямо во внутренний буфер.
+	 * Непарные суррогаты заменяются символом {@code ?}, как в {@code String.getBytes}
+	 */
+	private void writeString(String value) throws IOException {
+		int length = value.length();
+		long bytes = 0;
+		for(int i = 0; i < length; i++){
+			char c = value.charAt(i);
+			if(c < 0x80){
+				bytes++;
+			} else if(c < 0x800){
+				bytes += 2;
+			} else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))){
+				bytes += 4;
+				i++;
+			} else if(Character.isSurrogate(c)){
+				bytes++;
+			} else {
+				bytes += 3;
+			}
+		}
+		this.writeHeader(MAJOR_TEXT, bytes);
+		for(int i = 0; i < length; i++){
+			this.reserve(4);
+			char c = value.charAt(i);
+			if(c < 0x80){
+				this.buffer[this.count++] = (byte) c;
+			} else if(c < 0x800){
+				this.buffer[this.count++] = (byte) (0xC0 | c >> 6);
+				this.buffer[this.count++] = (byte) (0x80 | c & 0x3F);
+			} else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))){
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				this.buffer[this.count++] = (byte) (0xF0 | codePoint >> 18);
+				this.buffer[this.count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+				this.buffer[this.count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+				this.buffer[this.count++] = (byte) (0x80 | codePoint & 0x3F);
+			} else if(Character.isSurrogate(c)){
+				this.buffer[this.count++] = '?';
+			} else {
+				this.buffer[this.count++] = (byte) (0xE0 | c >> 12);
+				this.buffer[this.count++] = (byte) (0x80 | c >> 6 & 0x3F);
+				this.buffer[this.count++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+	}
+
+	/**
+	 * Записывает младшие байты числа в порядке от старшего к младшему
+	 * @param value Число
+	 * @param length Количество байтов
+	 */
+	private void putBytes(long value, int length){
+		for(int shift = (length - 1) << 3; shift >= 0; shift -= 8)
+			this.buffer[this.count++] = (byte) (value >>> shift);
+	}
+
+	/**
+	 * Записывает один байт
+	 */
+	private void write(int b) throws IOException {
+		this.reserve(1);
+		this.buffer[this.count++] = (byte) b;
+	}
+
+	/**
+	 * Записывает участок массива байтов
+	 */
+	private void write(byte[] bytes, int offset, int length) throws IOException {
+		while(length > 0){
+			this.reserve(1);
+			int chunk = Math.min(length, this.buffer.length - this.count);
+			System.arraycopy(bytes, offset, this.buffer, this.count, chunk);
+			this.count += chunk;
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	/**
+	 * Освобождает место во внутреннем буфере
+	 * @param length Количество байтов, которые должны поместиться
+	 */
+	private void reserve(int length) throws IOException {
+		if(this.buffer.length - this.count < length)
+			this.flushBuffer();
+	}
+
+	/**
+	 * Сбрасывает внутренний буфер
+	 */
+	private void flushBuffer() throws IOException {
+		if(this.count == 0)
+			return;
+		if(this.out != null)
+			this.out.write(this.buffer, 0, this.count);
+		else
+			this.target.put(this.buffer, 0, this.count);
+		this.count = 0;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.flushBuffer();
+		if(this.out != null)
+			this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.flush();
+		if(this.out != null)
+			this.out.close();
+	}
+
+	/**
+	 * Переводит число одинарной точности в формат половинной точности
+	 * @param value Число
+	 * @return Биты числа половинной точности или {@code -1}, если число в нём не представимо точно
+	 */
+	static int toHalf(float value){
+		int bits = Float.floatToIntBits(value);
+		int sign = bits >>> 16 & 0x8000;
+		int exponent = (bits >>> 23 & 0xFF) - 127;
+		int mantissa = bits & 0x7FFFFF;
+		if(exponent == 128)
+			return sign | 0x7C00 | (mantissa == 0 ? 0 : 0x200);
+		if(exponent == -127 && mantissa == 0)
+			return sign;
+		if(-14 <= exponent && exponent <= 15){
+			if((mantissa & 0x1FFF) != 0)
+				return -1;
+			return sign | exponent + 15 << 10 | mantissa >>> 13;
+		}
+		if(-24 <= exponent && exponent < -14){
+			int full = 0x800000 | mantissa;
+			int shift = -1 - exponent;
+			if((full & (1 << shift) - 1) != 0)
+				return -1;
+			return sign | full >>> shift;
+		}
+		return -1;
+	}
+
+	/**
+	 * Переводит число половинной точности в {@code double}
+	 * @param half Биты числа половинной точности
+	 */
+	static double fromHalf(int half){
+		int exponent = half >>> 10 & 0x1F;
+		int mantissa = half & 0x3FF;
+		double value;
+		if(exponent == 0)
+			value = mantissa * 0x1p-24;
+		else if(exponent == 31)
+			value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+		else
+			value = (1024 + mantissa) * Math.pow(2, exponent - 25);
+		return (half & 0x8000) == 0 ? value : -value;
+	}
+}
@@ -0,0 +1,591 @@
+package common.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Список объектов-записей, разложенный по колонкам. Каждый ключ записей становится колонкой
+ * с массивом примитивов: целые числа хранятся в {@code long[]}, дробные - в {@code double[]},
+ * логические значения - в {@code BitSet}, а строки - номерами в словаре уникальных строк.
+ * Отсутствующий в записи ключ и {@code null} отмечаются в битовой маске пустых значений.
+ * Тип колонки определяется по данным: целые числа переводятся в дробные при первом дробном
+ * значении, а колонка со значениями разных типов или со вложенными структурами хранит
+ * {@code JSONEntity}. Метод {@link #read(JSONReader)} читает записи потоком и не создаёт
+ * {@code JSONObject} для строк, поэтому память расходуется только на сами колонки
+ * <pre>
+ * Columns columns = Columns.read(reader);
+ * double[] prices = columns.get("price").getDoubles();
+ * </pre>
+ */
+public final class Columns{
+
+	/** Колонки в порядке первого появления ключа */
+	private final Map<String, Column> columns = new LinkedHashMap<>();
+	/** Количество записей */
+	private int rows = 0;
+
+	private Columns(){}
+
+	/**
+	 * Читает список объектов из потока
+	 * @param in Поток с JSON-данными
+	 * @return Колонки записей
+	 * @throws ParseException Если данные невалидны или не являются списком объектов
+	 */
+	public static Columns read(Reader in) throws IOException, ParseException {
+		JSONReader reader = new JSONReader(in);
+		Columns result = read(reader);
+		if(reader.peek() != JSONToken.END_DOCUMENT)
+			throw error(reader, "There should be no data after the list");
+		return result;
+	}
+
+	/**
+	 * Читает список объектов из строки
+	 * @param json JSON-данные
+	 * @return Колонки записей
+	 * @throws ParseException Если данные невалидны или не являются списком объектов
+	 */
+	public static Columns read(String json) throws ParseException {
+		try {
+			return read(new StringReader(json));
+		} catch(IOException ex){
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Читает список объектов, начинающийся в текущей позиции, и останавливается сразу после него
+	 * @param reader Потоковый парсер
+	 * @return Колонки записей
+	 * @throws ParseException Если данные невалидны или не являются списком объектов
+	 */
+	public static Columns read(JSONReader reader) throws IOException, ParseException {
+		Columns result = new Columns();
+		if(reader.peek() != JSONToken.BEGIN_LIST)
+			throw error(reader, "Expected list of objects");
+		reader.beginList();
+		while(reader.hasNext()){
+			if(reader.peek() != JSONToken.BEGIN_OBJECT)
+				throw error(reader, "Expected object");
+			int row = result.rows;
+			reader.beginObject();
+			while(reader.hasNext()){
+				Column column = result.column(reader.nextName());
+				switch(reader.peek()){
+					case STRING:
+						column.addString(row, reader.nextString());
+						break;
+					case NUMBER:
+						String text = reader.nextString();
+						long value = parseLong(text);
+						if(value != Long.MIN_VALUE || text.equals("-9223372036854775808"))
+							column.addLong(row, value);
+						else
+							column.addDouble(row, Double.parseDouble(text));
+						break;
+					case BOOLEAN:
+						column.addBoolean(row, reader.nextBoolean());
+						break;
+					case NULL:
+						reader.nextNull();
+						column.addNull(row);
+						break;
+					default:
+						column.addEntity(row, readEntity(reader));
+				}
+			}
+			reader.endObject();
+			result.rows++;
+		}
+		reader.endList();
+		result.finish();
+		return result;
+	}
+
+	/**
+	 * Раскладывает по колонкам уже разобранный список объектов. Вложенные структуры не копируются
+	 * @param list Список объектов
+	 * @return Колонки записей
+	 * @throws IllegalArgumentException Если элемент списка не является объектом
+	 */
+	public static Columns of(JSONList list){
+		Columns result = new Columns();
+		for(JSONEntity element : list.value){
+			if(!(element instanceof JSONObject))
+				throw new IllegalArgumentException("Element " + result.rows + " is not an object");
+			int row = result.rows;
+			for(Map.Entry<String, JSONEntity> entry : ((JSONObject) element).value.entrySet()){
+				Column column = result.column(entry.getKey());
+				JSONEntity value = entry.getValue();
+				if(value == null){
+					column.addNull(row);
+				} else if(value instanceof JSONString){
+					column.addString(row, ((JSONString) value).stringValue());
+				} else if(value instanceof JSONNumber){
+					JSONNumber number = (JSONNumber) value;
+					if(number.isLong())
+						column.addLong(row, number.longValue());
+					else
+						column.addDouble(row, number.doubleValue());
+				} else if(value instanceof JSONBoolean){
+					column.addBoolean(row, ((JSONBoolean) value).value);
+				} else {
+					column.addEntity(row, value);
+				}
+			}
+			result.rows++;
+		}
+		result.finish();
+		return result;
+	}
+
+	/**
+	 * Возвращает количество записей
+	 */
+	public int size(){
+		return this.rows;
+	}
+
+	/**
+	 * Возвращает имена колонок в порядке первого появления ключей
+	 */
+	public Set<String> names(){
+		return Collections.unmodifiableSet(this.columns.keySet());
+	}
+
+	/**
+	 * Возвращает колонку
+	 * @param name Ключ записей
+	 * @return Колонка или {@code null}, если ключ не встречался ни в одной записи
+	 */
+	public Column get(String name){
+		return this.columns.get(name);
+	}
+
+	private Column column(String name){
+		Column result = this.columns.get(name);
+		if(result == null)
+			this.columns.put(name, result = new Column());
+		return result;
+	}
+
+	private void finish(){
+		for(Column column : this.columns.values())
+			column.finish(this.rows);
+	}
+
+	/**
+	 * Разбирает целое число без знака экспоненты и дробной части
+	 * @return Значение или {@code Long.MIN_VALUE}, если число не целое или не помещается в {@code long}
+	 */
+	private static long parseLong(String text){
+		int i = text.charAt(0) == '-' ? 1 : 0;
+		if(text.length() - i > 18){
+			try {
+				return Long.parseLong(text);
+			} catch(NumberFormatException ex){
+				return Long.MIN_VALUE;
+			}
+		}
+		long result = 0;
+		for(; i < text.length(); i++){
+			char c = text.charAt(i);
+			if(c < '0' || c > '9')
+				return Long.MIN_VALUE;
+			result = result * 10 + (c - '0');
+		}
+		return text.charAt(0) == '-' ? -result : result;
+	}
+
+	/**
+	 * Собирает вложенную структуру из потока без рекурсии
+	 */
+	private static JSONEntity readEntity(JSONReader reader) throws IOException, ParseException {
+		JSONComplex[] stack = new JSONComplex[8];
+		int depth = 0;
+		String name = null;
+		JSONEntity root = null;
+		do {
+			JSONEntity value;
+			switch(reader.peek()){
+				case BEGIN_OBJECT:
+					reader.beginObject();
+					value = new JSONObject();
+					break;
+				case BEGIN_LIST:
+					reader.beginList();
+					value = new JSONList();
+					break;
+				case END_OBJECT:
+					reader.endObject();
+					stack[--depth] = null;
+					continue;
+				case END_LIST:
+					reader.endList();
+					stack[--depth] = null;
+					continue;
+				case NAME:
+					name = reader.nextName();
+					continue;
+				case STRING:
+					value = new JSONString(reader.nextString());
+					break;
+				case NUMBER:
+					value = new JSONNumber(reader.nextString());
+					break;
+				case BOOLEAN:
+					value = reader.nextBoolean() ? JSONBoolean.TRUE : JSONBoolean.FALSE;
+					break;
+				case NULL:
+					reader.nextNull();
+					value = null;
+					break;
+				default:
+					throw error(reader, "Unexpected end of document");
+			}
+			if(depth == 0)
+				root = value;
+			else
+				stack[depth - 1].add(name, value);
+			if(value instanceof JSONComplex){
+				if(depth == stack.length)
+					stack = Arrays.copyOf(stack, depth << 1);
+				stack[depth++] = (JSONComplex) value;
+			}
+		} while(depth > 0);
+		return root;
+	}
+
+	private static ParseException error(JSONReader reader, String message){
+		long position = reader.getPosition();
+		return new ParseException(message + " at position " + position, (int) Math.min(position, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Значения одного ключа всех записей. Массивы, возвращаемые методами {@code get*s()},
+	 * не копируются и имеют длину, равную количеству записей. В строках с пустым значением
+	 * числа равны нулю, логические значения - {@code false}, а номера строк - {@code -1}
+	 */
+	public static final class Column{
+
+		/**
+		 * Способ хранения колонки
+		 */
+		public enum Kind{
+			/** Все значения пустые */
+			NULL,
+			/** Целые числа в {@code long[]} */
+			LONG,
+			/** Числа в {@code double[]} */
+			DOUBLE,
+			/** Логические значения в {@code BitSet} */
+			BOOLEAN,
+			/** Номера строк в словаре */
+			STRING,
+			/** Значения разных типов или вложенные структуры в {@code JSONEntity[]} */
+			ENTITY
+		}
+
+		/** Способ хранения */
+		private Kind kind = Kind.NULL;
+		/** Количество заполненных строк */
+		private int size = 0;
+		/** Ёмкость массивов */
+		private int capacity = 16;
+		/** Пустые значения */
+		private final BitSet nulls = new BitSet();
+		private long[] longs;
+		private double[] doubles;
+		private BitSet booleans;
+		private int[] codes;
+		/** Уникальные строки в порядке появления */
+		private String[] dictionary;
+		/** Количество уникальных строк */
+		private int words;
+		/** Номера строк словаря. Освобождается после чтения */
+		private Map<String, Integer> index;
+		private JSONEntity[] entities;
+
+		Column(){}
+
+		/**
+		 * Возвращает способ хранения
+		 */
+		public Kind getKind(){
+			return this.kind;
+		}
+
+		/**
+		 * Возвращает количество значений, равное количеству записей
+		 */
+		public int size(){
+			return this.size;
+		}
+
+		/**
+		 * Проверяет, пустое ли значение: {@code null} или ключ отсутствует в записи
+		 */
+		public boolean isNull(int row){
+			this.check(row);
+			return this.nulls.get(row);
+		}
+
+		/**
+		 * Возвращает маску пустых значений. Маска не копируется
+		 */
+		public BitSet getNulls(){
+			return this.nulls;
+		}
+
+		/**
+		 * @throws IllegalStateException Если колонка не хранится как {@link Kind#LONG}
+		 */
+		public long[] getLongs(){
+			this.expect(Kind.LONG);
+			return this.longs;
+		}
+
+		/**
+		 * @throws IllegalStateException Если колонка не хранится как {@link Kind#DOUBLE}
+		 */
+		public double[] getDoubles(){
+			this.expect(Kind.DOUBLE);
+			return this.doubles;
+		}
+
+		/**
+		 * @throws IllegalStateException Если колонка не хранится как {@link Kind#BOOLEAN}
+		 */
+		public BitSet getBooleans(){
+			this.expect(Kind.BOOLEAN);
+			return this.booleans;
+		}
+
+		/**
+		 * Возвращает номера строк в словаре {@link #getDictionary()}
+		 * @throws IllegalStateException Если колонка не хранится как {@link Kind#STRING}
+		 */
+		public int[] getCodes(){
+			this.expect(Kind.STRING);
+			return this.codes;
+		}
+
+		/**
+		 * Возвращает уникальные строки в порядке появления
+		 * @throws IllegalStateException Если колонка не хранится как {@link Kind#STRING}
+		 */
+		public String[] getDictionary(){
+			this.expect(Kind.STRING);
+			return this.dictionary;
+		}
+
+		/**
+		 * @throws IllegalStateException Если колонка не хранится как {@link Kind#ENTITY}
+		 */
+		public JSONEntity[] getEntities(){
+			this.expect(Kind.ENTITY);
+			return this.entities;
+		}
+
+		/**
+		 * Возвращает значение строки в виде {@code JSONEntity}
+		 * @param row Номер записи
+		 * @return Значение или {@code null}, если значение пустое
+		 */
+		public JSONEntity get(int row){
+			if(this.isNull(row))
+				return null;
+			switch(this.kind){
+				case LONG:
+					return new JSONNumber(this.longs[row]);
+				case DOUBLE:
+					return new JSONNumber(this.doubles[row]);
+				case BOOLEAN:
+					return this.booleans.get(row) ? JSONBoolean.TRUE : JSONBoolean.FALSE;
+				case STRING:
+					return new JSONString(this.dictionary[this.codes[row]]);
+				default:
+					return this.entities[row];
+			}
+		}
+
+		private void expect(Kind kind){
+			if(this.kind != kind)
+				throw new IllegalStateException("Column is stored as " + this.kind + ", not " + kind);
+		}
+
+		private void check(int row){
+			if(row < 0 || row >= this.size)
+				throw new IndexOutOfBoundsException("Row: " + row + ", size: " + this.size);
+		}
+
+		void addNull(int row){
+			this.prepare(row, this.kind);
+			this.nulls.set(row);
+			switch(this.kind){
+				case LONG:
+					this.longs[row] = 0;
+					break;
+				case DOUBLE:
+					this.doubles[row] = 0;
+					break;
+				case BOOLEAN:
+					this.booleans.clear(row);
+					break;
+				case ENTITY:
+					this.entities[row] = null;
+					break;
+			}
+		}
+
+		void addLong(int row, long value){
+			switch(this.prepare(row, Kind.LONG)){
+				case LONG:
+					this.longs[row] = value;
+					break;
+				case DOUBLE:
+					this.doubles[row] = value;
+					break;
+				default:
+					this.entities[row] = new JSONNumber(value);
+			}
+		}
+
+		void addDouble(int row, double value){
+			if(this.prepare(row, Kind.DOUBLE) == Kind.DOUBLE)
+				this.doubles[row] = value;
+			else
+				this.entities[row] = new JSONNumber(value);
+		}
+
+		void addBoolean(int row, boolean value){
+			if(this.prepare(row, Kind.BOOLEAN) == Kind.BOOLEAN)
+				this.booleans.set(row, value);
+			else
+				this.entities[row] = value ? JSONBoolean.TRUE : JSONBoolean.FALSE;
+		}
+
+		void addString(int row, String value){
+			if(this.prepare(row, Kind.STRING) != Kind.STRING){
+				this.entities[row] = new JSONString(value);
+				return;
+			}
+			Integer code = this.index.get(value);
+			if(code == null){
+				if(this.words == this.dictionary.length)
+					this.dictionary = Arrays.copyOf(this.dictionary, this.words << 1);
+				this.dictionary[this.words] = value;
+				this.index.put(value, code = this.words++);
+			}
+			this.codes[row] = code;
+		}
+
+		void addEntity(int row, JSONEntity value){
+			this.prepare(row, Kind.ENTITY);
+			this.entities[row] = value;
+		}
+
+		/**
+		 * Готовит строку к записи значения: отмечает пропущенные строки пустыми,
+		 * расширяет массивы и меняет способ хранения, если значение в текущий не помещается
+		 * @return Способ хранения, в который нужно записать значение
+		 */
+		private Kind prepare(int row, Kind kind){
+			if(row >= this.size){
+				this.nulls.set(this.size, row + 1);
+				this.size = row + 1;
+				if(this.size > this.capacity){
+					this.capacity = Math.max(this.capacity << 1, this.size);
+					this.resize(this.capacity);
+				}
+			}
+			if(this.kind != kind && this.kind != Kind.ENTITY){
+				if(this.kind == Kind.NULL)
+					this.convert(kind);
+				else if(this.kind == Kind.LONG && kind == Kind.DOUBLE)
+					this.convert(Kind.DOUBLE);
+				else if(!(this.kind == Kind.DOUBLE && kind == Kind.LONG) && kind != Kind.NULL)
+					this.convert(Kind.ENTITY);
+			}
+			this.nulls.clear(row);
+			return this.kind;
+		}
+
+		/**
+		 * Переводит заполненные значения в другой способ хранения
+		 */
+		private void convert(Kind kind){
+			switch(kind){
+				case LONG:
+					this.longs = new long[this.capacity];
+					break;
+				case DOUBLE:
+					this.doubles = new double[this.capacity];
+					if(this.longs != null)
+						for(int i = 0; i < this.size; i++)
+							this.doubles[i] = this.longs[i];
+					break;
+				case BOOLEAN:
+					this.booleans = new BitSet();
+					break;
+				case STRING:
+					this.codes = new int[this.capacity];
+					this.dictionary = new String[16];
+					this.index = new HashMap<>();
+					break;
+				default:
+					JSONEntity[] entities = new JSONEntity[this.capacity];
+					for(int i = 0; i < this.size; i++)
+						if(!this.nulls.get(i))
+							entities[i] = this.get(i);
+					this.entities = entities;
+			}
+			this.kind = kind;
+			this.longs = kind == Kind.LONG ? this.longs : null;
+			this.doubles = kind == Kind.DOUBLE ? this.doubles : null;
+			this.booleans = kind == Kind.BOOLEAN ? this.booleans : null;
+			if(kind != Kind.STRING){
+				this.codes = null;
+				this.dictionary = null;
+				this.index = null;
+			}
+		}
+
+		private void resize(int capacity){
+			if(this.longs != null)
+				this.longs = Arrays.copyOf(this.longs, capacity);
+			if(this.doubles != null)
+				this.doubles = Arrays.copyOf(this.doubles, capacity);
+			if(this.codes != null)
+				this.codes = Arrays.copyOf(this.codes, capacity);
+			if(this.entities != null)
+				this.entities = Arrays.copyOf(this.entities, capacity);
+		}
+
+		/**
+		 * Дополняет колонку пустыми значениями до количества записей и обрезает массивы
+		 */
+		void finish(int rows){
+			this.nulls.set(this.size, rows);
+			this.size = rows;
+			this.capacity = rows;
+			this.resize(rows);
+			if(this.kind == Kind.STRING){
+				for(int i = this.nulls.nextSetBit(0); i >= 0; i = this.nulls.nextSetBit(i + 1))
+					this.codes[i] = -1;
+				this.dictionary = Arrays.copyOf(this.dictionary, this.words);
+				this.index = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,333 @@
+package common.json;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Элементы списка {@link JSONList} в растущем массиве. Пока список содержит только
+ * целые числа или только дробные числа, значения хранятся без обёрток в {@code long[]}
+ * или {@code double[]}, и читаются методами {@link #getLong(int)} и {@link #getDouble(int)}
+ * без создания объектов. Первый элемент другого типа переводит список в общий массив
+ * {@code JSONEntity[]}. Метод {@link #get(int)} для числовых представлений каждый раз
+ * создаёт новый объект {@code JSONNumber}, поэтому числа сравниваются по значению
+ * (см. {@link JSONNumber#equals(Object)}), а поиск в числовых представлениях идёт прямо по массиву
+ */
+final class ElementList extends AbstractList<JSONEntity> implements RandomAccess{
+
+	/** Список пуст, представление ещё не выбрано */
+	private static final byte MODE_EMPTY = 0;
+	/** Целые числа в {@code longs} */
+	private static final byte MODE_LONG = 1;
+	/** Дробные числа в {@code doubles} */
+	private static final byte MODE_DOUBLE = 2;
+	/** Произвольные значения в {@code items} */
+	private static final byte MODE_ENTITY = 3;
+
+	/** Начальная ёмкость массива */
+	private static final int CAPACITY = 4;
+
+	/** Текущее представление */
+	private byte mode = MODE_EMPTY;
+	/** Количество элементов */
+	private int size = 0;
+	/** Целые числа */
+	private long[] longs;
+	/** Дробные числа */
+	private double[] doubles;
+	/** Произвольные значения */
+	private JSONEntity[] items;
+
+	@Override
+	public int size(){
+		return this.size;
+	}
+
+	@Override
+	public JSONEntity get(int index){
+		this.check(index);
+		switch(this.mode){
+			case MODE_LONG:
+				return new JSONNumber(this.longs[index]);
+			case MODE_DOUBLE:
+				return new JSONNumber(this.doubles[index]);
+			default:
+				return this.items[index];
+		}
+	}
+
+	/**
+	 * Возвращает элемент как {@code double} без создания объектов для числовых представлений
+	 * @param index Индекс элемента
+	 * @throws ClassCastException Если элемент не является числом
+	 * @throws NullPointerException Если элемент равен {@code null}
+	 */
+	double getDouble(int index){
+		this.check(index);
+		switch(this.mode){
+			case MODE_LONG:
+				return this.longs[index];
+			case MODE_DOUBLE:
+				return this.doubles[index];
+			default:
+				return ((JSONNumber) this.items[index]).doubleValue();
+		}
+	}
+
+	/**
+	 * Возвращает элемент как {@code long} без создания объектов для числовых представлений
+	 * @param index Индекс элемента
+	 * @throws ClassCastException Если элемент не является числом
+	 * @throws NullPointerException Если элемент равен {@code null}
+	 */
+	long getLong(int index){
+		this.check(index);
+		switch(this.mode){
+			case MODE_LONG:
+				return this.longs[index];
+			case MODE_DOUBLE:
+				return (long) this.doubles[index];
+			default:
+				return ((JSONNumber) this.items[index]).longValue();
+		}
+	}
+
+	@Override
+	public int indexOf(Object element){
+		if(this.mode == MODE_ENTITY)
+			return super.indexOf(element);
+		for(int i = 0; i < this.size; i++)
+			if(this.matches(i, element))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object element){
+		if(this.mode == MODE_ENTITY)
+			return super.lastIndexOf(element);
+		for(int i = this.size - 1; i >= 0; i--)
+			if(this.matches(i, element))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object element){
+		return this.indexOf(element) >= 0;
+	}
+
+	@Override
+	public boolean remove(Object element){
+		int i = this.indexOf(element);
+		if(i < 0)
+			return false;
+		this.remove(i);
+		return true;
+	}
+
+	/**
+	 * Сравнивает элемент числового представления со значением без создания объектов
+	 */
+	private boolean matches(int index, Object element){
+		if(!(element instanceof JSONNumber) || modeOf((JSONNumber) element) != this.mode)
+			return false;
+		JSONNumber number = (JSONNumber) element;
+		if(this.mode == MODE_LONG)
+			return this.longs[index] == number.longValue();
+		return Double.doubleToLongBits(this.doubles[index]) == Double.doubleToLongBits(number.doubleValue());
+	}
+
+	/**
+	 * Проверяет, хранятся ли элементы в {@code long[]}
+	 */
+	boolean isLongs(){
+		return this.mode == MODE_LONG;
+	}
+
+	/**
+	 * Проверяет, хранятся ли элементы в {@code double[]}
+	 */
+	boolean isDoubles(){
+		return this.mode == MODE_DOUBLE;
+	}
+
+	@Override
+	public JSONEntity set(int index, JSONEntity element){
+		JSONEntity previous = this.get(index);
+		byte mode = modeOf(element);
+		if(mode != this.mode)
+			this.generalize();
+		switch(this.mode){
+			case MODE_LONG:
+				this.longs[index] = ((JSONNumber) element).longValue();
+				break;
+			case MODE_DOUBLE:
+				this.doubles[index] = ((JSONNumber) element).doubleValue();
+				break;
+			default:
+				this.items[index] = element;
+		}
+		return previous;
+	}
+
+	@Override
+	public boolean add(JSONEntity element){
+		byte mode = modeOf(element);
+		if(this.mode == MODE_EMPTY)
+			this.mode = mode;
+		else if(mode != this.mode)
+			this.generalize();
+		int size = this.size;
+		switch(this.mode){
+			case MODE_LONG:
+				if(this.longs == null)
+					this.longs = new long[CAPACITY];
+				else if(size == this.longs.length)
+					this.longs = Arrays.copyOf(this.longs, size << 1);
+				this.longs[size] = ((JSONNumber) element).longValue();
+				break;
+			case MODE_DOUBLE:
+				if(this.doubles == null)
+					this.doubles = new double[CAPACITY];
+				else if(size == this.doubles.length)
+					this.doubles = Arrays.copyOf(this.doubles, size << 1);
+				this.doubles[size] = ((JSONNumber) element).doubleValue();
+				break;
+			default:
+				if(this.items == null)
+					this.items = new JSONEntity[CAPACITY];
+				else if(size == this.items.length)
+					this.items = Arrays.copyOf(this.items, size << 1);
+				this.items[size] = element;
+		}
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	/**
+	 * Добавляет в конец все элементы другого списка. Элементы одинаковых числовых
+	 * представлений копируются между массивами без создания объектов
+	 * @param other Добавляемые элементы
+	 */
+	void append(ElementList other){
+		if(other.size == 0)
+			return;
+		if(this.mode == MODE_EMPTY)
+			this.mode = other.mode;
+		else if(this.mode != other.mode)
+			this.generalize();
+		int size = this.size + other.size;
+		switch(this.mode){
+			case MODE_LONG:
+				this.longs = this.longs == null ? new long[size] : size > this.longs.length ? Arrays.copyOf(this.longs, Math.max(size, this.size << 1)) : this.longs;
+				System.arraycopy(other.longs, 0, this.longs, this.size, other.size);
+				break;
+			case MODE_DOUBLE:
+				this.doubles = this.doubles == null ? new double[size] : size > this.doubles.length ? Arrays.copyOf(this.doubles, Math.max(size, this.size << 1)) : this.doubles;
+				System.arraycopy(other.doubles, 0, this.doubles, this.size, other.size);
+				break;
+			default:
+				this.items = this.items == null ? new JSONEntity[size] : size > this.items.length ? Arrays.copyOf(this.items, Math.max(size, this.size << 1)) : this.items;
+				if(other.mode == MODE_ENTITY)
+					System.arraycopy(other.items, 0, this.items, this.size, other.size);
+				else
+					for(int i = 0; i < other.size; i++)
+						this.items[this.size + i] = other.get(i);
+		}
+		this.size = size;
+		this.modCount++;
+	}
+
+	@Override
+	public void add(int index, JSONEntity element){
+		if(index < 0 || index > this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+		this.add(element);
+		if(index == this.size - 1)
+			return;
+		switch(this.mode){
+			case MODE_LONG:
+				long l = this.longs[this.size - 1];
+				System.arraycopy(this.longs, index, this.longs, index + 1, this.size - 1 - index);
+				this.longs[index] = l;
+				break;
+			case MODE_DOUBLE:
+				double d = this.doubles[this.size - 1];
+				System.arraycopy(this.doubles, index, this.doubles, index + 1, this.size - 1 - index);
+				this.doubles[index] = d;
+				break;
+			default:
+				System.arraycopy(this.items, index, this.items, index + 1, this.size - 1 - index);
+				this.items[index] = element;
+		}
+	}
+
+	@Override
+	public JSONEntity remove(int index){
+		JSONEntity previous = this.get(index);
+		int tail = this.size - 1 - index;
+		switch(this.mode){
+			case MODE_LONG:
+				System.arraycopy(this.longs, index + 1, this.longs, index, tail);
+				break;
+			case MODE_DOUBLE:
+				System.arraycopy(this.doubles, index + 1, this.doubles, index, tail);
+				break;
+			default:
+				System.arraycopy(this.items, index + 1, this.items, index, tail);
+				this.items[this.size - 1] = null;
+		}
+		this.size--;
+		this.modCount++;
+		return previous;
+	}
+
+	@Override
+	public void clear(){
+		this.mode = MODE_EMPTY;
+		this.size = 0;
+		this.longs = null;
+		this.doubles = null;
+		this.items = null;
+		this.modCount++;
+	}
+
+	/**
+	 * Переводит список в общий массив {@code JSONEntity[]}, оборачивая числа
+	 */
+	private void generalize(){
+		if(this.mode == MODE_ENTITY)
+			return;
+		JSONEntity[] items = new JSONEntity[Math.max(CAPACITY, this.size << 1)];
+		for(int i = 0; i < this.size; i++)
+			items[i] = this.get(i);
+		this.items = items;
+		this.longs = null;
+		this.doubles = null;
+		this.mode = MODE_ENTITY;
+	}
+
+	/**
+	 * Проверяет индекс элемента
+	 */
+	private void check(int index){
+		if(index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+	}
+
+	/**
+	 * Определяет представление, в котором можно хранить значение без обёртки
+	 */
+	private static byte modeOf(JSONEntity element){
+		if(element instanceof JSONNumber){
+			JSONNumber number = (JSONNumber) element;
+			if(number.isLong())
+				return MODE_LONG;
+			if(!number.isBig())
+				return MODE_DOUBLE;
+		}
+		return MODE_ENTITY;
+	}
+}
@@ -0,0 +1,361 @@
+package common.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Неизменяемое отображение ключей на значения в виде префиксного дерева хешей (HAMT).
+ * Каждый уровень дерева разбирает 5 бит хеша ключа, поэтому глубина не превышает 7 уровней.
+ * Узел хранит битовую маску занятых ячеек и плотный массив пар: ключ и значение, либо
+ * {@code null} и дочерний узел. Ключи с одинаковым полным хешем хранятся в узле коллизий.
+ * Методы {@link #with(String, JSONEntity)} и {@link #without(String)} копируют только
+ * узлы на пути к ключу, остальные узлы общие для старой и новой версий. Порядок ключей
+ * определяется хешами и не совпадает с порядком добавления
+ */
+final class HashTrieMap extends AbstractMap<String, JSONEntity>{
+
+	/** Пустое отображение */
+	static final HashTrieMap EMPTY = new HashTrieMap(null, 0);
+
+	/** Количество бит хеша на уровень */
+	private static final int BITS = 5;
+	/** Маска индекса внутри уровня */
+	private static final int MASK = (1 << BITS) - 1;
+	/** Результат поиска отсутствующего ключа */
+	private static final Object ABSENT = new Object();
+
+	/** Корневой узел или {@code null} для пустого отображения */
+	private final Object root;
+	/** Количество ключей */
+	private final int size;
+
+	private HashTrieMap(Object root, int size){
+		this.root = root;
+		this.size = size;
+	}
+
+	@Override
+	public int size(){
+		return this.size;
+	}
+
+	@Override
+	public boolean containsKey(Object key){
+		return key instanceof String && this.lookup((String) key) != ABSENT;
+	}
+
+	@Override
+	public JSONEntity get(Object key){
+		if(!(key instanceof String))
+			return null;
+		Object result = this.lookup((String) key);
+		return result == ABSENT ? null : (JSONEntity) result;
+	}
+
+	/**
+	 * Возвращает отображение, в котором ключу соответствует переданное значение
+	 * @param key Ключ
+	 * @param value Значение, может быть {@code null}
+	 * @return Новое отображение или это же, если значение не изменилось
+	 */
+	HashTrieMap with(String key, JSONEntity value){
+		int hash = hash(key);
+		boolean[] added = new boolean[1];
+		Object root = this.root == null ? new Node(0, new Object[0]).put(0, hash, key, value, added) : put(this.root, 0, hash, key, value, added);
+		if(root == this.root)
+			return this;
+		return new HashTrieMap(root, added[0] ? this.size + 1 : this.size);
+	}
+
+	/**
+	 * Возвращает отображение без переданного ключа
+	 * @param key Ключ
+	 * @return Новое отображение или это же, если ключа не было
+	 */
+	HashTrieMap without(String key){
+		if(this.root == null)
+			return this;
+		Object root = remove(this.root, 0, hash(key), key);
+		if(root == this.root)
+			return this;
+		return root == null ? EMPTY : new HashTrieMap(root, this.size - 1);
+	}
+
+	@Override
+	public Set<Map.Entry<String, JSONEntity>> entrySet(){
+		return new AbstractSet<Map.Entry<String, JSONEntity>>(){
+
+			@Override
+			public int size(){
+				return HashTrieMap.this.size;
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, JSONEntity>> iterator(){
+				return new Entries(HashTrieMap.this.root);
+			}
+		};
+	}
+
+	/**
+	 * Ищет значение ключа без рекурсии
+	 * @return Значение или {@link #ABSENT}
+	 */
+	private Object lookup(String key){
+		int hash = hash(key);
+		Object node = this.root;
+		for(int shift = 0; node != null; shift += BITS){
+			if(node instanceof Collision){
+				Collision collision = (Collision) node;
+				if(collision.hash != hash)
+					return ABSENT;
+				int i = collision.indexOf(key);
+				return i < 0 ? ABSENT : collision.array[i + 1];
+			}
+			Node current = (Node) node;
+			int bit = bit(hash, shift);
+			if((current.bitmap & bit) == 0)
+				return ABSENT;
+			int i = current.index(bit) << 1;
+			Object k = current.array[i];
+			if(k == null){
+				node = current.array[i + 1];
+				continue;
+			}
+			return key.equals(k) ? current.array[i + 1] : ABSENT;
+		}
+		return ABSENT;
+	}
+
+	private static Object put(Object node, int shift, int hash, String key, JSONEntity value, boolean[] added){
+		return node instanceof Node ? ((Node) node).put(shift, hash, key, value, added) : ((Collision) node).put(shift, hash, key, value, added);
+	}
+
+	private static Object remove(Object node, int shift, int hash, String key){
+		return node instanceof Node ? ((Node) node).remove(shift, hash, key) : ((Collision) node).remove(hash, key);
+	}
+
+	/**
+	 * Создаёт поддерево из двух разных ключей
+	 */
+	private static Object merge(int shift, String key1, Object value1, int hash2, String key2, JSONEntity value2){
+		int hash1 = hash(key1);
+		if(hash1 == hash2)
+			return new Collision(hash1, new Object[]{key1, value1, key2, value2});
+		int bit1 = bit(hash1, shift);
+		int bit2 = bit(hash2, shift);
+		if(bit1 == bit2)
+			return new Node(bit1, new Object[]{null, merge(shift + BITS, key1, value1, hash2, key2, value2)});
+		if(Integer.compareUnsigned(bit1, bit2) < 0)
+			return new Node(bit1 | bit2, new Object[]{key1, value1, key2, value2});
+		return new Node(bit1 | bit2, new Object[]{key2, value2, key1, value1});
+	}
+
+	/**
+	 * Перемешивает биты хеша строки, чтобы младшие уровни дерева заполнялись равномерно
+	 */
+	private static int hash(String key){
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int bit(int hash, int shift){
+		return 1 << ((hash >>> shift) & MASK);
+	}
+
+	/**
+	 * Копирует массив, заменяя один элемент
+	 */
+	private static Object[] copyAndSet(Object[] array, int index, Object value){
+		Object[] result = array.clone();
+		result[index] = value;
+		return result;
+	}
+
+	/**
+	 * Узел с битовой маской занятых ячеек
+	 */
+	private static final class Node{
+
+		/** Занятые ячейки уровня */
+		final int bitmap;
+		/** Пары ключ-значение или {@code null}-узел в порядке ячеек */
+		final Object[] array;
+
+		Node(int bitmap, Object[] array){
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		/**
+		 * Возвращает индекс пары для занятой ячейки
+		 */
+		int index(int bit){
+			return Integer.bitCount(this.bitmap & (bit - 1));
+		}
+
+		Object put(int shift, int hash, String key, JSONEntity value, boolean[] added){
+			int bit = bit(hash, shift);
+			int i = this.index(bit) << 1;
+			if((this.bitmap & bit) == 0){
+				Object[] array = new Object[this.array.length + 2];
+				System.arraycopy(this.array, 0, array, 0, i);
+				array[i] = key;
+				array[i + 1] = value;
+				System.arraycopy(this.array, i, array, i + 2, this.array.length - i);
+				added[0] = true;
+				return new Node(this.bitmap | bit, array);
+			}
+			Object k = this.array[i];
+			Object v = this.array[i + 1];
+			if(k == null){
+				Object child = HashTrieMap.put(v, shift + BITS, hash, key, value, added);
+				return child == v ? this : new Node(this.bitmap, copyAndSet(this.array, i + 1, child));
+			}
+			if(key.equals(k))
+				return v == value ? this : new Node(this.bitmap, copyAndSet(this.array, i + 1, value));
+			added[0] = true;
+			Object[] array = copyAndSet(this.array, i, null);
+			array[i + 1] = merge(shift + BITS, (String) k, v, hash, key, value);
+			return new Node(this.bitmap, array);
+		}
+
+		/**
+		 * @return Узел без ключа, этот же узел, если ключа нет, или {@code null}, если узел опустел
+		 */
+		Object remove(int shift, int hash, String key){
+			int bit = bit(hash, shift);
+			if((this.bitmap & bit) == 0)
+				return this;
+			int i = this.index(bit) << 1;
+			Object k = this.array[i];
+			if(k == null){
+				Object child = HashTrieMap.remove(this.array[i + 1], shift + BITS, hash, key);
+				if(child == this.array[i + 1])
+					return this;
+				if(child != null)
+					return new Node(this.bitmap, copyAndSet(this.array, i + 1, child));
+			} else if(!key.equals(k)){
+				return this;
+			}
+			if(this.bitmap == bit)
+				return null;
+			Object[] array = new Object[this.array.length - 2];
+			System.arraycopy(this.array, 0, array, 0, i);
+			System.arraycopy(this.array, i + 2, array, i, array.length - i);
+			return new Node(this.bitmap ^ bit, array);
+		}
+	}
+
+	/**
+	 * Узел ключей с одинаковым полным хешем
+	 */
+	private static final class Collision{
+
+		/** Общий хеш ключей */
+		final int hash;
+		/** Пары ключ-значение */
+		final Object[] array;
+
+		Collision(int hash, Object[] array){
+			this.hash = hash;
+			this.array = array;
+		}
+
+		int indexOf(String key){
+			for(int i = 0; i < this.array.length; i += 2)
+				if(key.equals(this.array[i]))
+					return i;
+			return -1;
+		}
+
+		Object put(int shift, int hash, String key, JSONEntity value, boolean[] added){
+			if(hash != this.hash)
+				return new Node(bit(this.hash, shift), new Object[]{null, this}).put(shift, hash, key, value, added);
+			int i = this.indexOf(key);
+			if(i >= 0)
+				return this.array[i + 1] == value ? this : new Collision(hash, copyAndSet(this.array, i + 1, value));
+			Object[] array = new Object[this.array.length + 2];
+			System.arraycopy(this.array, 0, array, 0, this.array.length);
+			array[this.array.length] = key;
+			array[this.array.length + 1] = value;
+			added[0] = true;
+			return new Collision(hash, array);
+		}
+
+		Object remove(int hash, String key){
+			int i = hash == this.hash ? this.indexOf(key) : -1;
+			if(i < 0)
+				return this;
+			if(this.array.length == 2)
+				return null;
+			Object[] array = new Object[this.array.length - 2];
+			System.arraycopy(this.array, 0, array, 0, i);
+			System.arraycopy(this.array, i + 2, array, i, array.length - i);
+			return new Collision(hash, array);
+		}
+	}
+
+	/**
+	 * Обходит пары дерева без рекурсии
+	 */
+	private static final class Entries implements Iterator<Map.Entry<String, JSONEntity>>{
+
+		/** Массивы узлов на пути от корня */
+		private final Object[][] arrays = new Object[8][];
+		/** Позиции в массивах узлов на пути от корня */
+		private final int[] positions = new int[8];
+		/** Глубина текущего узла или {@code -1} после окончания обхода */
+		private int depth = -1;
+
+		Entries(Object root){
+			if(root != null){
+				this.arrays[0] = root instanceof Node ? ((Node) root).array : ((Collision) root).array;
+				this.depth = 0;
+				this.advance();
+			}
+		}
+
+		@Override
+		public boolean hasNext(){
+			return this.depth >= 0;
+		}
+
+		@Override
+		public Map.Entry<String, JSONEntity> next(){
+			if(this.depth < 0)
+				throw new NoSuchElementException();
+			Object[] array = this.arrays[this.depth];
+			int i = this.positions[this.depth];
+			this.positions[this.depth] = i + 2;
+			Map.Entry<String, JSONEntity> result = new AbstractMap.SimpleImmutableEntry<>((String) array[i], (JSONEntity) array[i + 1]);
+			this.advance();
+			return result;
+		}
+
+		/**
+		 * Переходит к следующей паре с ключом
+		 */
+		private void advance(){
+			while(this.depth >= 0){
+				Object[] array = this.arrays[this.depth];
+				int i = this.positions[this.depth];
+				if(i == array.length){
+					this.arrays[this.depth] = null;
+					this.positions[this.depth] = 0;
+					this.depth--;
+				} else if(array[i] == null){
+					Object child = array[i + 1];
+					this.positions[this.depth] = i + 2;
+					this.arrays[++this.depth] = child instanceof Node ? ((Node) child).array : ((Collision) child).array;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -5,6 +5,11 @@ package common.json;
  */
 public class JSONBoolean extends JSONEntity{
 
+	/** Общий неизменяемый экземпляр для {@code true} */
+	public static final JSONBoolean TRUE = new JSONBoolean(true);
+	/** Общий неизменяемый экземпляр для {@code false} */
+	public static final JSONBoolean FALSE = new JSONBoolean(false);
+
 	public final JSONType type = JSONType.BOOLEAN;
 	public final Boolean value;
 
@@ -25,8 +30,12 @@ public class JSONBoolean extends JSONEntity{
 		return this.value.toString();
 	}
 
+	/**
+	 * Значение неизменяемо, поэтому копия не создаётся
+	 * @return Этот же объект
+	 */
 	@Override
 	public JSONBoolean clone(){
-		return new JSONBoolean(this.value.booleanValue());
+		return this;
 	}
 }
\ No newline at end of file
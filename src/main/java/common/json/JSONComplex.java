@@ -1,7 +1,35 @@
 package common.json;
 
-abstract class JSONComplex extends JSONEntity{
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public abstract class JSONComplex extends JSONEntity{
 	abstract protected void add(String key, JSONEntity value);
 	abstract protected int size();
 	abstract protected JSONType getType();
+
+	/**
+	 * Записывает структуру в строку с переводами строк и отступом табуляцией
+	 * @return Форматированная JSON-строка
+	 */
+	public String prettify(){
+		StringBuilder result = new StringBuilder();
+		try {
+			this.prettify(result);
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Записывает структуру с переводами строк и отступом табуляцией прямо в приёмник,
+	 * не собирая результат в памяти. Для других настроек форматирования следует
+	 * использовать {@link JSONWriter} напрямую
+	 * @param out Приёмник, например {@code Writer}
+	 * @throws IOException Если не удалось записать данные в приёмник
+	 */
+	public void prettify(Appendable out) throws IOException {
+		new JSONWriter(out).setIndent("\t").value(this).flush();
+	}
 }
\ No newline at end of file
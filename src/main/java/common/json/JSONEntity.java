@@ -10,8 +10,12 @@ public abstract class JSONEntity implements Cloneable{
 	/** Внутреннее представление объекта */
 	public final Object value = null;
 
+	/**
+	 * Записывает значение в компактную JSON-строку через {@link JSONWriter}
+	 * @return JSON-строка
+	 */
 	@Override
 	public String toString(){
-		return this.value.toString();
+		return JSONWriter.toString(this);
 	}
 }
\ No newline at end of file
@@ -1,36 +1,49 @@
 package common.json;
 
 import java.text.ParseException;
-import java.util.LinkedList;
+import java.util.List;
 
 public class JSONList extends JSONComplex{
 	public final JSONType type = JSONType.LIST;
-	public final LinkedList<JSONEntity> value;
+	public final List<JSONEntity> value;
 
 	// public JSONList(String data){
 	// 	this.value = JSONList.parse(data);
 	// }
 
-	public JSONList(LinkedList<JSONEntity> data){
+	public JSONList(List<JSONEntity> data){
 		this.value = data;
 	}
 
 	public JSONList(){
-		this.value = new LinkedList<>();
+		this.value = new ElementList();
 	}
 
-	@Override
-	public String toString(){
-		StringBuilder result = new StringBuilder();
-		result.append('[');
-		for(JSONEntity element : this.value){
-			result.append(element);
-			result.append(',');
-		}
-		if(this.value.size() > 0)
-			result.deleteCharAt(result.length() - 1);
-		result.append(']');
-		return result.toString();
+	/**
+	 * Возвращает числовой элемент как {@code double}. Для списков, созданных без аргументов,
+	 * однородные числовые элементы хранятся в массиве примитивов и читаются без создания объектов
+	 * @param index Индекс элемента
+	 * @throws ClassCastException Если элемент не является числом
+	 * @throws NullPointerException Если элемент равен {@code null}
+	 */
+	public double getDouble(int index){
+		if(this.value instanceof ElementList)
+			return ((ElementList) this.value).getDouble(index);
+		return ((JSONNumber) this.value.get(index)).doubleValue();
+	}
+
+	/**
+	 * Возвращает числовой элемент как {@code long}. Дробная часть отбрасывается.
+	 * Для списков, созданных без аргументов, однородные числовые элементы хранятся
+	 * в массиве примитивов и читаются без создания объектов
+	 * @param index Индекс элемента
+	 * @throws ClassCastException Если элемент не является числом
+	 * @throws NullPointerException Если элемент равен {@code null}
+	 */
+	public long getLong(int index){
+		if(this.value instanceof ElementList)
+			return ((ElementList) this.value).getLong(index);
+		return ((JSONNumber) this.value.get(index)).longValue();
 	}
 
 	@Override
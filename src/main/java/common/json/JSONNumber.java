@@ -1,31 +1,183 @@
 package common.json;
 
+import java.math.BigDecimal;
 
+/**
+ * Обёртка для чисел в JSON-структурах. Значение хранится без упаковки: целые числа,
+ * помещающиеся в {@code long}, хранятся как {@code long}, дробные - как {@code double},
+ * а {@code BigDecimal} используется только для целых чисел за пределами {@code long}
+ * и для явно переданных {@code BigDecimal}
+ */
 public class JSONNumber extends JSONEntity{
+
+	/** Значение хранится в {@code bits} как {@code long} */
+	private static final byte KIND_LONG = 0;
+	/** Значение хранится в {@code bits} как биты {@code double} */
+	private static final byte KIND_DOUBLE = 1;
+	/** Значение хранится в {@code value} */
+	private static final byte KIND_BIG = 2;
+
 	public final JSONType type = JSONType.NUMBER;
-	public final Double value;
+
+	/** Способ хранения значения */
+	private final byte kind;
+	/** Значение {@code long} или биты значения {@code double} */
+	private final long bits;
+	/**
+	 * Значение, не помещающееся в {@code long}. Поле закрыто и скрывает {@link JSONEntity#value},
+	 * поэтому обращения к {@code number.value} вне класса не компилируются.
+	 * Значение читается через {@link #doubleValue()}, {@link #longValue()} или {@link #bigDecimalValue()}
+	 */
+	private final BigDecimal value;
 
 	public JSONNumber(double value){
-		this.value = Double.valueOf(value);
+		this.kind = KIND_DOUBLE;
+		this.bits = Double.doubleToRawLongBits(value);
+		this.value = null;
 	}
 
-	public JSONNumber(int value){
-		this.value = Double.valueOf(value);
+	public JSONNumber(long value){
+		this.kind = KIND_LONG;
+		this.bits = value;
+		this.value = null;
 	}
 
-	public JSONNumber(String value){
-		this.value = Double.valueOf(value);
+	public JSONNumber(Double value){
+		this(value.doubleValue());
 	}
 
-	public JSONNumber(Double value){
+	public JSONNumber(BigDecimal value){
+		this.kind = KIND_BIG;
+		this.bits = 0;
 		this.value = value;
 	}
 
+	/**
+	 * Разбирает число, записанное по грамматике JSON
+	 * @param value Строка с числом
+	 * @throws NumberFormatException Если строка не является JSON-числом
+	 */
+	public JSONNumber(String value){
+		JSONNumber number = NumberParser.parse(value, 0, value.length());
+		this.kind = number.kind;
+		this.bits = number.bits;
+		this.value = number.value;
+	}
+
+	/**
+	 * Проверяет, является ли число целым
+	 * @return {@code true} если число было создано целым или записано без дробной части и экспоненты
+	 */
+	public boolean isIntegral(){
+		switch(this.kind){
+			case KIND_LONG:
+				return true;
+			case KIND_DOUBLE:
+				return false;
+			default:
+				return this.value.signum() == 0 || this.value.scale() <= 0 || this.value.stripTrailingZeros().scale() <= 0;
+		}
+	}
+
+	/**
+	 * Возвращает значение как {@code double}. Для целых чисел возможна потеря точности
+	 */
+	public double doubleValue(){
+		switch(this.kind){
+			case KIND_LONG:
+				return this.bits;
+			case KIND_DOUBLE:
+				return Double.longBitsToDouble(this.bits);
+			default:
+				return this.value.doubleValue();
+		}
+	}
+
+	/**
+	 * Возвращает значение как {@code long}. Дробная часть отбрасывается,
+	 * слишком большие значения обрезаются так же, как в {@link Number#longValue()}
+	 */
+	public long longValue(){
+		switch(this.kind){
+			case KIND_LONG:
+				return this.bits;
+			case KIND_DOUBLE:
+				return (long) Double.longBitsToDouble(this.bits);
+			default:
+				return this.value.longValue();
+		}
+	}
+
+	/**
+	 * Возвращает значение как {@code int}. Дробная часть отбрасывается,
+	 * слишком большие значения обрезаются так же, как в {@link Number#intValue()}
+	 */
+	public int intValue(){
+		return this.kind == KIND_DOUBLE ? (int) Double.longBitsToDouble(this.bits) : (int) this.longValue();
+	}
+
+	/**
+	 * Возвращает точное значение как {@code BigDecimal}
+	 * @throws NumberFormatException Если значение равно {@code NaN} или бесконечности
+	 */
+	public BigDecimal bigDecimalValue(){
+		switch(this.kind){
+			case KIND_LONG:
+				return BigDecimal.valueOf(this.bits);
+			case KIND_DOUBLE:
+				return new BigDecimal(Double.toString(Double.longBitsToDouble(this.bits)));
+			default:
+				return this.value;
+		}
+	}
+
+	/**
+	 * Сравнивает числа по способу хранения и значению: целое {@code 1} не равно дробному {@code 1.0}.
+	 * Дробные числа сравниваются так же, как в {@link Double#equals(Object)},
+	 * а {@code BigDecimal} - без учёта масштаба
+	 */
 	@Override
-	public String toString(){
-		double value = this.value.doubleValue();
-		if(value % 1 == 0)
-			return Integer.toString((int) value);
-		return this.value.toString();
+	public boolean equals(Object other){
+		if(this == other)
+			return true;
+		if(!(other instanceof JSONNumber))
+			return false;
+		JSONNumber number = (JSONNumber) other;
+		if(this.kind != number.kind)
+			return false;
+		switch(this.kind){
+			case KIND_LONG:
+				return this.bits == number.bits;
+			case KIND_DOUBLE:
+				return Double.doubleToLongBits(Double.longBitsToDouble(this.bits)) == Double.doubleToLongBits(Double.longBitsToDouble(number.bits));
+			default:
+				return this.value.compareTo(number.value) == 0;
+		}
+	}
+
+	@Override
+	public int hashCode(){
+		switch(this.kind){
+			case KIND_LONG:
+				return Long.hashCode(this.bits);
+			case KIND_DOUBLE:
+				return Double.hashCode(Double.longBitsToDouble(this.bits));
+			default:
+				return this.value.stripTrailingZeros().hashCode();
+		}
+	}
+
+	/**
+	 * Проверяет, хранится ли значение как {@code long}
+	 */
+	boolean isLong(){
+		return this.kind == KIND_LONG;
+	}
+
+	/**
+	 * Проверяет, хранится ли значение как {@code BigDecimal}
+	 */
+	boolean isBig(){
+		return this.kind == KIND_BIG;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,715 @@
+package common.json;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Создаёт и применяет изменения JSON-структур в формате JSON Patch (RFC 6902).
+ * Изменения представляются обычным {@code JSONList} операций вида
+ * {@code {"op":"replace","path":"/a/0","value":1}}, поэтому их можно записать и разобрать любым парсером.
+ * <p>
+ * Для сравнения поддеревьев используются 64-битные хеши, которые кешируются для каждого
+ * {@code JSONObject} и {@code JSONList}. Различающиеся ветви отсекаются сравнением хешей за O(1),
+ * а при совпадении хешей поддеревья сравниваются по содержимому, поэтому коллизия хешей
+ * не делает разные значения равными. Кеш хранится в экземпляре со слабыми ссылками
+ * и остаётся верным, пока структуры изменяются только через {@link #apply(JSONEntity, JSONList)}.
+ * После изменения структуры напрямую нужно вызвать {@link #invalidate(JSONComplex)} для неё и всех её предков.
+ * Объекты равны при одинаковых наборах ключей независимо от порядка, числа равны при численно
+ * равных значениях (RFC 6902, раздел 4.6): {@code 1} и {@code 1.0} равны.
+ * <p>
+ * Построение изменений и вычисление хешей не используют рекурсию. Экземпляр не потокобезопасен
+ */
+public final class JSONPatch{
+
+	private static final String OP_ADD = "add";
+	private static final String OP_REMOVE = "remove";
+	private static final String OP_REPLACE = "replace";
+	private static final String OP_MOVE = "move";
+	private static final String OP_COPY = "copy";
+	private static final String OP_TEST = "test";
+
+	/** Хеш {@code null} */
+	private static final long HASH_NULL = 0x6A09E667F3BCC908L;
+	/** Хеш {@code true} */
+	private static final long HASH_TRUE = 0xBB67AE8584CAA73BL;
+	/** Хеш {@code false} */
+	private static final long HASH_FALSE = 0x3C6EF372FE94F82BL;
+	/** Начальное значение хеша списка */
+	private static final long SEED_LIST = 0xA54FF53A5F1D36F1L;
+	/** Начальное значение хеша объекта */
+	private static final long SEED_OBJECT = 0x510E527FADE682D1L;
+	/** Множитель хеша строк и списков */
+	private static final long PRIME = 0x100000001B3L;
+
+	/** Кеш хешей структур. Ключи сравниваются по ссылке, так как структуры не переопределяют {@code equals} */
+	private final Map<JSONComplex, Long> hashes = new WeakHashMap<>();
+
+	/**
+	 * Строит изменения, превращающие одну структуру в другую. Операции ссылаются на значения
+	 * из {@code target} без копирования. Порядок ключей объектов не учитывается
+	 * @param source Исходная структура
+	 * @param target Желаемая структура
+	 * @return Список операций {@code add}, {@code remove}, {@code replace} и {@code move}
+	 */
+	public JSONList diff(JSONEntity source, JSONEntity target){
+		JSONList result = new JSONList();
+		Deque<Object> tasks = new ArrayDeque<>();
+		tasks.push(new Task("", source, target));
+		while(!tasks.isEmpty()){
+			Object next = tasks.pop();
+			if(next instanceof JSONObject){
+				result.add(null, (JSONObject) next);
+				continue;
+			}
+			Task task = (Task) next;
+			if(this.equal(task.source, task.target))
+				continue;
+			if(task.source instanceof JSONObject && task.target instanceof JSONObject)
+				this.diffObjects(task.path, ((JSONObject) task.source).value, ((JSONObject) task.target).value, tasks);
+			else if(task.source instanceof JSONList && task.target instanceof JSONList)
+				this.diffLists(task.path, ((JSONList) task.source).value, ((JSONList) task.target).value, tasks);
+			else
+				tasks.push(operation(OP_REPLACE, task.path, null, task.target));
+		}
+		return result;
+	}
+
+	/**
+	 * Добавляет задачи сравнения двух объектов. Ключ, значение которого перенесено под другим
+	 * именем, превращается в операцию {@code move}
+	 */
+	private void diffObjects(String path, Map<String, JSONEntity> source, Map<String, JSONEntity> target, Deque<Object> tasks){
+		Map<Long, List<String>> removed = new HashMap<>();
+		for(Map.Entry<String, JSONEntity> entry : source.entrySet())
+			if(!target.containsKey(entry.getKey()))
+				removed.computeIfAbsent(this.hash(entry.getValue()), hash -> new ArrayList<>()).add(entry.getKey());
+		List<Object> steps = new ArrayList<>();
+		for(Map.Entry<String, JSONEntity> entry : target.entrySet()){
+			String child = path + '/' + escape(entry.getKey());
+			if(source.containsKey(entry.getKey())){
+				steps.add(new Task(child, source.get(entry.getKey()), entry.getValue()));
+				continue;
+			}
+			String moved = this.take(removed.get(this.hash(entry.getValue())), source, entry.getValue());
+			if(moved != null)
+				steps.add(operation(OP_MOVE, child, path + '/' + escape(moved), null));
+			else
+				steps.add(operation(OP_ADD, child, null, entry.getValue()));
+		}
+		for(List<String> keys : removed.values())
+			for(String key : keys)
+				steps.add(0, operation(OP_REMOVE, path + '/' + escape(key), null, null));
+		for(int i = steps.size() - 1; i >= 0; i--)
+			tasks.push(steps.get(i));
+	}
+
+	/**
+	 * Забирает из кандидатов с тем же хешем последний ключ, значение которого равно заданному
+	 * @return Ключ или {@code null}, если подходящего ключа нет
+	 */
+	private String take(List<String> candidates, Map<String, JSONEntity> source, JSONEntity value){
+		if(candidates == null)
+			return null;
+		for(int i = candidates.size() - 1; i >= 0; i--)
+			if(this.equal(source.get(candidates.get(i)), value))
+				return candidates.remove(i);
+		return null;
+	}
+
+	/**
+	 * Добавляет задачи сравнения двух списков. Совпадающие начало и конец пропускаются,
+	 * средние части сравниваются поэлементно, лишние элементы удаляются или добавляются
+	 */
+	private void diffLists(String path, List<JSONEntity> source, List<JSONEntity> target, Deque<Object> tasks){
+		int start = 0;
+		int sourceEnd = source.size();
+		int targetEnd = target.size();
+		while(start < sourceEnd && start < targetEnd && this.equal(source.get(start), target.get(start)))
+			start++;
+		while(sourceEnd > start && targetEnd > start && this.equal(source.get(sourceEnd - 1), target.get(targetEnd - 1))){
+			sourceEnd--;
+			targetEnd--;
+		}
+		int common = Math.min(sourceEnd, targetEnd) - start;
+		List<Object> steps = new ArrayList<>();
+		for(int i = 0; i < common; i++)
+			steps.add(new Task(path + '/' + (start + i), source.get(start + i), target.get(start + i)));
+		for(int i = start + common; i < sourceEnd; i++)
+			steps.add(operation(OP_REMOVE, path + '/' + (start + common), null, null));
+		for(int i = start + common; i < targetEnd; i++)
+			steps.add(operation(OP_ADD, path + '/' + i, null, target.get(i)));
+		for(int i = steps.size() - 1; i >= 0; i--)
+			tasks.push(steps.get(i));
+	}
+
+	/**
+	 * Применяет изменения к структуре на месте. Значения из операций копируются, поэтому одни и те же
+	 * изменения можно применять к нескольким структурам. Если операция не выполнена по любой причине,
+	 * в том числе из-за исключения самой структуры, уже выполненные операции отменяются, и исключение
+	 * пробрасывается дальше. При отмене удалённые ключи объектов возвращаются в конец объекта
+	 * @param document Изменяемая структура
+	 * @param patch Список операций
+	 * @return Новый корень структуры. Отличается от {@code document}, только если операция заменила корень
+	 * @throws IllegalArgumentException Если операция некорректна, путь не существует или проверка {@code test} не прошла
+	 */
+	public JSONEntity apply(JSONEntity document, JSONList patch){
+		List<Runnable> undo = new ArrayList<>();
+		JSONEntity root = document;
+		int index = 0;
+		boolean done = false;
+		try {
+			for(JSONEntity operation : patch.value){
+				if(!(operation instanceof JSONObject))
+					throw new IllegalArgumentException("Operation must be an object");
+				root = this.apply(root, ((JSONObject) operation).value, undo);
+				index++;
+			}
+			done = true;
+			return root;
+		} catch(IllegalArgumentException ex){
+			throw new IllegalArgumentException("Operation " + index + ": " + ex.getMessage(), ex);
+		} finally {
+			if(!done){
+				for(int i = undo.size() - 1; i >= 0; i--)
+					undo.get(i).run();
+				this.hashes.clear();
+			}
+		}
+	}
+
+	/**
+	 * Применяет одну операцию
+	 * @return Новый корень структуры
+	 */
+	private JSONEntity apply(JSONEntity root, Map<String, JSONEntity> operation, List<Runnable> undo){
+		String op = string(operation, "op");
+		String path = string(operation, "path");
+		switch(op){
+			case OP_ADD:
+				return this.add(root, path, copy(value(operation)), undo);
+			case OP_REMOVE:
+				this.remove(root, path, undo);
+				return root;
+			case OP_REPLACE: {
+				JSONEntity value = copy(value(operation));
+				if(path.isEmpty())
+					return value;
+				Location location = this.locate(root, path, true);
+				JSONEntity previous = location.replace(value);
+				undo.add(() -> location.replace(previous));
+				return root;
+			}
+			case OP_MOVE: {
+				String from = string(operation, "from");
+				if(path.startsWith(from) && path.length() > from.length() && path.charAt(from.length()) == '/')
+					throw new IllegalArgumentException("Cannot move \"" + from + "\" into its own child \"" + path + "\"");
+				if(from.equals(path)){
+					this.get(root, from);
+					return root;
+				}
+				JSONEntity value = this.remove(root, from, undo);
+				return this.add(root, path, value, undo);
+			}
+			case OP_COPY:
+				return this.add(root, path, copy(this.get(root, string(operation, "from"))), undo);
+			case OP_TEST:
+				if(!this.equal(this.get(root, path), value(operation)))
+					throw new IllegalArgumentException("Test failed for \"" + path + "\"");
+				return root;
+			default:
+				throw new IllegalArgumentException("Unknown operation \"" + op + "\"");
+		}
+	}
+
+	/**
+	 * Добавляет значение по пути, заменяя существующий ключ объекта
+	 * @return Новый корень структуры
+	 */
+	private JSONEntity add(JSONEntity root, String path, JSONEntity value, List<Runnable> undo){
+		if(path.isEmpty())
+			return value;
+		Location location = this.locate(root, path, true);
+		if(location.list == null && location.object.containsKey(location.key)){
+			JSONEntity previous = location.object.put(location.key, value);
+			undo.add(() -> location.object.put(location.key, previous));
+		} else {
+			location.insert(value);
+			undo.add(location::delete);
+		}
+		return root;
+	}
+
+	/**
+	 * Удаляет значение по пути
+	 * @return Удалённое значение
+	 */
+	private JSONEntity remove(JSONEntity root, String path, List<Runnable> undo){
+		if(path.isEmpty())
+			throw new IllegalArgumentException("Cannot remove the root");
+		Location location = this.locate(root, path, true);
+		JSONEntity previous = location.delete();
+		undo.add(() -> location.insert(previous));
+		return previous;
+	}
+
+	/**
+	 * Возвращает значение по пути
+	 */
+	private JSONEntity get(JSONEntity root, String path){
+		return path.isEmpty() ? root : this.locate(root, path, false).get();
+	}
+
+	/**
+	 * Находит структуру, содержащую значение по пути (JSON Pointer, RFC 6901)
+	 * @param modify Будет ли значение изменено. Тогда хеши всех структур на пути сбрасываются
+	 */
+	private Location locate(JSONEntity root, String path, boolean modify){
+		if(path.isEmpty() || path.charAt(0) != '/')
+			throw new IllegalArgumentException("Path must start with a slash: \"" + path + "\"");
+		JSONEntity current = root;
+		int start = 1;
+		while(true){
+			if(!(current instanceof JSONComplex))
+				throw new IllegalArgumentException("Path \"" + path + "\" does not exist");
+			if(modify)
+				this.hashes.remove(current);
+			int end = path.indexOf('/', start);
+			String token = unescape(path.substring(start, end < 0 ? path.length() : end));
+			Location location = new Location(current, token);
+			if(end < 0)
+				return location;
+			current = location.get();
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Сбрасывает закешированный хеш структуры. Нужно вызывать для изменённой напрямую структуры и всех её предков
+	 * @param container Изменённая структура
+	 */
+	public void invalidate(JSONComplex container){
+		this.hashes.remove(container);
+	}
+
+	/**
+	 * Сравнивает значения. Разные хеши означают разные значения, при совпадении хешей
+	 * значения сравниваются по содержимому без рекурсии
+	 * @return {@code true} если значения равны
+	 */
+	public boolean equal(JSONEntity a, JSONEntity b){
+		if(a == b)
+			return true;
+		if(this.hash(a) != this.hash(b))
+			return false;
+		// Пары значений подряд. ArrayDeque не принимает null, поэтому используется список
+		List<JSONEntity> pairs = new ArrayList<>();
+		pairs.add(a);
+		pairs.add(b);
+		while(!pairs.isEmpty()){
+			JSONEntity y = pairs.remove(pairs.size() - 1);
+			JSONEntity x = pairs.remove(pairs.size() - 1);
+			if(x == y)
+				continue;
+			if(x instanceof JSONObject && y instanceof JSONObject){
+				Map<String, JSONEntity> left = ((JSONObject) x).value;
+				Map<String, JSONEntity> right = ((JSONObject) y).value;
+				if(left.size() != right.size())
+					return false;
+				for(Map.Entry<String, JSONEntity> entry : left.entrySet()){
+					JSONEntity other = right.get(entry.getKey());
+					if(other == null && !right.containsKey(entry.getKey()) || this.hash(entry.getValue()) != this.hash(other))
+						return false;
+					pairs.add(entry.getValue());
+					pairs.add(other);
+				}
+			} else if(x instanceof JSONList && y instanceof JSONList){
+				List<JSONEntity> left = ((JSONList) x).value;
+				List<JSONEntity> right = ((JSONList) y).value;
+				if(left.size() != right.size())
+					return false;
+				for(int i = 0; i < left.size(); i++){
+					pairs.add(left.get(i));
+					pairs.add(right.get(i));
+				}
+			} else if(!sameScalar(x, y)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Сравнивает скалярные значения. Числа сравниваются численно
+	 */
+	private static boolean sameScalar(JSONEntity a, JSONEntity b){
+		if(a == null || b == null)
+			return a == b;
+		if(a instanceof JSONBoolean && b instanceof JSONBoolean)
+			return ((JSONBoolean) a).value.equals(((JSONBoolean) b).value);
+		if(a instanceof JSONString && b instanceof JSONString)
+			return ((JSONString) a).stringValue().equals(((JSONString) b).stringValue());
+		if(!(a instanceof JSONNumber && b instanceof JSONNumber))
+			return false;
+		JSONNumber x = (JSONNumber) a;
+		JSONNumber y = (JSONNumber) b;
+		if(x.isLong() && y.isLong())
+			return x.longValue() == y.longValue();
+		if(!x.isBig() && !y.isBig() && !x.isLong() && !y.isLong() || !finite(x) || !finite(y))
+			return x.doubleValue() == y.doubleValue();
+		return x.bigDecimalValue().compareTo(y.bigDecimalValue()) == 0;
+	}
+
+	/**
+	 * Проверяет, можно ли представить число как {@code BigDecimal}
+	 */
+	private static boolean finite(JSONNumber number){
+		return number.isLong() || number.isBig() || Double.isFinite(number.doubleValue());
+	}
+
+	/**
+	 * Вычисляет 64-битный хеш значения. Хеши структур кешируются и вычисляются без рекурсии
+	 * @param value Значение
+	 * @return Хеш, не зависящий от порядка ключей объектов. Численно равные числа имеют одинаковый хеш
+	 */
+	public long hash(JSONEntity value){
+		if(!(value instanceof JSONComplex))
+			return scalar(value);
+		Long cached = this.hashes.get(value);
+		if(cached != null)
+			return cached;
+		Deque<JSONComplex> stack = new ArrayDeque<>();
+		stack.push((JSONComplex) value);
+		while(!stack.isEmpty()){
+			JSONComplex top = stack.peek();
+			if(this.hashes.containsKey(top)){
+				stack.pop();
+				continue;
+			}
+			boolean ready = true;
+			for(Iterator<JSONEntity> i = children(top); i.hasNext();){
+				JSONEntity child = i.next();
+				if(child instanceof JSONComplex && !this.hashes.containsKey(child)){
+					stack.push((JSONComplex) child);
+					ready = false;
+				}
+			}
+			if(ready){
+				stack.pop();
+				this.hashes.put(top, this.combine(top));
+			}
+		}
+		return this.hashes.get(value);
+	}
+
+	/**
+	 * Вычисляет хеш структуры, хеши вложенных структур которой уже известны
+	 */
+	private long combine(JSONComplex container){
+		if(container instanceof JSONList){
+			List<JSONEntity> list = ((JSONList) container).value;
+			long result = SEED_LIST;
+			if(list instanceof ElementList && (((ElementList) list).isLongs() || ((ElementList) list).isDoubles())){
+				ElementList elements = (ElementList) list;
+				boolean longs = elements.isLongs();
+				for(int i = 0; i < elements.size(); i++)
+					result = (result ^ (longs ? number(elements.getLong(i)) : number(elements.getDouble(i)))) * PRIME;
+			} else {
+				for(JSONEntity item : list)
+					result = (result ^ this.cached(item)) * PRIME;
+			}
+			return mix(result + list.size());
+		}
+		Map<String, JSONEntity> map = ((JSONObject) container).value;
+		long result = SEED_OBJECT;
+		for(Map.Entry<String, JSONEntity> entry : map.entrySet())
+			result += mix(string(entry.getKey()) * PRIME + this.cached(entry.getValue()));
+		return mix(result + map.size());
+	}
+
+	/**
+	 * Возвращает хеш скалярного значения или уже вычисленный хеш структуры
+	 */
+	private long cached(JSONEntity value){
+		return value instanceof JSONComplex ? this.hashes.get(value) : scalar(value);
+	}
+
+	/**
+	 * Перебирает значения структуры
+	 */
+	private static Iterator<JSONEntity> children(JSONComplex container){
+		if(container instanceof JSONList){
+			List<JSONEntity> list = ((JSONList) container).value;
+			if(list instanceof ElementList && (((ElementList) list).isLongs() || ((ElementList) list).isDoubles()))
+				return Collections.emptyIterator();
+			return list.iterator();
+		}
+		return ((JSONObject) container).value.values().iterator();
+	}
+
+	/**
+	 * Вычисляет хеш скалярного значения
+	 */
+	private static long scalar(JSONEntity value){
+		if(value == null)
+			return HASH_NULL;
+		if(value instanceof JSONBoolean)
+			return ((JSONBoolean) value).value ? HASH_TRUE : HASH_FALSE;
+		if(value instanceof JSONString)
+			return string(((JSONString) value).stringValue());
+		if(value instanceof JSONNumber){
+			JSONNumber number = (JSONNumber) value;
+			if(number.isLong())
+				return number(number.longValue());
+			// Целые за пределами long хешируются так же, как равные им double
+			if(number.isBig() && number.isIntegral() && number.bigDecimalValue().toBigInteger().bitLength() < 64)
+				return number(number.longValue());
+			return number(number.doubleValue());
+		}
+		throw new IllegalArgumentException("Unsupported value " + value.getClass().getName());
+	}
+
+	/**
+	 * Хеш целого числа
+	 */
+	private static long number(long value){
+		return mix(value ^ HASH_TRUE);
+	}
+
+	/**
+	 * Хеш дробного числа. Целые значения в пределах {@code long} хешируются как целые числа
+	 */
+	private static long number(double value){
+		if(value == Math.rint(value) && Math.abs(value) < 0x1p63)
+			return number((long) value);
+		return mix(Double.doubleToLongBits(value) ^ HASH_FALSE);
+	}
+
+	/**
+	 * Хеш строки
+	 */
+	private static long string(String value){
+		long result = PRIME;
+		for(int i = 0; i < value.length(); i++)
+			result = (result ^ value.charAt(i)) * PRIME;
+		return mix(result ^ value.length());
+	}
+
+	/**
+	 * Перемешивает биты числа (финализатор SplitMix64)
+	 */
+	private static long mix(long x){
+		x = (x ^ x >>> 30) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ x >>> 27) * 0x94D049BB133111EBL;
+		return x ^ x >>> 31;
+	}
+
+	/**
+	 * Создаёт объект операции
+	 */
+	private static JSONObject operation(String op, String path, String from, JSONEntity value){
+		JSONObject result = new JSONObject();
+		result.add("op", new JSONString(op));
+		if(from != null)
+			result.add("from", new JSONString(from));
+		result.add("path", new JSONString(path));
+		if(op == OP_ADD || op == OP_REPLACE)
+			result.add("value", value);
+		return result;
+	}
+
+	/**
+	 * Читает строковое поле операции
+	 */
+	private static String string(Map<String, JSONEntity> operation, String name){
+		JSONEntity value = operation.get(name);
+		if(!(value instanceof JSONString))
+			throw new IllegalArgumentException("Missing string member \"" + name + "\"");
+		return ((JSONString) value).stringValue();
+	}
+
+	/**
+	 * Читает значение операции
+	 */
+	private static JSONEntity value(Map<String, JSONEntity> operation){
+		if(!operation.containsKey("value"))
+			throw new IllegalArgumentException("Missing member \"value\"");
+		return operation.get("value");
+	}
+
+	/**
+	 * Копирует значение без рекурсии. Скалярные значения неизменяемы и не копируются
+	 */
+	private static JSONEntity copy(JSONEntity value){
+		if(!(value instanceof JSONComplex))
+			return value;
+		JSONComplex root = value instanceof JSONList ? new JSONList() : new JSONObject();
+		Deque<JSONComplex[]> pairs = new ArrayDeque<>();
+		pairs.push(new JSONComplex[]{(JSONComplex) value, root});
+		while(!pairs.isEmpty()){
+			JSONComplex[] pair = pairs.pop();
+			if(pair[0] instanceof JSONList){
+				List<JSONEntity> source = ((JSONList) pair[0]).value;
+				if(source instanceof ElementList && ((JSONList) pair[1]).value instanceof ElementList && (((ElementList) source).isLongs() || ((ElementList) source).isDoubles())){
+					((ElementList) ((JSONList) pair[1]).value).append((ElementList) source);
+					continue;
+				}
+				for(JSONEntity item : source)
+					pair[1].add(null, copyChild(item, pairs));
+			} else {
+				for(Map.Entry<String, JSONEntity> entry : ((JSONObject) pair[0]).value.entrySet())
+					pair[1].add(entry.getKey(), copyChild(entry.getValue(), pairs));
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Создаёт пустую копию структуры и откладывает копирование её содержимого
+	 */
+	private static JSONEntity copyChild(JSONEntity value, Deque<JSONComplex[]> pairs){
+		if(!(value instanceof JSONComplex))
+			return value;
+		JSONComplex result = value instanceof JSONList ? new JSONList() : new JSONObject();
+		pairs.push(new JSONComplex[]{(JSONComplex) value, result});
+		return result;
+	}
+
+	/**
+	 * Экранирует ключ для JSON Pointer
+	 */
+	private static String escape(String key){
+		if(key.indexOf('~') < 0 && key.indexOf('/') < 0)
+			return key;
+		return key.replace("~", "~0").replace("/", "~1");
+	}
+
+	/**
+	 * Раскрывает экранированный ключ JSON Pointer
+	 */
+	private static String unescape(String token){
+		int i = token.indexOf('~');
+		if(i < 0)
+			return token;
+		StringBuilder result = new StringBuilder(token.length());
+		for(i = 0; i < token.length(); i++){
+			char c = token.charAt(i);
+			if(c == '~'){
+				char next = i + 1 < token.length() ? token.charAt(++i) : 0;
+				if(next != '0' && next != '1')
+					throw new IllegalArgumentException("Invalid escape in path token \"" + token + "\"");
+				c = next == '0' ? '~' : '/';
+			}
+			result.append(c);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Задача сравнения двух значений по пути
+	 */
+	private static final class Task{
+
+		final String path;
+		final JSONEntity source;
+		final JSONEntity target;
+
+		Task(String path, JSONEntity source, JSONEntity target){
+			this.path = path;
+			this.source = source;
+			this.target = target;
+		}
+	}
+
+	/**
+	 * Место значения внутри структуры: ключ объекта или индекс списка
+	 */
+	private static final class Location{
+
+		/** Объект или {@code null}, если значение в списке */
+		final Map<String, JSONEntity> object;
+		/** Список или {@code null}, если значение в объекте */
+		final List<JSONEntity> list;
+		/** Ключ объекта */
+		final String key;
+		/** Индекс списка. Для {@code "-"} равен размеру списка */
+		final int index;
+
+		Location(JSONEntity container, String token){
+			if(container instanceof JSONObject){
+				this.object = ((JSONObject) container).value;
+				this.list = null;
+				this.key = token;
+				this.index = -1;
+			} else {
+				this.object = null;
+				this.list = ((JSONList) container).value;
+				this.key = null;
+				this.index = index(token, this.list.size());
+			}
+		}
+
+		JSONEntity get(){
+			if(this.list == null){
+				if(!this.object.containsKey(this.key))
+					throw new IllegalArgumentException("Key \"" + this.key + "\" does not exist");
+				return this.object.get(this.key);
+			}
+			this.check(this.list.size() - 1);
+			return this.list.get(this.index);
+		}
+
+		JSONEntity replace(JSONEntity value){
+			if(this.list == null){
+				this.get();
+				return this.object.put(this.key, value);
+			}
+			this.check(this.list.size() - 1);
+			return this.list.set(this.index, value);
+		}
+
+		void insert(JSONEntity value){
+			if(this.list == null){
+				this.object.put(this.key, value);
+			} else {
+				this.check(this.list.size());
+				this.list.add(this.index, value);
+			}
+		}
+
+		JSONEntity delete(){
+			if(this.list == null){
+				JSONEntity result = this.get();
+				this.object.remove(this.key);
+				return result;
+			}
+			this.check(this.list.size() - 1);
+			return this.list.remove(this.index);
+		}
+
+		private void check(int max){
+			if(this.index > max)
+				throw new IllegalArgumentException("Index " + this.index + " is out of bounds");
+		}
+
+		/**
+		 * Разбирает индекс списка без ведущих нулей
+		 */
+		private static int index(String token, int size){
+			if(token.equals("-"))
+				return size;
+			if(token.isEmpty() || token.length() > 1 && token.charAt(0) == '0' || token.length() > 9)
+				throw new IllegalArgumentException("Invalid list index \"" + token + "\"");
+			for(int i = 0; i < token.length(); i++)
+				if(token.charAt(i) < '0' || token.charAt(i) > '9')
+					throw new IllegalArgumentException("Invalid list index \"" + token + "\"");
+			return Integer.parseInt(token);
+		}
+	}
+}
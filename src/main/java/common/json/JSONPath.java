@@ -0,0 +1,744 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Выражения JSONPath, которые вычисляются за один проход по JSON-данным в кодировке UTF-8
+ * без построения дерева. Выражения компилируются в общий недетерминированный автомат:
+ * позиция автомата - номер следующего шага одного выражения. Во время прохода множества
+ * позиций лениво превращаются в состояния детерминированного автомата с кешем переходов
+ * по именам ключей и индексам, поэтому на каждом ключе выполняется один поиск в таблице.
+ * Ключи сравниваются с именами из выражений прямо в байтах, без создания строк.
+ * Поддерево, в котором не осталось ни одной позиции, пропускается быстрым сканированием
+ * кавычек и скобок и не разбирается. Найденные значения разбираются {@link ByteParser}.
+ * <p>
+ * Поддерживаются корень {@code $}, дочерние шаги {@code .name}, {@code .*} и {@code [...]},
+ * спуск на любую глубину {@code ..name}, {@code ..*} и {@code ..[...]}, а в скобках через запятую -
+ * имена в одинарных или двойных кавычках, {@code *}, неотрицательные индексы и срезы
+ * {@code start:end:step} с неотрицательными границами и положительным шагом. Отрицательные
+ * индексы и фильтры требуют знать весь список и не поддерживаются.
+ * <p>
+ * Пропускаемые поддеревья проверяются только на парность кавычек и скобок, найденные значения
+ * и путь к ним проверяются полностью. Скомпилированный объект неизменяем и потокобезопасен
+ * <pre>
+ * JSONPath path = JSONPath.compile("$.users[*].id", "$..error");
+ * path.select(buffer, (value, index) -&gt; ...);
+ * </pre>
+ */
+public final class JSONPath{
+
+	/** Индекс, который используется для списков без ограничений сверху */
+	private static final int UNBOUNDED = Integer.MAX_VALUE;
+	/** Количество индексов списка, переходы по которым кешируются */
+	private static final int INDEX_CACHE = 256;
+
+	/** Исходные выражения */
+	private final String[] expressions;
+	/** Шаг каждой позиции автомата или {@code null} для конечной позиции */
+	private final Step[] steps;
+	/** Номер выражения каждой позиции автомата */
+	private final int[] paths;
+	/** Начальные позиции выражений */
+	private final int[] initial;
+	/** Имена ключей из всех выражений */
+	private final NameTable names;
+
+	private JSONPath(String[] expressions, List<List<Step>> compiled, NameTable names){
+		this.expressions = expressions;
+		int count = 0;
+		for(List<Step> path : compiled)
+			count += path.size() + 1;
+		this.steps = new Step[count];
+		this.paths = new int[count];
+		this.initial = new int[compiled.size()];
+		int position = 0;
+		for(int i = 0; i < compiled.size(); i++){
+			this.initial[i] = position;
+			for(Step step : compiled.get(i)){
+				this.paths[position] = i;
+				this.steps[position++] = step;
+			}
+			this.paths[position++] = i;
+		}
+		this.names = names;
+	}
+
+	/**
+	 * Компилирует выражения для совместного вычисления
+	 * @param expressions Выражения JSONPath
+	 * @return Скомпилированные выражения
+	 * @throws IllegalArgumentException Если выражение некорректно или использует неподдерживаемые возможности
+	 */
+	public static JSONPath compile(String... expressions){
+		NameTable names = new NameTable();
+		List<List<Step>> compiled = new ArrayList<>(expressions.length);
+		for(String expression : expressions)
+			compiled.add(new Compiler(expression, names).compile());
+		return new JSONPath(expressions.clone(), compiled, names);
+	}
+
+	/**
+	 * Возвращает количество выражений
+	 */
+	public int size(){
+		return this.expressions.length;
+	}
+
+	/**
+	 * Возвращает исходное выражение
+	 * @param index Номер выражения
+	 */
+	public String get(int index){
+		return this.expressions[index];
+	}
+
+	/**
+	 * Вычисляет все выражения за один проход. Значения передаются в порядке их начала в данных.
+	 * Значение, найденное несколькими выражениями, разбирается один раз и передаётся для каждого из них
+	 * @param data JSON-данные в кодировке UTF-8 от позиции до лимита буфера. Позиция и лимит не изменяются
+	 * @param consumer Получатель найденного значения и номера выражения
+	 * @throws ParseException Если данные невалидны
+	 */
+	public void select(ByteBuffer data, ObjIntConsumer<JSONEntity> consumer) throws ParseException {
+		new Evaluator(data, consumer).run();
+	}
+
+	/**
+	 * Вычисляет все выражения за один проход
+	 * @param data JSON-данные в кодировке UTF-8
+	 * @return Найденные значения для каждого выражения в порядке выражений
+	 * @throws ParseException Если данные невалидны
+	 */
+	public List<List<JSONEntity>> select(byte[] data) throws ParseException {
+		List<List<JSONEntity>> result = new ArrayList<>(this.expressions.length);
+		for(int i = 0; i < this.expressions.length; i++)
+			result.add(new ArrayList<>());
+		this.select(ByteBuffer.wrap(data), (value, path) -> result.get(path).add(value));
+		return result;
+	}
+
+	/**
+	 * Один шаг выражения
+	 */
+	private static final class Step{
+
+		/** Применяется ли шаг на любой глубине */
+		final boolean descendant;
+		/** Подходит ли любой ключ и индекс */
+		final boolean wildcard;
+		/** Номера подходящих имён */
+		final int[] names;
+		/** Подходящие индексы */
+		final int[] indices;
+		/** Срезы: тройки начала, конца и шага */
+		final int[] slices;
+
+		Step(boolean descendant, boolean wildcard, int[] names, int[] indices, int[] slices){
+			this.descendant = descendant;
+			this.wildcard = wildcard;
+			this.names = names;
+			this.indices = indices;
+			this.slices = slices;
+		}
+
+		boolean matchesName(int id){
+			if(this.wildcard)
+				return true;
+			for(int name : this.names)
+				if(name == id)
+					return true;
+			return false;
+		}
+
+		boolean matchesIndex(int index){
+			if(this.wildcard)
+				return true;
+			for(int i : this.indices)
+				if(i == index)
+					return true;
+			for(int i = 0; i < this.slices.length; i += 3)
+				if(index >= this.slices[i] && index < this.slices[i + 1] && (index - this.slices[i]) % this.slices[i + 2] == 0)
+					return true;
+			return false;
+		}
+
+		/**
+		 * Зависит ли переход по элементу списка от его индекса
+		 */
+		boolean isIndexed(){
+			return !this.wildcard && (this.indices.length > 0 || this.slices.length > 0);
+		}
+	}
+
+	/**
+	 * Разбирает одно выражение в последовательность шагов
+	 */
+	private static final class Compiler{
+
+		private final String expression;
+		private final NameTable names;
+		private int pos = 0;
+
+		Compiler(String expression, NameTable names){
+			this.expression = expression;
+			this.names = names;
+		}
+
+		List<Step> compile(){
+			List<Step> result = new ArrayList<>();
+			if(!this.expression.startsWith("$"))
+				throw this.error("Expected $");
+			this.pos = 1;
+			int length = this.expression.length();
+			while(this.pos < length){
+				char c = this.expression.charAt(this.pos);
+				boolean descendant = false;
+				if(c == '.'){
+					this.pos++;
+					if(this.pos < length && this.expression.charAt(this.pos) == '.'){
+						descendant = true;
+						this.pos++;
+					}
+					if(this.pos == length)
+						throw this.error("Expected name");
+					c = this.expression.charAt(this.pos);
+					if(c == '*'){
+						this.pos++;
+						result.add(new Step(descendant, true, new int[0], new int[0], new int[0]));
+						continue;
+					}
+					if(c != '[' || !descendant){
+						int start = this.pos;
+						while(this.pos < length && "$.[]*'\" ".indexOf(this.expression.charAt(this.pos)) < 0)
+							this.pos++;
+						if(start == this.pos)
+							throw this.error("Expected name");
+						result.add(new Step(descendant, false, new int[]{this.id(this.expression.substring(start, this.pos))}, new int[0], new int[0]));
+						continue;
+					}
+				} else if(c != '['){
+					throw this.error("Expected dot or opening bracket");
+				}
+				result.add(this.brackets(descendant));
+			}
+			return result;
+		}
+
+		/**
+		 * Разбирает селекторы в квадратных скобках
+		 */
+		private Step brackets(boolean descendant){
+			this.pos++;
+			boolean wildcard = false;
+			List<Integer> names = new ArrayList<>();
+			List<Integer> indices = new ArrayList<>();
+			List<Integer> slices = new ArrayList<>();
+			while(true){
+				this.skipSpaces();
+				char c = this.charAtPos();
+				if(c == '*'){
+					this.pos++;
+					wildcard = true;
+				} else if(c == '\'' || c == '"'){
+					names.add(this.id(this.quoted(c)));
+				} else if(c == '?' || c == '('){
+					throw this.error("Filter and script expressions are not supported");
+				} else {
+					int start = c == ':' ? 0 : this.integer();
+					this.skipSpaces();
+					if(this.charAtPos() == ':'){
+						this.pos++;
+						this.skipSpaces();
+						c = this.charAtPos();
+						int end = c == ':' || c == ',' || c == ']' ? UNBOUNDED : this.integer();
+						int step = 1;
+						this.skipSpaces();
+						if(this.charAtPos() == ':'){
+							this.pos++;
+							this.skipSpaces();
+							c = this.charAtPos();
+							if(c != ',' && c != ']')
+								step = this.integer();
+							if(step <= 0)
+								throw this.error("Slice step must be positive");
+						}
+						slices.add(start);
+						slices.add(end);
+						slices.add(step);
+					} else {
+						indices.add(start);
+					}
+				}
+				this.skipSpaces();
+				c = this.charAtPos();
+				this.pos++;
+				if(c == ']')
+					break;
+				if(c != ','){
+					this.pos--;
+					throw this.error("Expected comma or closing bracket");
+				}
+			}
+			return new Step(descendant, wildcard, toArray(names), toArray(indices), toArray(slices));
+		}
+
+		/**
+		 * Разбирает неотрицательное целое число
+		 */
+		private int integer(){
+			int start = this.pos;
+			if(this.charAtPos() == '-')
+				throw this.error("Negative indices are not supported in a single pass");
+			long value = 0;
+			while(this.pos < this.expression.length() && Character.isDigit(this.expression.charAt(this.pos))){
+				value = value * 10 + (this.expression.charAt(this.pos++) - '0');
+				if(value > Integer.MAX_VALUE)
+					throw this.error("Index is too large");
+			}
+			if(start == this.pos)
+				throw this.error("Expected index, name or wildcard");
+			return (int) value;
+		}
+
+		/**
+		 * Разбирает имя в кавычках с экранированными последовательностями как в JSON
+		 */
+		private String quoted(char quote){
+			StringBuilder result = new StringBuilder();
+			this.pos++;
+			int length = this.expression.length();
+			while(this.pos < length){
+				char c = this.expression.charAt(this.pos++);
+				if(c == quote)
+					return result.toString();
+				if(c != '\\'){
+					result.append(c);
+					continue;
+				}
+				if(this.pos == length)
+					break;
+				c = this.expression.charAt(this.pos++);
+				switch(c){
+					case 'b':
+						result.append('\b');
+						break;
+					case 'f':
+						result.append('\f');
+						break;
+					case 'n':
+						result.append('\n');
+						break;
+					case 'r':
+						result.append('\r');
+						break;
+					case 't':
+						result.append('\t');
+						break;
+					case 'u':
+						if(this.pos + 4 > length)
+							throw this.error("Expected unicode escape sequence");
+						try {
+							result.append((char) Integer.parseInt(this.expression.substring(this.pos, this.pos + 4), 16));
+						} catch(NumberFormatException ex){
+							throw this.error("Expected hexadecimal digit");
+						}
+						this.pos += 4;
+						break;
+					default:
+						result.append(c);
+				}
+			}
+			throw this.error("Expected closing quote");
+		}
+
+		private int id(String name){
+			int id = this.names.indexOf(name);
+			return id < 0 ? this.names.add(name) : id;
+		}
+
+		private void skipSpaces(){
+			while(this.pos < this.expression.length() && this.expression.charAt(this.pos) == ' ')
+				this.pos++;
+		}
+
+		private char charAtPos(){
+			return this.pos < this.expression.length() ? this.expression.charAt(this.pos) : '\0';
+		}
+
+		private IllegalArgumentException error(String message){
+			return new IllegalArgumentException("Invalid JSONPath \"" + this.expression + "\" at position " + this.pos + ": " + message);
+		}
+
+		private static int[] toArray(List<Integer> list){
+			int[] result = new int[list.size()];
+			for(int i = 0; i < result.length; i++)
+				result[i] = list.get(i);
+			return result;
+		}
+	}
+
+	/**
+	 * Состояние детерминированного автомата: множество позиций и кеш переходов из него
+	 */
+	private static final class State{
+
+		/** Отсортированные позиции */
+		final int[] positions;
+		/** Выражения, для которых значение в этом состоянии является результатом */
+		final int[] finals;
+		/** Есть ли позиции, которые могут перейти дальше */
+		final boolean live;
+		/** Зависит ли переход по элементу списка от индекса */
+		final boolean indexed;
+		/** Переходы по номеру имени, последний элемент - для остальных имён */
+		final State[] byName;
+		/** Переходы по индексу элемента списка */
+		State[] byIndex;
+		/** Переход по любому элементу списка, если он не зависит от индекса */
+		State element;
+
+		State(int[] positions, JSONPath path){
+			this.positions = positions;
+			int finals = 0;
+			boolean indexed = false;
+			for(int position : positions){
+				Step step = path.steps[position];
+				if(step == null)
+					finals++;
+				else if(step.isIndexed())
+					indexed = true;
+			}
+			this.finals = new int[finals];
+			finals = 0;
+			for(int position : positions)
+				if(path.steps[position] == null)
+					this.finals[finals++] = path.paths[position];
+			this.live = finals < positions.length;
+			this.indexed = indexed;
+			this.byName = new State[path.names.size() + 1];
+		}
+	}
+
+	/**
+	 * Ключ множества позиций в таблице состояний
+	 */
+	private static final class Key{
+
+		final int[] positions;
+		final int hash;
+
+		Key(int[] positions){
+			this.positions = positions;
+			this.hash = Arrays.hashCode(positions);
+		}
+
+		@Override
+		public int hashCode(){
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object other){
+			return other instanceof Key && Arrays.equals(this.positions, ((Key) other).positions);
+		}
+	}
+
+	/**
+	 * Один проход по данным
+	 */
+	private final class Evaluator{
+
+		private final ByteBuffer raw;
+		private final ByteBuffer words;
+		private final int start;
+		private final int end;
+		private final ObjIntConsumer<JSONEntity> consumer;
+		/** Парсер найденных значений, создаётся при первом совпадении */
+		private ByteParser parser;
+		/** Состояния автомата по множествам позиций */
+		private final Map<Key, State> states = new HashMap<>();
+		/** Буфер для вычисления переходов */
+		private int[] scratch = new int[JSONPath.this.steps.length];
+		/** Состояния открытых структур */
+		private State[] stack = new State[16];
+		/** Являются ли открытые структуры объектами */
+		private boolean[] objects = new boolean[16];
+		/** Количество элементов открытых списков */
+		private int[] counts = new int[16];
+		/** Ожидается ли первый элемент открытой структуры */
+		private boolean[] empty = new boolean[16];
+		private int depth = 0;
+		/** Содержала ли последняя просканированная строка экранированные последовательности */
+		private boolean escaped;
+
+		Evaluator(ByteBuffer data, ObjIntConsumer<JSONEntity> consumer){
+			this.raw = data;
+			this.words = Swar.words(data);
+			this.start = data.position();
+			this.end = data.limit();
+			this.consumer = consumer;
+		}
+
+		void run() throws ParseException {
+			int pos = this.skipWhitespace(this.start);
+			if(pos == this.end)
+				throw new ParseException("Empty string", 0);
+			State state = this.intern(JSONPath.this.initial.clone(), JSONPath.this.initial.length);
+			while(true){
+				pos = this.value(pos, state);
+				while(true){
+					pos = this.skipWhitespace(pos);
+					if(this.depth == 0){
+						if(pos < this.end)
+							throw this.unexpected(pos, "There should be no characters after data ending except for spaces");
+						return;
+					}
+					int top = this.depth - 1;
+					if(pos == this.end)
+						throw new ParseException("Unexpected end of input. Expected " + (this.objects[top] ? '}' : ']'), pos - this.start);
+					int c = this.byteAt(pos);
+					if(c == (this.objects[top] ? '}' : ']')){
+						this.stack[--this.depth] = null;
+						pos++;
+						continue;
+					}
+					if(this.empty[top]){
+						this.empty[top] = false;
+					} else if(c == ','){
+						pos = this.skipWhitespace(pos + 1);
+					} else {
+						throw this.unexpected(pos, "Expected comma or closing bracket");
+					}
+					break;
+				}
+				int top = this.depth - 1;
+				if(this.objects[top]){
+					if(pos == this.end || this.byteAt(pos) != '"')
+						throw this.unexpected(pos, "Expected double quote");
+					int keyEnd = this.stringEnd(pos + 1);
+					state = this.name(this.stack[top], pos + 1, keyEnd);
+					pos = this.skipWhitespace(keyEnd + 1);
+					if(pos == this.end || this.byteAt(pos) != ':')
+						throw this.unexpected(pos, "Expected colon");
+					pos = this.skipWhitespace(pos + 1);
+				} else {
+					state = this.index(this.stack[top], this.counts[top]++);
+				}
+			}
+		}
+
+		/**
+		 * Обрабатывает значение, начинающееся с позиции
+		 * @return Позиция после значения или после открывающей скобки, если структура открыта
+		 */
+		private int value(int pos, State state) throws ParseException {
+			if(pos == this.end)
+				throw new ParseException("Unexpected end of input. Expected value", pos - this.start);
+			if(state.finals.length > 0){
+				int to = this.skip(pos);
+				JSONEntity value = this.materialize(pos, to);
+				for(int path : state.finals)
+					this.consumer.accept(value, path);
+				if(!state.live)
+					return to;
+			} else if(!state.live){
+				return this.skip(pos);
+			}
+			int c = this.byteAt(pos);
+			if(c != '{' && c != '[')
+				return this.skip(pos);
+			if(this.depth == this.stack.length){
+				int capacity = this.depth << 1;
+				this.stack = Arrays.copyOf(this.stack, capacity);
+				this.objects = Arrays.copyOf(this.objects, capacity);
+				this.counts = Arrays.copyOf(this.counts, capacity);
+				this.empty = Arrays.copyOf(this.empty, capacity);
+			}
+			this.stack[this.depth] = state;
+			this.objects[this.depth] = c == '{';
+			this.counts[this.depth] = 0;
+			this.empty[this.depth] = true;
+			this.depth++;
+			return pos + 1;
+		}
+
+		/**
+		 * Переход по ключу объекта, байты которого находятся между кавычками
+		 */
+		private State name(State parent, int from, int to) throws ParseException {
+			int id;
+			if(this.escaped){
+				String name = ((JSONString) this.materialize(from - 1, to + 1)).stringValue();
+				id = JSONPath.this.names.indexOf(name);
+			} else {
+				id = JSONPath.this.names.indexOf(this.raw, from, to);
+			}
+			if(id < 0)
+				id = JSONPath.this.names.size();
+			State result = parent.byName[id];
+			if(result == null)
+				result = parent.byName[id] = this.transition(parent, id, true);
+			return result;
+		}
+
+		/**
+		 * Переход по индексу элемента списка
+		 */
+		private State index(State parent, int index){
+			if(!parent.indexed){
+				if(parent.element == null)
+					parent.element = this.transition(parent, index, false);
+				return parent.element;
+			}
+			if(index >= INDEX_CACHE)
+				return this.transition(parent, index, false);
+			if(parent.byIndex == null)
+				parent.byIndex = new State[INDEX_CACHE];
+			State result = parent.byIndex[index];
+			if(result == null)
+				result = parent.byIndex[index] = this.transition(parent, index, false);
+			return result;
+		}
+
+		/**
+		 * Вычисляет множество позиций после перехода по ключу или индексу
+		 */
+		private State transition(State parent, int symbol, boolean name){
+			int count = 0;
+			for(int position : parent.positions){
+				Step step = JSONPath.this.steps[position];
+				if(step == null)
+					continue;
+				if(step.descendant)
+					this.scratch[count++] = position;
+				if(name ? step.matchesName(symbol) : step.matchesIndex(symbol))
+					this.scratch[count++] = position + 1;
+			}
+			return this.intern(this.scratch, count);
+		}
+
+		/**
+		 * Возвращает состояние для множества позиций
+		 */
+		private State intern(int[] positions, int count){
+			int[] sorted = Arrays.copyOf(positions, count);
+			Arrays.sort(sorted);
+			int unique = 0;
+			for(int i = 0; i < sorted.length; i++)
+				if(i == 0 || sorted[i] != sorted[i - 1])
+					sorted[unique++] = sorted[i];
+			if(unique < sorted.length)
+				sorted = Arrays.copyOf(sorted, unique);
+			Key key = new Key(sorted);
+			State result = this.states.get(key);
+			if(result == null)
+				this.states.put(key, result = new State(sorted, JSONPath.this));
+			return result;
+		}
+
+		/**
+		 * Разбирает значение, занимающее участок данных
+		 */
+		private JSONEntity materialize(int from, int to) throws ParseException {
+			if(this.parser == null)
+				this.parser = new ByteParser(this.raw);
+			try {
+				return this.parser.parseElements(from, to).value.get(0);
+			} catch(ParseException ex){
+				int position = from - this.start + ex.getErrorOffset();
+				ParseException result = new ParseException("Value at position " + (from - this.start) + ": " + ex.getMessage(), position);
+				result.initCause(ex);
+				throw result;
+			}
+		}
+
+		/**
+		 * Пропускает значение, отслеживая только строки и парность скобок
+		 * @return Позиция после значения
+		 */
+		private int skip(int pos) throws ParseException {
+			int c = this.byteAt(pos);
+			if(c == '"')
+				return this.stringEnd(pos + 1) + 1;
+			if(c != '{' && c != '['){
+				int i = pos;
+				while(i < this.end && !Swar.isStructural(c = this.byteAt(i)) && !isWhitespace(c))
+					i++;
+				if(i == pos)
+					throw this.unexpected(pos, "Unknown value type");
+				return i;
+			}
+			int depth = 0;
+			int i = pos;
+			while(true){
+				i = Swar.indexOfStructural(this.words, i, this.end);
+				if(i == this.end)
+					throw new ParseException("Unexpected end of input. Expected closing bracket", i - this.start);
+				switch(this.byteAt(i)){
+					case '"':
+						i = this.stringEnd(i + 1);
+						break;
+					case '{':
+					case '[':
+						depth++;
+						break;
+					case '}':
+					case ']':
+						if(--depth == 0)
+							return i + 1;
+						break;
+				}
+				i++;
+			}
+		}
+
+		/**
+		 * Находит закрывающую кавычку строки и запоминает, были ли в строке экранированные последовательности
+		 * @param pos Позиция после открывающей кавычки
+		 * @return Позиция закрывающей кавычки
+		 */
+		private int stringEnd(int pos) throws ParseException {
+			this.escaped = false;
+			while(true){
+				pos = Swar.indexOfStringEnd(this.words, pos, this.end);
+				if(pos >= this.end)
+					throw new ParseException("Unexpected end of input. Expected closing double quote", this.end - this.start);
+				int c = this.byteAt(pos);
+				if(c == '"')
+					return pos;
+				if(c != '\\')
+					throw this.unexpected(pos, "Control characters must be escaped");
+				this.escaped = true;
+				pos += 2;
+			}
+		}
+
+		private int skipWhitespace(int pos){
+			return Swar.skipWhitespace(this.words, pos, this.end);
+		}
+
+		private int byteAt(int index){
+			return this.raw.get(index) & 0xFF;
+		}
+
+		private ParseException unexpected(int pos, String additional){
+			int position = pos - this.start;
+			if(pos >= this.end)
+				return new ParseException("Unexpected end of input. " + additional, position);
+			int c = this.byteAt(pos);
+			String token = c < 0x80 ? String.valueOf((char) c) : String.format("0x%02X", c);
+			return new ParseException("Unexpected token \"" + token + "\" at position " + position + ". " + additional, position);
+		}
+	}
+
+	private static boolean isWhitespace(int c){
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\0';
+	}
+}
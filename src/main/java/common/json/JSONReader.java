@@ -0,0 +1,721 @@
+package common.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Потоковый парсер JSON-данных, из которого токены "вытягиваются" по одному.
+ * Данные читаются из {@code Reader} через буфер фиксированного размера, поэтому
+ * потребление памяти не зависит от размера документа: в памяти находятся только буфер,
+ * стек областей видимости глубиной в уровень вложенности и значение текущего токена.
+ * Пример чтения объекта:
+ * <pre>
+ * JSONReader reader = new JSONReader(new FileReader("data.json"));
+ * reader.beginObject();
+ * while(reader.hasNext()){
+ * 	String name = reader.nextName();
+ * 	if(name.equals("id"))
+ * 		id = reader.nextLong();
+ * 	else
+ * 		reader.skipValue();
+ * }
+ * reader.endObject();
+ * </pre>
+ */
+public class JSONReader implements Closeable{
+
+	/** Размер буфера по умолчанию */
+	public static final int BUFFER_SIZE = 8192;
+
+	/** Минимально допустимый размер буфера. Должен вмещать самое длинное ключевое слово */
+	private static final int BUFFER_SIZE_MIN = 8;
+
+	/** Область видимости: документ, в котором ещё не прочитано значение */
+	private static final byte S_EMPTY_DOCUMENT = 0;
+	/** Область видимости: документ, корневое значение которого уже прочитано */
+	private static final byte S_NONEMPTY_DOCUMENT = 1;
+	/** Область видимости: список без элементов */
+	private static final byte S_EMPTY_LIST = 2;
+	/** Область видимости: список, в котором уже есть элементы */
+	private static final byte S_NONEMPTY_LIST = 3;
+	/** Область видимости: объект без ключей */
+	private static final byte S_EMPTY_OBJECT = 4;
+	/** Область видимости: объект, в котором прочитано имя ключа, но не значение */
+	private static final byte S_DANGLING_NAME = 5;
+	/** Область видимости: объект, в котором уже есть пары ключ-значение */
+	private static final byte S_NONEMPTY_OBJECT = 6;
+
+	/** Следующий токен ещё не определён */
+	private static final byte P_NONE = 0;
+	private static final byte P_BEGIN_OBJECT = 1;
+	private static final byte P_END_OBJECT = 2;
+	private static final byte P_BEGIN_LIST = 3;
+	private static final byte P_END_LIST = 4;
+	/** Имя ключа. Курсор стоит сразу после открывающей кавычки */
+	private static final byte P_NAME = 5;
+	/** Строка. Курсор стоит сразу после открывающей кавычки */
+	private static final byte P_STRING = 6;
+	/** Число. Его текст уже прочитан в {@link #number} */
+	private static final byte P_NUMBER = 7;
+	private static final byte P_TRUE = 8;
+	private static final byte P_FALSE = 9;
+	private static final byte P_NULL = 10;
+	private static final byte P_END_DOCUMENT = 11;
+
+	/** Источник данных */
+	private final Reader in;
+	/** Буфер прочитанных, но ещё не разобранных символов */
+	private final char[] buffer;
+	/** Позиция курсора в буфере */
+	private int pos = 0;
+	/** Количество заполненных символов в буфере */
+	private int limit = 0;
+	/** Количество символов, прочитанных до начала буфера */
+	private long offset = 0;
+
+	/** Стек областей видимости */
+	private byte[] stack = new byte[32];
+	/** Глубина стека областей видимости */
+	private int depth = 0;
+	/** Определённый, но ещё не прочитанный токен */
+	private byte peeked = P_NONE;
+	/** Текст последнего определённого числа */
+	private final StringBuilder number = new StringBuilder();
+	/** Буфер для строковых значений */
+	private final StringBuilder string = new StringBuilder();
+
+	/**
+	 * Создаёт парсер с буфером размером {@link #BUFFER_SIZE}
+	 * @param in Источник данных
+	 */
+	public JSONReader(Reader in){
+		this(in, BUFFER_SIZE);
+	}
+
+	/**
+	 * Создаёт парсер с буфером заданного размера
+	 * @param in Источник данных
+	 * @param bufferSize Размер буфера в символах
+	 */
+	public JSONReader(Reader in, int bufferSize){
+		this.in = in;
+		this.buffer = new char[Math.max(bufferSize, BUFFER_SIZE_MIN)];
+		this.stack[this.depth++] = S_EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Возвращает тип следующего токена, не считывая его
+	 * @return Тип следующего токена
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если данные невалидны
+	 */
+	public JSONToken peek() throws IOException, ParseException {
+		switch(this.peekInternal()){
+			case P_BEGIN_OBJECT:
+				return JSONToken.BEGIN_OBJECT;
+			case P_END_OBJECT:
+				return JSONToken.END_OBJECT;
+			case P_BEGIN_LIST:
+				return JSONToken.BEGIN_LIST;
+			case P_END_LIST:
+				return JSONToken.END_LIST;
+			case P_NAME:
+				return JSONToken.NAME;
+			case P_STRING:
+				return JSONToken.STRING;
+			case P_NUMBER:
+				return JSONToken.NUMBER;
+			case P_TRUE:
+			case P_FALSE:
+				return JSONToken.BOOLEAN;
+			case P_NULL:
+				return JSONToken.NULL;
+			default:
+				return JSONToken.END_DOCUMENT;
+		}
+	}
+
+	/**
+	 * Считывает открывающую фигурную скобку
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является началом объекта
+	 */
+	public void beginObject() throws IOException, ParseException {
+		this.expect(P_BEGIN_OBJECT, JSONToken.BEGIN_OBJECT);
+		this.push(S_EMPTY_OBJECT);
+		this.peeked = P_NONE;
+	}
+
+	/**
+	 * Считывает закрывающую фигурную скобку
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является концом объекта
+	 */
+	public void endObject() throws IOException, ParseException {
+		this.expect(P_END_OBJECT, JSONToken.END_OBJECT);
+		this.depth--;
+		this.peeked = P_NONE;
+	}
+
+	/**
+	 * Считывает открывающую квадратную скобку
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является началом списка
+	 */
+	public void beginList() throws IOException, ParseException {
+		this.expect(P_BEGIN_LIST, JSONToken.BEGIN_LIST);
+		this.push(S_EMPTY_LIST);
+		this.peeked = P_NONE;
+	}
+
+	/**
+	 * Считывает закрывающую квадратную скобку
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является концом списка
+	 */
+	public void endList() throws IOException, ParseException {
+		this.expect(P_END_LIST, JSONToken.END_LIST);
+		this.depth--;
+		this.peeked = P_NONE;
+	}
+
+	/**
+	 * Проверяет, есть ли в текущем объекте или списке ещё элементы
+	 * @return {@code false} если следующий токен закрывает структуру или документ
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если данные невалидны
+	 */
+	public boolean hasNext() throws IOException, ParseException {
+		int p = this.peekInternal();
+		return p != P_END_OBJECT && p != P_END_LIST && p != P_END_DOCUMENT;
+	}
+
+	/**
+	 * Считывает имя ключа
+	 * @return Имя ключа
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является именем ключа
+	 */
+	public String nextName() throws IOException, ParseException {
+		this.expect(P_NAME, JSONToken.NAME);
+		this.peeked = P_NONE;
+		return this.readString();
+	}
+
+	/**
+	 * Считывает строковое значение. Числа также возвращаются в виде строки
+	 * @return Значение строки без кавычек
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является строкой или числом
+	 */
+	public String nextString() throws IOException, ParseException {
+		int p = this.peekInternal();
+		if(p == P_NUMBER){
+			this.peeked = P_NONE;
+			return this.number.toString();
+		}
+		this.expect(P_STRING, JSONToken.STRING);
+		this.peeked = P_NONE;
+		return this.readString();
+	}
+
+	/**
+	 * Считывает числовое значение
+	 * @return Значение числа
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является числом
+	 */
+	public double nextDouble() throws IOException, ParseException {
+		this.expect(P_NUMBER, JSONToken.NUMBER);
+		this.peeked = P_NONE;
+		return NumberParser.parse(this.number, 0, this.number.length()).doubleValue();
+	}
+
+	/**
+	 * Считывает целочисленное значение
+	 * @return Значение числа
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является числом или число не является целым
+	 */
+	public long nextLong() throws IOException, ParseException {
+		this.expect(P_NUMBER, JSONToken.NUMBER);
+		JSONNumber number = NumberParser.parse(this.number, 0, this.number.length());
+		long result = number.longValue();
+		if(!number.isLong()){
+			double value = number.doubleValue();
+			if(number.isBig() || result != value || value >= 0x1p63)
+				throw this.exception("Expected integer but was " + this.number);
+		}
+		this.peeked = P_NONE;
+		return result;
+	}
+
+	/**
+	 * Считывает целочисленное значение
+	 * @return Значение числа
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является числом или число не умещается в {@code int}
+	 */
+	public int nextInt() throws IOException, ParseException {
+		this.expect(P_NUMBER, JSONToken.NUMBER);
+		long result = this.nextLong();
+		if(result != (int) result)
+			throw this.exception("Expected int but was " + result);
+		return (int) result;
+	}
+
+	/**
+	 * Считывает логическое значение
+	 * @return Значение
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является логическим значением
+	 */
+	public boolean nextBoolean() throws IOException, ParseException {
+		int p = this.peekInternal();
+		if(p != P_TRUE && p != P_FALSE)
+			throw this.unexpectedToken(JSONToken.BOOLEAN);
+		this.peeked = P_NONE;
+		return p == P_TRUE;
+	}
+
+	/**
+	 * Считывает ключевое слово {@code null}
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если следующий токен не является {@code null}
+	 */
+	public void nextNull() throws IOException, ParseException {
+		this.expect(P_NULL, JSONToken.NULL);
+		this.peeked = P_NONE;
+	}
+
+	/**
+	 * Пропускает следующее значение вместе со всеми вложенными структурами, не сохраняя их.
+	 * Если следующий токен - имя ключа, то пропускается и имя, и его значение
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если данные невалидны или пропускать нечего
+	 */
+	public void skipValue() throws IOException, ParseException {
+		int count = 0;
+		while(true){
+			int p = this.peekInternal();
+			this.peeked = P_NONE;
+			switch(p){
+				case P_BEGIN_OBJECT:
+					this.push(S_EMPTY_OBJECT);
+					count++;
+					break;
+				case P_BEGIN_LIST:
+					this.push(S_EMPTY_LIST);
+					count++;
+					break;
+				case P_END_OBJECT:
+				case P_END_LIST:
+					if(count == 0)
+						throw this.exception("There is no value to skip");
+					this.depth--;
+					count--;
+					break;
+				case P_NAME:
+					this.skipString();
+					continue;
+				case P_STRING:
+					this.skipString();
+					break;
+				case P_END_DOCUMENT:
+					throw this.exception("Unexpected end of document");
+			}
+			if(count == 0)
+				return;
+		}
+	}
+
+	/**
+	 * Возвращает позицию курсора от начала потока
+	 * @return Количество разобранных символов
+	 */
+	public long getPosition(){
+		return this.offset + this.pos;
+	}
+
+	/**
+	 * Закрывает источник данных
+	 * @throws IOException Если источник не удалось закрыть
+	 */
+	@Override
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+	/**
+	 * Возвращает уже определённый токен или определяет следующий
+	 * @return Одна из констант {@code P_*}
+	 */
+	private int peekInternal() throws IOException, ParseException {
+		if(this.peeked == P_NONE)
+			this.peeked = this.doPeek();
+		return this.peeked;
+	}
+
+	/**
+	 * Определяет следующий токен по текущей области видимости и следующим символам
+	 * @return Одна из констант {@code P_*}
+	 */
+	private byte doPeek() throws IOException, ParseException {
+		int c;
+		switch(this.stack[this.depth - 1]){
+			case S_EMPTY_LIST:
+				this.stack[this.depth - 1] = S_NONEMPTY_LIST;
+				if(this.nextNonWhitespace() == ']')
+					return P_END_LIST;
+				this.pos--;
+				break;
+			case S_NONEMPTY_LIST:
+				c = this.nextNonWhitespace();
+				if(c == ']')
+					return P_END_LIST;
+				if(c != ',')
+					throw this.unexpected(c, "Expected comma or closing bracket");
+				break;
+			case S_EMPTY_OBJECT:
+			case S_NONEMPTY_OBJECT:
+				boolean isEmpty = this.stack[this.depth - 1] == S_EMPTY_OBJECT;
+				this.stack[this.depth - 1] = S_DANGLING_NAME;
+				if(!isEmpty){
+					c = this.nextNonWhitespace();
+					if(c == '}')
+						return P_END_OBJECT;
+					if(c != ',')
+						throw this.unexpected(c, "Expected comma or closing bracket");
+				}
+				c = this.nextNonWhitespace();
+				if(c == '"')
+					return P_NAME;
+				if(isEmpty && c == '}')
+					return P_END_OBJECT;
+				throw this.unexpected(c, "Expected double quote or closing brace");
+			case S_DANGLING_NAME:
+				this.stack[this.depth - 1] = S_NONEMPTY_OBJECT;
+				c = this.nextNonWhitespace();
+				if(c != ':')
+					throw this.unexpected(c, "Expected colon");
+				break;
+			case S_EMPTY_DOCUMENT:
+				this.stack[this.depth - 1] = S_NONEMPTY_DOCUMENT;
+				break;
+			default:
+				if(this.skipWhitespace() == -1)
+					return P_END_DOCUMENT;
+				throw this.unexpected(this.buffer[this.pos], "There should be no characters after data ending except for spaces");
+		}
+		c = this.nextNonWhitespace();
+		switch(c){
+			case '{':
+				return P_BEGIN_OBJECT;
+			case '[':
+				return P_BEGIN_LIST;
+			case '"':
+				return P_STRING;
+			case 't':
+				this.readKeyword("true");
+				return P_TRUE;
+			case 'f':
+				this.readKeyword("false");
+				return P_FALSE;
+			case 'n':
+				this.readKeyword("null");
+				return P_NULL;
+			default:
+				if(c != '-' && !isDigit(c))
+					throw this.unexpected(c, "Unknown value type");
+				this.readNumber(c);
+				return P_NUMBER;
+		}
+	}
+
+	/**
+	 * Проверяет, что следующий токен имеет ожидаемый тип
+	 * @param p Ожидаемая константа {@code P_*}
+	 * @param token Ожидаемый токен для текста ошибки
+	 * @throws ParseException Если следующий токен имеет другой тип
+	 */
+	private void expect(byte p, JSONToken token) throws IOException, ParseException {
+		if(this.peekInternal() != p)
+			throw this.unexpectedToken(token);
+	}
+
+	/**
+	 * Кладёт область видимости на вершину стека
+	 * @param scope Одна из констант {@code S_*}
+	 */
+	private void push(byte scope){
+		if(this.depth == this.stack.length)
+			this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+		this.stack[this.depth++] = scope;
+	}
+
+	/**
+	 * Проверяет, что с позиции перед курсором начинается ключевое слово, и пропускает его.
+	 * Первый символ ключевого слова к моменту вызова уже прочитан
+	 * @param keyword Ключевое слово
+	 */
+	private void readKeyword(String keyword) throws IOException, ParseException {
+		int length = keyword.length() - 1;
+		if(this.limit - this.pos < length && !this.fill(length))
+			throw this.exception("Unexpected end of input. Expected " + keyword + " value");
+		for(int i = 0; i < length; i++)
+			if(this.buffer[this.pos + i] != keyword.charAt(i + 1))
+				throw this.unexpected(this.buffer[this.pos + i], "Expected " + keyword + " value");
+		this.pos += length;
+	}
+
+	/**
+	 * Проверяет число по грамматике JSON и записывает его текст в {@link #number}
+	 * @param c Первый символ числа, который к моменту вызова уже прочитан
+	 */
+	private void readNumber(int c) throws IOException, ParseException {
+		this.number.setLength(0);
+		this.number.append((char) c);
+		if(c == '-'){
+			c = this.peekChar();
+			if(!isDigit(c))
+				throw this.unexpected(c, "Expected digit token");
+			this.number.append((char) c);
+			this.pos++;
+		}
+		if(c == '0'){
+			if(isDigit(this.peekChar()))
+				throw this.unexpected(this.peekChar(), "Leading zeros are not allowed");
+		} else {
+			this.readDigits();
+		}
+		c = this.peekChar();
+		if(c == '.'){
+			this.number.append('.');
+			this.pos++;
+			if(!isDigit(this.peekChar()))
+				throw this.unexpected(this.peekChar(), "Expected digit token");
+			this.readDigits();
+			c = this.peekChar();
+		}
+		if(c == 'e' || c == 'E'){
+			this.number.append((char) c);
+			this.pos++;
+			c = this.peekChar();
+			if(c == '+' || c == '-'){
+				this.number.append((char) c);
+				this.pos++;
+			}
+			if(!isDigit(this.peekChar()))
+				throw this.unexpected(this.peekChar(), "Expected digit token");
+			this.readDigits();
+		}
+	}
+
+	/**
+	 * Дописывает в {@link #number} все подряд идущие цифры
+	 */
+	private void readDigits() throws IOException {
+		while(true){
+			int start = this.pos;
+			while(this.pos < this.limit && isDigit(this.buffer[this.pos]))
+				this.pos++;
+			this.number.append(this.buffer, start, this.pos - start);
+			if(this.pos < this.limit || !this.fill(1))
+				return;
+		}
+	}
+
+	/**
+	 * Считывает строку, открывающая кавычка которой уже прочитана
+	 * @return Значение строки без кавычек
+	 */
+	private String readString() throws IOException, ParseException {
+		this.string.setLength(0);
+		this.scanString(this.string);
+		return this.string.toString();
+	}
+
+	/**
+	 * Пропускает строку, открывающая кавычка которой уже прочитана
+	 */
+	private void skipString() throws IOException, ParseException {
+		this.scanString(null);
+	}
+
+	/**
+	 * Проходит по строке до закрывающей кавычки, раскрывая экранированные последовательности
+	 * @param out Куда записывается значение строки. Если {@code null}, то строка только проверяется
+	 */
+	private void scanString(StringBuilder out) throws IOException, ParseException {
+		while(true){
+			int start = this.pos;
+			while(this.pos < this.limit){
+				char c = this.buffer[this.pos];
+				if(c == '"'){
+					if(out != null)
+						out.append(this.buffer, start, this.pos - start);
+					this.pos++;
+					return;
+				}
+				if(c == '\\'){
+					if(out != null)
+						out.append(this.buffer, start, this.pos - start);
+					this.pos++;
+					char escaped = this.readEscape();
+					if(out != null)
+						out.append(escaped);
+					start = this.pos;
+					continue;
+				}
+				if(c < ' ')
+					throw this.unexpected(c, "Unescaped control character in string");
+				this.pos++;
+			}
+			if(out != null)
+				out.append(this.buffer, start, this.pos - start);
+			if(!this.fill(1))
+				throw this.exception("Unexpected end of input. Expected closing double quote");
+		}
+	}
+
+	/**
+	 * Раскрывает экранированную последовательность. Обратная косая черта к моменту вызова уже прочитана
+	 * @return Закодированный символ
+	 */
+	private char readEscape() throws IOException, ParseException {
+		if(this.pos == this.limit && !this.fill(1))
+			throw this.exception("Unexpected end of input. Expected escape sequence");
+		char c = this.buffer[this.pos++];
+		switch(c){
+			case '"':
+			case '\\':
+			case '/':
+				return c;
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				if(this.limit - this.pos < 4 && !this.fill(4))
+					throw this.exception("Unexpected end of input. Expected unicode escape sequence");
+				int code = 0;
+				for(int i = 0; i < 4; i++){
+					char hex = this.buffer[this.pos++];
+					int digit = Character.digit(hex, 16);
+					if(digit < 0)
+						throw this.unexpected(hex, "Expected hexadecimal digit");
+					code = code << 4 | digit;
+				}
+				return (char) code;
+			default:
+				throw this.unexpected(c, "Unknown escape sequence");
+		}
+	}
+
+	/**
+	 * Пропускает пробельные символы и считывает первый значащий символ
+	 * @return Первый непробельный символ
+	 * @throws ParseException Если данные закончились
+	 */
+	private int nextNonWhitespace() throws IOException, ParseException {
+		int c = this.skipWhitespace();
+		if(c == -1)
+			throw this.exception("Unexpected end of input");
+		this.pos++;
+		return c;
+	}
+
+	/**
+	 * Перемещает курсор за последний подряд идущий пробельный символ
+	 * @return Первый непробельный символ или {@code -1}, если данные закончились
+	 */
+	private int skipWhitespace() throws IOException {
+		while(true){
+			while(this.pos < this.limit){
+				char c = this.buffer[this.pos];
+				if(c != ' ' && c != '\n' && c != '\t' && c != '\r')
+					return c;
+				this.pos++;
+			}
+			if(!this.fill(1))
+				return -1;
+		}
+	}
+
+	/**
+	 * Возвращает символ под курсором, не перемещая курсор
+	 * @return Символ или {@code -1}, если данные закончились
+	 */
+	private int peekChar() throws IOException {
+		if(this.pos == this.limit && !this.fill(1))
+			return -1;
+		return this.buffer[this.pos];
+	}
+
+	/**
+	 * Сдвигает непрочитанные символы в начало буфера и дочитывает данные из источника
+	 * @param minimum Минимальное количество символов, которое должно быть доступно после курсора
+	 * @return {@code false} если источник закончился раньше
+	 */
+	private boolean fill(int minimum) throws IOException {
+		if(this.pos > 0){
+			this.limit -= this.pos;
+			System.arraycopy(this.buffer, this.pos, this.buffer, 0, this.limit);
+			this.offset += this.pos;
+			this.pos = 0;
+		}
+		while(this.limit < minimum){
+			int read = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+			if(read == -1)
+				return false;
+			this.limit += read;
+		}
+		return true;
+	}
+
+	/**
+	 * Создаёт ошибку о несоответствии ожидаемого и фактического токена
+	 * @param expected Ожидаемый токен
+	 */
+	private ParseException unexpectedToken(JSONToken expected) throws IOException, ParseException {
+		return this.exception("Expected " + expected + " but was " + this.peek());
+	}
+
+	/**
+	 * Создаёт ошибку парсинга со стандартным текстом для символа перед курсором или под ним
+	 * @param c Символ на котором произошла ошибка
+	 * @param additional Дополнительная информация об ошибке
+	 */
+	private ParseException unexpected(int c, String additional){
+		if(c == -1)
+			return this.exception("Unexpected end of input. " + additional);
+		return this.exception("Unexpected token \"" + (char) c + "\". " + additional);
+	}
+
+	/**
+	 * Создаёт ошибку парсинга с указанием позиции курсора
+	 * @param message Текст ошибки
+	 */
+	private ParseException exception(String message){
+		long position = this.getPosition();
+		return new ParseException(message + " at position " + position, (int) Math.min(position, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Проверяет, является ли переданный символ числом от 0 до 9
+	 * @param c Проверяемый символ
+	 * @return {@code true} если символ это число
+	 */
+	private static boolean isDigit(int c){
+		return '0' <= c && c <= '9';
+	}
+}
@@ -0,0 +1,195 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Строковое значение, которое ссылается на участок входного буфера вместо копии.
+ * Строка декодируется из UTF-8 и освобождается от экранированных последовательностей
+ * только при первом вызове {@link #stringValue()} или {@link #toString()}, поэтому
+ * значения, которые только передаются дальше, не копируются. Для строк из символов ASCII
+ * без экранирования {@link #length()}, {@link #charAt(int)}, {@link #hashCode()}
+ * и {@link #equals(Object)} работают прямо с байтами буфера. Хеш совпадает с хешем
+ * {@code String}, а срезы равны, если равны их значения.
+ * <p>
+ * Срезы создаёт {@link ByteParser#setSlices(boolean)}. Буфер не должен изменяться, пока используются срезы.
+ * В отличие от остальных значений {@link #toString()} возвращает саму строку, а не JSON-запись,
+ * как того требует {@code CharSequence}
+ */
+public final class JSONSlice extends JSONString implements CharSequence{
+
+	/** Признак среза, который ещё не проверен на символы ASCII */
+	private static final byte UNKNOWN = 0;
+	/** Признак среза из символов ASCII без экранированных последовательностей */
+	private static final byte ASCII = 1;
+	/** Признак среза с другими символами или экранированными последовательностями */
+	private static final byte OTHER = 2;
+
+	/** Буфер с данными */
+	private final ByteBuffer source;
+	/** Индекс первого байта строки после открывающей кавычки */
+	private final int from;
+	/** Индекс закрывающей кавычки */
+	private final int to;
+	/** Содержит ли строка экранированные последовательности */
+	private final boolean escaped;
+	/** Декодированное значение или {@code null}, если строка ещё не декодирована */
+	private String decoded;
+	/** Хеш или {@code 0}, если он ещё не вычислен */
+	private int hash;
+	/** Один из признаков {@link #UNKNOWN}, {@link #ASCII} или {@link #OTHER} */
+	private byte kind = UNKNOWN;
+
+	/**
+	 * @param source Буфер с данными
+	 * @param from Индекс первого байта строки после открывающей кавычки
+	 * @param to Индекс закрывающей кавычки
+	 * @param escaped Содержит ли строка экранированные последовательности. Последовательности должны быть проверены
+	 */
+	JSONSlice(ByteBuffer source, int from, int to, boolean escaped){
+		super(null);
+		this.source = source;
+		this.from = from;
+		this.to = to;
+		this.escaped = escaped;
+	}
+
+	/**
+	 * Возвращает значение строки, декодируя его при первом вызове
+	 */
+	@Override
+	public String stringValue(){
+		String result = this.decoded;
+		if(result == null)
+			this.decoded = result = this.decode();
+		return result;
+	}
+
+	@Override
+	public int length(){
+		return this.isAscii() ? this.to - this.from : this.stringValue().length();
+	}
+
+	@Override
+	public char charAt(int index){
+		if(!this.isAscii())
+			return this.stringValue().charAt(index);
+		Objects.checkIndex(index, this.to - this.from);
+		return (char) this.source.get(this.from + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end){
+		return this.stringValue().subSequence(start, end);
+	}
+
+	@Override
+	public String toString(){
+		return this.stringValue();
+	}
+
+	@Override
+	public int hashCode(){
+		int h = this.hash;
+		if(h == 0){
+			if(this.decoded == null && this.isAscii()){
+				for(int i = this.from; i < this.to; i++)
+					h = 31 * h + this.source.get(i);
+			} else {
+				h = this.stringValue().hashCode();
+			}
+			this.hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object other){
+		if(other == this)
+			return true;
+		if(!(other instanceof JSONSlice))
+			return false;
+		JSONSlice slice = (JSONSlice) other;
+		if(this.hashCode() != slice.hashCode())
+			return false;
+		if(!this.escaped && !slice.escaped && this.to - this.from == slice.to - slice.from){
+			int i = 0;
+			int length = this.to - this.from;
+			while(i < length && this.source.get(this.from + i) == slice.source.get(slice.from + i))
+				i++;
+			if(i == length)
+				return true;
+		}
+		return this.stringValue().equals(slice.stringValue());
+	}
+
+	/**
+	 * Проверяет, состоит ли строка только из символов ASCII без экранированных последовательностей.
+	 * Результат вычисляется один раз
+	 */
+	private boolean isAscii(){
+		if(this.kind == UNKNOWN){
+			byte kind = this.escaped ? OTHER : ASCII;
+			for(int i = this.from; i < this.to && kind == ASCII; i++)
+				if(this.source.get(i) < 0)
+					kind = OTHER;
+			this.kind = kind;
+		}
+		return this.kind == ASCII;
+	}
+
+	/**
+	 * Декодирует строку из UTF-8 и заменяет экранированные последовательности
+	 */
+	private String decode(){
+		int length = this.to - this.from;
+		byte[] bytes;
+		int offset;
+		if(this.source.hasArray()){
+			bytes = this.source.array();
+			offset = this.source.arrayOffset() + this.from;
+		} else {
+			bytes = new byte[length];
+			offset = 0;
+			for(int i = 0; i < length; i++)
+				bytes[i] = this.source.get(this.from + i);
+		}
+		if(!this.escaped)
+			return new String(bytes, offset, length, StandardCharsets.UTF_8);
+		StringBuilder result = new StringBuilder(length);
+		int end = offset + length;
+		int segment = offset;
+		for(int i = offset; i < end; i++){
+			if(bytes[i] != '\\')
+				continue;
+			result.append(new String(bytes, segment, i - segment, StandardCharsets.UTF_8));
+			char c = (char) bytes[++i];
+			switch(c){
+				case 'b':
+					result.append('\b');
+					break;
+				case 'f':
+					result.append('\f');
+					break;
+				case 'n':
+					result.append('\n');
+					break;
+				case 'r':
+					result.append('\r');
+					break;
+				case 't':
+					result.append('\t');
+					break;
+				case 'u':
+					result.append((char) Integer.parseInt(new String(bytes, i + 1, 4, StandardCharsets.US_ASCII), 16));
+					i += 4;
+					break;
+				default:
+					result.append(c);
+			}
+			segment = i + 1;
+		}
+		return result.append(new String(bytes, segment, end - segment, StandardCharsets.UTF_8)).toString();
+	}
+}
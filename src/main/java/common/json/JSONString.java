@@ -2,14 +2,17 @@ package common.json;
 
 public class JSONString extends JSONEntity{
 	public final JSONType type = JSONType.STRING;
-	public final String value;
+	/** Значение строки. У срезов {@link JSONSlice} равно {@code null}, значение создаётся в {@link #stringValue()} */
+	private final String value;
 
 	public JSONString(String value){
 		this.value = value;
 	}
 
-	@Override
-	public String toString(){
-		return '"' + this.value + '"';
+	/**
+	 * Возвращает значение строки
+	 */
+	public String stringValue(){
+		return this.value;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package common.json;
+
+/**
+ * Типы токенов, которые возвращает потоковый парсер {@link JSONReader}
+ */
+public enum JSONToken{
+	BEGIN_OBJECT,
+	END_OBJECT,
+	BEGIN_LIST,
+	END_LIST,
+	NAME,
+	STRING,
+	NUMBER,
+	BOOLEAN,
+	NULL,
+	END_DOCUMENT
+}
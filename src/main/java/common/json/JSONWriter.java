@@ -0,0 +1,692 @@
+package common.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковая запись JSON-данных в {@code Appendable}, {@code Writer} или {@code OutputStream}.
+ * Символы копируются в буфер фиксированного размера и сбрасываются в приёмник целыми блоками,
+ * поэтому при записи дерева {@code JSONEntity} не создаются промежуточные строки для узлов.
+ * Запятые и двоеточия расставляются автоматически по стеку областей видимости.
+ * По умолчанию данные записываются компактно; методы {@link #setIndent(String)},
+ * {@link #setSortKeys(boolean)} и {@link #setMaxInlineWidth(int)} включают форматированный вывод.
+ * Пример записи:
+ * <pre>
+ * JSONWriter writer = new JSONWriter(new FileWriter("data.json"));
+ * writer.beginObject();
+ * writer.name("id").value(12);
+ * writer.name("tags").value(list);
+ * writer.endObject();
+ * writer.close();
+ * </pre>
+ */
+public class JSONWriter implements Closeable, Flushable{
+
+	/** Размер буфера */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Область видимости: документ, в котором ещё не записано значение */
+	private static final byte S_EMPTY_DOCUMENT = 0;
+	/** Область видимости: документ, корневое значение которого уже записано */
+	private static final byte S_NONEMPTY_DOCUMENT = 1;
+	/** Область видимости: список без элементов */
+	private static final byte S_EMPTY_LIST = 2;
+	/** Область видимости: список, в котором уже есть элементы */
+	private static final byte S_NONEMPTY_LIST = 3;
+	/** Область видимости: объект без ключей */
+	private static final byte S_EMPTY_OBJECT = 4;
+	/** Область видимости: объект, в котором записано имя ключа, но не значение */
+	private static final byte S_DANGLING_NAME = 5;
+	/** Область видимости: объект, в котором уже есть пары ключ-значение */
+	private static final byte S_NONEMPTY_OBJECT = 6;
+
+	/** Замены для символов, которые нужно экранировать. {@code null} если символ записывается как есть */
+	private static final char[][] ESCAPES = new char[128][];
+
+	static {
+		for(int i = 0; i < 0x20; i++)
+			ESCAPES[i] = String.format("\\u%04x", i).toCharArray();
+		ESCAPES['"'] = "\\\"".toCharArray();
+		ESCAPES['\\'] = "\\\\".toCharArray();
+		ESCAPES['\b'] = "\\b".toCharArray();
+		ESCAPES['\f'] = "\\f".toCharArray();
+		ESCAPES['\n'] = "\\n".toCharArray();
+		ESCAPES['\r'] = "\\r".toCharArray();
+		ESCAPES['\t'] = "\\t".toCharArray();
+	}
+
+	/** Приёмник данных */
+	private final Appendable out;
+	/** Буфер ещё не сброшенных в приёмник символов */
+	private final char[] buffer = new char[BUFFER_SIZE];
+	/** Количество символов в буфере */
+	private int count = 0;
+
+	/** Стек областей видимости */
+	private byte[] stack = new byte[32];
+	/** Глубина стека областей видимости */
+	private int depth = 0;
+
+	/** Отступ одного уровня вложенности. {@code null} для компактной записи */
+	private String indent = null;
+	/** Сортировать ли ключи объектов при записи деревьев */
+	private boolean sortKeys = false;
+	/** Максимальная ширина структуры, которая записывается в одну строку. 0 - не записывать в строку */
+	private int maxInlineWidth = 0;
+	/** Глубина структуры, записываемой в одну строку. 0 если такой структуры нет */
+	private int inline = 0;
+
+	/**
+	 * Создаёт запись в произвольный приёмник символов
+	 * @param out Приёмник, например {@code Writer} или {@code StringBuilder}
+	 */
+	public JSONWriter(Appendable out){
+		this.out = out;
+		this.stack[this.depth++] = S_EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Создаёт запись в поток байтов в кодировке UTF-8
+	 * @param out Поток байтов
+	 */
+	public JSONWriter(OutputStream out){
+		this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Записывает значение в строку
+	 * @param entity Значение. {@code null} записывается как ключевое слово {@code null}
+	 * @return JSON-строка
+	 */
+	static String toString(JSONEntity entity){
+		StringBuilder result = new StringBuilder();
+		try {
+			new JSONWriter(result).value(entity).flush();
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Включает форматированный вывод: каждый элемент структуры записывается с новой строки
+	 * с отступом по уровню вложенности, а после двоеточия ставится пробел
+	 * @param indent Отступ одного уровня, например табуляция или пробелы. {@code null} или пустая строка включают компактную запись
+	 * @return Эта же запись
+	 */
+	public JSONWriter setIndent(String indent){
+		this.indent = indent == null || indent.isEmpty() ? null : indent;
+		return this;
+	}
+
+	/**
+	 * Включает сортировку ключей объектов. Сортировка применяется только при записи
+	 * деревьев методом {@link #value(JSONEntity)}
+	 * @param sortKeys {@code true} если ключи нужно записывать в лексикографическом порядке
+	 * @return Эта же запись
+	 */
+	public JSONWriter setSortKeys(boolean sortKeys){
+		this.sortKeys = sortKeys;
+		return this;
+	}
+
+	/**
+	 * Задаёт ширину, до которой структуры при форматированном выводе записываются в одну строку,
+	 * например {@code [1, 2, 3]}. Ширина измеряется без учёта отступа и проверяется только при записи
+	 * деревьев методом {@link #value(JSONEntity)}. Измерение прекращается, как только ширина превышена,
+	 * поэтому большие структуры не обходятся дважды
+	 * @param maxInlineWidth Максимальная ширина в символах. 0 отключает запись в одну строку
+	 * @return Эта же запись
+	 */
+	public JSONWriter setMaxInlineWidth(int maxInlineWidth){
+		this.maxInlineWidth = Math.max(maxInlineWidth, 0);
+		return this;
+	}
+
+	/**
+	 * Записывает открывающую фигурную скобку
+	 * @return Эта же запись
+	 */
+	public JSONWriter beginObject() throws IOException {
+		this.beforeValue();
+		this.push(S_EMPTY_OBJECT);
+		this.write('{');
+		return this;
+	}
+
+	/**
+	 * Записывает закрывающую фигурную скобку
+	 * @return Эта же запись
+	 * @throws IllegalStateException Если текущая область видимости не объект
+	 */
+	public JSONWriter endObject() throws IOException {
+		return this.end(S_EMPTY_OBJECT, S_NONEMPTY_OBJECT, '}');
+	}
+
+	/**
+	 * Записывает открывающую квадратную скобку
+	 * @return Эта же запись
+	 */
+	public JSONWriter beginList() throws IOException {
+		this.beforeValue();
+		this.push(S_EMPTY_LIST);
+		this.write('[');
+		return this;
+	}
+
+	/**
+	 * Записывает закрывающую квадратную скобку
+	 * @return Эта же запись
+	 * @throws IllegalStateException Если текущая область видимости не список
+	 */
+	public JSONWriter endList() throws IOException {
+		return this.end(S_EMPTY_LIST, S_NONEMPTY_LIST, ']');
+	}
+
+	/**
+	 * Записывает имя ключа и двоеточие
+	 * @param name Имя ключа
+	 * @return Эта же запись
+	 * @throws IllegalStateException Если текущая область видимости не объект или имя уже записано
+	 */
+	public JSONWriter name(String name) throws IOException {
+		byte scope = this.stack[this.depth - 1];
+		if(scope == S_NONEMPTY_OBJECT)
+			this.write(',');
+		else if(scope != S_EMPTY_OBJECT)
+			throw new IllegalStateException("Name is allowed only inside an object");
+		this.separate(scope == S_NONEMPTY_OBJECT);
+		this.stack[this.depth - 1] = S_DANGLING_NAME;
+		this.writeString(name);
+		this.write(':');
+		if(this.indent != null)
+			this.write(' ');
+		return this;
+	}
+
+	/**
+	 * Записывает строковое значение
+	 * @param value Строка. {@code null} записывается как ключевое слово {@code null}
+	 * @return Эта же запись
+	 */
+	public JSONWriter value(String value) throws IOException {
+		if(value == null)
+			return this.nullValue();
+		this.beforeValue();
+		this.writeString(value);
+		return this;
+	}
+
+	/**
+	 * Записывает целочисленное значение
+	 * @param value Число
+	 * @return Эта же запись
+	 */
+	public JSONWriter value(long value) throws IOException {
+		this.beforeValue();
+		this.writeLong(value);
+		return this;
+	}
+
+	/**
+	 * Записывает числовое значение
+	 * @param value Число
+	 * @return Эта же запись
+	 * @throws IllegalArgumentException Если число бесконечно или не является числом
+	 */
+	public JSONWriter value(double value) throws IOException {
+		this.beforeValue();
+		this.writeDouble(value);
+		return this;
+	}
+
+	/**
+	 * Записывает число произвольной точности
+	 * @param value Число или {@code null}
+	 * @return Эта же запись
+	 */
+	public JSONWriter value(BigDecimal value) throws IOException {
+		if(value == null)
+			return this.nullValue();
+		this.beforeValue();
+		this.write(value.toString());
+		return this;
+	}
+
+	/**
+	 * Записывает логическое значение
+	 * @param value Значение
+	 * @return Эта же запись
+	 */
+	public JSONWriter value(boolean value) throws IOException {
+		this.beforeValue();
+		this.write(value ? "true" : "false");
+		return this;
+	}
+
+	/**
+	 * Записывает ключевое слово {@code null}
+	 * @return Эта же запись
+	 */
+	public JSONWriter nullValue() throws IOException {
+		this.beforeValue();
+		this.write("null");
+		return this;
+	}
+
+	/**
+	 * Записывает дерево значений. Обход дерева нерекурсивный, поэтому глубина
+	 * вложенности ограничена только памятью
+	 * @param entity Корень дерева. {@code null} записывается как ключевое слово {@code null}
+	 * @return Эта же запись
+	 */
+	public JSONWriter value(JSONEntity entity) throws IOException {
+		Iterator<?>[] iterators = new Iterator<?>[8];
+		int size = 0;
+		Iterator<?> children = this.open(entity);
+		if(children == null)
+			return this;
+		iterators[size++] = children;
+		while(size > 0){
+			Iterator<?> top = iterators[size - 1];
+			if(!top.hasNext()){
+				iterators[--size] = null;
+				if(this.stack[this.depth - 1] == S_EMPTY_LIST || this.stack[this.depth - 1] == S_NONEMPTY_LIST)
+					this.endList();
+				else
+					this.endObject();
+				continue;
+			}
+			Object next = top.next();
+			JSONEntity child;
+			if(next instanceof Map.Entry){
+				@SuppressWarnings("unchecked")
+				Map.Entry<String, JSONEntity> entry = (Map.Entry<String, JSONEntity>) next;
+				this.name(entry.getKey());
+				child = entry.getValue();
+			} else {
+				child = (JSONEntity) next;
+			}
+			children = this.open(child);
+			if(children != null){
+				if(size == iterators.length)
+					iterators = Arrays.copyOf(iterators, size << 1);
+				iterators[size++] = children;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Сбрасывает буфер в приёмник. Если приёмник поддерживает {@code Flushable}, то сбрасывается и он
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.flushBuffer();
+		if(this.out instanceof Flushable)
+			((Flushable) this.out).flush();
+	}
+
+	/**
+	 * Сбрасывает буфер и закрывает приёмник, если он поддерживает {@code Closeable}
+	 */
+	@Override
+	public void close() throws IOException {
+		this.flushBuffer();
+		if(this.out instanceof Closeable)
+			((Closeable) this.out).close();
+	}
+
+	/**
+	 * Записывает скалярное значение или открывающую скобку структуры
+	 * @param entity Записываемое значение
+	 * @return Итератор потомков для объектов и списков, {@code null} для скалярных значений
+	 */
+	private Iterator<?> open(JSONEntity entity) throws IOException {
+		if(entity instanceof JSONComplex){
+			boolean isInline = this.indent != null && this.inline == 0 && this.maxInlineWidth > 0 && width(entity, this.maxInlineWidth) >= 0;
+			Iterator<?> children;
+			if(entity instanceof JSONObject){
+				this.beginObject();
+				children = this.entries((JSONObject) entity);
+			} else {
+				this.beginList();
+				children = ((JSONList) entity).value.iterator();
+			}
+			if(isInline)
+				this.inline = this.depth;
+			if(entity instanceof JSONList && ((JSONList) entity).value instanceof ElementList && this.elements((ElementList) ((JSONList) entity).value))
+				return Collections.emptyIterator();
+			return children;
+		}
+		if(entity == null){
+			this.nullValue();
+		} else if(entity instanceof JSONString){
+			this.value(((JSONString) entity).stringValue());
+		} else if(entity instanceof JSONNumber){
+			JSONNumber number = (JSONNumber) entity;
+			if(number.isLong())
+				this.value(number.longValue());
+			else if(number.isBig())
+				this.value(number.bigDecimalValue());
+			else
+				this.value(number.doubleValue());
+		} else if(entity instanceof JSONBoolean){
+			this.value(((JSONBoolean) entity).value.booleanValue());
+		} else {
+			throw new IllegalArgumentException("Unsupported entity type " + entity.getClass().getName());
+		}
+		return null;
+	}
+
+	/**
+	 * Записывает элементы числового списка прямо из массива примитивов
+	 * @param elements Элементы списка
+	 * @return {@code true} если элементы записаны, {@code false} если список хранит обычные значения
+	 */
+	private boolean elements(ElementList elements) throws IOException {
+		int size = elements.size();
+		if(elements.isLongs()){
+			for(int i = 0; i < size; i++)
+				this.value(elements.getLong(i));
+		} else if(elements.isDoubles()){
+			for(int i = 0; i < size; i++)
+				this.value(elements.getDouble(i));
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Возвращает итератор пар ключ-значение объекта с учётом сортировки ключей
+	 * @param object Объект
+	 */
+	private Iterator<Map.Entry<String, JSONEntity>> entries(JSONObject object){
+		if(!this.sortKeys)
+			return object.value.entrySet().iterator();
+		List<Map.Entry<String, JSONEntity>> entries = new ArrayList<>(object.value.entrySet());
+		entries.sort(Map.Entry.comparingByKey());
+		return entries.iterator();
+	}
+
+	/**
+	 * Вычисляет ширину значения, записанного в одну строку. Ключи и элементы
+	 * разделяются так же, как при форматированном выводе: {@code ": "} и {@code ", "}
+	 * @param entity Значение
+	 * @param limit Ширина, после превышения которой измерение прекращается
+	 * @return Ширина в символах или {@code -1}, если она больше {@code limit}
+	 */
+	private static int width(JSONEntity entity, int limit){
+		int result;
+		if(entity instanceof JSONObject){
+			result = 2;
+			for(Map.Entry<String, JSONEntity> entry : ((JSONObject) entity).value.entrySet()){
+				if(result > 2)
+					result += 2;
+				result += width(entry.getKey()) + 2;
+				if(result > limit)
+					return -1;
+				int child = width(entry.getValue(), limit - result);
+				if(child < 0)
+					return -1;
+				result += child;
+			}
+		} else if(entity instanceof JSONList){
+			result = 2;
+			for(JSONEntity element : ((JSONList) entity).value){
+				if(result > 2)
+					result += 2;
+				int child = width(element, limit - result);
+				if(child < 0)
+					return -1;
+				result += child;
+			}
+		} else if(entity == null){
+			result = 4;
+		} else if(entity instanceof JSONString){
+			result = width(((JSONString) entity).stringValue());
+		} else if(entity instanceof JSONBoolean){
+			result = ((JSONBoolean) entity).value ? 4 : 5;
+		} else {
+			result = entity.toString().length();
+		}
+		return result > limit ? -1 : result;
+	}
+
+	/**
+	 * Вычисляет ширину строки в кавычках с учётом экранирования
+	 * @param value Строка
+	 * @return Ширина в символах
+	 */
+	private static int width(String value){
+		int result = value.length() + 2;
+		for(int i = 0; i < value.length(); i++){
+			char c = value.charAt(i);
+			if(c < 128 && ESCAPES[c] != null)
+				result += ESCAPES[c].length - 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Закрывает текущую область видимости
+	 * @param empty Пустая область видимости ожидаемого типа
+	 * @param nonempty Непустая область видимости ожидаемого типа
+	 * @param bracket Закрывающая скобка
+	 * @return Эта же запись
+	 */
+	private JSONWriter end(byte empty, byte nonempty, char bracket) throws IOException {
+		byte scope = this.stack[this.depth - 1];
+		if(scope != empty && scope != nonempty)
+			throw new IllegalStateException("Nesting problem: unexpected " + bracket);
+		this.depth--;
+		if(scope == nonempty && this.indent != null && this.inline == 0)
+			this.newline();
+		if(this.inline > this.depth)
+			this.inline = 0;
+		this.write(bracket);
+		return this;
+	}
+
+	/**
+	 * Обновляет область видимости перед записью значения и записывает запятую, если она нужна
+	 * @throws IllegalStateException Если значение в текущем месте недопустимо
+	 */
+	private void beforeValue() throws IOException {
+		switch(this.stack[this.depth - 1]){
+			case S_EMPTY_DOCUMENT:
+				this.stack[this.depth - 1] = S_NONEMPTY_DOCUMENT;
+				break;
+			case S_EMPTY_LIST:
+				this.stack[this.depth - 1] = S_NONEMPTY_LIST;
+				this.separate(false);
+				break;
+			case S_NONEMPTY_LIST:
+				this.write(',');
+				this.separate(true);
+				break;
+			case S_DANGLING_NAME:
+				this.stack[this.depth - 1] = S_NONEMPTY_OBJECT;
+				break;
+			case S_NONEMPTY_DOCUMENT:
+				throw new IllegalStateException("JSON must have only one top-level value");
+			default:
+				throw new IllegalStateException("Name must be written before a value inside an object");
+		}
+	}
+
+	/**
+	 * Записывает разделитель перед элементом структуры при форматированном выводе:
+	 * перевод строки с отступом или пробел после запятой внутри структуры, записываемой в одну строку
+	 * @param afterComma Записана ли перед элементом запятая
+	 */
+	private void separate(boolean afterComma) throws IOException {
+		if(this.indent == null)
+			return;
+		if(this.inline == 0)
+			this.newline();
+		else if(afterComma)
+			this.write(' ');
+	}
+
+	/**
+	 * Записывает перевод строки и отступ по текущему уровню вложенности
+	 */
+	private void newline() throws IOException {
+		this.write('\n');
+		for(int i = 1; i < this.depth; i++)
+			this.write(this.indent);
+	}
+
+	/**
+	 * Кладёт область видимости на вершину стека
+	 * @param scope Одна из констант {@code S_*}
+	 */
+	private void push(byte scope){
+		if(this.depth == this.stack.length)
+			this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+		this.stack[this.depth++] = scope;
+	}
+
+	/**
+	 * Записывает строку в кавычках, экранируя символы по таблице {@link #ESCAPES}.
+	 * Участки без экранируемых символов копируются в буфер целиком
+	 * @param value Строка
+	 */
+	private void writeString(String value) throws IOException {
+		this.write('"');
+		int length = value.length();
+		int start = 0;
+		for(int i = 0; i < length; i++){
+			char c = value.charAt(i);
+			if(c >= 128 || ESCAPES[c] == null)
+				continue;
+			this.write(value, start, i);
+			char[] replacement = ESCAPES[c];
+			this.write(replacement, 0, replacement.length);
+			start = i + 1;
+		}
+		this.write(value, start, length);
+		this.write('"');
+	}
+
+	/**
+	 * Записывает цифры целого числа прямо в буфер
+	 * @param value Число
+	 */
+	private void writeLong(long value) throws IOException {
+		if(value == Long.MIN_VALUE){
+			this.write("-9223372036854775808");
+			return;
+		}
+		if(this.buffer.length - this.count < 20)
+			this.flushBuffer();
+		if(value < 0){
+			this.buffer[this.count++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for(long i = value; i >= 10; i /= 10)
+			digits++;
+		int pos = this.count + digits;
+		this.count = pos;
+		do {
+			this.buffer[--pos] = (char) ('0' + value % 10);
+			value /= 10;
+		} while(value != 0);
+	}
+
+	/**
+	 * Записывает дробное число в кратчайшем виде прямо в буфер
+	 * @param value Число
+	 */
+	private void writeDouble(double value) throws IOException {
+		if(Double.isNaN(value) || Double.isInfinite(value))
+			throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+		if(this.buffer.length - this.count < NumberFormatter.MAX_LENGTH)
+			this.flushBuffer();
+		this.count = NumberFormatter.write(value, this.buffer, this.count);
+	}
+
+	/**
+	 * Записывает символ в буфер
+	 * @param c Символ
+	 */
+	private void write(char c) throws IOException {
+		if(this.count == this.buffer.length)
+			this.flushBuffer();
+		this.buffer[this.count++] = c;
+	}
+
+	/**
+	 * Записывает строку в буфер
+	 * @param value Строка
+	 */
+	private void write(String value) throws IOException {
+		this.write(value, 0, value.length());
+	}
+
+	/**
+	 * Записывает часть строки в буфер
+	 * @param value Строка
+	 * @param from Индекс первого символа
+	 * @param to Индекс за последним символом
+	 */
+	private void write(String value, int from, int to) throws IOException {
+		while(from < to){
+			if(this.count == this.buffer.length)
+				this.flushBuffer();
+			int length = Math.min(to - from, this.buffer.length - this.count);
+			value.getChars(from, from + length, this.buffer, this.count);
+			this.count += length;
+			from += length;
+		}
+	}
+
+	/**
+	 * Записывает часть массива символов в буфер
+	 * @param value Массив символов
+	 * @param from Индекс первого символа
+	 * @param to Индекс за последним символом
+	 */
+	private void write(char[] value, int from, int to) throws IOException {
+		while(from < to){
+			if(this.count == this.buffer.length)
+				this.flushBuffer();
+			int length = Math.min(to - from, this.buffer.length - this.count);
+			System.arraycopy(value, from, this.buffer, this.count, length);
+			this.count += length;
+			from += length;
+		}
+	}
+
+	/**
+	 * Сбрасывает содержимое буфера в приёмник
+	 */
+	private void flushBuffer() throws IOException {
+		if(this.count == 0)
+			return;
+		if(this.out instanceof Writer)
+			((Writer) this.out).write(this.buffer, 0, this.count);
+		else if(this.out instanceof StringBuilder)
+			((StringBuilder) this.out).append(this.buffer, 0, this.count);
+		else
+			this.out.append(CharBuffer.wrap(this.buffer, 0, this.count));
+		this.count = 0;
+	}
+}
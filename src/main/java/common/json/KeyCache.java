@@ -0,0 +1,134 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ограниченная таблица канонических строк для ключей объектов. Когда одни и те же ключи
+ * повторяются в миллионах объектов, парсер с такой таблицей находит уже созданную строку
+ * по хешу и содержимому прямо во входном буфере и не создаёт новую. Таблица имеет прямую
+ * адресацию: каждая ячейка хранит одну запись, и при коллизии старая запись вытесняется,
+ * поэтому занимаемая память не растёт со временем. Ключи длиннее {@link #MAX_LENGTH} символов
+ * не кешируются. Один экземпляр можно использовать из нескольких парсеров и потоков
+ * одновременно: записи неизменяемы, а гонка при замене ячейки приводит лишь к лишнему промаху
+ */
+public final class KeyCache{
+
+	/** Количество ячеек по умолчанию */
+	public static final int DEFAULT_CAPACITY = 1024;
+	/** Максимальная длина кешируемого ключа */
+	public static final int MAX_LENGTH = 64;
+
+	/** Ячейки таблицы. Количество ячеек - степень двойки */
+	private final Entry[] entries;
+
+	/**
+	 * Создаёт таблицу на {@link #DEFAULT_CAPACITY} ключей
+	 */
+	public KeyCache(){
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Создаёт таблицу
+	 * @param capacity Количество ячеек. Округляется вверх до степени двойки
+	 * @throws IllegalArgumentException Если количество ячеек меньше единицы или больше 2^30
+	 */
+	public KeyCache(int capacity){
+		if(capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was " + capacity);
+		this.entries = new Entry[capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+	}
+
+	/**
+	 * Возвращает каноническую строку для участка символов
+	 * @param s Символы
+	 * @param from Индекс первого символа ключа
+	 * @param to Индекс за последним символом ключа
+	 * @return Строка, равная участку {@code s}. Для одинаковых ключей, пока они не вытеснены, возвращается один и тот же экземпляр
+	 */
+	public String intern(CharSequence s, int from, int to){
+		int length = to - from;
+		if(length > MAX_LENGTH)
+			return s.subSequence(from, to).toString();
+		int hash = 0;
+		for(int i = from; i < to; i++)
+			hash = 31 * hash + s.charAt(i);
+		int slot = slot(hash);
+		Entry entry = this.entries[slot];
+		if(entry != null && entry.hash == hash && matches(entry.key, s, from, length))
+			return entry.key;
+		String key = s.subSequence(from, to).toString();
+		this.entries[slot] = new Entry(hash, key);
+		return key;
+	}
+
+	/**
+	 * Возвращает каноническую строку для участка байтов, если он состоит только из символов ASCII
+	 * @param b Байты в кодировке UTF-8
+	 * @param from Индекс первого байта ключа
+	 * @param to Индекс за последним байтом ключа
+	 * @return Строка или {@code null}, если ключ слишком длинный или содержит не-ASCII символы
+	 */
+	String intern(ByteBuffer b, int from, int to){
+		int length = to - from;
+		if(length > MAX_LENGTH)
+			return null;
+		int hash = 0;
+		for(int i = from; i < to; i++){
+			int c = b.get(i);
+			if(c < 0)
+				return null;
+			hash = 31 * hash + c;
+		}
+		int slot = slot(hash);
+		Entry entry = this.entries[slot];
+		if(entry != null && entry.hash == hash && entry.key.length() == length){
+			int i = 0;
+			while(i < length && entry.key.charAt(i) == b.get(from + i))
+				i++;
+			if(i == length)
+				return entry.key;
+		}
+		char[] chars = new char[length];
+		for(int i = 0; i < length; i++)
+			chars[i] = (char) b.get(from + i);
+		String key = new String(chars);
+		this.entries[slot] = new Entry(hash, key);
+		return key;
+	}
+
+	/**
+	 * Возвращает ячейку для хеша, перемешивая старшие биты с младшими
+	 */
+	private int slot(int hash){
+		return (hash ^ hash >>> 16) & this.entries.length - 1;
+	}
+
+	/**
+	 * Сравнивает строку с участком символов
+	 */
+	private static boolean matches(String key, CharSequence s, int from, int length){
+		if(key.length() != length)
+			return false;
+		for(int i = 0; i < length; i++)
+			if(key.charAt(i) != s.charAt(from + i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Запись таблицы
+	 */
+	private static final class Entry{
+
+		/** Хеш ключа, совпадающий с {@link String#hashCode()} */
+		private final int hash;
+		/** Канонический экземпляр ключа */
+		private final String key;
+
+		private Entry(int hash, String key){
+			this.hash = hash;
+			this.key = key;
+		}
+	}
+}
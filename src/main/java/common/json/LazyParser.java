@@ -0,0 +1,226 @@
+package common.json;
+
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Разбирает JSON-строку в ленивый документ. При разборе данные полностью проверяются,
+ * но вместо объектов {@code JSONEntity} и записей {@code LinkedHashMap} строится только
+ * компактная лента токенов {@link Tape}. Возвращаемые {@code JSONObject} и {@code JSONList}
+ * являются представлениями над лентой: их потомки создаются только при обращении к ним,
+ * а нетронутые поддеревья пропускаются за O(1). Режим выгоден, когда из большого
+ * документа читается лишь небольшая часть значений
+ */
+public class LazyParser extends TextScanner{
+
+	/** Начальная ёмкость стека контейнеров */
+	private static final int STACK_CAPACITY = 16;
+
+	/** Лента текущего документа */
+	private Tape tape;
+	/** Стек индексов токенов открытых на данный момент контейнеров */
+	private int[] stack = new int[STACK_CAPACITY];
+	/** Глубина вложенных JSON-структур */
+	private int depth = 0;
+
+	/**
+	 * Создаёт экземпляр парсера
+	 * @param data Валидная JSON-строка данных
+	 */
+	public LazyParser(String data){
+		super(data);
+	}
+
+	/**
+	 * Начинает разбор JSON-строки
+	 * @return Ленивое представление {@code JSONList} или {@code JSONObject}
+	 * @throws ParseException Если входная строка оказалась невалидной
+	 */
+	public JSONComplex parse() throws ParseException {
+		this.pos = 0;
+		this.depth = 0;
+		this.tape = new Tape(this.raw);
+		this.skipWhitespace();
+		if(this.pos == this.raw.length())
+			throw new ParseException("Empty string", this.pos);
+		char c = this.raw.charAt(this.pos);
+		if(c != '[' && c != '{')
+			this.throwException(c, "Expected open brace");
+		this.open();
+		this.parseContents();
+		this.skipWhitespace();
+		if(this.pos < this.raw.length())
+			this.throwException(this.raw.charAt(this.pos), "There should be no characters after data ending except for spaces");
+		Tape tape = this.tape;
+		this.tape = null;
+		return (JSONComplex) tape.materialize(0);
+	}
+
+	/**
+	 * Разбирает содержимое корневого контейнера.
+	 * Каждая итерация внешнего цикла начинается сразу после открывающей скобки или запятой
+	 * @throws ParseException Если входная строка оказалась невалидной
+	 */
+	private void parseContents() throws ParseException {
+		boolean first = true;
+		while(true){
+			boolean isObject = this.tape.first(this.stack[this.depth - 1]) == '{';
+			char c = this.nextToken();
+			if(first && c == (isObject ? '}' : ']')){
+				this.close();
+			} else {
+				if(isObject){
+					if(c != '"')
+						this.throwException(c, "Expected double quote or closing brace");
+					this.readString();
+					c = this.nextToken();
+					if(c != ':')
+						this.throwException(c, "Expected colon");
+					this.pos++;
+					c = this.nextToken();
+				}
+				if(c == '{' || c == '['){
+					this.open();
+					first = true;
+					continue;
+				}
+				this.readScalar(c);
+			}
+			if(this.closeContainers())
+				return;
+			first = false;
+		}
+	}
+
+	/**
+	 * Проверяет символы после очередного значения: закрывает завершившиеся контейнеры
+	 * и останавливается на запятой
+	 * @return {@code true} если был закрыт корневой контейнер
+	 * @throws ParseException Если встретилось что-то кроме запятой или закрывающей скобки
+	 */
+	private boolean closeContainers() throws ParseException {
+		while(this.depth > 0){
+			char c = this.nextToken();
+			boolean isObject = this.tape.first(this.stack[this.depth - 1]) == '{';
+			if(c == ','){
+				this.pos++;
+				return false;
+			} else if(c == ']'){
+				if(isObject)
+					this.throwException(c, "Wrong closing bracket for object json type");
+			} else if(c == '}'){
+				if(!isObject)
+					this.throwException(c, "Wrong closing bracket for list json type");
+			} else {
+				this.throwException(c, "Expected comma or closing bracket");
+			}
+			this.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Записывает токен контейнера в ленту и кладёт его индекс на вершину стека
+	 */
+	private void open(){
+		if(this.depth == this.stack.length)
+			this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+		this.stack[this.depth++] = this.tape.add(this.pos++, 0);
+	}
+
+	/**
+	 * Закрывает контейнер на вершине стека, записывая в его токен ссылку на конец поддерева
+	 */
+	private void close(){
+		this.tape.link(this.stack[--this.depth], this.tape.size());
+		this.pos++;
+	}
+
+	/**
+	 * Проверяет скалярное значение, начинающееся с текущей позиции, и записывает его токен
+	 * @param c Первый символ значения
+	 * @throws ParseException Если значение указано некорректно
+	 */
+	private void readScalar(char c) throws ParseException {
+		int start = this.pos;
+		switch(c){
+			case '"':
+				this.readString();
+				return;
+			case 't':
+				this.readKeyword(KEYWORD_TRUE);
+				break;
+			case 'f':
+				this.readKeyword(KEYWORD_FALSE);
+				break;
+			case 'n':
+				this.readKeyword(KEYWORD_NULL);
+				break;
+			default:
+				if(c == '-' || isDigit(c))
+					this.readNumber();
+				else
+					this.throwException(c, "Unknown value type");
+		}
+		this.tape.add(start, this.pos);
+	}
+
+	/**
+	 * Проверяет строку, начинающуюся с двойной кавычки в текущей позиции, не декодируя её,
+	 * и записывает её токен
+	 * @throws ParseException Если строка не закрыта или содержит неверные экранированные последовательности
+	 */
+	private void readString() throws ParseException {
+		int start = this.pos++;
+		int flags = 0;
+		int length = this.raw.length();
+		while(this.pos < length){
+			char c = this.raw.charAt(this.pos);
+			if(c == '"'){
+				this.tape.add(start, ++this.pos | flags);
+				return;
+			}
+			if(c == '\\'){
+				flags = Tape.ESCAPED;
+				this.pos++;
+				this.checkEscape();
+			} else if(c < ' '){
+				this.throwException(c, "Unescaped control character in string");
+			}
+			this.pos++;
+		}
+		throw new ParseException("Unexpected end of input. Expected closing double quote", this.pos);
+	}
+
+	/**
+	 * Проверяет экранированную последовательность. Курсор стоит на символе после обратной косой черты
+	 * и остаётся на последнем символе последовательности
+	 * @throws ParseException Если последовательность неверна
+	 */
+	private void checkEscape() throws ParseException {
+		if(this.pos == this.raw.length())
+			throw new ParseException("Unexpected end of input. Expected escape sequence", this.pos);
+		char c = this.raw.charAt(this.pos);
+		switch(c){
+			case '"':
+			case '\\':
+			case '/':
+			case 'b':
+			case 'f':
+			case 'n':
+			case 'r':
+			case 't':
+				return;
+			case 'u':
+				this.readUnicode();
+				return;
+			default:
+				this.throwException(c, "Unknown escape sequence");
+		}
+	}
+
+	@Override
+	char closing(){
+		return this.tape.first(this.stack[this.depth - 1]) == '[' ? ']' : '}';
+	}
+}
@@ -0,0 +1,328 @@
+package common.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Параллельно разбирает данные в формате JSON Lines (NDJSON): документы в кодировке UTF-8,
+ * по одному на строку. Данные делятся по переводам строк на участки примерно по {@link #setChunkSize(int)} байт,
+ * и участки разбираются задачами {@code ForkJoinPool}. Каждый участок разбирается своим {@link ByteParser},
+ * поэтому потоки делят только общие {@link KeyCache} и {@link Shapes}, если они заданы.
+ * Каждая непустая строка должна содержать объект или список, пустые строки пропускаются.
+ * Файлы, отображённые в память через {@link #map(Path)}, могут быть больше 2 ГБ
+ */
+public final class LinesParser{
+
+	/** Размер участка по умолчанию */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/** Максимальный размер одного отображённого в память сегмента файла */
+	private static final int SEGMENT_SIZE = 1 << 30;
+
+	/** Сегменты данных, каждый заканчивается на границе строки */
+	private final ByteBuffer[] segments;
+	/** Представления сегментов для пословного сканирования */
+	private final ByteBuffer[] words;
+	/** Смещение начала каждого сегмента от начала данных */
+	private final long[] offsets;
+	/** Пул, в котором разбираются участки */
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	/** Желаемый размер участка в байтах */
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	/** Таблица канонических ключей или {@code null} */
+	private KeyCache keys;
+	/** Дерево форм объектов или {@code null} */
+	private Shapes shapes;
+
+	/**
+	 * Создаёт экземпляр парсера. Разбираются байты от текущей позиции буфера до его лимита
+	 * @param data Строки JSON в кодировке UTF-8
+	 */
+	public LinesParser(ByteBuffer data){
+		this(new ByteBuffer[]{data}, new long[]{0});
+	}
+
+	/**
+	 * Создаёт экземпляр парсера для массива байтов
+	 * @param data Строки JSON в кодировке UTF-8
+	 */
+	public LinesParser(byte[] data){
+		this(ByteBuffer.wrap(data));
+	}
+
+	private LinesParser(ByteBuffer[] segments, long[] offsets){
+		this.segments = segments;
+		this.offsets = offsets;
+		this.words = new ByteBuffer[segments.length];
+		for(int i = 0; i < segments.length; i++)
+			this.words[i] = Swar.words(segments[i]);
+	}
+
+	/**
+	 * Создаёт парсер для файла, отображённого в память. Файл отображается сегментами до 1 ГБ,
+	 * границы которых совпадают с границами строк, поэтому размер файла не ограничен
+	 * @param file Путь к файлу со строками JSON в кодировке UTF-8
+	 * @return Парсер для файла
+	 * @throws IOException Если файл не удалось открыть или отобразить в память, или строка в нём длиннее 1 ГБ
+	 */
+	public static LinesParser map(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			long size = channel.size();
+			List<ByteBuffer> segments = new ArrayList<>();
+			List<Long> offsets = new ArrayList<>();
+			long position = 0;
+			do {
+				int length = (int) Math.min(size - position, SEGMENT_SIZE);
+				ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				if(position + length < size){
+					int last = length - 1;
+					while(last >= 0 && segment.get(last) != '\n')
+						last--;
+					if(last < 0)
+						throw new IOException("Line at offset " + position + " is longer than " + SEGMENT_SIZE + " bytes");
+					length = last + 1;
+					segment.limit(length);
+				}
+				segments.add(segment);
+				offsets.add(position);
+				position += length;
+			} while(position < size);
+			long[] result = new long[offsets.size()];
+			for(int i = 0; i < result.length; i++)
+				result[i] = offsets.get(i);
+			return new LinesParser(segments.toArray(new ByteBuffer[0]), result);
+		}
+	}
+
+	/**
+	 * Задаёт пул, в котором разбираются участки. По умолчанию используется {@code ForkJoinPool.commonPool()}
+	 * @param pool Пул потоков
+	 * @return Этот же парсер
+	 */
+	public LinesParser setPool(ForkJoinPool pool){
+		this.pool = pool;
+		return this;
+	}
+
+	/**
+	 * Задаёт желаемый размер участка. Участок всегда заканчивается на границе строки,
+	 * поэтому может быть больше, если в нём есть длинная строка
+	 * @param chunkSize Размер участка в байтах
+	 * @return Этот же парсер
+	 */
+	public LinesParser setChunkSize(int chunkSize){
+		if(chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * Включает кеширование ключей объектов. Таблица общая для всех потоков
+	 * @param keys Таблица канонических ключей или {@code null}, чтобы отключить кеширование
+	 * @return Этот же парсер
+	 * @see ByteParser#setKeyCache(KeyCache)
+	 */
+	public LinesParser setKeyCache(KeyCache keys){
+		this.keys = keys;
+		return this;
+	}
+
+	/**
+	 * Включает компактное представление объектов. Дерево форм общее для всех потоков
+	 * @param shapes Дерево форм или {@code null}, чтобы создавать объекты с {@code LinkedHashMap}
+	 * @return Этот же парсер
+	 * @see ByteParser#setShapes(Shapes)
+	 */
+	public LinesParser setShapes(Shapes shapes){
+		this.shapes = shapes;
+		return this;
+	}
+
+	/**
+	 * Разбирает все строки
+	 * @return Документы в порядке строк
+	 * @throws ParseException Если одна из строк оказалась невалидной
+	 */
+	public List<JSONComplex> parse() throws ParseException {
+		List<JSONComplex> result = new ArrayList<>();
+		this.forEachOrdered(result::add);
+		return result;
+	}
+
+	/**
+	 * Разбирает строки и передаёт документы потребителю в порядке строк. Потребитель вызывается
+	 * в текущем потоке, пока следующие участки разбираются в пуле. Вперёд разбирается не больше
+	 * двух участков на поток пула, поэтому в памяти не накапливается весь файл
+	 * @param consumer Потребитель документов
+	 * @throws ParseException Если одна из строк оказалась невалидной. Документы до неё уже переданы потребителю
+	 */
+	public void forEachOrdered(Consumer<? super JSONComplex> consumer) throws ParseException {
+		List<Chunk> chunks = this.split(null);
+		int window = Math.max(2, this.pool.getParallelism() << 1);
+		int submitted = 0;
+		try {
+			for(int i = 0; i < chunks.size(); i++){
+				for(; submitted < chunks.size() && submitted <= i + window; submitted++)
+					this.pool.execute(chunks.get(submitted));
+				for(JSONComplex value : join(chunks.get(i)))
+					consumer.accept(value);
+				chunks.set(i, null);
+			}
+		} finally {
+			cancel(chunks, submitted);
+		}
+	}
+
+	/**
+	 * Разбирает строки и передаёт документы потребителю в произвольном порядке.
+	 * Потребитель вызывается одновременно из потоков пула и должен быть потокобезопасным
+	 * @param consumer Потребитель документов
+	 * @throws ParseException Если одна из строк оказалась невалидной. Сообщается о первой по порядку ошибке
+	 */
+	public void forEach(Consumer<? super JSONComplex> consumer) throws ParseException {
+		List<Chunk> chunks = this.split(consumer);
+		try {
+			for(Chunk chunk : chunks)
+				this.pool.execute(chunk);
+			for(Chunk chunk : chunks)
+				join(chunk);
+		} finally {
+			cancel(chunks, chunks.size());
+		}
+	}
+
+	/**
+	 * Делит сегменты на участки по границам строк
+	 * @param consumer Потребитель, которому участки передают документы, или {@code null}, чтобы участки собирали документы в список
+	 */
+	private List<Chunk> split(Consumer<? super JSONComplex> consumer){
+		List<Chunk> result = new ArrayList<>();
+		for(int segment = 0; segment < this.segments.length; segment++){
+			int pos = this.segments[segment].position();
+			int end = this.segments[segment].limit();
+			while(pos < end){
+				int next = end - pos <= this.chunkSize ? end : Math.min(end, Swar.indexOfNewline(this.words[segment], pos + this.chunkSize, end) + 1);
+				result.add(new Chunk(segment, pos, next, consumer));
+				pos = next;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Дожидается разбора участка
+	 * @return Документы участка
+	 */
+	private static List<JSONComplex> join(Chunk chunk) throws ParseException {
+		try {
+			return chunk.join();
+		} catch(RuntimeException ex){
+			for(Throwable cause = ex; cause != null; cause = cause.getCause())
+				if(cause instanceof ParseException)
+					throw (ParseException) cause;
+			throw ex;
+		}
+	}
+
+	/**
+	 * Отменяет ещё не завершённые участки
+	 */
+	private static void cancel(List<Chunk> chunks, int count){
+		for(int i = 0; i < count; i++){
+			Chunk chunk = chunks.get(i);
+			if(chunk != null)
+				chunk.cancel(false);
+		}
+	}
+
+	/**
+	 * Считает номер строки, начинающейся с заданного индекса сегмента
+	 */
+	private long lineNumber(int segment, int pos){
+		long result = 1;
+		for(int i = 0; i <= segment; i++){
+			int to = i == segment ? pos : this.segments[i].limit();
+			for(int j = Swar.indexOfNewline(this.words[i], this.segments[i].position(), to); j < to; j = Swar.indexOfNewline(this.words[i], j + 1, to))
+				result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Участок строк одного сегмента
+	 */
+	private final class Chunk extends RecursiveTask<List<JSONComplex>>{
+
+		private static final long serialVersionUID = 1L;
+
+		private final int segment;
+		private final int from;
+		private final int to;
+		private final Consumer<? super JSONComplex> consumer;
+
+		Chunk(int segment, int from, int to, Consumer<? super JSONComplex> consumer){
+			this.segment = segment;
+			this.from = from;
+			this.to = to;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected List<JSONComplex> compute(){
+			ByteBuffer words = LinesParser.this.words[this.segment];
+			ByteParser parser = new ByteParser(LinesParser.this.segments[this.segment]).setKeyCache(LinesParser.this.keys).setShapes(LinesParser.this.shapes);
+			List<JSONComplex> result = this.consumer == null ? new ArrayList<>() : null;
+			int pos = this.from;
+			while(pos < this.to){
+				int end = Swar.indexOfNewline(words, pos, this.to);
+				if(Swar.skipWhitespace(words, pos, end) < end){
+					JSONComplex value;
+					try {
+						value = parser.parse(pos, end);
+					} catch(ParseException ex){
+						throw new LineException(this.exception(ex, pos));
+					}
+					if(result == null)
+						this.consumer.accept(value);
+					else
+						result.add(value);
+				}
+				pos = end + 1;
+			}
+			return result;
+		}
+
+		/**
+		 * Создаёт ошибку разбора с номером строки и смещением от начала данных
+		 */
+		private ParseException exception(ParseException ex, int pos){
+			ByteBuffer segment = LinesParser.this.segments[this.segment];
+			long offset = LinesParser.this.offsets[this.segment] + pos - segment.position() + ex.getErrorOffset();
+			ParseException result = new ParseException("Line " + LinesParser.this.lineNumber(this.segment, pos) + ": " + ex.getMessage(), (int) Math.min(offset, Integer.MAX_VALUE));
+			result.initCause(ex);
+			return result;
+		}
+	}
+
+	/**
+	 * Переносит ошибку разбора из задачи пула в поток, ожидающий результат
+	 */
+	private static final class LineException extends RuntimeException{
+
+		private static final long serialVersionUID = 1L;
+
+		LineException(ParseException cause){
+			super(cause.getMessage(), cause);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Таблица имён ключей, в которой имя ищется прямо по байтам UTF-8 входного буфера без создания строки.
+ * Имена нумеруются в порядке добавления. Поиск по байтам идёт по таблице с открытой адресацией
+ * и хешем FNV-1a, таблица заполнена не больше чем наполовину. Используется {@link JSONPath}
+ * и {@link Projection}. После заполнения таблицу можно читать из нескольких потоков одновременно
+ */
+final class NameTable{
+
+	/** Имена по номерам */
+	private String[] names = new String[0];
+	/** Имена в кодировке UTF-8 */
+	private byte[][] bytes = new byte[0][];
+	/** Номера имён по строке */
+	private final Map<String, Integer> ids = new HashMap<>();
+	/** Таблица с открытой адресацией: хеш байтов имени в номер имени плюс один */
+	private int[] table = new int[2];
+
+	/**
+	 * Добавляет имя, которого ещё нет в таблице
+	 * @param name Имя ключа
+	 * @return Номер добавленного имени
+	 */
+	int add(String name){
+		int i = this.names.length;
+		this.names = Arrays.copyOf(this.names, i + 1);
+		this.bytes = Arrays.copyOf(this.bytes, i + 1);
+		this.names[i] = name;
+		this.bytes[i] = name.getBytes(StandardCharsets.UTF_8);
+		this.ids.put(name, i);
+		if((i + 1) << 1 > this.table.length){
+			this.table = new int[this.table.length << 1];
+			for(int j = 0; j < i; j++)
+				this.insert(j);
+		}
+		this.insert(i);
+		return i;
+	}
+
+	/**
+	 * Возвращает количество имён
+	 */
+	int size(){
+		return this.names.length;
+	}
+
+	/**
+	 * Возвращает имя по номеру
+	 */
+	String get(int index){
+		return this.names[index];
+	}
+
+	/**
+	 * Ищет номер имени по строке
+	 * @return Номер имени или {@code -1}, если имени нет в таблице
+	 */
+	int indexOf(String name){
+		Integer result = this.ids.get(name);
+		return result == null ? -1 : result;
+	}
+
+	/**
+	 * Ищет номер имени по байтам буфера
+	 * @param raw Буфер
+	 * @param from Индекс первого байта имени
+	 * @param to Индекс за последним байтом имени
+	 * @return Номер имени или {@code -1}, если имени нет в таблице
+	 */
+	int indexOf(ByteBuffer raw, int from, int to){
+		int h = 0x811C9DC5;
+		for(int i = from; i < to; i++)
+			h = (h ^ (raw.get(i) & 0xFF)) * 0x01000193;
+		int mask = this.table.length - 1;
+		for(int slot = h & mask; this.table[slot] != 0; slot = (slot + 1) & mask){
+			byte[] name = this.bytes[this.table[slot] - 1];
+			if(name.length != to - from)
+				continue;
+			int i = 0;
+			while(i < name.length && name[i] == raw.get(from + i))
+				i++;
+			if(i == name.length)
+				return this.table[slot] - 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Кладёт имя в таблицу с открытой адресацией
+	 */
+	private void insert(int index){
+		int h = 0x811C9DC5;
+		for(byte b : this.bytes[index])
+			h = (h ^ (b & 0xFF)) * 0x01000193;
+		int mask = this.table.length - 1;
+		int slot = h & mask;
+		while(this.table[slot] != 0)
+			slot = (slot + 1) & mask;
+		this.table[slot] = index + 1;
+	}
+}
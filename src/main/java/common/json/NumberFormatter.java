@@ -0,0 +1,237 @@
+package common.json;
+
+import java.math.BigInteger;
+
+/**
+ * Запись чисел {@code double} в кратчайшем десятичном виде, который при разборе даёт
+ * то же самое число. Используется алгоритм Schubfach (Р. Джулиетти): по границам интервала
+ * округления вычисляется не более двух кандидатов из 17 и 16 цифр с помощью 126-битных
+ * приближений степеней десяти, а цифры пишутся прямо в переданный массив символов без
+ * создания промежуточных строк
+ */
+final class NumberFormatter{
+
+	/** Максимальное количество символов, занимаемых одним числом */
+	static final int MAX_LENGTH = 32;
+
+	/** Наименьший двоичный порядок мантиссы {@code double} */
+	private static final int Q_MIN = -1074;
+	/** Наименьшая десятичная степень, для которой хранится приближение */
+	private static final int K_MIN = -324;
+	/** Наибольшая десятичная степень, для которой хранится приближение */
+	private static final int K_MAX = 292;
+	/** Неявный старший бит нормализованной мантиссы */
+	private static final long C_MIN = 1L << 52;
+	/** Субнормальные мантиссы меньше этого значения требуют дополнительной цифры */
+	private static final long C_TINY = 3;
+	/** Биты мантиссы */
+	private static final long T_MASK = C_MIN - 1;
+	/** Младшие 63 бита */
+	private static final long MASK_63 = Long.MAX_VALUE;
+
+	/**
+	 * Приближения 10^-k сверху в виде 126-битных чисел, разбитых на две части по 63 бита.
+	 * Для степени {@code k} старшая часть находится по индексу {@code 2 * (k - K_MIN)}, младшая - следом
+	 */
+	private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+	static {
+		for(int k = K_MIN; k <= K_MAX; k++){
+			int e = -k;
+			int r = 125 - flog2pow10(e);
+			BigInteger numerator = e >= 0 ? BigInteger.TEN.pow(e) : BigInteger.ONE;
+			BigInteger denominator = e >= 0 ? BigInteger.ONE : BigInteger.TEN.pow(-e);
+			if(r >= 0)
+				numerator = numerator.shiftLeft(r);
+			else
+				denominator = denominator.shiftLeft(-r);
+			BigInteger g = numerator.divide(denominator).add(BigInteger.ONE);
+			int index = 2 * (k - K_MIN);
+			G[index] = g.shiftRight(63).longValue();
+			G[index + 1] = g.longValue() & MASK_63;
+		}
+	}
+
+	private NumberFormatter(){}
+
+	/**
+	 * Записывает конечное число в массив. Целые значения записываются с {@code .0}, числа с десятичным
+	 * порядком от -7 до 20 - в обычной записи, остальные - в экспоненциальной, например {@code 1.5E-8}
+	 * @param value Конечное число
+	 * @param buffer Массив, в котором свободно не меньше {@link #MAX_LENGTH} символов начиная с {@code pos}
+	 * @param pos Индекс первого записываемого символа
+	 * @return Индекс за последним записанным символом
+	 */
+	static int write(double value, char[] buffer, int pos){
+		long bits = Double.doubleToRawLongBits(value);
+		if(bits < 0)
+			buffer[pos++] = '-';
+		long t = bits & T_MASK;
+		int bq = (int) (bits >>> 52) & 0x7FF;
+		if(bq != 0){
+			int mq = -Q_MIN + 1 - bq;
+			long c = C_MIN | t;
+			if(0 < mq && mq < 53){
+				long f = c >> mq;
+				if(f << mq == c)
+					return format(f, 0, buffer, pos);
+			}
+			return toDecimal(-mq, c, 0, buffer, pos);
+		}
+		if(t != 0)
+			return t < C_TINY ? toDecimal(Q_MIN, 10 * t, -1, buffer, pos) : toDecimal(Q_MIN, t, 0, buffer, pos);
+		buffer[pos++] = '0';
+		buffer[pos++] = '.';
+		buffer[pos++] = '0';
+		return pos;
+	}
+
+	/**
+	 * Находит кратчайшее десятичное представление числа {@code c * 2^q}
+	 * @param q Двоичный порядок
+	 * @param c Мантисса
+	 * @param dk Поправка десятичного порядка для очень маленьких субнормальных чисел
+	 */
+	private static int toDecimal(int q, long c, int dk, char[] buffer, int pos){
+		int out = (int) c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if(c != C_MIN | q == Q_MIN){
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+		int index = 2 * (k - K_MIN);
+		long g1 = G[index];
+		long g0 = G[index + 1];
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+		long s = vb >> 2;
+		if(s >= 100){
+			long sp10 = 10 * Math.multiplyHigh(s, 115292150460684698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if(upin != wpin)
+				return format(upin ? sp10 : tp10, k, buffer, pos);
+		}
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if(uin != win)
+			return format(uin ? s : t, k + dk, buffer, pos);
+		long cmp = vb - (s + t << 1);
+		return format(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, buffer, pos);
+	}
+
+	/**
+	 * Округлённое до нечётного произведение 126-битного приближения степени десяти на {@code cp}
+	 */
+	private static long rop(long g1, long g0, long cp){
+		long x1 = Math.multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = Math.multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	/**
+	 * Записывает число {@code f * 10^e}
+	 * @param f Десятичная мантисса
+	 * @param e Десятичный порядок
+	 */
+	private static int format(long f, int e, char[] buffer, int pos){
+		while(f % 10 == 0){
+			f /= 10;
+			e++;
+		}
+		int length = 1;
+		for(long i = f; i >= 10; i /= 10)
+			length++;
+		int point = length + e;
+		if(0 < point && point <= 21){
+			if(e >= 0){
+				pos = digits(f, length, buffer, pos);
+				for(int i = 0; i < e; i++)
+					buffer[pos++] = '0';
+				buffer[pos++] = '.';
+				buffer[pos++] = '0';
+			} else {
+				digits(f, length, buffer, pos + 1);
+				System.arraycopy(buffer, pos + 1, buffer, pos, point);
+				buffer[pos + point] = '.';
+				pos += length + 1;
+			}
+		} else if(-6 < point && point <= 0){
+			buffer[pos++] = '0';
+			buffer[pos++] = '.';
+			for(int i = point; i < 0; i++)
+				buffer[pos++] = '0';
+			pos = digits(f, length, buffer, pos);
+		} else {
+			digits(f, length, buffer, pos + 1);
+			buffer[pos] = buffer[pos + 1];
+			if(length > 1){
+				buffer[pos + 1] = '.';
+				pos += length + 1;
+			} else {
+				pos++;
+			}
+			buffer[pos++] = 'E';
+			int exponent = point - 1;
+			if(exponent < 0){
+				buffer[pos++] = '-';
+				exponent = -exponent;
+			}
+			if(exponent >= 100)
+				buffer[pos++] = (char) ('0' + exponent / 100);
+			if(exponent >= 10)
+				buffer[pos++] = (char) ('0' + exponent / 10 % 10);
+			buffer[pos++] = (char) ('0' + exponent % 10);
+		}
+		return pos;
+	}
+
+	/**
+	 * Записывает цифры числа
+	 * @param f Число
+	 * @param length Количество цифр
+	 * @return Индекс за последней цифрой
+	 */
+	private static int digits(long f, int length, char[] buffer, int pos){
+		int end = pos + length;
+		for(int i = end - 1; i >= pos; i--){
+			buffer[i] = (char) ('0' + f % 10);
+			f /= 10;
+		}
+		return end;
+	}
+
+	/**
+	 * Возвращает {@code floor(q * log10(2))}
+	 */
+	private static int flog10pow2(int q){
+		return (int) (q * 661971961083L >> 41);
+	}
+
+	/**
+	 * Возвращает {@code floor(log10(3/4 * 2^q))}
+	 */
+	private static int flog10threeQuartersPow2(int q){
+		return (int) (q * 661971961083L - 274743187321L >> 41);
+	}
+
+	/**
+	 * Возвращает {@code floor(e * log2(10))}
+	 */
+	private static int flog2pow10(int e){
+		return (int) (e * 913124641741L >> 38);
+	}
+}
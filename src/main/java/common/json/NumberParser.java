@@ -0,0 +1,297 @@
+package common.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Разбор чисел прямо из входных символов без промежуточных строк.
+ * До 19 значащих цифр накапливаются в {@code long}, после чего целые числа сохраняются как есть,
+ * а дробные переводятся в {@code double} быстрым точным алгоритмом: сначала пробуется
+ * быстрый путь Клингера (точное умножение на степень десяти), затем алгоритм Эйзеля-Лемира
+ * со 128-битной таблицей степеней пятёрки. Редкие случаи, которые алгоритм не решает
+ * (более 19 цифр, субнормальные числа), разбираются стандартным {@code Double.parseDouble}
+ */
+final class NumberParser{
+
+	/** Наименьшая десятичная степень, для которой число ещё может быть ненулевым */
+	private static final int Q_MIN = -342;
+	/** Наибольшая десятичная степень, для которой число ещё может быть конечным */
+	private static final int Q_MAX = 308;
+	/** Максимальное количество значащих цифр, которые точно умещаются в {@code long} без знака */
+	private static final int DIGITS_MAX = 19;
+
+	/** Степени десяти, которые точно представимы в {@code double} */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * Усечённые 128-битные приближения степеней пятёрки от 5^-342 до 5^308.
+	 * Для степени {@code q} старшая половина находится по индексу {@code 2 * (q - Q_MIN)}, младшая - следом
+	 */
+	private static final long[] POWERS_OF_FIVE = new long[2 * (Q_MAX - Q_MIN + 1)];
+
+	static {
+		BigInteger five = BigInteger.valueOf(5);
+		BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+		for(int q = Q_MIN; q <= Q_MAX; q++){
+			BigInteger c;
+			if(q < 0){
+				BigInteger power = five.pow(-q);
+				int z = power.bitLength();
+				int b = q >= -27 ? z + 127 : 2 * z + 128;
+				c = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+				while(c.compareTo(two128) >= 0)
+					c = c.shiftRight(1);
+			} else {
+				c = five.pow(q);
+				int length = c.bitLength();
+				c = length < 128 ? c.shiftLeft(128 - length) : c.shiftRight(length - 128);
+			}
+			int index = 2 * (q - Q_MIN);
+			POWERS_OF_FIVE[index] = c.shiftRight(64).longValue();
+			POWERS_OF_FIVE[index + 1] = c.longValue();
+		}
+	}
+
+	private NumberParser(){}
+
+	/**
+	 * Разбирает число, записанное по грамматике JSON
+	 * @param s Входные символы
+	 * @param from Индекс первого символа числа
+	 * @param to Индекс за последним символом числа
+	 * @return Число
+	 * @throws NumberFormatException Если символы не являются JSON-числом
+	 */
+	static JSONNumber parse(CharSequence s, int from, int to){
+		int i = from;
+		boolean negative = i < to && s.charAt(i) == '-';
+		if(negative)
+			i++;
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean truncated = false;
+		int start = i;
+		for(; i < to && isDigit(s.charAt(i)); i++){
+			int digit = s.charAt(i) - '0';
+			if(digits < DIGITS_MAX){
+				mantissa = mantissa * 10 + digit;
+				if(mantissa != 0)
+					digits++;
+			} else {
+				exponent++;
+				truncated = true;
+			}
+		}
+		if(i == start || s.charAt(start) == '0' && i - start > 1)
+			throw invalid(s, from, to);
+		boolean integral = true;
+		if(i < to && s.charAt(i) == '.'){
+			integral = false;
+			start = ++i;
+			for(; i < to && isDigit(s.charAt(i)); i++){
+				if(digits < DIGITS_MAX){
+					mantissa = mantissa * 10 + (s.charAt(i) - '0');
+					if(mantissa != 0)
+						digits++;
+					exponent--;
+				} else {
+					truncated = true;
+				}
+			}
+			if(i == start)
+				throw invalid(s, from, to);
+		}
+		if(i < to && (s.charAt(i) == 'e' || s.charAt(i) == 'E')){
+			integral = false;
+			i++;
+			boolean negativeExponent = i < to && s.charAt(i) == '-';
+			if(i < to && (negativeExponent || s.charAt(i) == '+'))
+				i++;
+			start = i;
+			int value = 0;
+			for(; i < to && isDigit(s.charAt(i)); i++)
+				if(value < 100000)
+					value = value * 10 + (s.charAt(i) - '0');
+			if(i == start)
+				throw invalid(s, from, to);
+			exponent += negativeExponent ? -value : value;
+		}
+		if(i != to)
+			throw invalid(s, from, to);
+		if(truncated)
+			return slow(s.subSequence(from, to).toString(), integral);
+		return create(negative, mantissa, exponent, integral);
+	}
+
+	/**
+	 * Разбирает число, записанное по грамматике JSON в байтах ASCII.
+	 * Байты читаются тем же разбором, что и символы, через представление {@link Ascii}
+	 * @param b Входные байты
+	 * @param from Индекс первого байта числа
+	 * @param to Индекс за последним байтом числа
+	 * @return Число
+	 * @throws NumberFormatException Если байты не являются JSON-числом
+	 */
+	static JSONNumber parse(ByteBuffer b, int from, int to){
+		return parse(new Ascii(b), from, to);
+	}
+
+	/**
+	 * Создаёт число из накопленных цифр
+	 * @param negative Отрицательно ли число
+	 * @param mantissa Значащие цифры как {@code long} без знака
+	 * @param exponent Десятичная степень
+	 * @param integral Записано ли число без дробной части и экспоненты
+	 */
+	private static JSONNumber create(boolean negative, long mantissa, int exponent, boolean integral){
+		if(integral){
+			if(mantissa >= 0)
+				return new JSONNumber(negative ? -mantissa : mantissa);
+			if(negative && mantissa == Long.MIN_VALUE)
+				return new JSONNumber(Long.MIN_VALUE);
+			BigDecimal value = new BigDecimal(Long.toUnsignedString(mantissa));
+			return new JSONNumber(negative ? value.negate() : value);
+		}
+		double value = toDouble(negative, mantissa, exponent);
+		if(!Double.isNaN(value))
+			return new JSONNumber(value);
+		String text = (negative ? "-" : "") + Long.toUnsignedString(mantissa) + "E" + exponent;
+		return new JSONNumber(Double.parseDouble(text));
+	}
+
+	/**
+	 * Медленный путь для чисел, значащие цифры которых не уместились в {@code long}
+	 * @param text Текст числа
+	 * @param integral Записано ли число без дробной части и экспоненты
+	 */
+	private static JSONNumber slow(String text, boolean integral){
+		if(integral)
+			return new JSONNumber(new BigDecimal(text));
+		return new JSONNumber(Double.parseDouble(text));
+	}
+
+	/**
+	 * Переводит число вида {@code mantissa * 10^exponent} в ближайшее {@code double}
+	 * @param negative Отрицательно ли число
+	 * @param mantissa Значащие цифры как {@code long} без знака
+	 * @param exponent Десятичная степень
+	 * @return Число или {@code NaN}, если быстрые алгоритмы не могут гарантировать точный результат
+	 */
+	static double toDouble(boolean negative, long mantissa, int exponent){
+		if(-22 <= exponent && exponent <= 22 && mantissa >= 0 && mantissa <= 1L << 53){
+			double value = (double) mantissa;
+			value = exponent < 0 ? value / POWERS_OF_TEN[-exponent] : value * POWERS_OF_TEN[exponent];
+			return negative ? -value : value;
+		}
+		return eiselLemire(negative, mantissa, exponent);
+	}
+
+	/**
+	 * Алгоритм Эйзеля-Лемира: умножает нормализованную мантиссу на 128-битное приближение
+	 * 5^q и по старшим битам произведения определяет корректно округлённое значение
+	 * @param negative Отрицательно ли число
+	 * @param w Значащие цифры как {@code long} без знака
+	 * @param q Десятичная степень
+	 * @return Число или {@code NaN}, если точность приближения недостаточна
+	 */
+	private static double eiselLemire(boolean negative, long w, int q){
+		if(w == 0 || q < Q_MIN)
+			return negative ? -0d : 0d;
+		if(q > Q_MAX)
+			return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+		int index = 2 * (q - Q_MIN);
+		long high = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index]);
+		long low = w * POWERS_OF_FIVE[index];
+		if((high & 0x1FF) == 0x1FF){
+			long second = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+			low += second;
+			if(Long.compareUnsigned(second, low) > 0)
+				high++;
+		}
+		if(low == -1L && (q < -27 || q > 55))
+			return Double.NaN;
+		int upper = (int) (high >>> 63);
+		int shift = upper + 9;
+		long mantissa = high >>> shift;
+		int power = ((217706 * q) >> 16) + 63 + upper - lz + 1023;
+		if(power <= 0)
+			return Double.NaN;
+		if(Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1 && mantissa << shift == high)
+			mantissa &= ~1L;
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if(mantissa >= 1L << 53){
+			mantissa = 1L << 52;
+			power++;
+		}
+		if(power >= 0x7FF)
+			return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		long bits = mantissa & ~(1L << 52) | (long) power << 52 | (negative ? 1L << 63 : 0);
+		return Double.longBitsToDouble(bits);
+	}
+
+	/**
+	 * Возвращает старшие 64 бита беззнакового произведения двух чисел
+	 */
+	private static long unsignedMultiplyHigh(long a, long b){
+		return Math.multiplyHigh(a, b) + (a >> 63 & b) + (b >> 63 & a);
+	}
+
+	/**
+	 * Создаёт исключение о неверном формате числа
+	 */
+	private static NumberFormatException invalid(CharSequence s, int from, int to){
+		return new NumberFormatException("Invalid number \"" + s.subSequence(from, to) + "\"");
+	}
+
+	/**
+	 * Проверяет, является ли переданный символ числом от 0 до 9
+	 */
+	private static boolean isDigit(int c){
+		return '0' <= c && c <= '9';
+	}
+
+	/**
+	 * Представление участка буфера с байтами ASCII в виде последовательности символов.
+	 * Индексы совпадают с абсолютными индексами буфера
+	 */
+	private static final class Ascii implements CharSequence{
+
+		/** Буфер */
+		private final ByteBuffer buffer;
+
+		Ascii(ByteBuffer buffer){
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int length(){
+			return this.buffer.limit();
+		}
+
+		@Override
+		public char charAt(int index){
+			return (char) (this.buffer.get(index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to){
+			StringBuilder result = new StringBuilder(to - from);
+			for(int i = from; i < to; i++)
+				result.append(this.charAt(i));
+			return result.toString();
+		}
+
+		@Override
+		public String toString(){
+			return this.subSequence(0, this.length()).toString();
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Разбирает один большой JSON-массив параллельно. Данные разрезаются на участки в предполагаемых
+ * границах элементов: после запятой, за которой начинается элемент того же вида, что и первый
+ * элемент массива. Разрез может оказаться внутри строки или вложенной структуры, поэтому
+ * перед разбором каждый участок параллельно проходит быстрое сканирование кавычек и глубины
+ * вложенности. По результатам сканирования последовательно вычисляется состояние в каждом разрезе:
+ * разрезы внутри вложенных структур отбрасываются, а участок после разреза внутри строки
+ * сканируется заново с верным начальным состоянием. Оставшиеся участки, начинающиеся
+ * в точных границах элементов, разбираются параллельно, и их элементы склеиваются в один {@code JSONList}.
+ * Если корень не является массивом, данные слишком малы, надёжных разрезов не нашлось или
+ * разбор участка завершился ошибкой, данные разбираются последовательно {@link ByteParser},
+ * поэтому результат и сообщения об ошибках всегда совпадают с последовательным разбором
+ */
+public final class ParallelParser{
+
+	/** Размер участка по умолчанию */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/** Разбираемые данные. Позиция и лимит буфера не изменяются парсером */
+	private final ByteBuffer raw;
+
+	/** Представление {@link #raw} для пословного сканирования */
+	private final ByteBuffer words;
+	/** Пул, в котором разбираются участки */
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	/** Желаемый размер участка в байтах */
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	/** Таблица канонических ключей или {@code null} */
+	private KeyCache keys;
+	/** Дерево форм объектов или {@code null} */
+	private Shapes shapes;
+	/** Количество участков при последнем разборе */
+	private int chunks = 0;
+
+	/**
+	 * Создаёт экземпляр парсера. Разбираются байты от текущей позиции буфера до его лимита
+	 * @param data JSON-данные в кодировке UTF-8
+	 */
+	public ParallelParser(ByteBuffer data){
+		this.raw = data;
+		this.words = Swar.words(data);
+	}
+
+	/**
+	 * Создаёт экземпляр парсера для массива байтов
+	 * @param data JSON-данные в кодировке UTF-8
+	 */
+	public ParallelParser(byte[] data){
+		this(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Задаёт пул, в котором разбираются участки. По умолчанию используется {@code ForkJoinPool.commonPool()}
+	 * @param pool Пул потоков
+	 * @return Этот же парсер
+	 */
+	public ParallelParser setPool(ForkJoinPool pool){
+		this.pool = pool;
+		return this;
+	}
+
+	/**
+	 * Задаёт желаемый размер участка. Массивы меньше двух участков разбираются последовательно
+	 * @param chunkSize Размер участка в байтах
+	 * @return Этот же парсер
+	 */
+	public ParallelParser setChunkSize(int chunkSize){
+		if(chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * Включает кеширование ключей объектов. Таблица общая для всех потоков
+	 * @param keys Таблица канонических ключей или {@code null}, чтобы отключить кеширование
+	 * @return Этот же парсер
+	 * @see ByteParser#setKeyCache(KeyCache)
+	 */
+	public ParallelParser setKeyCache(KeyCache keys){
+		this.keys = keys;
+		return this;
+	}
+
+	/**
+	 * Включает компактное представление объектов. Дерево форм общее для всех потоков
+	 * @param shapes Дерево форм или {@code null}, чтобы создавать объекты с {@code LinkedHashMap}
+	 * @return Этот же парсер
+	 * @see ByteParser#setShapes(Shapes)
+	 */
+	public ParallelParser setShapes(Shapes shapes){
+		this.shapes = shapes;
+		return this;
+	}
+
+	/**
+	 * Возвращает количество участков, разобранных параллельно при последнем вызове {@link #parse()}
+	 * @return Количество участков или {@code 1}, если данные были разобраны последовательно
+	 */
+	public int getChunkCount(){
+		return this.chunks;
+	}
+
+	/**
+	 * Начинает разбор JSON-данных
+	 * @return Один из объектов {@code JSONList} или {@code JSONObject}
+	 * @throws ParseException Если входные данные оказались невалидными
+	 */
+	public JSONComplex parse() throws ParseException {
+		int first = Swar.skipWhitespace(this.words, this.raw.position(), this.raw.limit());
+		int last = this.raw.limit();
+		while(last > first && isWhitespace(this.byteAt(last - 1)))
+			last--;
+		if(last - first < (long) this.chunkSize << 1 || this.byteAt(first) != '[' || this.byteAt(last - 1) != ']')
+			return this.sequential();
+		int[] cuts = this.cut(first + 1, last - 1);
+		if(cuts.length < 3)
+			return this.sequential();
+		try {
+			cuts = this.validate(cuts);
+			if(cuts == null || cuts.length < 3)
+				return this.sequential();
+			List<Callable<JSONList>> tasks = new ArrayList<>(cuts.length - 1);
+			for(int i = 0; i + 1 < cuts.length; i++){
+				int from = cuts[i];
+				int to = i + 2 < cuts.length ? cuts[i + 1] - 1 : cuts[i + 1];
+				tasks.add(() -> new ByteParser(this.raw).setKeyCache(this.keys).setShapes(this.shapes).parseElements(from, to));
+			}
+			JSONList result = new JSONList();
+			for(Future<JSONList> part : this.pool.invokeAll(tasks))
+				((ElementList) result.value).append((ElementList) part.get().value);
+			this.chunks = tasks.size();
+			return result;
+		} catch(ExecutionException ex){
+			// Задачи пула оборачивают проверяемые исключения в RuntimeException
+			for(Throwable cause = ex.getCause(); cause != null; cause = cause.getCause())
+				if(cause instanceof ParseException)
+					return this.sequential();
+			if(ex.getCause() instanceof Error)
+				throw (Error) ex.getCause();
+			throw (RuntimeException) ex.getCause();
+		} catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+			return this.sequential();
+		}
+	}
+
+	/**
+	 * Разбирает данные последовательно
+	 */
+	private JSONComplex sequential() throws ParseException {
+		this.chunks = 1;
+		return new ByteParser(this.raw).setKeyCache(this.keys).setShapes(this.shapes).parse();
+	}
+
+	/**
+	 * Предполагает границы элементов примерно через каждые {@link #chunkSize} байт
+	 * @param from Индекс после открывающей скобки массива
+	 * @param to Индекс закрывающей скобки массива
+	 * @return Индексы начала участков и индекс закрывающей скобки последним элементом
+	 */
+	private int[] cut(int from, int to){
+		int kind = this.byteAt(Swar.skipWhitespace(this.words, from, to));
+		boolean containers = kind == '{' || kind == '[';
+		List<Integer> result = new ArrayList<>();
+		result.add(from);
+		int count = (to - from) / this.chunkSize;
+		for(int i = 1; i < count; i++){
+			int target = (int) (from + (long) (to - from) * i / count);
+			if(target <= result.get(result.size() - 1))
+				continue;
+			int limit = (int) Math.min(to, (long) target + this.chunkSize);
+			for(int pos = Swar.indexOfStructural(this.words, target, limit); pos < limit; pos = Swar.indexOfStructural(this.words, pos + 1, limit)){
+				if(this.byteAt(pos) != ',')
+					continue;
+				int next = Swar.skipWhitespace(this.words, pos + 1, to);
+				if(next == to)
+					break;
+				int c = this.byteAt(next);
+				if(containers ? c != '{' && c != '[' : c == '{' || c == '[')
+					continue;
+				if(containers){
+					int previous = pos - 1;
+					while(previous > from && isWhitespace(this.byteAt(previous)))
+						previous--;
+					c = this.byteAt(previous);
+					if(c != '}' && c != ']')
+						continue;
+				}
+				result.add(pos + 1);
+				break;
+			}
+		}
+		result.add(to);
+		int[] cuts = new int[result.size()];
+		for(int i = 0; i < cuts.length; i++)
+			cuts[i] = result.get(i);
+		return cuts;
+	}
+
+	/**
+	 * Сканирует участки параллельно и оставляет только разрезы, попавшие точно между элементами массива
+	 * @param cuts Предполагаемые разрезы
+	 * @return Проверенные разрезы или {@code null}, если скобки массива не сбалансированы
+	 */
+	private int[] validate(int[] cuts) throws InterruptedException, ExecutionException {
+		List<Callable<Scan>> tasks = new ArrayList<>(cuts.length - 1);
+		for(int i = 0; i + 1 < cuts.length; i++){
+			int from = cuts[i];
+			int to = cuts[i + 1];
+			tasks.add(() -> this.scan(from, to, false));
+		}
+		List<Future<Scan>> scans = this.pool.invokeAll(tasks);
+		int[] result = new int[cuts.length];
+		int count = 0;
+		result[count++] = cuts[0];
+		boolean inString = false;
+		int depth = 1;
+		for(int i = 0; i + 1 < cuts.length; i++){
+			if(i > 0 && !inString && depth == 1)
+				result[count++] = cuts[i];
+			Scan scan = inString ? this.scan(cuts[i], cuts[i + 1], true) : scans.get(i).get();
+			if(depth + scan.min < 1)
+				return null;
+			depth += scan.depth;
+			inString = scan.inString;
+		}
+		if(inString || depth != 1)
+			return null;
+		result[count++] = cuts[cuts.length - 1];
+		int[] validated = new int[count];
+		System.arraycopy(result, 0, validated, 0, count);
+		return validated;
+	}
+
+	/**
+	 * Быстро сканирует участок, отслеживая только строки и скобки
+	 * @param from Индекс начала участка
+	 * @param to Индекс конца участка
+	 * @param inString Находится ли начало участка внутри строки
+	 * @return Состояние в конце участка относительно начала
+	 */
+	private Scan scan(int from, int to, boolean inString){
+		int depth = 0;
+		int min = 0;
+		int pos = from;
+		while(true){
+			if(inString){
+				pos = Swar.indexOfStringEnd(this.words, pos, to);
+				if(pos >= to)
+					break;
+				int c = this.byteAt(pos);
+				if(c == '"')
+					inString = false;
+				else if(c == '\\')
+					pos++;
+			} else {
+				pos = Swar.indexOfStructural(this.words, pos, to);
+				if(pos >= to)
+					break;
+				switch(this.byteAt(pos)){
+					case '"':
+						inString = true;
+						break;
+					case '{':
+					case '[':
+						depth++;
+						break;
+					case '}':
+					case ']':
+						min = Math.min(min, --depth);
+						break;
+				}
+			}
+			pos++;
+		}
+		return new Scan(inString, depth, min);
+	}
+
+	/**
+	 * Возвращает байт по абсолютному индексу как беззнаковое число
+	 */
+	private int byteAt(int index){
+		return this.raw.get(index) & 0xFF;
+	}
+
+	/**
+	 * Проверяет, является ли переданный байт пробельным символом
+	 */
+	private static boolean isWhitespace(int c){
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\0';
+	}
+
+	/**
+	 * Результат сканирования участка
+	 */
+	private static final class Scan{
+
+		/** Заканчивается ли участок внутри строки */
+		final boolean inString;
+		/** Изменение глубины вложенности за участок */
+		final int depth;
+		/** Минимальная глубина вложенности относительно начала участка */
+		final int min;
+
+		Scan(boolean inString, int depth, int min){
+			this.inString = inString;
+			this.depth = depth;
+			this.min = min;
+		}
+	}
+}
@@ -1,455 +1,347 @@
 package common.json;
 
 import java.text.ParseException;
+import java.util.Arrays;
 
 /**
  * Разбирает входную строку JSON-данных в структуры {@code JSONList} или {@code JSONObject}.
- * При этом если есть вложенные структуры, то парсер разбирает их рекурсивно.
- * Разбор происходит посимвольно
+ * Разбор происходит за один линейный проход по строке без рекурсии: вложенные структуры
+ * хранятся в явном стеке контейнеров, поэтому глубина вложенности ограничена только памятью,
+ * а не стеком вызовов. Экземпляр можно переиспользовать для других строк через {@link #reset(String)}:
+ * стек контейнеров и буфер строк сохраняются между разборами, поэтому разбор множества
+ * небольших сообщений одним экземпляром почти не создаёт мусора кроме самих значений.
+ * Для многопоточного переиспользования предназначен {@link ParserPool}
  */
-public class Parser{
+public class Parser extends TextScanner{
 
-	/** Позиция курсора до начала данных (до [ или до {) */
-	private static final byte C_START = 0;
-	/** Позиция курсора до начала имени ключа (если строка это объект) */
-	private static final byte C_BEFORE_KEY = 1;
-	/** Позиция курсора внутри имени ключа (если строка это объект) */
-	private static final byte C_KEY = 2;
-	/** Позиция курсора после имени ключа (если строка это объект) */
-	private static final byte C_AFTER_KEY = 3;
-	/** Позиция курсора перед значением */
-	private static final byte C_BEFORE_VALUE = 4;
-	/** Позиция курсора внутри значениея */
-	private static final byte C_VALUE = 5;
-	/** Позиция курсора после значения */
-	private static final byte C_AFTER_VALUE = 6;
-	/** Позиция курсора после окончания данных (после ] или }) */
-	private static final byte C_END = 7;
+	/** Начальная ёмкость стека контейнеров */
+	private static final int STACK_CAPACITY = 16;
+	/** Ёмкость стека контейнеров, сверх которой он не сохраняется для следующего разбора */
+	private static final int STACK_LIMIT = 1 << 10;
+	/** Ёмкость буфера строк, сверх которой он не сохраняется для следующего разбора */
+	private static final int BUFFER_LIMIT = 1 << 16;
 
-	/** Ключевое слово {@code null} которое не оборачивается в кавычки в JSON-структуре */
-	private static final String KEYWORD_NULL = "null";
-	/** Ключевое слово {@code true} которое не оборачивается в кавычки в JSON-структуре */
-	private static final String KEYWORD_TRUE = "true";
-	/** Ключевое слово {@code false} которое не оборачивается в кавычки в JSON-структуре */
-	private static final String KEYWORD_FALSE = "false";
-
-	/** Первоначальная строка данных */
-	public final String raw;
-
-	/** Позиция курсора */
-	private int pos = 0;
-	/** Объект в который записываются входные данные */
-	private JSONComplex data;
-	/** Статус курсора (внутри данных, вне и т.д.) */
-	private byte cursor = C_START;
+	/** Стек открытых на данный момент контейнеров. Вершина стека - {@code stack[depth - 1]} */
+	private JSONComplex[] stack = new JSONComplex[STACK_CAPACITY];
 	/** Глубина вложенных JSON-структур */
 	private int depth = 0;
-	/** Строковое представление текущего ключа (если парсится объект) */
-	private StringBuilder currentKey = new StringBuilder();
-	/** Строковое представление текущего значения */
-	private StringBuilder currentValue = new StringBuilder();
-	/** Тип текущего значения */
-	private JSONType currentType = null;
+	/** Таблица канонических ключей или {@code null}, если ключи не кешируются */
+	private KeyCache keys;
+	/** Дерево форм объектов или {@code null}, если объекты создаются с {@code LinkedHashMap} */
+	private Shapes shapes;
+	/**
+	 * Общий для всех строк буфер для строк, содержащих экранированные последовательности.
+	 * Это не арена символов: строки без экранирования копируются из входной строки
+	 * через {@code substring}, а каждая готовая строка получает собственный массив
+	 */
+	private StringBuilder buffer = new StringBuilder();
 
 	/**
 	 * Создаёт экземпляр парсера
 	 * @param data Валидная JSON-строка данных
 	 */
 	public Parser(String data){
-		this.raw = data;
+		super(data);
 	}
 
 	/**
-	 * Начинает разбор JSON-строки
-	 * @return Один из объектов {@code JSONList} или {@JSONObject}
-	 * @throws ParseException Если входная строка оказалась невалидной
+	 * Создаёт экземпляр парсера без данных. Строка для разбора задаётся методом {@link #reset(String)}
 	 */
-	public JSONComplex parse() throws ParseException {
-		for(char c : this.raw.toCharArray()){
-			switch(this.cursor){
-				case C_START:
-					this.checkStart(c);
-					// System.out.println("C_START");
-					break;
-				case C_BEFORE_KEY:
-					this.checkBeforeKey(c);
-					// System.out.println("C_BEFORE_KEY");
-					break;
-				case C_KEY:
-					this.recordKey(c);
-					// System.out.println("C_KEY");
-					break;
-				case C_AFTER_KEY:
-					this.checkAfterKey(c);
-					// System.out.println("C_AFTER_KEY");
-					break;
-				case C_BEFORE_VALUE:
-					this.checkBeforeValue(c);
-					// System.out.println("C_BEFORE_VALUE");
-					break;
-				case C_VALUE:
-					this.verifyValue(c);
-					// System.out.println("C_VALUE");
-					break;
-				case C_AFTER_VALUE:
-					this.checkAfterValue(c);
-					// System.out.println("C_AFTER_VALUE");
-					break;
-				case C_END:
-					this.checkEnd(c);
-					// System.out.println("C_END");
-					break;
-				}
-			this.pos++;
-		}
-		if(this.cursor == C_START)
-			throw new ParseException("Empty string", this.pos);
-		if(this.cursor != C_END)
-			throw new ParseException("Unexpected end of input. Expected " + (this.data.getType() == JSONType.LIST ? ']' : '}'), this.pos);
-		this.pos = 0;
-		this.cursor = C_START;
-		return this.data;
+	public Parser(){
+		this("");
 	}
 
 	/**
-	 * Проверяет начало данных, до появления открывающих скобок.
-	 * Метод используется только в самом начале парсинга вне зависимости от вложенности структуры
-	 * Метод ожидает одной из открывающих скобок [ или {
-	 * @param c Проверяемый символ
-	 * @throws ParseException Если встретился любой символ отличный от открывающих скобок
+	 * Возвращает разбираемую строку данных
 	 */
-	private void checkStart(char c) throws ParseException {
-		if(isWhitespace(c))
-			return;
-		if(c != '[' && c != '{')
-			this.throwException(c, "Expected open brace");
-		if(c == '['){
-			this.cursor = C_BEFORE_VALUE;
-			this.data = new JSONList();
-		} else {
-			this.cursor = C_BEFORE_KEY;
-			this.data = new JSONObject();
-		}
+	public String getRaw(){
+		return this.raw;
 	}
 
 	/**
-	 * Проверяет символы после запятой или открывающей скобки на наличие начала имени ключа.
-	 * Используется метод только при разборе объектов (т.е. если курсор находится внутри объекта).
-	 * При этом метод ожидает либо двойную кавычку (начало имени ключа),
-	 * либо закрывающую фигурную скобку, что означает что курсор находится внутри пустого объекта.
-	 * @param c Проверяемый символ
-	 * @throws ParseException Если какое-либо из условий описанных выше не соблюдается
+	 * Подготавливает парсер к разбору другой строки. Настройки, стек контейнеров и буфер строк
+	 * сохраняются, если они не выросли слишком сильно при разборе предыдущих строк
+	 * @param data Валидная JSON-строка данных
+	 * @return Этот же парсер
 	 */
-	private void checkBeforeKey(char c) throws ParseException {
-		if(isWhitespace(c))
-			return;
-		if(c == '"'){
-			this.cursor = C_KEY;
-		} else {
-			boolean isEmpty = this.data.getType() == JSONType.OBJECT && c == '}' && this.data.size() == 0;
-			if(isEmpty){
-				this.cursor = C_END;
-			} else {
-				this.throwException(c, "Expected double quote or closing brace");
-			}
-		}
+	public Parser reset(String data){
+		this.raw = data;
+		this.pos = 0;
+		Arrays.fill(this.stack, 0, this.depth, null);
+		this.depth = 0;
+		if(this.stack.length > STACK_LIMIT)
+			this.stack = new JSONComplex[STACK_CAPACITY];
+		if(this.buffer.capacity() > BUFFER_LIMIT)
+			this.buffer = new StringBuilder();
+		else
+			this.buffer.setLength(0);
+		return this;
 	}
 
 	/**
-	 * Посимвольно записывает имя ключа в объекте.
-	 * Вызывается только если курсор находится в объекте
-	 * @param c Символ, добавляемый к имени ключа
+	 * Разбирает другую строку этим же парсером
+	 * @param data Валидная JSON-строка данных
+	 * @return Один из объектов {@code JSONList} или {@code JSONObject}
+	 * @throws ParseException Если входная строка оказалась невалидной
+	 * @see #reset(String)
 	 */
-	private void recordKey(char c){
-		if(c == '"')
-			this.cursor = C_AFTER_KEY;
-		else
-			this.currentKey.append(c);
+	public JSONComplex parse(String data) throws ParseException {
+		return this.reset(data).parse();
 	}
 
 	/**
-	 * Посимвольно записывает значения хранящиеся в структуре
-	 * @param c Символы значения
-	 * @throws ParseException Если значения неккоректны
+	 * Включает кеширование ключей объектов. Одну таблицу можно передать нескольким парсерам,
+	 * чтобы одинаковые ключи всех разобранных документов ссылались на одни и те же строки
+	 * @param keys Таблица канонических ключей или {@code null}, чтобы отключить кеширование
+	 * @return Этот же парсер
 	 */
-	private void recordValue(char c) throws ParseException {
-		switch(this.currentType){
-			case NULL:
-			case BOOLEAN:
-				this.currentValue.append(c);
-				String value = this.currentValue.toString();
-				String keyword;
-				char first = this.currentValue.charAt(0);
-				if(first == 'n')
-					keyword = KEYWORD_NULL;
-				else if(first == 't')
-					keyword = KEYWORD_TRUE;
-				else
-					keyword = KEYWORD_FALSE;
-
-				if(keyword.equals(value))
-					this.submitValue();
-				else if(!keyword.startsWith(value))
-					this.throwException(c, "Expected " + keyword + " value");
-				break;
-			case NUMBER:
-				if(isDigit(c)){
-					this.currentValue.append(c);
-				} else if(isWhitespace(c)){
-					if(this.currentValue.charAt(this.currentValue.length() - 1) != '.')
-						this.submitValue();
-					else
-						this.throwException(c, "Expected digit token");
-				} else {
-					switch(c){
-						case '.':
-							if(this.currentValue.indexOf(".") < 0)
-								this.currentValue.append(c);
-							else
-								this.throwException(c, "There is more than one decimal point in number");
-							break;
-						case ',':
-							if(this.currentValue.charAt(this.currentValue.length() - 1) != '.'){
-								this.submitValue();
-								if(this.data.getType() == JSONType.LIST)
-									this.cursor = C_BEFORE_VALUE;
-								else
-									this.cursor = C_BEFORE_KEY;
-							} else {
-								this.throwException(c, "Expected digit token");
-							}
-							break;
-						case ']':
-						case '}':
-							this.submitValue();
-							this.cursor = C_END;
-							break;
-						default:
-							this.throwException(c);
-					}
-				}
-				break;
-			case STRING:
-				if(c == '"')
-					this.submitValue();
-				else
-					this.currentValue.append(c);
-				break;
-			// TODO
-			// Ошибки, если встретится структура вида "{key: {keyInner: "value}Inner"}}" или подобная,
-			// т.к. парсер обрабатывает вложенные структуры рекурсивно
-			// Убрать в таком случае рекурсию и сделать парсинг линейным
-			case LIST:
-				this.currentValue.append(c);
-				if(c == '[')
-					this.depth++;
-				else if(c == ']')
-					this.depth--;
-				if(this.depth == 0)
-					this.submitValue();
-				break;
-			case OBJECT:
-				this.currentValue.append(c);
-				if(c == '{')
-					this.depth++;
-				else if(c == '}')
-					this.depth--;
-				if(this.depth == 0)
-					this.submitValue();
-				break;
-		}
+	public Parser setKeyCache(KeyCache keys){
+		this.keys = keys;
+		return this;
 	}
 
 	/**
-	 * Проверяет все символы идущие после имени ключа
-	 * Метод ожидает найти двоеточие. Вызвается только если курсор находится внутри объекта
-	 * @param c Проверяемый символ
-	 * @throws ParseException Если встретился символ отличный от пробельных или двоеточия
+	 * Включает компактное представление объектов. Объекты с одинаковыми ключами в одинаковом порядке
+	 * будут делить общую форму из переданного дерева и хранить только массивы значений
+	 * @param shapes Дерево форм или {@code null}, чтобы создавать объекты с {@code LinkedHashMap}
+	 * @return Этот же парсер
 	 */
-	private void checkAfterKey(char c) throws ParseException{
-		if(isWhitespace(c))
-			return;
-		else if(c == ':')
-			this.cursor = C_BEFORE_VALUE;
-		else
-			this.throwException(c, "Expected semicolon");
+	public Parser setShapes(Shapes shapes){
+		this.shapes = shapes;
+		return this;
 	}
 
 	/**
-	 * Проверяет все символы до начала первого символа, представляющего значение
-	 * Ожидает любой токен который может представлять из себя значение, либо закрывающую
-	 * квадратную скобку, что означает что курсор находится внутри пустого списка
-	 * @param c Проверяемый символы
-	 * @throws ParseException Если какое-либо из условий описанных выше не соблюдается
+	 * Начинает разбор JSON-строки
+	 * @return Один из объектов {@code JSONList} или {@code JSONObject}
+	 * @throws ParseException Если входная строка оказалась невалидной
 	 */
-	private void checkBeforeValue(char c) throws ParseException {
-		if(isWhitespace(c))
-			return;
-		boolean isEmptyList = this.data.getType() == JSONType.LIST && c == ']' && this.data.size() == 0;
-		if(isEmptyList){
-			this.cursor = C_END;
-		} else if(c != ',') {
-			this.cursor = C_VALUE;
-			this.verifyValue(c);
-		} else {
-			this.throwException(c, "Expected value token or closing brace");
+	public JSONComplex parse() throws ParseException {
+		this.pos = 0;
+		this.depth = 0;
+		this.skipWhitespace();
+		if(this.pos == this.raw.length())
+			throw new ParseException("Empty string", this.pos);
+		char c = this.raw.charAt(this.pos);
+		if(c != '[' && c != '{')
+			this.throwException(c, "Expected open brace");
+		JSONComplex root = this.open(c);
+		try {
+			this.parseContents();
+		} finally {
+			Arrays.fill(this.stack, 0, this.depth, null);
 		}
+		this.skipWhitespace();
+		if(this.pos < this.raw.length())
+			this.throwException(this.raw.charAt(this.pos), "There should be no characters after data ending except for spaces");
+		return root;
 	}
 
 	/**
-	 * Проверяет на корректность все символы входящие в значение.
-	 * При этом, если идет самый первый символ в значении, то по нему определяется тип значения.
-	 * @param c Проверяемый символ
-	 * @throws ParseException Если значение указано некорректно
+	 * Разбирает содержимое корневого контейнера, открытого методом {@link #open(char)}.
+	 * Каждая итерация внешнего цикла начинается сразу после открывающей скобки или запятой
+	 * @throws ParseException Если входная строка оказалась невалидной
 	 */
-	private void verifyValue(char c) throws ParseException{
-		if(this.currentType == null){
-			this.guessType(c);
-			if(this.currentType == JSONType.STRING)
+	private void parseContents() throws ParseException {
+		boolean first = true;
+		while(true){
+			JSONComplex top = this.stack[this.depth - 1];
+			boolean isObject = top.getType() == JSONType.OBJECT;
+			char c = this.nextToken();
+			if(first && c == (isObject ? '}' : ']')){
+				this.pos++;
+				this.stack[--this.depth] = null;
+			} else {
+				String key = null;
+				if(isObject){
+					if(c != '"')
+						this.throwException(c, "Expected double quote or closing brace");
+					key = this.readString(true);
+					c = this.nextToken();
+					if(c != ':')
+						this.throwException(c, "Expected colon");
+					this.pos++;
+					c = this.nextToken();
+				}
+				if(c == '{' || c == '['){
+					top.add(key, this.open(c));
+					first = true;
+					continue;
+				}
+				top.add(key, this.readScalar(c));
+			}
+			if(this.closeContainers())
 				return;
+			first = false;
 		}
-		this.recordValue(c);
 	}
 
 	/**
-	 * Проверяет все символы после удачной записи очередной пары ключ-значение
-	 * Метод ожидает либо запятую, либо закрывающую скобку
-	 * @param c Проверяемый символ
-	 * @throws ParseException Если ни одно из вышеперечисленных условий не соблюлось
+	 * Проверяет символы после очередного значения: закрывает завершившиеся контейнеры
+	 * и останавливается на запятой
+	 * @return {@code true} если был закрыт корневой контейнер
+	 * @throws ParseException Если встретилось что-то кроме запятой или закрывающей скобки
 	 */
-	private void checkAfterValue(char c) throws ParseException {
-		if(isWhitespace(c)){
-			return;
-		} else if(c == ','){
-			if(this.data.getType() == JSONType.LIST)
-				this.cursor = C_BEFORE_VALUE;
-			else
-				this.cursor = C_BEFORE_KEY;
-		} else if(c == ']'){
-			if(this.data.getType() == JSONType.OBJECT)
-				this.throwException(c, "Wrong closing bracket for object json type");
-			this.cursor = C_END;
-		} else if(c == '}') {
-			if(this.data.getType() == JSONType.LIST)
-				this.throwException(c, "Wrong closing bracket for list json type");
-			this.cursor = C_END;
-		} else {
-			this.throwException(c, "Expected comma or closing bracket");
+	private boolean closeContainers() throws ParseException {
+		while(this.depth > 0){
+			char c = this.nextToken();
+			JSONComplex top = this.stack[this.depth - 1];
+			if(c == ','){
+				this.pos++;
+				return false;
+			} else if(c == ']'){
+				if(top.getType() == JSONType.OBJECT)
+					this.throwException(c, "Wrong closing bracket for object json type");
+			} else if(c == '}'){
+				if(top.getType() == JSONType.LIST)
+					this.throwException(c, "Wrong closing bracket for list json type");
+			} else {
+				this.throwException(c, "Expected comma or closing bracket");
+			}
+			this.stack[--this.depth] = null;
+			this.pos++;
 		}
+		return true;
 	}
-	
+
 	/**
-	 * Проверяет все символы после окончания потока данных
-	 * @param c Проверяемый символ
-	 * @throws ParseException Если встретился любой символ отличный от пробельных
+	 * Создаёт новый контейнер по открывающей скобке и кладёт его на вершину стека
+	 * @param c Открывающая скобка [ или {
+	 * @return Созданный контейнер
 	 */
-	private void checkEnd(char c) throws ParseException {
-		if(isWhitespace(c))
-			return;
-		this.throwException(c, "There should be no characters after data ending except for spaces");
+	private JSONComplex open(char c){
+		JSONComplex container = c == '[' ? new JSONList() : this.shapes == null ? new JSONObject() : this.shapes.newObject();
+		if(this.depth == this.stack.length)
+			this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+		this.stack[this.depth++] = container;
+		this.pos++;
+		return container;
 	}
 
 	/**
-	 * Записывает очередную пару ключ-значение (или только значение) в
-	 * поле {@code data}, когда записался последний символ значения.
-	 * Это значит что ошибок до этого в разборе никаких не было.
-	 * При этом перед записью значение конвертируется в конкретный тип {@code JSONEntity}
-	 * @throws ParseException Если возникли ошибки внутри вложенных структур при рекурсивном разборе
+	 * Считывает скалярное значение (строку, число или ключевое слово), начинающееся с текущей позиции
+	 * @param c Первый символ значения
+	 * @return Разобранное значение. {@code null} для ключевого слова {@code null}
+	 * @throws ParseException Если значение указано некорректно
 	 */
-	private void submitValue() throws ParseException{
-		String key = this.currentKey.toString();
-		String value = this.currentValue.toString();
-		switch(this.currentType){
-			case NULL:
-				this.data.add(key, null);
-				break;
-			case BOOLEAN:
-				this.data.add(key, new JSONBoolean(value));
-				break;
-			case NUMBER:
-				this.data.add(key, new JSONNumber(value));
-				break;
-			case STRING:
-				this.data.add(key, new JSONString(value));
-				break;
-			case LIST:
-				this.data.add(key, (JSONList) new Parser(value).parse());
-				break;
-			case OBJECT:
-				this.data.add(key, (JSONObject) new Parser(value).parse());
-				break;
+	private JSONEntity readScalar(char c) throws ParseException {
+		switch(c){
+			case '"':
+				return new JSONString(this.readString(false));
+			case 't':
+				this.readKeyword(KEYWORD_TRUE);
+				return JSONBoolean.TRUE;
+			case 'f':
+				this.readKeyword(KEYWORD_FALSE);
+				return JSONBoolean.FALSE;
+			case 'n':
+				this.readKeyword(KEYWORD_NULL);
+				return null;
+			default:
+				if(c == '-' || isDigit(c))
+					return NumberParser.parse(this.raw, this.pos, this.readNumber());
+				this.throwException(c, "Unknown value type");
+				return null;
 		}
-		this.currentType = null;
-		this.currentKey.delete(0, this.currentKey.length());
-		this.currentValue.delete(0, this.currentValue.length());
-		this.cursor = C_AFTER_VALUE;
 	}
 
 	/**
-	 * Бросает ошибку парсинга со стандартным текстом
-	 * @param c Символ на котором произошла ошибка
+	 * Считывает строку, начинающуюся с двойной кавычки в текущей позиции.
+	 * Если строка не содержит экранированных последовательностей, то она
+	 * вырезается из исходной строки без промежуточного буфера
+	 * @param key Является ли строка ключом объекта
+	 * @return Значение строки без кавычек
+	 * @throws ParseException Если строка не закрыта или содержит неверные экранированные последовательности
 	 */
-	private void throwException(char c) throws ParseException {
-		throw new ParseException("Unexpected token \"" + c + "\" at position " + this.pos, this.pos);
-	}
-	
-	/**
-	 * Бросает ошибку парсинга со стандартным текстом
-	 * @param c Символ на котором произошла ошибка
-	 * @param additional Дополнительная информация об ошибке
-	 */
-	private void throwException(char c, String additional) throws ParseException {
-		throw new ParseException("Unexpected token \"" + c + "\" at position " + this.pos + ". " + additional, this.pos);
+	private String readString(boolean key) throws ParseException {
+		int start = ++this.pos;
+		int length = this.raw.length();
+		for(int i = start; i < length; i++){
+			char c = this.raw.charAt(i);
+			if(c == '"'){
+				this.pos = i + 1;
+				return key && this.keys != null ? this.keys.intern(this.raw, start, i) : this.raw.substring(start, i);
+			}
+			if(c == '\\'){
+				this.buffer.setLength(0);
+				this.buffer.append(this.raw, start, i);
+				this.pos = i;
+				return this.readEscapedString(key);
+			}
+			if(c < ' '){
+				this.pos = i;
+				this.throwException(c, "Unescaped control character in string");
+			}
+		}
+		this.pos = length;
+		throw new ParseException("Unexpected end of input. Expected closing double quote", this.pos);
 	}
 
 	/**
-	 * Пытается угадать тип значения по первому символу.
-	 * При этом всегда вызывается только при значении курсора равном {@code C_VALUE}
-	 * и только при обнаружении первого символа.
-	 * @param c Символ, с помощью которого производится попытка угадать тип значения
-	 * @throws ParseException Если не удаётся определить тип значения
+	 * Возвращает ключ, собранный в буфере
+	 * @param buffer Буфер с ключом
+	 * @return Канонический ключ, если включено кеширование, иначе новая строка
 	 */
-	private void guessType(char c) throws ParseException {
-		switch(c){
-			case 'n':
-				this.currentType = JSONType.NULL;
-				break;
-			case 't':
-			case 'f':
-				this.currentType = JSONType.BOOLEAN;
-				break;
-			case '"':
-				this.currentType = JSONType.STRING;
-				break;
-			case '{':
-				this.currentType = JSONType.OBJECT;
-				break;
-			case '[':
-				this.currentType = JSONType.LIST;
-				break;
-			default:
-				if(isDigit(c) && c != '0')
-					this.currentType = JSONType.NUMBER;
-				else
-					this.throwException(c, "Unknown value type");
-		}
+	private String key(StringBuilder buffer){
+		return this.keys == null ? buffer.toString() : this.keys.intern(buffer, 0, buffer.length());
 	}
 
 	/**
-	 * Проверяет, является ли переданный символ пробельным
-	 * @param c Проверяемый символ
-	 * @return {@code true} если символ пробельный
+	 * Дочитывает строку, содержащую экранированные последовательности, в буфер
+	 * @param key Является ли строка ключом объекта
+	 * @return Значение строки без кавычек
+	 * @throws ParseException Если строка не закрыта или содержит неверные экранированные последовательности
 	 */
-	private static boolean isWhitespace(char c){
-		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\0';
+	private String readEscapedString(boolean key) throws ParseException {
+		int length = this.raw.length();
+		while(this.pos < length){
+			char c = this.raw.charAt(this.pos++);
+			if(c == '"')
+				return key ? this.key(this.buffer) : this.buffer.toString();
+			if(c == '\\'){
+				if(this.pos == length)
+					break;
+				c = this.raw.charAt(this.pos);
+				switch(c){
+					case '"':
+					case '\\':
+					case '/':
+						this.buffer.append(c);
+						break;
+					case 'b':
+						this.buffer.append('\b');
+						break;
+					case 'f':
+						this.buffer.append('\f');
+						break;
+					case 'n':
+						this.buffer.append('\n');
+						break;
+					case 'r':
+						this.buffer.append('\r');
+						break;
+					case 't':
+						this.buffer.append('\t');
+						break;
+					case 'u':
+						this.buffer.append(this.readUnicode());
+						break;
+					default:
+						this.throwException(c, "Unknown escape sequence");
+				}
+				this.pos++;
+			} else if(c < ' '){
+				this.pos--;
+				this.throwException(c, "Unescaped control character in string");
+			} else {
+				this.buffer.append(c);
+			}
+		}
+		throw new ParseException("Unexpected end of input. Expected closing double quote", this.pos);
 	}
 
-	/**
-	 * Проверяет, является ли переданный символ числом от 0 до 9
-	 * @param c Проверяемый символ
-	 * @return {@code true} если символ это число
-	 */
-	private static boolean isDigit(char c){
-		return '0' <= c && c <= '9';
+	@Override
+	char closing(){
+		return this.stack[this.depth - 1].getType() == JSONType.LIST ? ']' : '}';
 	}
-}
\ No newline at end of file
+}
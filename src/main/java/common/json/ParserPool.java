@@ -0,0 +1,57 @@
+package common.json;
+
+import java.text.ParseException;
+
+/**
+ * Пул парсеров {@link Parser}, по одному на поток. Каждый поток переиспользует свой парсер
+ * со стеком контейнеров и буфером строк, поэтому разбор потока небольших сообщений
+ * не создаёт новых парсеров. Таблица ключей и дерево форм общие для всех потоков.
+ * Пул потокобезопасен
+ */
+public final class ParserPool{
+
+	/** Таблица канонических ключей или {@code null} */
+	private final KeyCache keys;
+	/** Дерево форм объектов или {@code null} */
+	private final Shapes shapes;
+	/** Парсеры потоков */
+	private final ThreadLocal<Parser> parsers = ThreadLocal.withInitial(this::create);
+
+	/**
+	 * Создаёт пул парсеров без кеширования ключей и компактных объектов
+	 */
+	public ParserPool(){
+		this(null, null);
+	}
+
+	/**
+	 * Создаёт пул парсеров
+	 * @param keys Таблица канонических ключей или {@code null}, чтобы не кешировать ключи
+	 * @param shapes Дерево форм или {@code null}, чтобы создавать объекты с {@code LinkedHashMap}
+	 * @see Parser#setKeyCache(KeyCache)
+	 * @see Parser#setShapes(Shapes)
+	 */
+	public ParserPool(KeyCache keys, Shapes shapes){
+		this.keys = keys;
+		this.shapes = shapes;
+	}
+
+	/**
+	 * Разбирает строку парсером текущего потока. После разбора парсер не хранит ссылку на строку
+	 * @param data Валидная JSON-строка данных
+	 * @return Один из объектов {@code JSONList} или {@code JSONObject}
+	 * @throws ParseException Если входная строка оказалась невалидной
+	 */
+	public JSONComplex parse(String data) throws ParseException {
+		Parser parser = this.parsers.get();
+		try {
+			return parser.parse(data);
+		} finally {
+			parser.reset("");
+		}
+	}
+
+	private Parser create(){
+		return new Parser().setKeyCache(this.keys).setShapes(this.shapes);
+	}
+}
@@ -0,0 +1,208 @@
+package common.json;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Операции над неизменяемыми структурами {@link PersistentObject} и {@link PersistentList}.
+ * Изменение по пути копирует только цепочку структур от корня до изменённого значения
+ * и пути внутри каждой из них, все остальные ветви общие для старой и новой версий.
+ * Путь задаётся ключами {@code String} для объектов и индексами {@code Integer} для списков
+ */
+public final class Persistent{
+
+	private Persistent(){}
+
+	/**
+	 * Создаёт неизменяемую копию структуры без рекурсии. Неизменяемые значения, в том числе
+	 * строки, числа, логические значения и уже неизменяемые структуры, используются без копирования
+	 * @param value Значение
+	 * @return Неизменяемое значение, равное переданному
+	 */
+	public static JSONEntity freeze(JSONEntity value){
+		if(!isMutable(value))
+			return value;
+		Deque<Frame> stack = new ArrayDeque<>();
+		stack.push(new Frame((JSONComplex) value));
+		while(true){
+			Frame top = stack.peek();
+			if(top.hasNext()){
+				JSONEntity child = top.next();
+				if(isMutable(child))
+					stack.push(new Frame((JSONComplex) child));
+				else
+					top.accept(child);
+				continue;
+			}
+			stack.pop();
+			JSONEntity result = top.build();
+			if(stack.isEmpty())
+				return result;
+			stack.peek().accept(result);
+		}
+	}
+
+	/**
+	 * Возвращает структуру, в которой по пути находится переданное значение. Последний ключ
+	 * пути может отсутствовать в объекте, а последний индекс может быть равен размеру списка,
+	 * тогда значение добавляется в конец
+	 * @param root Неизменяемая структура
+	 * @param value Новое значение, изменяемые структуры предварительно замораживаются
+	 * @param path Непустой путь из ключей и индексов
+	 * @return Новая структура
+	 * @throws IllegalArgumentException Если путь не существует
+	 */
+	public static JSONComplex with(JSONComplex root, JSONEntity value, Object... path){
+		JSONEntity[] spine = spine(root, path);
+		return rebuild(spine, path, path.length - 1, update(spine[path.length - 1], path, path.length - 1, freeze(value)));
+	}
+
+	/**
+	 * Возвращает структуру без значения по пути
+	 * @param root Неизменяемая структура
+	 * @param path Непустой путь из ключей и индексов
+	 * @return Новая структура или эта же, если ключа не было
+	 * @throws IllegalArgumentException Если путь не существует
+	 */
+	public static JSONComplex without(JSONComplex root, Object... path){
+		JSONEntity[] spine = spine(root, path);
+		int last = path.length - 1;
+		JSONEntity parent = spine[last];
+		JSONEntity result;
+		if(parent instanceof PersistentObject && path[last] instanceof String){
+			result = ((PersistentObject) parent).without((String) path[last]);
+		} else if(parent instanceof PersistentList && path[last] instanceof Integer){
+			int index = (Integer) path[last];
+			if(index < 0 || index >= ((PersistentList) parent).value.size())
+				throw new IllegalArgumentException("Path element " + last + ": Index " + index + " is out of bounds");
+			result = ((PersistentList) parent).remove(index);
+		} else {
+			throw unexpected(last, path[last]);
+		}
+		return rebuild(spine, path, last, result);
+	}
+
+	/**
+	 * Находит структуры на пути от корня до родителя последнего элемента пути
+	 */
+	private static JSONEntity[] spine(JSONComplex root, Object[] path){
+		if(path.length == 0)
+			throw new IllegalArgumentException("Path is empty");
+		JSONEntity[] result = new JSONEntity[path.length];
+		JSONEntity current = root;
+		for(int i = 0; i < path.length; i++){
+			result[i] = current;
+			if(i + 1 == path.length)
+				break;
+			if(current instanceof PersistentObject && path[i] instanceof String){
+				PersistentObject object = (PersistentObject) current;
+				if(!object.value.containsKey(path[i]))
+					throw new IllegalArgumentException("Path element " + i + ": Key \"" + path[i] + "\" does not exist");
+				current = object.get((String) path[i]);
+			} else if(current instanceof PersistentList && path[i] instanceof Integer){
+				int index = (Integer) path[i];
+				if(index < 0 || index >= ((PersistentList) current).value.size())
+					throw new IllegalArgumentException("Path element " + i + ": Index " + index + " is out of bounds");
+				current = ((PersistentList) current).get(index);
+			} else {
+				throw unexpected(i, path[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Заменяет дочерние значения структур на пути снизу вверх
+	 */
+	private static JSONComplex rebuild(JSONEntity[] spine, Object[] path, int last, JSONEntity value){
+		for(int i = last - 1; i >= 0; i--)
+			value = update(spine[i], path, i, value);
+		return (JSONComplex) value;
+	}
+
+	/**
+	 * Заменяет или добавляет одно дочернее значение структуры
+	 */
+	private static JSONEntity update(JSONEntity parent, Object[] path, int i, JSONEntity value){
+		if(parent instanceof PersistentObject && path[i] instanceof String)
+			return ((PersistentObject) parent).with((String) path[i], value);
+		if(parent instanceof PersistentList && path[i] instanceof Integer){
+			PersistentList list = (PersistentList) parent;
+			int index = (Integer) path[i];
+			if(index == list.value.size())
+				return list.plus(value);
+			if(index < 0 || index >= list.value.size())
+				throw new IllegalArgumentException("Path element " + i + ": Index " + index + " is out of bounds");
+			return list.get(index) == value ? list : list.with(index, value);
+		}
+		throw unexpected(i, path[i]);
+	}
+
+	private static IllegalArgumentException unexpected(int i, Object element){
+		return new IllegalArgumentException("Path element " + i + ": " + element + " does not match a persistent object key or list index");
+	}
+
+	/**
+	 * Проверяет, нужно ли замораживать значение
+	 */
+	private static boolean isMutable(JSONEntity value){
+		return value instanceof JSONComplex && !(value instanceof PersistentObject) && !(value instanceof PersistentList);
+	}
+
+	/**
+	 * Замораживаемая структура и уже замороженные дочерние значения
+	 */
+	private static final class Frame{
+
+		/** Пары ключ-значение объекта или {@code null} для списка */
+		private final Iterator<Map.Entry<String, JSONEntity>> entries;
+		/** Элементы списка или {@code null} для объекта */
+		private final Iterator<JSONEntity> elements;
+		/** Ключ значения, которое сейчас замораживается */
+		private String key;
+		/** Замороженные пары объекта */
+		private HashTrieMap map = HashTrieMap.EMPTY;
+		/** Замороженные элементы списка */
+		private Object[] items;
+		/** Количество замороженных элементов списка */
+		private int count = 0;
+
+		Frame(JSONComplex source){
+			if(source instanceof JSONObject){
+				this.entries = ((JSONObject) source).value.entrySet().iterator();
+				this.elements = null;
+			} else {
+				this.entries = null;
+				this.elements = ((JSONList) source).value.iterator();
+				this.items = new Object[((JSONList) source).value.size()];
+			}
+		}
+
+		boolean hasNext(){
+			return this.entries != null ? this.entries.hasNext() : this.elements.hasNext();
+		}
+
+		JSONEntity next(){
+			if(this.entries == null)
+				return this.elements.next();
+			Map.Entry<String, JSONEntity> entry = this.entries.next();
+			this.key = entry.getKey();
+			return entry.getValue();
+		}
+
+		void accept(JSONEntity value){
+			if(this.entries != null)
+				this.map = this.map.with(this.key, value);
+			else
+				this.items[this.count++] = value;
+		}
+
+		JSONComplex build(){
+			if(this.entries != null)
+				return PersistentObject.of(this.map);
+			return PersistentList.of(VectorTrie.of(this.items, this.count));
+		}
+	}
+}
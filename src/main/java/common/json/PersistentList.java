@@ -0,0 +1,104 @@
+package common.json;
+
+/**
+ * Неизменяемый JSON-список. Элементы хранятся в дереве с ветвлением 32, и методы
+ * {@link #with(int, JSONEntity)}, {@link #plus(JSONEntity)} и {@link #pop()} возвращают
+ * новый список, копируя только узлы на пути к элементу за O(log32 n). Старая версия
+ * не изменяется, поэтому ссылка на список сама по себе является снимком за O(1),
+ * а читать его можно из любых потоков без блокировок. Методы изменения {@link #value}
+ * выбрасывают {@code UnsupportedOperationException}. Элементы должны быть неизменяемыми,
+ * см. {@link Persistent#freeze(JSONEntity)}
+ */
+public final class PersistentList extends JSONList{
+
+	/** Пустой список */
+	public static final PersistentList EMPTY = new PersistentList(VectorTrie.EMPTY);
+
+	private PersistentList(VectorTrie elements){
+		super(elements);
+	}
+
+	/**
+	 * Создаёт список из элементов за O(n)
+	 * @param elements Неизменяемые элементы
+	 * @return Новый список
+	 */
+	public static PersistentList of(JSONEntity... elements){
+		return of(VectorTrie.of(elements, elements.length));
+	}
+
+	/**
+	 * Возвращает элемент по индексу
+	 * @param index Индекс элемента
+	 * @throws IndexOutOfBoundsException Если индекс выходит за пределы списка
+	 */
+	public JSONEntity get(int index){
+		return this.value.get(index);
+	}
+
+	/**
+	 * Возвращает список с заменённым элементом
+	 * @param index Индекс элемента
+	 * @param value Неизменяемое значение
+	 * @return Новый список
+	 * @throws IndexOutOfBoundsException Если индекс выходит за пределы списка
+	 */
+	public PersistentList with(int index, JSONEntity value){
+		return new PersistentList(this.elements().with(index, value));
+	}
+
+	/**
+	 * Возвращает список с элементом, добавленным в конец
+	 * @param value Неизменяемое значение
+	 * @return Новый список
+	 */
+	public PersistentList plus(JSONEntity value){
+		return new PersistentList(this.elements().plus(value));
+	}
+
+	/**
+	 * Возвращает список без последнего элемента
+	 * @return Новый список
+	 * @throws IllegalStateException Если список пуст
+	 */
+	public PersistentList pop(){
+		return of(this.elements().pop());
+	}
+
+	/**
+	 * Возвращает список со вставленным элементом. Вставка не в конец выполняется за O(n)
+	 * @param index Индекс нового элемента, от {@code 0} до размера списка
+	 * @param value Неизменяемое значение
+	 * @return Новый список
+	 * @throws IndexOutOfBoundsException Если индекс выходит за пределы списка
+	 */
+	public PersistentList insert(int index, JSONEntity value){
+		return new PersistentList(this.elements().insert(index, value));
+	}
+
+	/**
+	 * Возвращает список без элемента. Удаление не последнего элемента выполняется за O(n)
+	 * @param index Индекс удаляемого элемента
+	 * @return Новый список
+	 * @throws IndexOutOfBoundsException Если индекс выходит за пределы списка
+	 */
+	public PersistentList remove(int index){
+		return of(this.elements().delete(index));
+	}
+
+	@Override
+	protected void add(String key, JSONEntity value){
+		throw new UnsupportedOperationException("Persistent list is immutable");
+	}
+
+	private VectorTrie elements(){
+		return (VectorTrie) this.value;
+	}
+
+	/**
+	 * Создаёт список для дерева элементов
+	 */
+	static PersistentList of(VectorTrie elements){
+		return elements == VectorTrie.EMPTY ? EMPTY : new PersistentList(elements);
+	}
+}
@@ -0,0 +1,68 @@
+package common.json;
+
+/**
+ * Неизменяемый JSON-объект. Ключи хранятся в префиксном дереве хешей, и методы
+ * {@link #with(String, JSONEntity)} и {@link #without(String)} возвращают новый объект,
+ * копируя только узлы на пути к ключу за O(log32 n). Старая версия не изменяется,
+ * поэтому ссылка на объект сама по себе является снимком за O(1), а читать его можно
+ * из любых потоков без блокировок. Методы изменения {@link #value} выбрасывают
+ * {@code UnsupportedOperationException}. Порядок ключей определяется их хешами.
+ * Значения должны быть неизменяемыми, см. {@link Persistent#freeze(JSONEntity)}
+ */
+public final class PersistentObject extends JSONObject{
+
+	/** Пустой объект */
+	public static final PersistentObject EMPTY = new PersistentObject(HashTrieMap.EMPTY);
+
+	private PersistentObject(HashTrieMap map){
+		super(map);
+	}
+
+	/**
+	 * Возвращает значение ключа
+	 * @param key Ключ
+	 * @return Значение или {@code null}, если ключа нет или значение равно {@code null}
+	 */
+	public JSONEntity get(String key){
+		return this.value.get(key);
+	}
+
+	/**
+	 * Возвращает объект, в котором ключу соответствует переданное значение
+	 * @param key Ключ
+	 * @param value Неизменяемое значение, может быть {@code null}
+	 * @return Новый объект или этот же, если значение не изменилось
+	 */
+	public PersistentObject with(String key, JSONEntity value){
+		return wrap(this.map().with(key, value));
+	}
+
+	/**
+	 * Возвращает объект без переданного ключа
+	 * @param key Ключ
+	 * @return Новый объект или этот же, если ключа не было
+	 */
+	public PersistentObject without(String key){
+		return wrap(this.map().without(key));
+	}
+
+	@Override
+	protected void add(String key, JSONEntity value){
+		throw new UnsupportedOperationException("Persistent object is immutable");
+	}
+
+	private HashTrieMap map(){
+		return (HashTrieMap) this.value;
+	}
+
+	private PersistentObject wrap(HashTrieMap map){
+		return map == this.value ? this : of(map);
+	}
+
+	/**
+	 * Создаёт объект для отображения
+	 */
+	static PersistentObject of(HashTrieMap map){
+		return map == HashTrieMap.EMPTY ? EMPTY : new PersistentObject(map);
+	}
+}
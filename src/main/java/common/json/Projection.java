@@ -0,0 +1,92 @@
+package common.json;
+
+import java.util.Arrays;
+
+/**
+ * Набор путей ключей, которые нужно разобрать (см. {@link ByteParser#setProjection(Projection)}).
+ * Пути образуют префиксное дерево: каждый узел хранит имена ключей своего уровня, а ключ,
+ * на котором заканчивается путь, разбирается целиком со всем содержимым. Остальные ключи
+ * объекта пропускаются без создания значений. Списки прозрачны: путь применяется к каждому
+ * элементу списка, поэтому {@code "items.id"} выбирает поле {@code id} всех объектов списка
+ * {@code items}, а корнем может быть список записей. Ключи сравниваются с именами прямо
+ * в байтах входного буфера. Проекцию нужно заполнить до передачи парсерам, после этого
+ * её можно использовать из нескольких потоков одновременно
+ * <pre>
+ * Projection projection = Projection.of("id", "user.name", "tags");
+ * </pre>
+ */
+public final class Projection{
+
+	/** Корневой узел */
+	final Node root = new Node();
+
+	/**
+	 * Создаёт проекцию из путей, в которых ключи разделены точкой
+	 * @param paths Пути ключей, например {@code "user.address.city"}
+	 * @return Новая проекция
+	 */
+	public static Projection of(String... paths){
+		Projection result = new Projection();
+		for(String path : paths)
+			result.add(path.split("\\.", -1));
+		return result;
+	}
+
+	/**
+	 * Добавляет путь. Если путь продолжает уже добавленный более короткий путь,
+	 * то ничего не меняется: значение по короткому пути и так разбирается целиком
+	 * @param keys Ключи пути от корня. Могут содержать точки
+	 * @return Эта же проекция
+	 * @throws IllegalArgumentException Если путь пустой
+	 */
+	public Projection add(String... keys){
+		if(keys.length == 0)
+			throw new IllegalArgumentException("Key path must not be empty");
+		Node node = this.root;
+		for(int i = 0; i < keys.length - 1 && node != null; i++)
+			node = node.child(keys[i]);
+		if(node != null)
+			node.whole(keys[keys.length - 1]);
+		return this;
+	}
+
+	/**
+	 * Уровень дерева путей
+	 */
+	static final class Node{
+
+		/** Имена ключей уровня */
+		final NameTable names = new NameTable();
+		/** Узлы следующего уровня по номерам имён или {@code null} для ключей, значения которых разбираются целиком */
+		Node[] children = new Node[0];
+
+		/**
+		 * Возвращает узел следующего уровня, создавая его при необходимости
+		 * @return Узел или {@code null}, если значение ключа уже разбирается целиком
+		 */
+		private Node child(String name){
+			int i = this.names.indexOf(name);
+			if(i < 0)
+				i = this.append(name, new Node());
+			return this.children[i];
+		}
+
+		/**
+		 * Отмечает, что значение ключа разбирается целиком
+		 */
+		private void whole(String name){
+			int i = this.names.indexOf(name);
+			if(i < 0)
+				this.append(name, null);
+			else
+				this.children[i] = null;
+		}
+
+		private int append(String name, Node child){
+			int i = this.names.add(name);
+			this.children = Arrays.copyOf(this.children, i + 1);
+			this.children[i] = child;
+			return i;
+		}
+	}
+}
@@ -0,0 +1,728 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Неблокирующий инкрементальный парсер JSON-данных в кодировке UTF-8. Данные "проталкиваются"
+ * в парсер кусками произвольного размера методами {@code feed}, а токены передаются обработчику
+ * {@link Handler}, как только они полностью прочитаны. Кусок может заканчиваться где угодно:
+ * внутри строки, числа, ключевого слова, экранированной последовательности или многобайтового символа.
+ * Всё состояние хранится в самом объекте (стек областей видимости и текст незавершённого токена),
+ * поэтому парсер никогда не ждёт данных и подходит для неблокирующего ввода-вывода.
+ * Поток может содержать несколько документов подряд, например разделённых переводами строк.
+ * Число в конце потока завершается только вызовом {@link #end()}.
+ * Пример сборки документов из кусков:
+ * <pre>
+ * PushParser parser = PushParser.values(value -&gt; process(value));
+ * while((read = channel.read(buffer)) &gt; 0){
+ * 	buffer.flip();
+ * 	parser.feed(buffer);
+ * 	buffer.clear();
+ * }
+ * parser.end();
+ * </pre>
+ */
+public final class PushParser{
+
+	/** Область видимости: ожидается значение верхнего уровня */
+	private static final byte S_DOCUMENT = 0;
+	/** Область видимости: список без элементов */
+	private static final byte S_EMPTY_LIST = 1;
+	/** Область видимости: список после запятой */
+	private static final byte S_LIST_VALUE = 2;
+	/** Область видимости: список после значения */
+	private static final byte S_NONEMPTY_LIST = 3;
+	/** Область видимости: объект без ключей */
+	private static final byte S_EMPTY_OBJECT = 4;
+	/** Область видимости: объект после запятой */
+	private static final byte S_OBJECT_NAME = 5;
+	/** Область видимости: объект после имени ключа */
+	private static final byte S_DANGLING_NAME = 6;
+	/** Область видимости: объект после двоеточия */
+	private static final byte S_OBJECT_VALUE = 7;
+	/** Область видимости: объект после значения */
+	private static final byte S_NONEMPTY_OBJECT = 8;
+
+	/** Между токенами */
+	private static final byte L_NONE = 0;
+	/** Внутри строки */
+	private static final byte L_STRING = 1;
+	/** После обратной косой черты в строке */
+	private static final byte L_ESCAPE = 2;
+	/** Внутри последовательности {@code \\uXXXX} */
+	private static final byte L_UNICODE = 3;
+	/** Внутри числа */
+	private static final byte L_NUMBER = 4;
+	/** Внутри ключевого слова */
+	private static final byte L_KEYWORD = 5;
+	/** Поток завершён вызовом {@link #end()} */
+	private static final byte L_ENDED = 6;
+
+	/** Ключевое слово {@code null} которое не оборачивается в кавычки в JSON-структуре */
+	private static final String KEYWORD_NULL = "null";
+	/** Ключевое слово {@code true} которое не оборачивается в кавычки в JSON-структуре */
+	private static final String KEYWORD_TRUE = "true";
+	/** Ключевое слово {@code false} которое не оборачивается в кавычки в JSON-структуре */
+	private static final String KEYWORD_FALSE = "false";
+
+	/** Получатель токенов */
+	private final Handler handler;
+	/** Таблица канонических ключей или {@code null} */
+	private KeyCache keys;
+
+	/** Стек областей видимости */
+	private byte[] stack = new byte[32];
+	/** Глубина стека областей видимости */
+	private int depth = 0;
+	/** Состояние разбора текущего токена */
+	private byte lexer = L_NONE;
+	/** Является ли текущая строка именем ключа */
+	private boolean name;
+	/** Текст незавершённой строки или числа */
+	private final StringBuilder text = new StringBuilder();
+	/** Текущее ключевое слово */
+	private String keyword;
+	/** Количество прочитанных символов ключевого слова или шестнадцатеричных цифр */
+	private int count;
+	/** Количество ожидаемых байтов продолжения многобайтового символа */
+	private int pending;
+	/** Накопленный код символа */
+	private int code;
+	/** Минимальный код символа текущей многобайтовой последовательности */
+	private int min;
+
+	/** Текущий кусок данных */
+	private byte[] data;
+	/** Позиция курсора в текущем куске */
+	private int pos;
+	/** Индекс начала текущего куска */
+	private int base;
+	/** Количество байтов в предыдущих кусках */
+	private long offset = 0;
+	/** Промежуточный массив для буферов без доступного массива */
+	private byte[] scratch;
+
+	/**
+	 * Создаёт парсер, передающий токены обработчику
+	 * @param handler Получатель токенов
+	 */
+	public PushParser(Handler handler){
+		this.handler = handler;
+		this.stack[this.depth++] = S_DOCUMENT;
+	}
+
+	/**
+	 * Создаёт парсер, который собирает из токенов значения и передаёт потребителю каждое значение
+	 * верхнего уровня, как только оно завершено
+	 * @param consumer Потребитель значений. Для {@code null} верхнего уровня получает {@code null}
+	 * @return Парсер
+	 */
+	public static PushParser values(Consumer<? super JSONEntity> consumer){
+		return new PushParser(new TreeBuilder(consumer));
+	}
+
+	/**
+	 * Включает кеширование имён ключей
+	 * @param keys Таблица канонических ключей или {@code null}, чтобы отключить кеширование
+	 * @return Этот же парсер
+	 */
+	public PushParser setKeyCache(KeyCache keys){
+		this.keys = keys;
+		return this;
+	}
+
+	/**
+	 * Разбирает очередной кусок данных
+	 * @param data Массив с данными
+	 * @param offset Индекс начала куска
+	 * @param length Длина куска
+	 * @return Этот же парсер
+	 * @throws ParseException Если данные невалидны. После ошибки парсер использовать нельзя
+	 * @throws IllegalStateException Если поток уже завершён
+	 */
+	public PushParser feed(byte[] data, int offset, int length) throws ParseException {
+		if(this.lexer == L_ENDED)
+			throw new IllegalStateException("Input has already ended");
+		this.data = data;
+		this.base = offset;
+		this.pos = offset;
+		int end = offset + length;
+		try {
+			while(this.pos < end){
+				switch(this.lexer){
+					case L_STRING:
+						this.string(end);
+						break;
+					case L_ESCAPE:
+						this.escape(data[this.pos] & 0xFF);
+						break;
+					case L_UNICODE:
+						this.unicode(data[this.pos] & 0xFF);
+						break;
+					case L_NUMBER:
+						this.number(end);
+						break;
+					case L_KEYWORD:
+						this.keyword(data[this.pos] & 0xFF);
+						break;
+					default:
+						this.token(data[this.pos] & 0xFF);
+				}
+			}
+		} catch(Rejection ex){
+			throw this.exception(ex.getMessage());
+		} finally {
+			this.offset += this.pos - offset;
+			this.data = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Разбирает очередной кусок данных
+	 * @param data Данные
+	 * @return Этот же парсер
+	 * @throws ParseException Если данные невалидны
+	 */
+	public PushParser feed(byte[] data) throws ParseException {
+		return this.feed(data, 0, data.length);
+	}
+
+	/**
+	 * Разбирает байты буфера от позиции до лимита. Позиция буфера сдвигается до лимита
+	 * @param data Данные
+	 * @return Этот же парсер
+	 * @throws ParseException Если данные невалидны
+	 */
+	public PushParser feed(ByteBuffer data) throws ParseException {
+		if(data.hasArray()){
+			this.feed(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			data.position(data.limit());
+			return this;
+		}
+		if(this.scratch == null)
+			this.scratch = new byte[JSONReader.BUFFER_SIZE];
+		while(data.hasRemaining()){
+			int length = Math.min(data.remaining(), this.scratch.length);
+			data.get(this.scratch, 0, length);
+			this.feed(this.scratch, 0, length);
+		}
+		return this;
+	}
+
+	/**
+	 * Сообщает о конце данных: завершает число в конце потока и проверяет, что все структуры закрыты
+	 * @throws ParseException Если данные оборвались внутри токена или структуры
+	 */
+	public void end() throws ParseException {
+		if(this.lexer == L_ENDED)
+			return;
+		try {
+			if(this.lexer == L_NUMBER)
+				this.emitNumber();
+			if(this.lexer != L_NONE)
+				throw this.exception("Unexpected end of input. Expected " + (this.lexer == L_KEYWORD ? this.keyword + " value" : "closing double quote"));
+			if(this.depth > 1)
+				throw this.exception("Unexpected end of input. Expected " + (this.stack[this.depth - 1] <= S_NONEMPTY_LIST ? ']' : '}'));
+			this.lexer = L_ENDED;
+			this.handler.endDocument();
+		} catch(Rejection ex){
+			throw this.exception(ex.getMessage());
+		}
+	}
+
+	/**
+	 * Возвращает количество разобранных байтов
+	 * @return Позиция от начала потока
+	 */
+	public long getPosition(){
+		return this.data == null ? this.offset : this.offset + this.pos - this.base;
+	}
+
+	/**
+	 * Обрабатывает байт между токенами
+	 */
+	private void token(int c) throws ParseException {
+		if(c == ' ' || c == '\n' || c == '\t' || c == '\r'){
+			this.pos++;
+			return;
+		}
+		switch(this.stack[this.depth - 1]){
+			case S_EMPTY_LIST:
+				if(c == ']'){
+					this.close();
+					return;
+				}
+				this.value(c);
+				return;
+			case S_NONEMPTY_LIST:
+				if(c == ','){
+					this.stack[this.depth - 1] = S_LIST_VALUE;
+					this.pos++;
+				} else if(c == ']'){
+					this.close();
+				} else {
+					throw this.unexpected(c, "Expected comma or closing bracket");
+				}
+				return;
+			case S_EMPTY_OBJECT:
+			case S_OBJECT_NAME:
+				if(c == '}' && this.stack[this.depth - 1] == S_EMPTY_OBJECT){
+					this.close();
+					return;
+				}
+				if(c != '"')
+					throw this.unexpected(c, this.stack[this.depth - 1] == S_EMPTY_OBJECT ? "Expected double quote or closing brace" : "Expected double quote");
+				this.stack[this.depth - 1] = S_DANGLING_NAME;
+				this.startString(true);
+				return;
+			case S_DANGLING_NAME:
+				if(c != ':')
+					throw this.unexpected(c, "Expected colon");
+				this.stack[this.depth - 1] = S_OBJECT_VALUE;
+				this.pos++;
+				return;
+			case S_NONEMPTY_OBJECT:
+				if(c == ','){
+					this.stack[this.depth - 1] = S_OBJECT_NAME;
+					this.pos++;
+				} else if(c == '}'){
+					this.close();
+				} else {
+					throw this.unexpected(c, "Expected comma or closing bracket");
+				}
+				return;
+			default:
+				this.value(c);
+		}
+	}
+
+	/**
+	 * Начинает значение с заданного байта. Область видимости сразу переходит в состояние после значения
+	 */
+	private void value(int c) throws ParseException {
+		switch(c){
+			case '{':
+			case '[':
+			case '"':
+			case 't':
+			case 'f':
+			case 'n':
+				break;
+			default:
+				if(c != '-' && !isDigit(c))
+					throw this.unexpected(c, "Unknown value type");
+		}
+		byte scope = this.stack[this.depth - 1];
+		if(scope == S_EMPTY_LIST || scope == S_LIST_VALUE)
+			this.stack[this.depth - 1] = S_NONEMPTY_LIST;
+		else if(scope == S_OBJECT_VALUE)
+			this.stack[this.depth - 1] = S_NONEMPTY_OBJECT;
+		switch(c){
+			case '{':
+				this.push(S_EMPTY_OBJECT);
+				this.pos++;
+				this.handler.beginObject();
+				return;
+			case '[':
+				this.push(S_EMPTY_LIST);
+				this.pos++;
+				this.handler.beginList();
+				return;
+			case '"':
+				this.startString(false);
+				return;
+			case 't':
+				this.startKeyword(KEYWORD_TRUE);
+				return;
+			case 'f':
+				this.startKeyword(KEYWORD_FALSE);
+				return;
+			case 'n':
+				this.startKeyword(KEYWORD_NULL);
+				return;
+			default:
+				this.text.setLength(0);
+				this.text.append((char) c);
+				this.lexer = L_NUMBER;
+				this.pos++;
+		}
+	}
+
+	/**
+	 * Закрывает структуру на вершине стека
+	 */
+	private void close(){
+		boolean list = this.stack[--this.depth] <= S_NONEMPTY_LIST;
+		this.pos++;
+		if(list)
+			this.handler.endList();
+		else
+			this.handler.endObject();
+	}
+
+	/**
+	 * Кладёт область видимости на вершину стека
+	 */
+	private void push(byte scope){
+		if(this.depth == this.stack.length)
+			this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+		this.stack[this.depth++] = scope;
+	}
+
+	/**
+	 * Начинает строку после открывающей кавычки
+	 * @param name Является ли строка именем ключа
+	 */
+	private void startString(boolean name){
+		this.name = name;
+		this.text.setLength(0);
+		this.lexer = L_STRING;
+		this.pos++;
+	}
+
+	/**
+	 * Читает тело строки до конца куска, закрывающей кавычки или обратной косой черты.
+	 * Символы ASCII добавляются напрямую, многобайтовые символы собираются по байтам
+	 * @param end Индекс конца куска
+	 */
+	private void string(int end) throws ParseException {
+		byte[] data = this.data;
+		while(this.pos < end){
+			int c = data[this.pos] & 0xFF;
+			if(this.pending > 0){
+				if((c & 0xC0) != 0x80)
+					throw this.unexpected(c, "Invalid UTF-8 continuation byte");
+				this.code = this.code << 6 | c & 0x3F;
+				if(--this.pending == 0){
+					if(this.code < this.min || this.code > Character.MAX_CODE_POINT || Character.MIN_SURROGATE <= this.code && this.code <= Character.MAX_SURROGATE)
+						throw this.exception("Invalid UTF-8 sequence");
+					this.text.appendCodePoint(this.code);
+				}
+			} else if(c == '"'){
+				this.pos++;
+				this.lexer = L_NONE;
+				this.emitString();
+				return;
+			} else if(c == '\\'){
+				this.pos++;
+				this.lexer = L_ESCAPE;
+				return;
+			} else if(c < ' '){
+				throw this.unexpected(c, "Unescaped control character in string");
+			} else if(c < 0x80){
+				this.text.append((char) c);
+			} else if(c >= 0xC2 && c <= 0xDF){
+				this.begin(1, c & 0x1F, 0x80);
+			} else if(c >= 0xE0 && c <= 0xEF){
+				this.begin(2, c & 0x0F, 0x800);
+			} else if(c >= 0xF0 && c <= 0xF4){
+				this.begin(3, c & 0x07, 0x10000);
+			} else {
+				throw this.unexpected(c, "Invalid UTF-8 lead byte");
+			}
+			this.pos++;
+		}
+	}
+
+	/**
+	 * Начинает многобайтовый символ
+	 */
+	private void begin(int pending, int code, int min){
+		this.pending = pending;
+		this.code = code;
+		this.min = min;
+	}
+
+	/**
+	 * Раскрывает символ после обратной косой черты
+	 */
+	private void escape(int c) throws ParseException {
+		switch(c){
+			case '"':
+			case '\\':
+			case '/':
+				this.text.append((char) c);
+				break;
+			case 'b':
+				this.text.append('\b');
+				break;
+			case 'f':
+				this.text.append('\f');
+				break;
+			case 'n':
+				this.text.append('\n');
+				break;
+			case 'r':
+				this.text.append('\r');
+				break;
+			case 't':
+				this.text.append('\t');
+				break;
+			case 'u':
+				this.count = 0;
+				this.code = 0;
+				this.lexer = L_UNICODE;
+				this.pos++;
+				return;
+			default:
+				throw this.unexpected(c, "Unknown escape sequence");
+		}
+		this.lexer = L_STRING;
+		this.pos++;
+	}
+
+	/**
+	 * Читает очередную шестнадцатеричную цифру последовательности {@code \\uXXXX}
+	 */
+	private void unicode(int c) throws ParseException {
+		int digit = c < 0x80 ? Character.digit(c, 16) : -1;
+		if(digit < 0)
+			throw this.unexpected(c, "Expected hexadecimal digit");
+		this.code = this.code << 4 | digit;
+		if(++this.count == 4){
+			this.text.append((char) this.code);
+			this.lexer = L_STRING;
+		}
+		this.pos++;
+	}
+
+	/**
+	 * Передаёт обработчику прочитанную строку
+	 */
+	private void emitString(){
+		if(this.name)
+			this.handler.name(this.keys == null ? this.text.toString() : this.keys.intern(this.text, 0, this.text.length()));
+		else
+			this.handler.value(this.text.toString());
+	}
+
+	/**
+	 * Дописывает символы числа до конца куска или первого символа, который не может входить в число
+	 * @param end Индекс конца куска
+	 */
+	private void number(int end) throws ParseException {
+		byte[] data = this.data;
+		int start = this.pos;
+		while(this.pos < end && isNumberChar(data[this.pos]))
+			this.pos++;
+		for(int i = start; i < this.pos; i++)
+			this.text.append((char) data[i]);
+		if(this.pos < end)
+			this.emitNumber();
+	}
+
+	/**
+	 * Проверяет грамматику прочитанного числа и передаёт его обработчику
+	 */
+	private void emitNumber() throws ParseException {
+		JSONNumber number;
+		try {
+			number = NumberParser.parse(this.text, 0, this.text.length());
+		} catch(NumberFormatException ex){
+			throw this.exception(ex.getMessage());
+		}
+		this.lexer = L_NONE;
+		this.handler.value(number);
+	}
+
+	/**
+	 * Начинает ключевое слово с его первого символа
+	 */
+	private void startKeyword(String keyword){
+		this.keyword = keyword;
+		this.count = 1;
+		this.lexer = L_KEYWORD;
+		this.pos++;
+	}
+
+	/**
+	 * Проверяет очередной символ ключевого слова
+	 */
+	private void keyword(int c) throws ParseException {
+		if(c != this.keyword.charAt(this.count))
+			throw this.unexpected(c, "Expected " + this.keyword + " value");
+		this.pos++;
+		if(++this.count < this.keyword.length())
+			return;
+		this.lexer = L_NONE;
+		if(this.keyword == KEYWORD_NULL)
+			this.handler.nullValue();
+		else
+			this.handler.value(this.keyword == KEYWORD_TRUE);
+	}
+
+	/**
+	 * Создаёт ошибку парсинга со стандартным текстом для байта под курсором
+	 * @param c Байт на котором произошла ошибка
+	 * @param additional Дополнительная информация об ошибке
+	 */
+	private ParseException unexpected(int c, String additional){
+		String token = c < 0x80 ? String.valueOf((char) c) : String.format("0x%02X", c);
+		return this.exception("Unexpected token \"" + token + "\". " + additional);
+	}
+
+	/**
+	 * Создаёт ошибку парсинга с указанием позиции курсора от начала потока
+	 * @param message Текст ошибки
+	 */
+	private ParseException exception(String message){
+		long position = this.getPosition();
+		return new ParseException(message + " at position " + position, (int) Math.min(position, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Проверяет, может ли байт входить в число
+	 */
+	private static boolean isNumberChar(int c){
+		return isDigit(c) || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+	}
+
+	/**
+	 * Проверяет, является ли переданный байт цифрой от 0 до 9
+	 */
+	private static boolean isDigit(int c){
+		return '0' <= c && c <= '9';
+	}
+
+	/**
+	 * Получатель токенов. Методы вызываются в порядке следования токенов в данных,
+	 * из потока, вызвавшего {@code feed}. По умолчанию методы ничего не делают.
+	 * Обработчик может отклонить данные, бросив {@link Rejection}
+	 */
+	public interface Handler{
+
+		default void beginObject(){}
+
+		default void endObject(){}
+
+		default void beginList(){}
+
+		default void endList(){}
+
+		/**
+		 * Имя ключа объекта. Следующий токен - значение этого ключа
+		 */
+		default void name(String name){}
+
+		default void value(String value){}
+
+		default void value(JSONNumber value){}
+
+		default void value(boolean value){}
+
+		default void nullValue(){}
+
+		/**
+		 * Конец потока, вызывается из {@link PushParser#end()}
+		 */
+		default void endDocument(){}
+	}
+
+	/**
+	 * Исключение, которым обработчик отклоняет данные. Парсер заменяет его на {@code ParseException}
+	 * с тем же текстом и позицией в потоке
+	 */
+	public static final class Rejection extends RuntimeException{
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param message Причина, по которой данные отклонены
+		 */
+		public Rejection(String message){
+			super(message, null, false, false);
+		}
+	}
+
+	/**
+	 * Собирает из токенов значения {@code JSONEntity}
+	 */
+	static final class TreeBuilder implements Handler{
+
+		/** Потребитель значений верхнего уровня */
+		private final Consumer<? super JSONEntity> consumer;
+		/** Незавершённые структуры */
+		private JSONComplex[] stack = new JSONComplex[16];
+		/** Глубина вложенности */
+		private int depth = 0;
+		/** Имя ключа, ожидающего значения */
+		private String name;
+
+		TreeBuilder(Consumer<? super JSONEntity> consumer){
+			this.consumer = consumer;
+		}
+
+		@Override
+		public void beginObject(){
+			this.open(new JSONObject());
+		}
+
+		@Override
+		public void endObject(){
+			this.close();
+		}
+
+		@Override
+		public void beginList(){
+			this.open(new JSONList());
+		}
+
+		@Override
+		public void endList(){
+			this.close();
+		}
+
+		@Override
+		public void name(String name){
+			this.name = name;
+		}
+
+		@Override
+		public void value(String value){
+			this.add(new JSONString(value));
+		}
+
+		@Override
+		public void value(JSONNumber value){
+			this.add(value);
+		}
+
+		@Override
+		public void value(boolean value){
+			this.add(value ? JSONBoolean.TRUE : JSONBoolean.FALSE);
+		}
+
+		@Override
+		public void nullValue(){
+			this.add(null);
+		}
+
+		private void open(JSONComplex container){
+			if(this.depth > 0)
+				this.add(container);
+			if(this.depth == this.stack.length)
+				this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+			this.stack[this.depth++] = container;
+		}
+
+		private void close(){
+			JSONComplex container = this.stack[--this.depth];
+			this.stack[this.depth] = null;
+			if(this.depth == 0)
+				this.consumer.accept(container);
+		}
+
+		private void add(JSONEntity value){
+			if(this.depth == 0){
+				this.consumer.accept(value);
+			} else {
+				this.stack[this.depth - 1].add(this.name, value);
+				this.name = null;
+			}
+		}
+	}
+}
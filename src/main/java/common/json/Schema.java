@@ -0,0 +1,753 @@
+package common.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Скомпилированная JSON Schema, которая проверяет документ прямо по потоку токенов,
+ * не собирая дерево. Поддерживается подмножество ключевых слов:
+ * {@code type}, {@code enum} и {@code const} со скалярными значениями, {@code minimum}, {@code maximum},
+ * {@code exclusiveMinimum}, {@code exclusiveMaximum}, {@code minLength}, {@code maxLength}, {@code pattern},
+ * {@code items}, {@code minItems}, {@code maxItems}, {@code properties}, {@code required},
+ * {@code additionalProperties}, {@code minProperties}, {@code maxProperties} и логические схемы
+ * {@code true} и {@code false}. Аннотации вроде {@code title} и {@code format} пропускаются,
+ * а схемы с остальными проверяющими ключевыми словами, например {@code $ref} или {@code anyOf},
+ * не компилируются, чтобы не пропустить невалидные документы.
+ * <p>
+ * Схема неизменяема и может использоваться из нескольких потоков. Каждая проверка создаёт
+ * свой {@link PushParser.Handler}, который хранит только стек открытых структур. Нарушение
+ * схемы обнаруживается на первом неподходящем токене, и разбор сразу прекращается с
+ * {@code ParseException}, указывающим путь к значению в виде JSON Pointer. Диапазоны чисел
+ * сравниваются в {@code double}
+ */
+public final class Schema{
+
+	private static final int T_NULL = 1;
+	private static final int T_BOOLEAN = 1 << 1;
+	private static final int T_OBJECT = 1 << 2;
+	private static final int T_LIST = 1 << 3;
+	private static final int T_NUMBER = 1 << 4;
+	private static final int T_INTEGER = 1 << 5;
+	private static final int T_STRING = 1 << 6;
+	/** Любой тип */
+	private static final int T_ANY = (1 << 7) - 1;
+	/** Имена типов в порядке битов */
+	private static final String[] TYPES = {"null", "boolean", "object", "array", "number", "integer", "string"};
+
+	/** Проверяющие ключевые слова, которые не поддерживаются */
+	private static final Set<String> UNSUPPORTED = Set.of(
+		"$ref", "$dynamicRef", "$recursiveRef", "allOf", "anyOf", "oneOf", "not", "if", "then", "else",
+		"patternProperties", "propertyNames", "dependencies", "dependentRequired", "dependentSchemas",
+		"prefixItems", "additionalItems", "contains", "minContains", "maxContains", "uniqueItems",
+		"multipleOf", "unevaluatedItems", "unevaluatedProperties"
+	);
+
+	/** Правило, которому соответствует любое значение */
+	private static final Rule ANY = new Rule();
+	/** Правило, которому не соответствует ни одно значение */
+	private static final Rule NEVER = new Rule();
+
+	static {
+		ANY.items = ANY;
+		ANY.additional = ANY;
+		NEVER.types = 0;
+	}
+
+	/** Правило корневого значения */
+	private final Rule root;
+
+	private Schema(Rule root){
+		this.root = root;
+	}
+
+	/**
+	 * Компилирует схему без рекурсии
+	 * @param definition Схема: {@code JSONObject} или {@code JSONBoolean}
+	 * @return Неизменяемая скомпилированная схема
+	 * @throws IllegalArgumentException Если схема некорректна или использует неподдерживаемые ключевые слова
+	 */
+	public static Schema compile(JSONEntity definition){
+		Deque<Object[]> tasks = new ArrayDeque<>();
+		Rule[] root = new Rule[1];
+		tasks.push(new Object[]{definition, "", (Rule.Target) rule -> root[0] = rule});
+		while(!tasks.isEmpty()){
+			Object[] task = tasks.pop();
+			((Rule.Target) task[2]).set(compile((JSONEntity) task[0], (String) task[1], tasks));
+		}
+		return new Schema(root[0]);
+	}
+
+	/**
+	 * Компилирует схему из JSON-строки
+	 * @param definition Схема в виде JSON-строки
+	 * @return Неизменяемая скомпилированная схема
+	 * @throws ParseException Если строка не является валидным JSON
+	 * @throws IllegalArgumentException Если схема некорректна или использует неподдерживаемые ключевые слова
+	 */
+	public static Schema compile(String definition) throws ParseException {
+		JSONEntity[] result = new JSONEntity[1];
+		try {
+			read(new JSONReader(new StringReader(definition)), new PushParser.TreeBuilder(value -> result[0] = value));
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+		return compile(result[0]);
+	}
+
+	/**
+	 * Проверяет документ, не собирая дерево
+	 * @param in Источник JSON-данных
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если данные невалидны или не соответствуют схеме
+	 */
+	public void validate(Reader in) throws IOException, ParseException {
+		read(new JSONReader(in), this.validating(new PushParser.Handler(){}));
+	}
+
+	/**
+	 * Проверяет документ, не собирая дерево
+	 * @param data JSON-строка
+	 * @throws ParseException Если данные невалидны или не соответствуют схеме
+	 */
+	public void validate(String data) throws ParseException {
+		try {
+			this.validate(new StringReader(data));
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Разбирает документ и проверяет его за один проход. При первом нарушении схемы
+	 * разбор прекращается, и недостроенное дерево отбрасывается
+	 * @param in Источник JSON-данных
+	 * @return Корневое значение документа
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если данные невалидны или не соответствуют схеме
+	 */
+	public JSONEntity parse(Reader in) throws IOException, ParseException {
+		JSONEntity[] result = new JSONEntity[1];
+		read(new JSONReader(in), this.validating(new PushParser.TreeBuilder(value -> result[0] = value)));
+		return result[0];
+	}
+
+	/**
+	 * Разбирает документ и проверяет его за один проход
+	 * @param data JSON-строка
+	 * @return Корневое значение документа
+	 * @throws ParseException Если данные невалидны или не соответствуют схеме
+	 */
+	public JSONEntity parse(String data) throws ParseException {
+		try {
+			return this.parse(new StringReader(data));
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Создаёт обработчик токенов для {@link PushParser}, который проверяет каждое значение
+	 * верхнего уровня и передаёт токены следующему обработчику. Нарушение схемы прерывает
+	 * разбор до передачи неподходящего токена
+	 * @param downstream Следующий обработчик
+	 * @return Обработчик для одного потока данных
+	 */
+	public PushParser.Handler validating(PushParser.Handler downstream){
+		return new Validator(this.root, downstream);
+	}
+
+	/**
+	 * Передаёт токены потокового парсера обработчику
+	 */
+	private static void read(JSONReader reader, PushParser.Handler handler) throws IOException, ParseException {
+		try {
+			while(true){
+				switch(reader.peek()){
+					case BEGIN_OBJECT:
+						reader.beginObject();
+						handler.beginObject();
+						break;
+					case END_OBJECT:
+						reader.endObject();
+						handler.endObject();
+						break;
+					case BEGIN_LIST:
+						reader.beginList();
+						handler.beginList();
+						break;
+					case END_LIST:
+						reader.endList();
+						handler.endList();
+						break;
+					case NAME:
+						handler.name(reader.nextName());
+						break;
+					case STRING:
+						handler.value(reader.nextString());
+						break;
+					case NUMBER:
+						handler.value(new JSONNumber(reader.nextString()));
+						break;
+					case BOOLEAN:
+						handler.value(reader.nextBoolean());
+						break;
+					case NULL:
+						reader.nextNull();
+						handler.nullValue();
+						break;
+					default:
+						handler.endDocument();
+						return;
+				}
+			}
+		} catch(PushParser.Rejection ex){
+			long position = reader.getPosition();
+			throw new ParseException(ex.getMessage() + " at position " + position, (int) Math.min(position, Integer.MAX_VALUE));
+		}
+	}
+
+	/**
+	 * Компилирует одно правило. Вложенные схемы откладываются в очередь задач
+	 */
+	private static Rule compile(JSONEntity definition, String path, Deque<Object[]> tasks){
+		if(definition instanceof JSONBoolean)
+			return ((JSONBoolean) definition).value ? ANY : NEVER;
+		if(!(definition instanceof JSONObject))
+			throw new IllegalArgumentException("Schema at \"" + path + "\" must be an object or a boolean");
+		Map<String, JSONEntity> keywords = ((JSONObject) definition).value;
+		Rule rule = new Rule();
+		boolean constrained = false;
+		boolean exclusiveMinimum = false;
+		boolean exclusiveMaximum = false;
+		for(Map.Entry<String, JSONEntity> entry : keywords.entrySet()){
+			String keyword = entry.getKey();
+			JSONEntity value = entry.getValue();
+			String at = path + "/" + escape(keyword);
+			if(UNSUPPORTED.contains(keyword))
+				throw new IllegalArgumentException("Unsupported keyword \"" + keyword + "\" at \"" + path + "\"");
+			switch(keyword){
+				case "type":
+					rule.types = types(value, at);
+					break;
+				case "enum":
+					if(!(value instanceof JSONList))
+						throw new IllegalArgumentException("Keyword \"enum\" at \"" + path + "\" must be a list");
+					Set<String> values = new HashSet<>();
+					for(JSONEntity item : ((JSONList) value).value)
+						values.add(enumKey(item, at));
+					rule.restrict(values);
+					break;
+				case "const":
+					rule.restrict(new HashSet<>(Set.of(enumKey(value, at))));
+					break;
+				case "minimum":
+					rule.minimum = Math.max(rule.minimum, number(value, at));
+					break;
+				case "maximum":
+					rule.maximum = Math.min(rule.maximum, number(value, at));
+					break;
+				case "exclusiveMinimum":
+					if(value instanceof JSONBoolean)
+						exclusiveMinimum = ((JSONBoolean) value).value;
+					else
+						rule.exclusiveMinimum = Math.max(rule.exclusiveMinimum, number(value, at));
+					break;
+				case "exclusiveMaximum":
+					if(value instanceof JSONBoolean)
+						exclusiveMaximum = ((JSONBoolean) value).value;
+					else
+						rule.exclusiveMaximum = Math.min(rule.exclusiveMaximum, number(value, at));
+					break;
+				case "minLength":
+					rule.minLength = count(value, at);
+					break;
+				case "maxLength":
+					rule.maxLength = count(value, at);
+					break;
+				case "pattern":
+					if(!(value instanceof JSONString))
+						throw new IllegalArgumentException("Keyword \"pattern\" at \"" + path + "\" must be a string");
+					try {
+						rule.pattern = Pattern.compile(((JSONString) value).stringValue());
+					} catch(PatternSyntaxException ex){
+						throw new IllegalArgumentException("Invalid pattern at \"" + at + "\": " + ex.getDescription(), ex);
+					}
+					break;
+				case "minItems":
+					rule.minItems = count(value, at);
+					break;
+				case "maxItems":
+					rule.maxItems = count(value, at);
+					break;
+				case "items":
+					tasks.push(new Object[]{value, at, (Rule.Target) items -> rule.items = items});
+					break;
+				case "minProperties":
+					rule.minProperties = count(value, at);
+					break;
+				case "maxProperties":
+					rule.maxProperties = count(value, at);
+					break;
+				case "properties":
+					if(!(value instanceof JSONObject))
+						throw new IllegalArgumentException("Keyword \"properties\" at \"" + path + "\" must be an object");
+					rule.properties = new HashMap<>();
+					for(Map.Entry<String, JSONEntity> property : ((JSONObject) value).value.entrySet())
+						tasks.push(new Object[]{property.getValue(), at + "/" + escape(property.getKey()), (Rule.Target) child -> rule.properties.put(property.getKey(), child)});
+					break;
+				case "additionalProperties":
+					tasks.push(new Object[]{value, at, (Rule.Target) additional -> rule.additional = additional});
+					break;
+				case "required":
+					if(!(value instanceof JSONList))
+						throw new IllegalArgumentException("Keyword \"required\" at \"" + path + "\" must be a list");
+					List<JSONEntity> names = ((JSONList) value).value;
+					rule.required = new HashMap<>();
+					for(JSONEntity name : names){
+						if(!(name instanceof JSONString))
+							throw new IllegalArgumentException("Keyword \"required\" at \"" + path + "\" must contain only strings");
+						rule.required.putIfAbsent(((JSONString) name).stringValue(), rule.required.size());
+					}
+					break;
+				default:
+					continue;
+			}
+			constrained = true;
+		}
+		if(exclusiveMinimum){
+			rule.exclusiveMinimum = Math.max(rule.exclusiveMinimum, rule.minimum);
+			rule.minimum = Double.NEGATIVE_INFINITY;
+		}
+		if(exclusiveMaximum){
+			rule.exclusiveMaximum = Math.min(rule.exclusiveMaximum, rule.maximum);
+			rule.maximum = Double.POSITIVE_INFINITY;
+		}
+		return constrained ? rule : ANY;
+	}
+
+	/**
+	 * Разбирает значение ключевого слова {@code type}
+	 */
+	private static int types(JSONEntity value, String path){
+		if(value instanceof JSONString)
+			return type(((JSONString) value).stringValue(), path);
+		if(!(value instanceof JSONList))
+			throw new IllegalArgumentException("Keyword \"type\" at \"" + path + "\" must be a string or a list");
+		int result = 0;
+		for(JSONEntity item : ((JSONList) value).value){
+			if(!(item instanceof JSONString))
+				throw new IllegalArgumentException("Keyword \"type\" at \"" + path + "\" must contain only strings");
+			result |= type(((JSONString) item).stringValue(), path);
+		}
+		return result;
+	}
+
+	private static int type(String name, String path){
+		for(int i = 0; i < TYPES.length; i++)
+			if(TYPES[i].equals(name))
+				return 1 << i;
+		throw new IllegalArgumentException("Unknown type \"" + name + "\" at \"" + path + "\"");
+	}
+
+	private static double number(JSONEntity value, String path){
+		if(!(value instanceof JSONNumber))
+			throw new IllegalArgumentException("Value at \"" + path + "\" must be a number");
+		return ((JSONNumber) value).doubleValue();
+	}
+
+	private static int count(JSONEntity value, String path){
+		if(!(value instanceof JSONNumber) || !((JSONNumber) value).isIntegral() || ((JSONNumber) value).longValue() < 0)
+			throw new IllegalArgumentException("Value at \"" + path + "\" must be a non-negative integer");
+		return (int) Math.min(((JSONNumber) value).longValue(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Создаёт ключ для сравнения скалярного значения с перечислением
+	 */
+	private static String enumKey(JSONEntity value, String path){
+		if(value == null)
+			return "0";
+		if(value instanceof JSONBoolean)
+			return ((JSONBoolean) value).value ? "t" : "f";
+		if(value instanceof JSONString)
+			return "s" + ((JSONString) value).stringValue();
+		if(value instanceof JSONNumber)
+			return numberKey((JSONNumber) value);
+		throw new IllegalArgumentException("Only scalar values are supported in enumerations at \"" + path + "\"");
+	}
+
+	/**
+	 * Создаёт ключ числа, одинаковый для равных чисел независимо от записи, например {@code 1} и {@code 1.0}.
+	 * Числа {@code BigDecimal} сравниваются точно, дробные {@code double} - по кратчайшей десятичной записи
+	 */
+	private static String numberKey(JSONNumber value){
+		if(value.isLong())
+			return "n" + value.longValue();
+		BigDecimal decimal;
+		if(value.isBig()){
+			decimal = value.bigDecimalValue();
+		} else {
+			double d = value.doubleValue();
+			if(!Double.isFinite(d))
+				return "n" + d;
+			decimal = BigDecimal.valueOf(d);
+		}
+		decimal = decimal.stripTrailingZeros();
+		if(decimal.scale() <= 0 && decimal.precision() - decimal.scale() <= 19 && decimal.toBigInteger().bitLength() < 64)
+			return "n" + decimal.longValue();
+		return "n" + decimal.toString();
+	}
+
+	/**
+	 * Экранирует ключ для JSON Pointer
+	 */
+	private static String escape(String key){
+		return key.indexOf('~') < 0 && key.indexOf('/') < 0 ? key : key.replace("~", "~0").replace("/", "~1");
+	}
+
+	/**
+	 * Скомпилированное правило одной схемы. Поля заполняются только при компиляции
+	 */
+	private static final class Rule{
+
+		/** Допустимые типы */
+		int types = T_ANY;
+		/** Ключи допустимых значений или {@code null} */
+		Set<String> values;
+		double minimum = Double.NEGATIVE_INFINITY;
+		double maximum = Double.POSITIVE_INFINITY;
+		double exclusiveMinimum = Double.NEGATIVE_INFINITY;
+		double exclusiveMaximum = Double.POSITIVE_INFINITY;
+		int minLength = 0;
+		int maxLength = Integer.MAX_VALUE;
+		Pattern pattern;
+		int minItems = 0;
+		int maxItems = Integer.MAX_VALUE;
+		/** Правило элементов списка */
+		Rule items = ANY;
+		int minProperties = 0;
+		int maxProperties = Integer.MAX_VALUE;
+		/** Правила известных ключей или {@code null} */
+		Map<String, Rule> properties;
+		/** Правило остальных ключей */
+		Rule additional = ANY;
+		/** Обязательные ключи и их номера или {@code null} */
+		Map<String, Integer> required;
+
+		/**
+		 * Сужает допустимые значения. Если в схеме есть и {@code enum}, и {@code const},
+		 * то допустимы только значения, разрешённые обоими ключевыми словами
+		 * @param values Изменяемое множество ключей допустимых значений
+		 */
+		void restrict(Set<String> values){
+			if(this.values == null)
+				this.values = values;
+			else
+				this.values.retainAll(values);
+		}
+
+		/**
+		 * Проверяет, ограничивает ли правило количество ключей объекта. Тогда повторяющиеся ключи
+		 * считаются один раз, для чего кадр запоминает встреченные ключи
+		 */
+		boolean limitsProperties(){
+			return this.minProperties > 0 || this.maxProperties < Integer.MAX_VALUE;
+		}
+
+		/**
+		 * Получатель скомпилированного вложенного правила
+		 */
+		interface Target{
+			void set(Rule rule);
+		}
+	}
+
+	/**
+	 * Открытая структура
+	 */
+	private static final class Frame{
+
+		/** Правило структуры */
+		Rule rule;
+		/** Является ли структура объектом */
+		boolean object;
+		/** Количество элементов или различных ключей */
+		int count;
+		/** Встреченные ключи объекта. Заполняется, только если правило ограничивает количество ключей */
+		final Set<String> names = new HashSet<>();
+		/** Последний ключ объекта */
+		String name;
+		/** Правило значения последнего ключа */
+		Rule pending;
+		/** Найденные обязательные ключи */
+		boolean[] found = new boolean[0];
+		/** Количество найденных обязательных ключей */
+		int required;
+	}
+
+	/**
+	 * Проверяет токены одного потока данных
+	 */
+	private static final class Validator implements PushParser.Handler{
+
+		private final Rule root;
+		private final PushParser.Handler downstream;
+		/** Открытые структуры, объекты кадров переиспользуются */
+		private Frame[] stack = new Frame[16];
+		private int depth = 0;
+
+		Validator(Rule root, PushParser.Handler downstream){
+			this.root = root;
+			this.downstream = downstream;
+		}
+
+		@Override
+		public void beginObject(){
+			this.push(this.open(T_OBJECT), true);
+			this.downstream.beginObject();
+		}
+
+		@Override
+		public void endObject(){
+			Frame frame = this.stack[this.depth - 1];
+			Rule rule = frame.rule;
+			if(rule != ANY){
+				if(frame.count < rule.minProperties)
+					throw this.violation("Expected at least " + rule.minProperties + " properties", false);
+				if(rule.required != null && frame.required < rule.required.size())
+					for(Map.Entry<String, Integer> entry : rule.required.entrySet())
+						if(!frame.found[entry.getValue()])
+							throw this.violation("Missing required property \"" + entry.getKey() + "\"", false);
+			}
+			this.depth--;
+			this.downstream.endObject();
+		}
+
+		@Override
+		public void beginList(){
+			this.push(this.open(T_LIST), false);
+			this.downstream.beginList();
+		}
+
+		@Override
+		public void endList(){
+			Frame frame = this.stack[this.depth - 1];
+			if(frame.count < frame.rule.minItems)
+				throw this.violation("Expected at least " + frame.rule.minItems + " items", false);
+			this.depth--;
+			this.downstream.endList();
+		}
+
+		@Override
+		public void name(String name){
+			Frame frame = this.stack[this.depth - 1];
+			frame.name = name;
+			Rule rule = frame.rule;
+			if(rule == ANY){
+				frame.count++;
+				frame.pending = ANY;
+			} else {
+				if(!rule.limitsProperties() || frame.names.add(name))
+					frame.count++;
+				if(frame.count > rule.maxProperties)
+					throw this.violation("Expected at most " + rule.maxProperties + " properties", false);
+				Rule property = rule.properties == null ? null : rule.properties.get(name);
+				frame.pending = property == null ? rule.additional : property;
+				if(frame.pending == NEVER && property == null)
+					throw this.violation("Property is not allowed", true);
+				if(rule.required != null){
+					Integer index = rule.required.get(name);
+					if(index != null && !frame.found[index]){
+						frame.found[index] = true;
+						frame.required++;
+					}
+				}
+			}
+			this.downstream.name(name);
+		}
+
+		@Override
+		public void value(String value){
+			Rule rule = this.next();
+			if(rule != ANY){
+				this.type(rule, T_STRING);
+				if(rule.values != null && !rule.values.contains("s" + value))
+					throw this.violation("Value is not in the enumeration", true);
+				if(rule.minLength > 0 || rule.maxLength < Integer.MAX_VALUE){
+					int length = value.codePointCount(0, value.length());
+					if(length < rule.minLength)
+						throw this.violation("Expected at least " + rule.minLength + " characters", true);
+					if(length > rule.maxLength)
+						throw this.violation("Expected at most " + rule.maxLength + " characters", true);
+				}
+				if(rule.pattern != null && !rule.pattern.matcher(value).find())
+					throw this.violation("Value does not match pattern \"" + rule.pattern.pattern() + "\"", true);
+			}
+			this.downstream.value(value);
+		}
+
+		@Override
+		public void value(JSONNumber value){
+			Rule rule = this.next();
+			if(rule != ANY){
+				if((rule.types & T_NUMBER) == 0){
+					double d = value.doubleValue();
+					this.type(rule, value.isIntegral() || Double.isFinite(d) && d == Math.rint(d) ? T_INTEGER : T_NUMBER);
+				}
+				if(rule.values != null && !rule.values.contains(numberKey(value)))
+					throw this.violation("Value is not in the enumeration", true);
+				double d = value.doubleValue();
+				if(d < rule.minimum)
+					throw this.violation("Value is less than " + bound(rule.minimum), true);
+				if(d > rule.maximum)
+					throw this.violation("Value is greater than " + bound(rule.maximum), true);
+				if(d <= rule.exclusiveMinimum)
+					throw this.violation("Value is not greater than " + bound(rule.exclusiveMinimum), true);
+				if(d >= rule.exclusiveMaximum)
+					throw this.violation("Value is not less than " + bound(rule.exclusiveMaximum), true);
+			}
+			this.downstream.value(value);
+		}
+
+		@Override
+		public void value(boolean value){
+			Rule rule = this.next();
+			if(rule != ANY){
+				this.type(rule, T_BOOLEAN);
+				if(rule.values != null && !rule.values.contains(value ? "t" : "f"))
+					throw this.violation("Value is not in the enumeration", true);
+			}
+			this.downstream.value(value);
+		}
+
+		@Override
+		public void nullValue(){
+			Rule rule = this.next();
+			if(rule != ANY){
+				this.type(rule, T_NULL);
+				if(rule.values != null && !rule.values.contains("0"))
+					throw this.violation("Value is not in the enumeration", true);
+			}
+			this.downstream.nullValue();
+		}
+
+		@Override
+		public void endDocument(){
+			this.downstream.endDocument();
+		}
+
+		/**
+		 * Проверяет тип открываемой структуры
+		 * @return Правило структуры
+		 */
+		private Rule open(int type){
+			Rule rule = this.next();
+			if(rule != ANY){
+				this.type(rule, type);
+				if(rule.values != null)
+					throw this.violation("Value is not in the enumeration", true);
+			}
+			return rule;
+		}
+
+		/**
+		 * Определяет правило следующего значения и сдвигает счётчик элементов списка
+		 */
+		private Rule next(){
+			if(this.depth == 0)
+				return this.root;
+			Frame frame = this.stack[this.depth - 1];
+			if(frame.object)
+				return frame.pending;
+			frame.count++;
+			if(frame.count > frame.rule.maxItems)
+				throw this.violation("Expected at most " + frame.rule.maxItems + " items", false);
+			return frame.rule.items;
+		}
+
+		private void type(Rule rule, int type){
+			if((rule.types & type) != 0)
+				return;
+			if(rule.types == 0)
+				throw this.violation("Value is not allowed", true);
+			throw this.violation("Expected " + names(rule.types), true);
+		}
+
+		private void push(Rule rule, boolean object){
+			if(this.depth == this.stack.length)
+				this.stack = Arrays.copyOf(this.stack, this.depth << 1);
+			Frame frame = this.stack[this.depth];
+			if(frame == null)
+				frame = this.stack[this.depth] = new Frame();
+			this.depth++;
+			frame.rule = rule;
+			frame.object = object;
+			frame.count = 0;
+			frame.name = null;
+			frame.required = 0;
+			if(!frame.names.isEmpty())
+				frame.names.clear();
+			if(object && rule.required != null){
+				int size = rule.required.size();
+				if(frame.found.length < size)
+					frame.found = new boolean[size];
+				else
+					Arrays.fill(frame.found, 0, size, false);
+			}
+		}
+
+		/**
+		 * Создаёт ошибку с путём к значению
+		 * @param value Относится ли ошибка к текущему значению, а не к открытой структуре
+		 */
+		private PushParser.Rejection violation(String message, boolean value){
+			StringBuilder path = new StringBuilder();
+			int depth = value ? this.depth : this.depth - 1;
+			for(int i = 0; i < depth; i++){
+				Frame frame = this.stack[i];
+				path.append('/');
+				if(frame.object)
+					path.append(escape(frame.name));
+				else
+					path.append(frame.count - 1);
+			}
+			return new PushParser.Rejection("Schema violation at \"" + path + "\": " + message);
+		}
+
+		/**
+		 * Записывает границу диапазона, целые границы записываются без дробной части
+		 */
+		private static String bound(double value){
+			return value == Math.rint(value) && Math.abs(value) < 0x1p53 ? Long.toString((long) value) : JSONWriter.toString(new JSONNumber(value));
+		}
+
+		/**
+		 * Перечисляет имена типов
+		 */
+		private static String names(int types){
+			StringBuilder result = new StringBuilder();
+			for(int i = 0; i < TYPES.length; i++){
+				if((types & 1 << i) == 0)
+					continue;
+				if(result.length() > 0)
+					result.append(" or ");
+				result.append(TYPES[i]);
+			}
+			return result.toString();
+		}
+	}
+}
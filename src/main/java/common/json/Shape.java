@@ -0,0 +1,111 @@
+package common.json;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Форма (скрытый класс) объекта: упорядоченный набор его ключей. Формы образуют дерево
+ * переходов: добавление ключа к объекту переводит его в дочернюю форму, которая создаётся
+ * один раз и затем переиспользуется всеми объектами с теми же ключами в том же порядке.
+ * Формы одной цепочки делят общий массив ключей, а каждый объект хранит только массив значений.
+ * Формы неизменяемы после публикации и могут использоваться из нескольких потоков
+ */
+final class Shape{
+
+	/** Максимальное количество ключей формы. Большие объекты хранятся в обычном {@code LinkedHashMap} */
+	static final int MAX_KEYS = 64;
+	/** Максимальное количество переходов из одной формы. Объекты с редкими наборами ключей хранятся в обычном {@code LinkedHashMap} */
+	static final int MAX_TRANSITIONS = 64;
+	/** Количество ключей, начиная с которого для поиска ключа строится хеш-таблица */
+	private static final int LOOKUP_THRESHOLD = 8;
+
+	/** Родительская форма или {@code null} для пустой формы */
+	private final Shape parent;
+	/** Ключи формы. Массив общий для цепочки форм, значимы первые {@code size} элементов */
+	final String[] keys;
+	/** Количество ключей */
+	final int size;
+	/**
+	 * Наибольшее количество ключей среди форм, достижимых из этой. Используется как ёмкость массивов значений.
+	 * Поле увеличивают потоки, держащие блокировки разных форм, поэтому одновременное увеличение может
+	 * потеряться. Это безопасно: подсказка влияет только на ёмкость, а массив значений при нехватке места растёт
+	 */
+	volatile int hint;
+
+	/** Переходы в дочерние формы по ключу */
+	private volatile ConcurrentHashMap<String, Shape> transitions;
+	/** Индексы ключей для больших форм */
+	private volatile HashMap<String, Integer> lookup;
+
+	/**
+	 * Создаёт пустую форму - корень дерева переходов
+	 */
+	Shape(){
+		this(null, new String[0], 0);
+	}
+
+	private Shape(Shape parent, String[] keys, int size){
+		this.parent = parent;
+		this.keys = keys;
+		this.size = size;
+		this.hint = size;
+	}
+
+	/**
+	 * Находит порядковый номер ключа
+	 * @param key Ключ
+	 * @return Номер ключа или {@code -1}, если ключа нет
+	 */
+	int indexOf(Object key){
+		if(this.size > LOOKUP_THRESHOLD){
+			HashMap<String, Integer> lookup = this.lookup;
+			if(lookup == null){
+				lookup = new HashMap<>(this.size << 1);
+				for(int i = 0; i < this.size; i++)
+					lookup.put(this.keys[i], i);
+				this.lookup = lookup;
+			}
+			Integer i = lookup.get(key);
+			return i == null ? -1 : i;
+		}
+		for(int i = this.size - 1; i >= 0; i--)
+			if(this.keys[i] == key)
+				return i;
+		for(int i = this.size - 1; i >= 0; i--)
+			if(this.keys[i].equals(key))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Возвращает форму, получающуюся добавлением ключа в конец. Ключа в форме быть не должно
+	 * @param key Новый ключ
+	 * @return Дочерняя форма или {@code null}, если достигнут предел ключей или переходов
+	 */
+	Shape next(String key){
+		ConcurrentHashMap<String, Shape> transitions = this.transitions;
+		Shape result = transitions == null ? null : transitions.get(key);
+		if(result != null)
+			return result;
+		synchronized(this){
+			if(this.transitions == null)
+				this.transitions = new ConcurrentHashMap<>();
+			result = this.transitions.get(key);
+			if(result != null)
+				return result;
+			if(this.size == MAX_KEYS || this.transitions.size() == MAX_TRANSITIONS)
+				return null;
+			String[] keys = this.keys;
+			if(keys.length == this.size || keys[this.size] != null){
+				keys = new String[Math.min(MAX_KEYS, Math.max(4, this.size << 1))];
+				System.arraycopy(this.keys, 0, keys, 0, this.size);
+			}
+			keys[this.size] = key;
+			result = new Shape(this, keys, this.size + 1);
+			for(Shape shape = this; shape != null && shape.hint < result.size; shape = shape.parent)
+				shape.hint = result.size;
+			this.transitions.put(key, result);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package common.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Компактное представление объекта: общая для похожих объектов форма {@link Shape}
+ * и собственный массив значений. Добавление нового ключа переводит объект в дочернюю форму,
+ * замена значения существующего ключа выполняется на месте. При удалении ключей или
+ * превышении пределов формы объект переносится в обычный {@code LinkedHashMap}
+ */
+final class ShapeMap extends AbstractMap<String, JSONEntity>{
+
+	/** Пустой массив значений */
+	private static final JSONEntity[] EMPTY = new JSONEntity[0];
+
+	/** Текущая форма */
+	private Shape shape;
+	/** Значения в порядке ключей формы */
+	private JSONEntity[] values = EMPTY;
+	/** Обычное представление объекта после выхода за пределы формы */
+	private LinkedHashMap<String, JSONEntity> inflated;
+	/** Счётчик структурных изменений через методы объекта, по которому итераторы замечают чужие изменения */
+	private int modifications;
+
+	/**
+	 * Создаёт пустой объект
+	 * @param root Пустая форма, с которой начинается дерево переходов
+	 */
+	ShapeMap(Shape root){
+		this.shape = root;
+	}
+
+	@Override
+	public int size(){
+		return this.inflated != null ? this.inflated.size() : this.shape.size;
+	}
+
+	@Override
+	public boolean containsKey(Object key){
+		if(this.inflated != null)
+			return this.inflated.containsKey(key);
+		return this.shape.indexOf(key) >= 0;
+	}
+
+	@Override
+	public JSONEntity get(Object key){
+		if(this.inflated != null)
+			return this.inflated.get(key);
+		int i = this.shape.indexOf(key);
+		return i < 0 ? null : this.values[i];
+	}
+
+	@Override
+	public JSONEntity put(String key, JSONEntity value){
+		if(this.inflated != null){
+			int size = this.inflated.size();
+			JSONEntity result = this.inflated.put(key, value);
+			if(this.inflated.size() != size)
+				this.modifications++;
+			return result;
+		}
+		int i = this.shape.indexOf(key);
+		if(i >= 0){
+			JSONEntity previous = this.values[i];
+			this.values[i] = value;
+			return previous;
+		}
+		this.modifications++;
+		Shape next = this.shape.next(key);
+		if(next == null)
+			return this.inflate().put(key, value);
+		int size = this.shape.size;
+		if(size == this.values.length)
+			this.values = Arrays.copyOf(this.values, Math.max(next.hint, size + 1));
+		this.values[size] = value;
+		this.shape = next;
+		return null;
+	}
+
+	@Override
+	public JSONEntity remove(Object key){
+		if(!this.containsKey(key))
+			return null;
+		this.modifications++;
+		return this.inflate().remove(key);
+	}
+
+	@Override
+	public void clear(){
+		this.inflate().clear();
+		this.modifications++;
+	}
+
+	@Override
+	public Set<Map.Entry<String, JSONEntity>> entrySet(){
+		if(this.inflated != null)
+			return this.inflated.entrySet();
+		return new AbstractSet<Map.Entry<String, JSONEntity>>(){
+
+			@Override
+			public int size(){
+				return ShapeMap.this.size();
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, JSONEntity>> iterator(){
+				if(ShapeMap.this.inflated != null)
+					return ShapeMap.this.inflated.entrySet().iterator();
+				return new Members();
+			}
+		};
+	}
+
+	/**
+	 * Переносит все члены объекта в обычный {@code LinkedHashMap}
+	 * @return Обычное представление объекта
+	 */
+	private LinkedHashMap<String, JSONEntity> inflate(){
+		if(this.inflated == null){
+			LinkedHashMap<String, JSONEntity> result = new LinkedHashMap<>();
+			for(int i = 0; i < this.shape.size; i++)
+				result.put(this.shape.keys[i], this.values[i]);
+			this.inflated = result;
+			this.values = null;
+		}
+		return this.inflated;
+	}
+
+	/**
+	 * Итератор по членам формы. Удаление переносит объект в {@code LinkedHashMap}, после чего итератор
+	 * продолжает обход по итератору {@code LinkedHashMap}, пропустив уже пройденные члены
+	 */
+	private final class Members implements Iterator<Map.Entry<String, JSONEntity>>{
+
+		/** Форма объекта при создании итератора */
+		private final Shape shape = ShapeMap.this.shape;
+		/** Значение счётчика изменений объекта при создании итератора */
+		private final int expected = ShapeMap.this.modifications;
+		/** Номер следующего члена */
+		private int next = 0;
+		/** Итератор перенесённого объекта */
+		private Iterator<Map.Entry<String, JSONEntity>> delegate;
+
+		@Override
+		public boolean hasNext(){
+			Iterator<Map.Entry<String, JSONEntity>> delegate = this.delegate();
+			return delegate != null ? delegate.hasNext() : this.next < this.shape.size;
+		}
+
+		@Override
+		public Map.Entry<String, JSONEntity> next(){
+			Iterator<Map.Entry<String, JSONEntity>> delegate = this.delegate();
+			if(delegate != null)
+				return delegate.next();
+			if(this.next == this.shape.size)
+				throw new NoSuchElementException();
+			int member = this.next++;
+			return new AbstractMap.SimpleEntry<String, JSONEntity>(this.shape.keys[member], ShapeMap.this.values[member]){
+				@Override
+				public JSONEntity setValue(JSONEntity value){
+					ShapeMap.this.put(this.getKey(), value);
+					return super.setValue(value);
+				}
+			};
+		}
+
+		@Override
+		public void remove(){
+			if(this.delegate == null && this.next == 0)
+				throw new IllegalStateException();
+			if(ShapeMap.this.modifications != this.expected)
+				throw new ConcurrentModificationException();
+			ShapeMap.this.inflate();
+			this.delegate().remove();
+		}
+
+		/**
+		 * Возвращает итератор перенесённого объекта, создавая его при первом обращении после переноса
+		 * @return Итератор или {@code null}, если объект ещё не перенесён
+		 * @throws ConcurrentModificationException Если объект структурно изменён не через этот итератор
+		 */
+		private Iterator<Map.Entry<String, JSONEntity>> delegate(){
+			if(this.delegate == null){
+				if(ShapeMap.this.modifications != this.expected)
+					throw new ConcurrentModificationException();
+				if(ShapeMap.this.inflated == null)
+					return null;
+				this.delegate = ShapeMap.this.inflated.entrySet().iterator();
+				for(int i = 0; i < this.next; i++)
+					this.delegate.next();
+			}
+			return this.delegate;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package common.json;
+
+/**
+ * Дерево форм для компактного представления объектов. Объекты, созданные из одного дерева,
+ * с одинаковым упорядоченным набором ключей делят общий массив ключей и индекс,
+ * а сами хранят только массив значений вместо собственного {@code LinkedHashMap}
+ * с таблицей и записями на каждый член. Режим выгоден, когда в памяти держатся
+ * миллионы небольших объектов с одними и теми же ключами. Дерево можно передавать
+ * нескольким парсерам и использовать из нескольких потоков
+ */
+public final class Shapes{
+
+	/** Пустая форма - корень дерева переходов */
+	private final Shape root = new Shape();
+
+	/**
+	 * Создаёт пустой объект в компактном представлении
+	 * @return Объект, значение которого меняет форму по мере добавления ключей
+	 */
+	public JSONObject newObject(){
+		return new JSONObject(new ShapeMap(this.root));
+	}
+}
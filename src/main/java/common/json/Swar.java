@@ -0,0 +1,174 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Поиск символов в UTF-8 данных по 8 байт за раз (SWAR - SIMD within a register).
+ * Восемь байтов загружаются одним числом {@code long}, и каждый байт проверяется
+ * одновременно побитовыми операциями без ветвлений. Все проверки точные: бит 0x80
+ * устанавливается ровно в тех байтах, которые удовлетворяют условию, поэтому
+ * позиция найденного символа определяется по количеству младших нулевых битов.
+ * Буферы должны иметь порядок байтов {@code ByteOrder.LITTLE_ENDIAN}, чтобы первый
+ * байт в памяти оказывался младшим байтом числа
+ */
+final class Swar{
+
+	/** Все байты равны 0x01 */
+	private static final long ONES = 0x0101010101010101L;
+	/** Старшие биты всех байтов */
+	private static final long HIGH = 0x8080808080808080L;
+	/** Младшие семь битов всех байтов */
+	private static final long LOW = 0x7F7F7F7F7F7F7F7FL;
+	/** Маска байтов, значения которых меньше 0x20 дают ноль */
+	private static final long CONTROL = 0xE0E0E0E0E0E0E0E0L;
+
+	private static final long QUOTE = ONES * '"';
+	private static final long BACKSLASH = ONES * '\\';
+	private static final long SPACE = ONES * ' ';
+	private static final long TAB = ONES * '\t';
+	private static final long NEWLINE = ONES * '\n';
+	private static final long RETURN = ONES * '\r';
+	private static final long COMMA = ONES * ',';
+	private static final long COLON = ONES * ':';
+	private static final long OPEN_LIST = ONES * '[';
+	private static final long CLOSE_LIST = ONES * ']';
+	private static final long OPEN_OBJECT = ONES * '{';
+	private static final long CLOSE_OBJECT = ONES * '}';
+
+	private Swar(){}
+
+	/**
+	 * Создаёт представление буфера с порядком байтов, необходимым для методов этого класса.
+	 * Позиция, лимит и порядок байтов исходного буфера не изменяются
+	 * @param buffer Исходный буфер
+	 * @return Буфер с общим содержимым и порядком {@code LITTLE_ENDIAN}
+	 */
+	static ByteBuffer words(ByteBuffer buffer){
+		return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Находит первый байт, завершающий простой участок строки: двойную кавычку,
+	 * обратную косую черту или управляющий символ меньше 0x20
+	 * @param words Буфер с порядком {@code LITTLE_ENDIAN}
+	 * @param from Индекс, с которого начинается поиск
+	 * @param to Индекс, на котором поиск заканчивается
+	 * @return Индекс найденного байта или {@code to}, если такого нет
+	 */
+	static int indexOfStringEnd(ByteBuffer words, int from, int to){
+		int i = from;
+		for(; i + 8 <= to; i += 8){
+			long word = words.getLong(i);
+			long mask = zeroBytes(word ^ QUOTE) | zeroBytes(word ^ BACKSLASH) | zeroBytes(word & CONTROL);
+			if(mask != 0)
+				return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+		}
+		for(; i < to; i++){
+			int c = words.get(i) & 0xFF;
+			if(c == '"' || c == '\\' || c < ' ')
+				return i;
+		}
+		return to;
+	}
+
+	/**
+	 * Пропускает пробельные символы (пробел, табуляцию, перевод строки, возврат каретки и нулевой байт)
+	 * @param words Буфер с порядком {@code LITTLE_ENDIAN}
+	 * @param from Индекс, с которого начинается поиск
+	 * @param to Индекс, на котором поиск заканчивается
+	 * @return Индекс первого непробельного байта или {@code to}, если такого нет
+	 */
+	static int skipWhitespace(ByteBuffer words, int from, int to){
+		int i = from;
+		for(; i + 8 <= to; i += 8){
+			long word = words.getLong(i);
+			long whitespace = zeroBytes(word ^ SPACE) | zeroBytes(word ^ NEWLINE) | zeroBytes(word ^ TAB) | zeroBytes(word ^ RETURN) | zeroBytes(word);
+			long mask = ~whitespace & HIGH;
+			if(mask != 0)
+				return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+		}
+		for(; i < to; i++){
+			int c = words.get(i) & 0xFF;
+			if(c != ' ' && c != '\n' && c != '\t' && c != '\r' && c != 0)
+				return i;
+		}
+		return to;
+	}
+
+	/**
+	 * Находит первый структурный байт: двойную кавычку, обратную косую черту,
+	 * скобку, запятую или двоеточие
+	 * @param words Буфер с порядком {@code LITTLE_ENDIAN}
+	 * @param from Индекс, с которого начинается поиск
+	 * @param to Индекс, на котором поиск заканчивается
+	 * @return Индекс найденного байта или {@code to}, если такого нет
+	 */
+	static int indexOfStructural(ByteBuffer words, int from, int to){
+		int i = from;
+		for(; i + 8 <= to; i += 8){
+			long word = words.getLong(i);
+			long mask = zeroBytes(word ^ QUOTE) | zeroBytes(word ^ BACKSLASH)
+				| zeroBytes(word ^ OPEN_OBJECT) | zeroBytes(word ^ CLOSE_OBJECT)
+				| zeroBytes(word ^ OPEN_LIST) | zeroBytes(word ^ CLOSE_LIST)
+				| zeroBytes(word ^ COMMA) | zeroBytes(word ^ COLON);
+			if(mask != 0)
+				return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+		}
+		for(; i < to; i++)
+			if(isStructural(words.get(i) & 0xFF))
+				return i;
+		return to;
+	}
+
+	/**
+	 * Находит первый перевод строки
+	 * @param words Буфер с порядком {@code LITTLE_ENDIAN}
+	 * @param from Индекс, с которого начинается поиск
+	 * @param to Индекс, на котором поиск заканчивается
+	 * @return Индекс найденного байта или {@code to}, если такого нет
+	 */
+	static int indexOfNewline(ByteBuffer words, int from, int to){
+		int i = from;
+		for(; i + 8 <= to; i += 8){
+			long mask = zeroBytes(words.getLong(i) ^ NEWLINE);
+			if(mask != 0)
+				return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+		}
+		for(; i < to; i++)
+			if(words.get(i) == '\n')
+				return i;
+		return to;
+	}
+
+	/**
+	 * Проверяет, является ли байт структурным символом
+	 * @param c Проверяемый байт
+	 * @return {@code true} если байт - кавычка, обратная косая черта, скобка, запятая или двоеточие
+	 */
+	static boolean isStructural(int c){
+		switch(c){
+			case '"':
+			case '\\':
+			case '{':
+			case '}':
+			case '[':
+			case ']':
+			case ',':
+			case ':':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Отмечает нулевые байты числа. В отличие от классической формулы
+	 * {@code (x - 0x01..) & ~x & 0x80..} не даёт ложных срабатываний из-за заёма между байтами
+	 * @param x Восемь байтов
+	 * @return Число, в котором бит 0x80 установлен ровно в нулевых байтах
+	 */
+	private static long zeroBytes(long x){
+		return ~((x & LOW) + LOW | x | LOW);
+	}
+}
@@ -0,0 +1,163 @@
+package common.json;
+
+import java.util.Arrays;
+
+/**
+ * Компактное представление разобранного документа в виде "ленты" токенов.
+ * Каждый токен занимает одно число {@code long}: старшие 32 бита - позиция начала токена
+ * в исходной строке, младшие - ссылка. Для объектов и списков ссылка указывает на индекс
+ * токена, следующего сразу за последним потомком, что позволяет пропустить поддерево за O(1).
+ * Для скалярных значений ссылка - позиция конца токена в исходной строке, а её старший бит
+ * отмечает строки с экранированными последовательностями.
+ * Члены объекта записываются парами: сначала токен ключа, затем токен значения.
+ * Тип токена не хранится, а определяется по первому символу в исходной строке
+ */
+final class Tape{
+
+	/** Флаг строк, содержащих экранированные последовательности */
+	static final int ESCAPED = 0x80000000;
+
+	/** Исходная строка */
+	final String source;
+
+	/** Токены */
+	private long[] entries = new long[64];
+	/** Количество записанных токенов */
+	private int size = 0;
+
+	Tape(String source){
+		this.source = source;
+	}
+
+	/**
+	 * Записывает токен в конец ленты
+	 * @param start Позиция начала токена в исходной строке
+	 * @param link Ссылка токена
+	 * @return Индекс записанного токена
+	 */
+	int add(int start, int link){
+		if(this.size == this.entries.length)
+			this.entries = Arrays.copyOf(this.entries, this.size << 1);
+		this.entries[this.size] = (long) start << 32 | link & 0xFFFFFFFFL;
+		return this.size++;
+	}
+
+	/**
+	 * Устанавливает ссылку для ранее записанного токена объекта или списка
+	 * @param index Индекс токена
+	 * @param link Индекс токена, следующего за последним потомком
+	 */
+	void link(int index, int link){
+		this.entries[index] = this.entries[index] & 0xFFFFFFFF00000000L | link & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Возвращает количество записанных токенов
+	 */
+	int size(){
+		return this.size;
+	}
+
+	/**
+	 * Возвращает позицию начала токена в исходной строке
+	 * @param index Индекс токена
+	 */
+	int start(int index){
+		return (int) (this.entries[index] >>> 32);
+	}
+
+	/**
+	 * Возвращает ссылку токена без флагов
+	 * @param index Индекс токена
+	 */
+	int end(int index){
+		return (int) this.entries[index] & ~ESCAPED;
+	}
+
+	/**
+	 * Возвращает первый символ токена, по которому определяется его тип
+	 * @param index Индекс токена
+	 */
+	char first(int index){
+		return this.source.charAt(this.start(index));
+	}
+
+	/**
+	 * Возвращает индекс следующего соседнего токена, пропуская вложенные структуры за O(1)
+	 * @param index Индекс токена
+	 */
+	int next(int index){
+		char c = this.first(index);
+		return c == '{' || c == '[' ? this.end(index) : index + 1;
+	}
+
+	/**
+	 * Создаёт значение для токена. Объекты и списки создаются в виде ленивых представлений,
+	 * которые создают своих потомков только при обращении к ним
+	 * @param index Индекс токена
+	 * @return Значение или {@code null} для ключевого слова {@code null}
+	 */
+	JSONEntity materialize(int index){
+		switch(this.first(index)){
+			case '{':
+				return new JSONObject(new TapeMap(this, index));
+			case '[':
+				return new JSONList(new TapeList(this, index));
+			case '"':
+				return new JSONString(this.string(index));
+			case 't':
+				return JSONBoolean.TRUE;
+			case 'f':
+				return JSONBoolean.FALSE;
+			case 'n':
+				return null;
+			default:
+				return NumberParser.parse(this.source, this.start(index), this.end(index));
+		}
+	}
+
+	/**
+	 * Декодирует строковый токен
+	 * @param index Индекс токена
+	 * @return Значение строки без кавычек
+	 */
+	String string(int index){
+		int from = this.start(index) + 1;
+		int to = this.end(index) - 1;
+		if((int) this.entries[index] >= 0)
+			return this.source.substring(from, to);
+		StringBuilder result = new StringBuilder(to - from);
+		for(int i = from; i < to; i++){
+			char c = this.source.charAt(i);
+			if(c != '\\'){
+				result.append(c);
+				continue;
+			}
+			c = this.source.charAt(++i);
+			switch(c){
+				case 'b':
+					result.append('\b');
+					break;
+				case 'f':
+					result.append('\f');
+					break;
+				case 'n':
+					result.append('\n');
+					break;
+				case 'r':
+					result.append('\r');
+					break;
+				case 't':
+					result.append('\t');
+					break;
+				case 'u':
+					result.append((char) Integer.parseInt(this.source.substring(i + 1, i + 5), 16));
+					i += 4;
+					break;
+				default:
+					result.append(c);
+			}
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,104 @@
+package common.json;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+
+/**
+ * Ленивое представление списка, записанного в ленту {@link Tape}.
+ * Элементы создаются только при обращении к ним по индексу.
+ * При любом изменении список переносится в обычный {@code ArrayList}
+ */
+final class TapeList extends AbstractList<JSONEntity>{
+
+	/** Лента документа */
+	private final Tape tape;
+	/** Индекс токена списка в ленте */
+	private final int index;
+
+	/** Индексы токенов элементов */
+	private int[] items;
+	/** Уже созданные элементы */
+	private JSONEntity[] cache;
+	/** Флаги созданных элементов (элемент может быть {@code null}) */
+	private boolean[] loaded;
+	/** Обычное представление списка после первого изменения */
+	private ArrayList<JSONEntity> inflated;
+
+	TapeList(Tape tape, int index){
+		this.tape = tape;
+		this.index = index;
+	}
+
+	@Override
+	public int size(){
+		if(this.inflated != null)
+			return this.inflated.size();
+		this.index();
+		return this.items.length;
+	}
+
+	@Override
+	public JSONEntity get(int i){
+		if(this.inflated != null)
+			return this.inflated.get(i);
+		this.index();
+		if(!this.loaded[i]){
+			this.cache[i] = this.tape.materialize(this.items[i]);
+			this.loaded[i] = true;
+		}
+		return this.cache[i];
+	}
+
+	@Override
+	public JSONEntity set(int i, JSONEntity element){
+		return this.inflate().set(i, element);
+	}
+
+	@Override
+	public void add(int i, JSONEntity element){
+		this.inflate().add(i, element);
+		this.modCount++;
+	}
+
+	@Override
+	public JSONEntity remove(int i){
+		this.modCount++;
+		return this.inflate().remove(i);
+	}
+
+	/**
+	 * Проходит по элементам списка, пропуская вложенные структуры, и запоминает их индексы
+	 */
+	private void index(){
+		if(this.items != null)
+			return;
+		int end = this.tape.end(this.index);
+		int count = 0;
+		for(int i = this.index + 1; i < end; i = this.tape.next(i))
+			count++;
+		this.items = new int[count];
+		this.cache = new JSONEntity[count];
+		this.loaded = new boolean[count];
+		count = 0;
+		for(int i = this.index + 1; i < end; i = this.tape.next(i))
+			this.items[count++] = i;
+	}
+
+	/**
+	 * Переносит все элементы списка в обычный {@code ArrayList}
+	 * @return Обычное представление списка
+	 */
+	private ArrayList<JSONEntity> inflate(){
+		if(this.inflated == null){
+			int size = this.size();
+			ArrayList<JSONEntity> result = new ArrayList<>(size);
+			for(int i = 0; i < size; i++)
+				result.add(this.get(i));
+			this.inflated = result;
+			this.items = null;
+			this.cache = null;
+			this.loaded = null;
+		}
+		return this.inflated;
+	}
+}
@@ -0,0 +1,322 @@
+package common.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Ленивое представление объекта, записанного в ленту {@link Tape}.
+ * Ключи декодируются при первом обращении к объекту, а значения - только при обращении
+ * к конкретному ключу. При любом изменении объект переносится в обычный {@code LinkedHashMap}.
+ * Повторяющиеся ключи обрабатываются так же, как в {@link Parser}: ключ остаётся на месте первого
+ * вхождения, а значение берётся из последнего
+ */
+final class TapeMap extends AbstractMap<String, JSONEntity>{
+
+	/** Количество членов, начиная с которого для поиска ключа строится хеш-таблица */
+	private static final int LOOKUP_THRESHOLD = 8;
+
+	/** Лента документа */
+	private final Tape tape;
+	/** Индекс токена объекта в ленте */
+	private final int index;
+
+	/** Декодированные ключи */
+	private String[] keys;
+	/** Индексы токенов значений */
+	private int[] values;
+	/** Уже созданные значения */
+	private JSONEntity[] cache;
+	/** Флаги созданных значений (значение может быть {@code null}) */
+	private boolean[] loaded;
+	/** Индексы членов по ключу для больших объектов */
+	private HashMap<String, Integer> lookup;
+	/** Обычное представление объекта после первого изменения */
+	private LinkedHashMap<String, JSONEntity> inflated;
+	/** Счётчик структурных изменений через методы объекта, по которому итераторы замечают чужие изменения */
+	private int modifications;
+
+	TapeMap(Tape tape, int index){
+		this.tape = tape;
+		this.index = index;
+	}
+
+	@Override
+	public int size(){
+		if(this.inflated != null)
+			return this.inflated.size();
+		this.index();
+		return this.keys.length;
+	}
+
+	@Override
+	public boolean containsKey(Object key){
+		if(this.inflated != null)
+			return this.inflated.containsKey(key);
+		return this.find(key) >= 0;
+	}
+
+	@Override
+	public JSONEntity get(Object key){
+		if(this.inflated != null)
+			return this.inflated.get(key);
+		int i = this.find(key);
+		return i < 0 ? null : this.value(i);
+	}
+
+	@Override
+	public JSONEntity put(String key, JSONEntity value){
+		LinkedHashMap<String, JSONEntity> map = this.inflate();
+		int size = map.size();
+		JSONEntity result = map.put(key, value);
+		if(map.size() != size)
+			this.modifications++;
+		return result;
+	}
+
+	@Override
+	public JSONEntity remove(Object key){
+		LinkedHashMap<String, JSONEntity> map = this.inflate();
+		int size = map.size();
+		JSONEntity result = map.remove(key);
+		if(map.size() != size)
+			this.modifications++;
+		return result;
+	}
+
+	@Override
+	public void clear(){
+		this.inflate().clear();
+		this.modifications++;
+	}
+
+	@Override
+	public Set<Map.Entry<String, JSONEntity>> entrySet(){
+		if(this.inflated != null)
+			return this.inflated.entrySet();
+		return new AbstractSet<Map.Entry<String, JSONEntity>>(){
+
+			@Override
+			public int size(){
+				return TapeMap.this.size();
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, JSONEntity>> iterator(){
+				if(TapeMap.this.inflated != null)
+					return TapeMap.this.inflated.entrySet().iterator();
+				TapeMap.this.index();
+				return new Members();
+			}
+		};
+	}
+
+	/**
+	 * Находит порядковый номер члена объекта по ключу
+	 * @param key Ключ
+	 * @return Номер члена или {@code -1}, если ключа нет
+	 */
+	private int find(Object key){
+		this.index();
+		if(this.lookup != null){
+			Integer i = this.lookup.get(key);
+			return i == null ? -1 : i;
+		}
+		for(int i = this.keys.length - 1; i >= 0; i--)
+			if(this.keys[i].equals(key))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Возвращает значение члена объекта, создавая его при первом обращении
+	 * @param i Порядковый номер члена
+	 */
+	private JSONEntity value(int i){
+		if(!this.loaded[i]){
+			this.cache[i] = this.tape.materialize(this.values[i]);
+			this.loaded[i] = true;
+		}
+		return this.cache[i];
+	}
+
+	/**
+	 * Проходит по членам объекта, пропуская вложенные структуры, и декодирует ключи.
+	 * Для повторяющегося ключа запоминается значение последнего вхождения
+	 */
+	private void index(){
+		if(this.keys != null)
+			return;
+		int end = this.tape.end(this.index);
+		int count = 0;
+		for(int i = this.index + 1; i < end; i = this.tape.next(i + 1))
+			count++;
+		String[] keys = new String[count];
+		int[] values = new int[count];
+		HashMap<String, Integer> lookup = count > LOOKUP_THRESHOLD ? new HashMap<>(count << 1) : null;
+		int member = 0;
+		for(int i = this.index + 1; i < end; i = this.tape.next(i + 1)){
+			String key = this.tape.string(i);
+			int existing = -1;
+			if(lookup != null){
+				Integer previous = lookup.putIfAbsent(key, member);
+				existing = previous == null ? -1 : previous;
+			} else {
+				for(int j = 0; j < member && existing < 0; j++)
+					if(keys[j].equals(key))
+						existing = j;
+			}
+			if(existing >= 0){
+				values[existing] = i + 1;
+				continue;
+			}
+			keys[member] = key;
+			values[member] = i + 1;
+			member++;
+		}
+		if(member < count){
+			keys = Arrays.copyOf(keys, member);
+			values = Arrays.copyOf(values, member);
+		}
+		this.keys = keys;
+		this.values = values;
+		this.cache = new JSONEntity[member];
+		this.loaded = new boolean[member];
+		this.lookup = lookup;
+	}
+
+	/**
+	 * Переносит все члены объекта в обычный {@code LinkedHashMap}
+	 * @return Обычное представление объекта
+	 */
+	private LinkedHashMap<String, JSONEntity> inflate(){
+		if(this.inflated == null){
+			this.index();
+			LinkedHashMap<String, JSONEntity> result = new LinkedHashMap<>();
+			for(int i = 0; i < this.keys.length; i++)
+				result.put(this.keys[i], this.value(i));
+			this.inflated = result;
+			this.keys = null;
+			this.values = null;
+			this.cache = null;
+			this.loaded = null;
+			this.lookup = null;
+		}
+		return this.inflated;
+	}
+
+	/**
+	 * Итератор по членам ленты. Пока объект не перенесён в {@code LinkedHashMap}, члены читаются
+	 * из ленты. Удаление и {@link Map.Entry#setValue(Object)} переносят объект, после чего итератор
+	 * продолжает обход по итератору {@code LinkedHashMap}, пропустив уже пройденные члены
+	 */
+	private final class Members implements Iterator<Map.Entry<String, JSONEntity>>{
+
+		/** Значение счётчика изменений объекта при создании итератора */
+		private final int expected = TapeMap.this.modifications;
+		/** Номер следующего члена */
+		private int next = 0;
+		/** Итератор перенесённого объекта */
+		private Iterator<Map.Entry<String, JSONEntity>> delegate;
+
+		@Override
+		public boolean hasNext(){
+			Iterator<Map.Entry<String, JSONEntity>> delegate = this.delegate();
+			return delegate != null ? delegate.hasNext() : this.next < TapeMap.this.keys.length;
+		}
+
+		@Override
+		public Map.Entry<String, JSONEntity> next(){
+			Iterator<Map.Entry<String, JSONEntity>> delegate = this.delegate();
+			if(delegate != null)
+				return delegate.next();
+			if(this.next == TapeMap.this.keys.length)
+				throw new NoSuchElementException();
+			int member = this.next++;
+			return new Member(TapeMap.this.keys[member], member);
+		}
+
+		@Override
+		public void remove(){
+			if(this.delegate == null && this.next == 0)
+				throw new IllegalStateException();
+			TapeMap.this.inflate();
+			this.delegate().remove();
+		}
+
+		/**
+		 * Возвращает итератор перенесённого объекта, создавая его при первом обращении после переноса
+		 * @return Итератор или {@code null}, если объект ещё не перенесён
+		 * @throws ConcurrentModificationException Если объект структурно изменён не через этот итератор
+		 */
+		private Iterator<Map.Entry<String, JSONEntity>> delegate(){
+			if(this.delegate == null && TapeMap.this.inflated != null){
+				if(TapeMap.this.modifications != this.expected)
+					throw new ConcurrentModificationException();
+				this.delegate = TapeMap.this.inflated.entrySet().iterator();
+				for(int i = 0; i < this.next; i++)
+					this.delegate.next();
+			}
+			return this.delegate;
+		}
+	}
+
+	/**
+	 * Член объекта, значение которого создаётся при первом обращении
+	 */
+	private final class Member implements Map.Entry<String, JSONEntity>{
+
+		/** Ключ */
+		private final String key;
+		/** Порядковый номер члена в ленте */
+		private final int member;
+
+		Member(String key, int member){
+			this.key = key;
+			this.member = member;
+		}
+
+		@Override
+		public String getKey(){
+			return this.key;
+		}
+
+		@Override
+		public JSONEntity getValue(){
+			if(TapeMap.this.inflated != null)
+				return TapeMap.this.inflated.get(this.key);
+			return TapeMap.this.value(this.member);
+		}
+
+		@Override
+		public JSONEntity setValue(JSONEntity value){
+			return TapeMap.this.inflate().put(this.key, value);
+		}
+
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) other;
+			return this.key.equals(entry.getKey()) && Objects.equals(this.getValue(), entry.getValue());
+		}
+
+		@Override
+		public int hashCode(){
+			return this.key.hashCode() ^ Objects.hashCode(this.getValue());
+		}
+
+		@Override
+		public String toString(){
+			return this.key + "=" + this.getValue();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package common.json;
+
+import java.text.ParseException;
+
+/**
+ * Общий для {@link Parser} и {@link LazyParser} сканер JSON-строки: курсор, пропуск пробелов,
+ * проверка ключевых слов, чисел и последовательностей {@code \}{@code uXXXX}.
+ * Подклассы отличаются только тем, что строят по найденным токенам
+ */
+abstract class TextScanner{
+
+	/** Ключевое слово {@code null} которое не оборачивается в кавычки в JSON-структуре */
+	static final String KEYWORD_NULL = "null";
+	/** Ключевое слово {@code true} которое не оборачивается в кавычки в JSON-структуре */
+	static final String KEYWORD_TRUE = "true";
+	/** Ключевое слово {@code false} которое не оборачивается в кавычки в JSON-структуре */
+	static final String KEYWORD_FALSE = "false";
+
+	/** Разбираемая строка данных */
+	String raw;
+	/** Позиция курсора */
+	int pos = 0;
+
+	TextScanner(String data){
+		this.raw = data;
+	}
+
+	/**
+	 * Возвращает закрывающую скобку контейнера на вершине стека. Используется в сообщении
+	 * об ошибке, когда строка закончилась раньше, чем были закрыты все структуры
+	 */
+	abstract char closing();
+
+	/**
+	 * Считывает четыре шестнадцатеричные цифры последовательности {@code \}{@code uXXXX}.
+	 * Курсор при этом находится на символе {@code u} и остаётся на последней цифре
+	 * @return Закодированный символ
+	 * @throws ParseException Если последовательность неполная или содержит не шестнадцатеричные цифры
+	 */
+	final char readUnicode() throws ParseException {
+		if(this.pos + 4 >= this.raw.length())
+			throw new ParseException("Unexpected end of input. Expected unicode escape sequence", this.pos);
+		int code = 0;
+		for(int i = 0; i < 4; i++){
+			char c = this.raw.charAt(++this.pos);
+			int digit = Character.digit(c, 16);
+			if(digit < 0)
+				this.throwException(c, "Expected hexadecimal digit");
+			code = code << 4 | digit;
+		}
+		return (char) code;
+	}
+
+	/**
+	 * Проверяет, что с текущей позиции начинается ожидаемое ключевое слово, и пропускает его
+	 * @param keyword Одно из ключевых слов {@code null}, {@code true} или {@code false}
+	 * @throws ParseException Если ключевое слово записано неверно
+	 */
+	final void readKeyword(String keyword) throws ParseException {
+		int length = keyword.length();
+		for(int i = 0; i < length; i++, this.pos++){
+			if(this.pos == this.raw.length())
+				throw new ParseException("Unexpected end of input. Expected " + keyword + " value", this.pos);
+			char c = this.raw.charAt(this.pos);
+			if(c != keyword.charAt(i))
+				this.throwException(c, "Expected " + keyword + " value");
+		}
+	}
+
+	/**
+	 * Проверяет число по грамматике JSON (знак, целая часть без ведущих нулей,
+	 * дробная часть и экспонента) и перемещает курсор за его последний символ
+	 * @return Позиция сразу после числа
+	 * @throws ParseException Если число записано некорректно
+	 */
+	final int readNumber() throws ParseException {
+		if(this.raw.charAt(this.pos) == '-')
+			this.pos++;
+		char c = this.charAtPos();
+		if(c == '0'){
+			this.pos++;
+		} else if(isDigit(c)){
+			this.skipDigits();
+		} else {
+			this.throwException(c, "Expected digit token");
+		}
+		if(this.charAtPos() == '.'){
+			this.pos++;
+			if(!isDigit(this.charAtPos()))
+				this.throwException(this.charAtPos(), "Expected digit token");
+			this.skipDigits();
+		}
+		c = this.charAtPos();
+		if(c == 'e' || c == 'E'){
+			this.pos++;
+			c = this.charAtPos();
+			if(c == '+' || c == '-')
+				this.pos++;
+			if(!isDigit(this.charAtPos()))
+				this.throwException(this.charAtPos(), "Expected digit token");
+			this.skipDigits();
+		}
+		return this.pos;
+	}
+
+	/**
+	 * Перемещает курсор за последнюю подряд идущую цифру
+	 */
+	private void skipDigits(){
+		int length = this.raw.length();
+		while(this.pos < length && isDigit(this.raw.charAt(this.pos)))
+			this.pos++;
+	}
+
+	/**
+	 * Возвращает символ в текущей позиции курсора
+	 * @return Символ или {@code '\0'}, если достигнут конец строки
+	 */
+	private char charAtPos(){
+		return this.pos < this.raw.length() ? this.raw.charAt(this.pos) : '\0';
+	}
+
+	/**
+	 * Пропускает пробельные символы и возвращает первый значащий символ, не перемещая на него курсор
+	 * @return Первый непробельный символ
+	 * @throws ParseException Если строка закончилась раньше, чем были закрыты все структуры
+	 */
+	final char nextToken() throws ParseException {
+		this.skipWhitespace();
+		if(this.pos == this.raw.length())
+			throw new ParseException("Unexpected end of input. Expected " + this.closing(), this.pos);
+		return this.raw.charAt(this.pos);
+	}
+
+	/**
+	 * Перемещает курсор за последний подряд идущий пробельный символ
+	 */
+	final void skipWhitespace(){
+		int length = this.raw.length();
+		while(this.pos < length && isWhitespace(this.raw.charAt(this.pos)))
+			this.pos++;
+	}
+
+	/**
+	 * Бросает ошибку парсинга со стандартным текстом
+	 * @param c Символ на котором произошла ошибка
+	 * @param additional Дополнительная информация об ошибке
+	 */
+	final void throwException(char c, String additional) throws ParseException {
+		throw new ParseException("Unexpected token \"" + c + "\" at position " + this.pos + ". " + additional, this.pos);
+	}
+
+	/**
+	 * Проверяет, является ли переданный символ пробельным
+	 * @param c Проверяемый символ
+	 * @return {@code true} если символ пробельный
+	 */
+	static boolean isWhitespace(char c){
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\0';
+	}
+
+	/**
+	 * Проверяет, является ли переданный символ числом от 0 до 9
+	 * @param c Проверяемый символ
+	 * @return {@code true} если символ это число
+	 */
+	static boolean isDigit(char c){
+		return '0' <= c && c <= '9';
+	}
+}
@@ -0,0 +1,294 @@
+package common.json;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Неизменяемый список в виде дерева с ветвлением 32. Элементы хранятся в листьях
+ * по 32 штуки, последние до 32 элементов - в отдельном хвосте, поэтому добавление
+ * в конец обычно копирует только хвост. Методы {@link #with(int, JSONEntity)},
+ * {@link #plus(JSONEntity)} и {@link #pop()} копируют только узлы на пути к элементу
+ * за O(log32 n), остальные узлы общие для старой и новой версий. Вставка и удаление
+ * в середине перестраивают список за O(n)
+ */
+final class VectorTrie extends AbstractList<JSONEntity> implements RandomAccess{
+
+	/** Количество бит индекса на уровень */
+	private static final int BITS = 5;
+	/** Ширина узла */
+	private static final int WIDTH = 1 << BITS;
+	/** Маска индекса внутри уровня */
+	private static final int MASK = WIDTH - 1;
+	/** Пустой узел */
+	private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+	/** Пустой список */
+	static final VectorTrie EMPTY = new VectorTrie(0, BITS, EMPTY_NODE, new Object[0]);
+
+	/** Количество элементов */
+	private final int size;
+	/** Сдвиг индекса для корневого уровня */
+	private final int shift;
+	/** Корень дерева полных листьев */
+	private final Object[] root;
+	/** Последние элементы, не попавшие в дерево */
+	private final Object[] tail;
+
+	private VectorTrie(int size, int shift, Object[] root, Object[] tail){
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	/**
+	 * Создаёт список из массива за O(n)
+	 * @param items Элементы, массив копируется
+	 * @param size Количество элементов в начале массива
+	 */
+	static VectorTrie of(Object[] items, int size){
+		if(size == 0)
+			return EMPTY;
+		int offset = tailOffset(size);
+		Object[] tail = Arrays.copyOfRange(items, offset, size);
+		Object[][] nodes = new Object[offset >>> BITS][];
+		for(int i = 0; i < nodes.length; i++)
+			nodes[i] = Arrays.copyOfRange(items, i << BITS, (i + 1) << BITS);
+		int shift = BITS;
+		while(nodes.length > WIDTH){
+			Object[][] parents = new Object[(nodes.length + MASK) >>> BITS][];
+			for(int i = 0; i < parents.length; i++)
+				parents[i] = Arrays.copyOfRange(nodes, i << BITS, (i + 1) << BITS, Object[].class);
+			nodes = parents;
+			shift += BITS;
+		}
+		return new VectorTrie(size, shift, Arrays.copyOf(nodes, WIDTH, Object[].class), tail);
+	}
+
+	@Override
+	public int size(){
+		return this.size;
+	}
+
+	@Override
+	public JSONEntity get(int index){
+		this.check(index);
+		return (JSONEntity) this.leaf(index)[index & MASK];
+	}
+
+	/**
+	 * Возвращает список с заменённым элементом
+	 * @param index Индекс элемента
+	 * @param value Новое значение
+	 */
+	VectorTrie with(int index, JSONEntity value){
+		this.check(index);
+		if(index >= tailOffset(this.size)){
+			Object[] tail = this.tail.clone();
+			tail[index & MASK] = value;
+			return new VectorTrie(this.size, this.shift, this.root, tail);
+		}
+		Object[] root = this.root.clone();
+		Object[] node = root;
+		for(int level = this.shift; level > 0; level -= BITS){
+			int i = (index >>> level) & MASK;
+			Object[] child = ((Object[]) node[i]).clone();
+			node[i] = child;
+			node = child;
+		}
+		node[index & MASK] = value;
+		return new VectorTrie(this.size, this.shift, root, this.tail);
+	}
+
+	/**
+	 * Возвращает список с элементом, добавленным в конец
+	 * @param value Новый элемент
+	 */
+	VectorTrie plus(JSONEntity value){
+		if(this.size - tailOffset(this.size) < WIDTH){
+			Object[] tail = Arrays.copyOf(this.tail, this.tail.length + 1);
+			tail[this.tail.length] = value;
+			return new VectorTrie(this.size + 1, this.shift, this.root, tail);
+		}
+		Object[] root;
+		int shift = this.shift;
+		if((this.size >>> BITS) > (1 << this.shift)){
+			root = new Object[WIDTH];
+			root[0] = this.root;
+			root[1] = path(this.shift, this.tail);
+			shift += BITS;
+		} else {
+			root = this.pushTail(this.shift, this.root);
+		}
+		return new VectorTrie(this.size + 1, shift, root, new Object[]{value});
+	}
+
+	/**
+	 * Возвращает список без последнего элемента
+	 * @throws IllegalStateException Если список пуст
+	 */
+	VectorTrie pop(){
+		if(this.size == 0)
+			throw new IllegalStateException("List is empty");
+		if(this.size == 1)
+			return EMPTY;
+		if(this.size - tailOffset(this.size) > 1)
+			return new VectorTrie(this.size - 1, this.shift, this.root, Arrays.copyOf(this.tail, this.tail.length - 1));
+		Object[] tail = this.leaf(this.size - 2);
+		Object[] root = this.popTail(this.shift, this.root);
+		int shift = this.shift;
+		if(root == null)
+			root = EMPTY_NODE;
+		if(shift > BITS && root[1] == null){
+			root = (Object[]) root[0];
+			shift -= BITS;
+		}
+		return new VectorTrie(this.size - 1, shift, root, tail);
+	}
+
+	/**
+	 * Возвращает список со вставленным элементом. Вставка в конец выполняется через {@link #plus(JSONEntity)},
+	 * в остальных случаях список перестраивается за O(n)
+	 * @param index Индекс нового элемента
+	 * @param value Новый элемент
+	 */
+	VectorTrie insert(int index, JSONEntity value){
+		if(index < 0 || index > this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+		if(index == this.size)
+			return this.plus(value);
+		Object[] items = new Object[this.size + 1];
+		this.copyTo(items, 0, index, 0);
+		items[index] = value;
+		this.copyTo(items, index, this.size, index + 1);
+		return of(items, items.length);
+	}
+
+	/**
+	 * Возвращает список без элемента. Удаление последнего элемента выполняется через {@link #pop()},
+	 * в остальных случаях список перестраивается за O(n)
+	 * @param index Индекс удаляемого элемента
+	 */
+	VectorTrie delete(int index){
+		this.check(index);
+		if(index == this.size - 1)
+			return this.pop();
+		Object[] items = new Object[this.size - 1];
+		this.copyTo(items, 0, index, 0);
+		this.copyTo(items, index + 1, this.size, index);
+		return of(items, items.length);
+	}
+
+	@Override
+	public Iterator<JSONEntity> iterator(){
+		return new Iterator<JSONEntity>(){
+
+			private int index = 0;
+			private Object[] leaf;
+
+			@Override
+			public boolean hasNext(){
+				return this.index < VectorTrie.this.size;
+			}
+
+			@Override
+			public JSONEntity next(){
+				if(this.index >= VectorTrie.this.size)
+					throw new NoSuchElementException();
+				if((this.index & MASK) == 0 || this.leaf == null)
+					this.leaf = VectorTrie.this.leaf(this.index);
+				return (JSONEntity) this.leaf[this.index++ & MASK];
+			}
+		};
+	}
+
+	/**
+	 * Копирует элементы в массив по листьям
+	 */
+	private void copyTo(Object[] target, int from, int to, int position){
+		while(from < to){
+			Object[] leaf = this.leaf(from);
+			int count = Math.min(to - from, WIDTH - (from & MASK));
+			System.arraycopy(leaf, from & MASK, target, position, count);
+			from += count;
+			position += count;
+		}
+	}
+
+	/**
+	 * Возвращает лист или хвост, в котором хранится элемент
+	 */
+	private Object[] leaf(int index){
+		if(index >= tailOffset(this.size))
+			return this.tail;
+		Object[] node = this.root;
+		for(int level = this.shift; level > 0; level -= BITS)
+			node = (Object[]) node[(index >>> level) & MASK];
+		return node;
+	}
+
+	/**
+	 * Копирует путь к последнему листу и добавляет полный хвост новым листом.
+	 * Глубина рекурсии ограничена высотой дерева
+	 */
+	private Object[] pushTail(int level, Object[] parent){
+		int i = ((this.size - 1) >>> level) & MASK;
+		Object[] result = parent.clone();
+		if(level == BITS){
+			result[i] = this.tail;
+		} else {
+			Object[] child = (Object[]) parent[i];
+			result[i] = child == null ? path(level - BITS, this.tail) : this.pushTail(level - BITS, child);
+		}
+		return result;
+	}
+
+	/**
+	 * Копирует путь к последнему листу без этого листа
+	 * @return Узел или {@code null}, если узел опустел
+	 */
+	private Object[] popTail(int level, Object[] node){
+		int i = ((this.size - 2) >>> level) & MASK;
+		if(level > BITS){
+			Object[] child = this.popTail(level - BITS, (Object[]) node[i]);
+			if(child == null && i == 0)
+				return null;
+			Object[] result = node.clone();
+			result[i] = child;
+			return result;
+		}
+		if(i == 0)
+			return null;
+		Object[] result = node.clone();
+		result[i] = null;
+		return result;
+	}
+
+	/**
+	 * Создаёт цепочку узлов до листа
+	 */
+	private static Object[] path(int level, Object[] leaf){
+		Object[] result = leaf;
+		for(; level > 0; level -= BITS){
+			Object[] parent = new Object[WIDTH];
+			parent[0] = result;
+			result = parent;
+		}
+		return result;
+	}
+
+	/**
+	 * Индекс первого элемента хвоста
+	 */
+	private static int tailOffset(int size){
+		return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+	}
+
+	private void check(int index){
+		if(index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+	}
+}
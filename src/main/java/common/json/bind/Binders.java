@@ -0,0 +1,343 @@
+package common.json.bind;
+
+import common.json.JSONReader;
+import common.json.JSONToken;
+import common.json.JSONWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реализации {@link JSONBinder} для стандартных типов и вспомогательные методы,
+ * которые используются сгенерированным кодом. Все реализации считывают и записывают {@code null}
+ */
+public final class Binders{
+
+	public static final JSONBinder<String> STRING = new ValueBinder<String>(){
+
+		@Override
+		protected String readValue(JSONReader reader) throws IOException, ParseException {
+			return reader.nextString();
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, String value) throws IOException {
+			writer.value(value);
+		}
+	};
+
+	public static final JSONBinder<Boolean> BOOLEAN = new ValueBinder<Boolean>(){
+
+		@Override
+		protected Boolean readValue(JSONReader reader) throws IOException, ParseException {
+			return reader.nextBoolean();
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Boolean value) throws IOException {
+			writer.value(value.booleanValue());
+		}
+	};
+
+	public static final JSONBinder<Byte> BYTE = new ValueBinder<Byte>(){
+
+		@Override
+		protected Byte readValue(JSONReader reader) throws IOException, ParseException {
+			return nextByte(reader);
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Byte value) throws IOException {
+			writer.value(value.longValue());
+		}
+	};
+
+	public static final JSONBinder<Short> SHORT = new ValueBinder<Short>(){
+
+		@Override
+		protected Short readValue(JSONReader reader) throws IOException, ParseException {
+			return nextShort(reader);
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Short value) throws IOException {
+			writer.value(value.longValue());
+		}
+	};
+
+	public static final JSONBinder<Integer> INTEGER = new ValueBinder<Integer>(){
+
+		@Override
+		protected Integer readValue(JSONReader reader) throws IOException, ParseException {
+			return reader.nextInt();
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Integer value) throws IOException {
+			writer.value(value.longValue());
+		}
+	};
+
+	public static final JSONBinder<Long> LONG = new ValueBinder<Long>(){
+
+		@Override
+		protected Long readValue(JSONReader reader) throws IOException, ParseException {
+			return reader.nextLong();
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Long value) throws IOException {
+			writer.value(value.longValue());
+		}
+	};
+
+	public static final JSONBinder<Float> FLOAT = new ValueBinder<Float>(){
+
+		@Override
+		protected Float readValue(JSONReader reader) throws IOException, ParseException {
+			return (float) reader.nextDouble();
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Float value) throws IOException {
+			writer.value(value.doubleValue());
+		}
+	};
+
+	public static final JSONBinder<Double> DOUBLE = new ValueBinder<Double>(){
+
+		@Override
+		protected Double readValue(JSONReader reader) throws IOException, ParseException {
+			return reader.nextDouble();
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Double value) throws IOException {
+			writer.value(value.doubleValue());
+		}
+	};
+
+	public static final JSONBinder<Character> CHARACTER = new ValueBinder<Character>(){
+
+		@Override
+		protected Character readValue(JSONReader reader) throws IOException, ParseException {
+			return nextChar(reader);
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, Character value) throws IOException {
+			writer.value(value.toString());
+		}
+	};
+
+	public static final JSONBinder<BigDecimal> BIG_DECIMAL = new ValueBinder<BigDecimal>(){
+
+		@Override
+		protected BigDecimal readValue(JSONReader reader) throws IOException, ParseException {
+			return nextBigDecimal(reader);
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, BigDecimal value) throws IOException {
+			writer.value(value);
+		}
+	};
+
+	public static final JSONBinder<BigInteger> BIG_INTEGER = new ValueBinder<BigInteger>(){
+
+		@Override
+		protected BigInteger readValue(JSONReader reader) throws IOException, ParseException {
+			BigDecimal value = nextBigDecimal(reader);
+			try {
+				return value.toBigIntegerExact();
+			} catch(ArithmeticException ex){
+				throw exception(reader, "Expected integer but was " + value);
+			}
+		}
+
+		@Override
+		protected void writeValue(JSONWriter writer, BigInteger value) throws IOException {
+			writer.value(new BigDecimal(value));
+		}
+	};
+
+	private Binders(){}
+
+	/**
+	 * Создаёт реализацию для списков. Списки считываются в {@code ArrayList}
+	 * @param element Реализация для элементов
+	 * @return Реализация для списков
+	 */
+	public static <T> JSONBinder<List<T>> list(JSONBinder<T> element){
+		return new ValueBinder<List<T>>(){
+
+			@Override
+			protected List<T> readValue(JSONReader reader) throws IOException, ParseException {
+				List<T> result = new ArrayList<>();
+				reader.beginList();
+				while(reader.hasNext())
+					result.add(element.read(reader));
+				reader.endList();
+				return result;
+			}
+
+			@Override
+			protected void writeValue(JSONWriter writer, List<T> value) throws IOException {
+				writer.beginList();
+				for(T item : value)
+					element.write(writer, item);
+				writer.endList();
+			}
+		};
+	}
+
+	/**
+	 * Создаёт реализацию для словарей со строковыми ключами. Словари считываются в {@code LinkedHashMap}
+	 * @param element Реализация для значений
+	 * @return Реализация для словарей
+	 */
+	public static <T> JSONBinder<Map<String, T>> map(JSONBinder<T> element){
+		return new ValueBinder<Map<String, T>>(){
+
+			@Override
+			protected Map<String, T> readValue(JSONReader reader) throws IOException, ParseException {
+				Map<String, T> result = new LinkedHashMap<>();
+				reader.beginObject();
+				while(reader.hasNext())
+					result.put(reader.nextName(), element.read(reader));
+				reader.endObject();
+				return result;
+			}
+
+			@Override
+			protected void writeValue(JSONWriter writer, Map<String, T> value) throws IOException {
+				writer.beginObject();
+				for(Map.Entry<String, T> entry : value.entrySet()){
+					writer.name(entry.getKey());
+					element.write(writer, entry.getValue());
+				}
+				writer.endObject();
+			}
+		};
+	}
+
+	/**
+	 * Создаёт реализацию для перечислений. Константы записываются по имени
+	 * @param constants Все константы перечисления, например {@code E.values()}
+	 * @return Реализация для перечисления
+	 */
+	public static <E extends Enum<E>> JSONBinder<E> enumeration(E[] constants){
+		Map<String, E> names = new HashMap<>(constants.length << 1);
+		for(E constant : constants)
+			names.put(constant.name(), constant);
+		return new ValueBinder<E>(){
+
+			@Override
+			protected E readValue(JSONReader reader) throws IOException, ParseException {
+				String name = reader.nextString();
+				E result = names.get(name);
+				if(result == null)
+					throw exception(reader, "Unknown constant \"" + name + "\"");
+				return result;
+			}
+
+			@Override
+			protected void writeValue(JSONWriter writer, E value) throws IOException {
+				writer.value(value.name());
+			}
+		};
+	}
+
+	/**
+	 * Считывает целое число, умещающееся в {@code byte}
+	 * @throws ParseException Если следующий токен не является числом или число не умещается в {@code byte}
+	 */
+	public static byte nextByte(JSONReader reader) throws IOException, ParseException {
+		int value = reader.nextInt();
+		if(value != (byte) value)
+			throw exception(reader, "Expected byte but was " + value);
+		return (byte) value;
+	}
+
+	/**
+	 * Считывает целое число, умещающееся в {@code short}
+	 * @throws ParseException Если следующий токен не является числом или число не умещается в {@code short}
+	 */
+	public static short nextShort(JSONReader reader) throws IOException, ParseException {
+		int value = reader.nextInt();
+		if(value != (short) value)
+			throw exception(reader, "Expected short but was " + value);
+		return (short) value;
+	}
+
+	/**
+	 * Считывает строку из одного символа
+	 * @throws ParseException Если следующий токен не является строкой из одного символа
+	 */
+	public static char nextChar(JSONReader reader) throws IOException, ParseException {
+		String value = reader.nextString();
+		if(value.length() != 1)
+			throw exception(reader, "Expected single character but was \"" + value + "\"");
+		return value.charAt(0);
+	}
+
+	/**
+	 * Считывает число без потери точности
+	 * @throws ParseException Если следующий токен не является числом
+	 */
+	public static BigDecimal nextBigDecimal(JSONReader reader) throws IOException, ParseException {
+		JSONToken token = reader.peek();
+		if(token != JSONToken.NUMBER)
+			throw exception(reader, "Expected " + JSONToken.NUMBER + " but was " + token);
+		return new BigDecimal(reader.nextString());
+	}
+
+	/**
+	 * Создаёт ошибку разбора с позицией потока
+	 */
+	private static ParseException exception(JSONReader reader, String message){
+		long position = reader.getPosition();
+		return new ParseException(message + " at position " + position, (int) Math.min(position, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Основа реализаций, которые сами обрабатывают {@code null}
+	 * @param <T> Тип значений
+	 */
+	private abstract static class ValueBinder<T> implements JSONBinder<T>{
+
+		@Override
+		public T read(JSONReader reader) throws IOException, ParseException {
+			if(reader.peek() == JSONToken.NULL){
+				reader.nextNull();
+				return null;
+			}
+			return this.readValue(reader);
+		}
+
+		@Override
+		public void write(JSONWriter writer, T value) throws IOException {
+			if(value == null)
+				writer.nullValue();
+			else
+				this.writeValue(writer, value);
+		}
+
+		/**
+		 * Считывает значение, отличное от {@code null}
+		 */
+		protected abstract T readValue(JSONReader reader) throws IOException, ParseException;
+
+		/**
+		 * Записывает значение, отличное от {@code null}
+		 */
+		protected abstract void writeValue(JSONWriter writer, T value) throws IOException;
+	}
+}
@@ -0,0 +1,388 @@
+package common.json.bind;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Процессор аннотаций, который для каждого класса с {@link JSONBindable} генерирует
+ * реализацию {@link JSONBinder}. Сгенерированный код читает поля напрямую из {@code JSONReader}
+ * и пишет их в {@code JSONWriter}: без дерева {@code JSONEntity} и без отражения во время выполнения.
+ * Поддерживаются примитивы и их обёртки, {@code String}, {@code BigDecimal}, {@code BigInteger},
+ * перечисления, другие классы с {@link JSONBindable}, а также {@code List<T>} и {@code Map<String, T>}
+ * из поддерживаемых типов. Неизвестные ключи при чтении пропускаются.
+ * Процессор регистрируется через {@code META-INF/services} и подключается компилятором автоматически
+ */
+@SupportedAnnotationTypes("common.json.bind.JSONBindable")
+public final class BindingProcessor extends AbstractProcessor{
+
+	/** Окончание имени сгенерированного класса */
+	private static final String SUFFIX = "JSONBinder";
+
+	/** Реализации для стандартных типов по полному имени типа */
+	private static final Map<String, String> STANDARD = new HashMap<>();
+
+	static {
+		STANDARD.put("java.lang.String", "Binders.STRING");
+		STANDARD.put("java.lang.Boolean", "Binders.BOOLEAN");
+		STANDARD.put("java.lang.Byte", "Binders.BYTE");
+		STANDARD.put("java.lang.Short", "Binders.SHORT");
+		STANDARD.put("java.lang.Integer", "Binders.INTEGER");
+		STANDARD.put("java.lang.Long", "Binders.LONG");
+		STANDARD.put("java.lang.Float", "Binders.FLOAT");
+		STANDARD.put("java.lang.Double", "Binders.DOUBLE");
+		STANDARD.put("java.lang.Character", "Binders.CHARACTER");
+		STANDARD.put("java.math.BigDecimal", "Binders.BIG_DECIMAL");
+		STANDARD.put("java.math.BigInteger", "Binders.BIG_INTEGER");
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion(){
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round){
+		for(Element element : round.getElementsAnnotatedWith(JSONBindable.class)){
+			if(element.getKind() != ElementKind.CLASS){
+				this.error(element, "@JSONBindable can only be applied to classes");
+				continue;
+			}
+			try {
+				new Generator((TypeElement) element).generate();
+			} catch(BindingException ex){
+				this.error(ex.element, ex.getMessage());
+			} catch(IOException ex){
+				this.error(element, "Failed to write binder: " + ex.getMessage());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Сообщает компилятору об ошибке
+	 */
+	private void error(Element element, String message){
+		this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * Возвращает полное имя сгенерированного класса для класса с {@link JSONBindable}
+	 */
+	private String binderName(TypeElement type){
+		StringBuilder name = new StringBuilder(type.getSimpleName());
+		Element enclosing = type.getEnclosingElement();
+		while(enclosing instanceof TypeElement){
+			name.insert(0, '_').insert(0, enclosing.getSimpleName());
+			enclosing = enclosing.getEnclosingElement();
+		}
+		String packageName = this.packageOf(type);
+		return (packageName.isEmpty() ? "" : packageName + ".") + name + SUFFIX;
+	}
+
+	/**
+	 * Возвращает имя пакета элемента
+	 */
+	private String packageOf(Element element){
+		PackageElement result = this.processingEnv.getElementUtils().getPackageOf(element);
+		return result.isUnnamed() ? "" : result.getQualifiedName().toString();
+	}
+
+	/**
+	 * Записывает строку в виде строкового литерала Java
+	 */
+	private static String literal(String value){
+		StringBuilder result = new StringBuilder("\"");
+		for(int i = 0; i < value.length(); i++){
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\')
+				result.append('\\').append(c);
+			else if(c < ' ' || c > '~')
+				result.append(String.format("\\u%04x", (int) c));
+			else
+				result.append(c);
+		}
+		return result.append('"').toString();
+	}
+
+	/**
+	 * Генерирует реализацию для одного класса
+	 */
+	private final class Generator{
+
+		/** Связываемый класс */
+		private final TypeElement type;
+		/** Пакет связываемого и сгенерированного классов */
+		private final String packageName;
+		/** Полное имя сгенерированного класса */
+		private final String binderName;
+		/** Объявления констант с реализациями для ссылочных типов */
+		private final StringBuilder constants = new StringBuilder();
+		/** Имена констант по типу */
+		private final Map<String, String> constantNames = new HashMap<>();
+
+		private Generator(TypeElement type){
+			this.type = type;
+			this.packageName = BindingProcessor.this.packageOf(type);
+			this.binderName = BindingProcessor.this.binderName(type);
+		}
+
+		/**
+		 * Проверяет класс и записывает исходный код реализации
+		 */
+		private void generate() throws IOException {
+			Set<Modifier> modifiers = this.type.getModifiers();
+			if(modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.ABSTRACT))
+				throw new BindingException(this.type, "@JSONBindable class must not be private or abstract");
+			if(this.type.getNestingKind().isNested() && !modifiers.contains(Modifier.STATIC))
+				throw new BindingException(this.type, "@JSONBindable nested class must be static");
+			if(!this.type.getTypeParameters().isEmpty())
+				throw new BindingException(this.type, "@JSONBindable class must not be generic");
+			boolean constructor = false;
+			for(ExecutableElement element : ElementFilter.constructorsIn(this.type.getEnclosedElements()))
+				constructor |= element.getParameters().isEmpty() && !element.getModifiers().contains(Modifier.PRIVATE);
+			if(!constructor)
+				throw new BindingException(this.type, "@JSONBindable class must have a non-private constructor without arguments");
+			String typeName = this.type.getQualifiedName().toString();
+			StringBuilder read = new StringBuilder();
+			StringBuilder write = new StringBuilder();
+			Set<String> names = new HashSet<>();
+			for(VariableElement field : this.fields()){
+				JSONProperty property = field.getAnnotation(JSONProperty.class);
+				String name = property == null ? field.getSimpleName().toString() : property.value();
+				if(!names.add(name))
+					throw new BindingException(field, "Duplicate JSON property \"" + name + "\"");
+				String[] access = this.access(field);
+				TypeMirror fieldType = field.asType();
+				String readValue;
+				String writeValue;
+				if(fieldType.getKind().isPrimitive()){
+					readValue = readPrimitive(fieldType.getKind());
+					writeValue = "writer.value(" + (fieldType.getKind() == TypeKind.CHAR ? "String.valueOf(" + access[1] + ")" : access[1]) + ");";
+				} else {
+					String constant = this.constant(fieldType, field);
+					readValue = constant + ".read(reader)";
+					writeValue = constant + ".write(writer, " + access[1] + ");";
+				}
+				read.append("\t\t\t\tcase ").append(literal(name)).append(":\n");
+				read.append("\t\t\t\t\t").append(String.format(access[0], readValue)).append(";\n");
+				read.append("\t\t\t\t\tbreak;\n");
+				write.append("\t\twriter.name(").append(literal(name)).append(");\n");
+				write.append("\t\t").append(writeValue).append('\n');
+			}
+			String simpleName = this.binderName.substring(this.binderName.lastIndexOf('.') + 1);
+			StringBuilder source = new StringBuilder();
+			if(!this.packageName.isEmpty())
+				source.append("package ").append(this.packageName).append(";\n\n");
+			source.append("import common.json.JSONReader;\n");
+			source.append("import common.json.JSONToken;\n");
+			source.append("import common.json.JSONWriter;\n");
+			source.append("import common.json.bind.Binders;\n");
+			source.append("import common.json.bind.JSONBinder;\n\n");
+			source.append("import java.io.IOException;\n");
+			source.append("import java.text.ParseException;\n\n");
+			source.append("@javax.annotation.processing.Generated(\"").append(BindingProcessor.class.getName()).append("\")\n");
+			source.append("public final class ").append(simpleName).append(" implements JSONBinder<").append(typeName).append(">{\n\n");
+			source.append("\tpublic static final ").append(simpleName).append(" INSTANCE = new ").append(simpleName).append("();\n");
+			source.append(this.constants).append('\n');
+			source.append("\t@Override\n");
+			source.append("\tpublic ").append(typeName).append(" read(JSONReader reader) throws IOException, ParseException {\n");
+			source.append("\t\tif(reader.peek() == JSONToken.NULL){\n");
+			source.append("\t\t\treader.nextNull();\n");
+			source.append("\t\t\treturn null;\n");
+			source.append("\t\t}\n");
+			source.append("\t\t").append(typeName).append(" result = new ").append(typeName).append("();\n");
+			source.append("\t\treader.beginObject();\n");
+			source.append("\t\twhile(reader.hasNext()){\n");
+			source.append("\t\t\tswitch(reader.nextName()){\n");
+			source.append(read);
+			source.append("\t\t\t\tdefault:\n");
+			source.append("\t\t\t\t\treader.skipValue();\n");
+			source.append("\t\t\t}\n");
+			source.append("\t\t}\n");
+			source.append("\t\treader.endObject();\n");
+			source.append("\t\treturn result;\n");
+			source.append("\t}\n\n");
+			source.append("\t@Override\n");
+			source.append("\tpublic void write(JSONWriter writer, ").append(typeName).append(" value) throws IOException {\n");
+			source.append("\t\tif(value == null){\n");
+			source.append("\t\t\twriter.nullValue();\n");
+			source.append("\t\t\treturn;\n");
+			source.append("\t\t}\n");
+			source.append("\t\twriter.beginObject();\n");
+			source.append(write);
+			source.append("\t\twriter.endObject();\n");
+			source.append("\t}\n");
+			source.append("}\n");
+			try(Writer out = BindingProcessor.this.processingEnv.getFiler().createSourceFile(this.binderName, this.type).openWriter()){
+				out.write(source.toString());
+			}
+		}
+
+		/**
+		 * Собирает связываемые поля класса и его предков, начиная с полей самого дальнего предка
+		 */
+		private List<VariableElement> fields(){
+			List<TypeElement> hierarchy = new ArrayList<>();
+			for(TypeElement current = this.type; current != null; ){
+				hierarchy.add(0, current);
+				TypeMirror parent = current.getSuperclass();
+				current = parent.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) parent).asElement() : null;
+				if(current != null && current.getQualifiedName().contentEquals("java.lang.Object"))
+					current = null;
+			}
+			List<VariableElement> result = new ArrayList<>();
+			for(TypeElement element : hierarchy){
+				for(VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())){
+					Set<Modifier> modifiers = field.getModifiers();
+					if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+						continue;
+					if(modifiers.contains(Modifier.FINAL))
+						throw new BindingException(field, "Final fields cannot be bound. Mark the field transient to skip it");
+					result.add(field);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Определяет способ доступа к полю
+		 * @return Шаблон присваивания с {@code %s} на месте значения и выражение чтения поля
+		 */
+		private String[] access(VariableElement field){
+			if(this.accessible(field))
+				return new String[]{"result." + field.getSimpleName() + " = %s", "value." + field.getSimpleName()};
+			String name = field.getSimpleName().toString();
+			String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+			TypeElement owner = (TypeElement) field.getEnclosingElement();
+			String getter = null;
+			String setter = null;
+			for(ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements())){
+				if(method.getModifiers().contains(Modifier.STATIC) || !this.accessible(method))
+					continue;
+				String methodName = method.getSimpleName().toString();
+				boolean sameType = BindingProcessor.this.processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType());
+				if(method.getParameters().isEmpty() && sameType && (methodName.equals("get" + suffix) || field.asType().getKind() == TypeKind.BOOLEAN && methodName.equals("is" + suffix)))
+					getter = methodName;
+				if(method.getParameters().size() == 1 && methodName.equals("set" + suffix) && BindingProcessor.this.processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType()))
+					setter = methodName;
+			}
+			if(getter == null || setter == null)
+				throw new BindingException(field, "Field \"" + name + "\" is not accessible and has no accessible getter and setter");
+			return new String[]{"result." + setter + "(%s)", "value." + getter + "()"};
+		}
+
+		/**
+		 * Проверяет, доступен ли член класса из сгенерированного класса того же пакета
+		 */
+		private boolean accessible(Element member){
+			Set<Modifier> modifiers = member.getModifiers();
+			if(modifiers.contains(Modifier.PRIVATE))
+				return false;
+			return modifiers.contains(Modifier.PUBLIC) || BindingProcessor.this.packageOf(member).equals(this.packageName);
+		}
+
+		/**
+		 * Возвращает имя константы с реализацией для ссылочного типа, объявляя её при первом обращении
+		 */
+		private String constant(TypeMirror type, Element field){
+			String key = type.toString();
+			String name = this.constantNames.get(key);
+			if(name == null){
+				name = "BINDER_" + this.constantNames.size();
+				this.constantNames.put(key, name);
+				this.constants.append("\tprivate static final JSONBinder<").append(key).append("> ").append(name).append(" = ").append(this.binder(type, field)).append(";\n");
+			}
+			return name;
+		}
+
+		/**
+		 * Возвращает выражение, создающее реализацию для ссылочного типа
+		 */
+		private String binder(TypeMirror type, Element field){
+			if(type.getKind() != TypeKind.DECLARED)
+				throw new BindingException(field, "Unsupported type " + type);
+			DeclaredType declared = (DeclaredType) type;
+			TypeElement element = (TypeElement) declared.asElement();
+			String name = element.getQualifiedName().toString();
+			String standard = STANDARD.get(name);
+			if(standard != null)
+				return standard;
+			List<? extends TypeMirror> arguments = declared.getTypeArguments();
+			if(name.equals("java.util.List") && arguments.size() == 1)
+				return "Binders.list(" + this.binder(arguments.get(0), field) + ")";
+			if(name.equals("java.util.Map") && arguments.size() == 2){
+				if(!arguments.get(0).toString().equals("java.lang.String"))
+					throw new BindingException(field, "Map keys must be strings, but was " + arguments.get(0));
+				return "Binders.map(" + this.binder(arguments.get(1), field) + ")";
+			}
+			if(element.getKind() == ElementKind.ENUM)
+				return "Binders.enumeration(" + name + ".values())";
+			if(element.getAnnotation(JSONBindable.class) != null)
+				return BindingProcessor.this.binderName(element) + ".INSTANCE";
+			throw new BindingException(field, "Unsupported type " + type + ". Annotate the class with @JSONBindable");
+		}
+	}
+
+	/**
+	 * Возвращает выражение чтения примитивного значения
+	 */
+	private static String readPrimitive(TypeKind kind){
+		switch(kind){
+			case BOOLEAN:
+				return "reader.nextBoolean()";
+			case BYTE:
+				return "Binders.nextByte(reader)";
+			case SHORT:
+				return "Binders.nextShort(reader)";
+			case INT:
+				return "reader.nextInt()";
+			case LONG:
+				return "reader.nextLong()";
+			case FLOAT:
+				return "(float) reader.nextDouble()";
+			case DOUBLE:
+				return "reader.nextDouble()";
+			default:
+				return "Binders.nextChar(reader)";
+		}
+	}
+
+	/**
+	 * Ошибка в связываемом классе, о которой сообщается компилятору
+	 */
+	private static final class BindingException extends RuntimeException{
+
+		private static final long serialVersionUID = 1L;
+
+		/** Элемент, к которому относится ошибка */
+		private final transient Element element;
+
+		private BindingException(Element element, String message){
+			super(message);
+			this.element = element;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package common.json.bind;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Отмечает класс, для которого при компиляции генерируется {@link JSONBinder}.
+ * Для класса {@code p.Person} создаётся {@code p.PersonJSONBinder}, для вложенного
+ * класса {@code p.Outer.Inner} - {@code p.Outer_InnerJSONBinder}. Экземпляр доступен
+ * через статическое поле {@code INSTANCE}.
+ * Класс должен быть не абстрактным, не приватным, не обобщённым, вложенные классы - статическими,
+ * и иметь не приватный конструктор без аргументов. Связываются все нестатические
+ * поля без модификатора {@code transient}, включая унаследованные. Приватные поля
+ * связываются через методы {@code getX()}/{@code isX()} и {@code setX()}
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JSONBindable{}
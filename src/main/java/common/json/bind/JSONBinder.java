@@ -0,0 +1,72 @@
+package common.json.bind;
+
+import common.json.JSONReader;
+import common.json.JSONToken;
+import common.json.JSONWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+
+/**
+ * Преобразование значений Java в поток токенов JSON и обратно без промежуточного
+ * дерева {@code JSONEntity}. Реализации для классов с {@link JSONBindable} генерируются
+ * процессором {@link BindingProcessor}, реализации для стандартных типов находятся в {@link Binders}
+ * @param <T> Тип значений
+ */
+public interface JSONBinder<T>{
+
+	/**
+	 * Считывает значение из потока токенов
+	 * @param reader Поток токенов, стоящий перед значением
+	 * @return Значение или {@code null}, если в потоке {@code null}
+	 * @throws IOException Если не удалось прочитать данные из источника
+	 * @throws ParseException Если данные невалидны или не соответствуют типу
+	 */
+	T read(JSONReader reader) throws IOException, ParseException;
+
+	/**
+	 * Записывает значение в поток токенов
+	 * @param writer Запись, ожидающая значение
+	 * @param value Значение или {@code null}
+	 * @throws IOException Если не удалось записать данные
+	 */
+	void write(JSONWriter writer, T value) throws IOException;
+
+	/**
+	 * Считывает значение из JSON-строки
+	 * @param data JSON-строка, содержащая ровно одно значение
+	 * @return Значение
+	 * @throws ParseException Если данные невалидны или не соответствуют типу
+	 */
+	default T fromString(String data) throws ParseException {
+		try(JSONReader reader = new JSONReader(new StringReader(data))){
+			T result = this.read(reader);
+			if(reader.peek() != JSONToken.END_DOCUMENT){
+				long position = reader.getPosition();
+				throw new ParseException("There should be no characters after data ending except for spaces at position " + position, (int) Math.min(position, Integer.MAX_VALUE));
+			}
+			return result;
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Записывает значение в JSON-строку
+	 * @param value Значение
+	 * @return JSON-строка
+	 */
+	default String toString(T value){
+		StringBuilder result = new StringBuilder();
+		try {
+			JSONWriter writer = new JSONWriter(result);
+			this.write(writer, value);
+			writer.flush();
+		} catch(IOException ex){
+			throw new UncheckedIOException(ex);
+		}
+		return result.toString();
+	}
+}
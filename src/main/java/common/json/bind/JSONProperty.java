@@ -0,0 +1,22 @@
+package common.json.bind;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Задаёт ключ JSON-объекта для поля класса с {@link JSONBindable}.
+ * Без аннотации ключом служит имя поля
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface JSONProperty{
+
+	/**
+	 * Ключ в JSON-объекте
+	 */
+	String value();
+}
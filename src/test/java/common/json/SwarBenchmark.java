@@ -0,0 +1,82 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+/**
+ * Сравнивает пословное сканирование {@link Swar} с побайтовым проходом и разбор
+ * {@link ByteParser} с посимвольным разбором {@link Parser}.
+ * Запуск: {@code mvn test-compile exec:java -Dexec.mainClass=common.json.SwarBenchmark -Dexec.classpathScope=test}
+ */
+public class SwarBenchmark {
+
+	private static final int ROUNDS = 40;
+
+	public static void main(String[] args) throws ParseException {
+		var document = document(20000);
+		var bytes = document.getBytes(StandardCharsets.UTF_8);
+		var words = Swar.words(ByteBuffer.wrap(bytes));
+		System.out.printf("Document size: %d bytes%n", bytes.length);
+		long sink = 0;
+		for(int round = 0; round < ROUNDS; round++){
+			long t0 = System.nanoTime();
+			sink += scanStrings(bytes);
+			long t1 = System.nanoTime();
+			sink += scanStrings(words, bytes.length);
+			long t2 = System.nanoTime();
+			sink += new Parser(document).parse().hashCode();
+			long t3 = System.nanoTime();
+			sink += new ByteParser(bytes).parse().hashCode();
+			long t4 = System.nanoTime();
+			if(round >= ROUNDS / 2)
+				System.out.printf("scan: byte %6.2f ms, swar %6.2f ms | parse: Parser %6.2f ms, ByteParser %6.2f ms%n", (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, (t4 - t3) / 1e6);
+		}
+		System.out.println(sink == 42 ? "" : "done");
+	}
+
+	/**
+	 * Считает границы строк в документе, проверяя каждый байт
+	 */
+	private static int scanStrings(byte[] bytes){
+		int count = 0;
+		for(int i = indexOfStringEnd(bytes, 0); i < bytes.length; i = indexOfStringEnd(bytes, i + 1))
+			count++;
+		return count;
+	}
+
+	private static int indexOfStringEnd(byte[] bytes, int from){
+		for(int i = from; i < bytes.length; i++){
+			int c = bytes[i] & 0xFF;
+			if(c == '"' || c == '\\' || c < ' ')
+				return i;
+		}
+		return bytes.length;
+	}
+
+	/**
+	 * Считает границы строк в документе, проверяя по 8 байт за раз
+	 */
+	private static int scanStrings(ByteBuffer words, int length){
+		int count = 0;
+		for(int i = Swar.indexOfStringEnd(words, 0, length); i < length; i = Swar.indexOfStringEnd(words, i + 1, length))
+			count++;
+		return count;
+	}
+
+	/**
+	 * Создаёт документ с отступами и длинными строками
+	 */
+	private static String document(int records){
+		var description = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore. ".repeat(4);
+		var result = new StringBuilder("[\n");
+		for(int i = 0; i < records; i++){
+			if(i > 0)
+				result.append(",\n");
+			result.append("        {\n            \"id\": ").append(i)
+				.append(",\n            \"description\": \"").append(description).append('"')
+				.append(",\n            \"tags\": [\"alpha\", \"beta\", \"gamma\"]\n        }");
+		}
+		return result.append("\n]").toString();
+	}
+}
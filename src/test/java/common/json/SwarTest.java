@@ -0,0 +1,44 @@
+package common.json;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SwarTest {
+
+	private static final byte[] ALPHABET = " \t\n\r\0\"\\{}[],:az09\u0001\u007F".getBytes();
+
+	@Test
+	public void resultsMatchByteByByteScan(){
+		var random = new Random(42);
+		for(int n = 0; n < 2000; n++){
+			var data = new byte[random.nextInt(40)];
+			for(int i = 0; i < data.length; i++)
+				data[i] = random.nextInt(4) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)] : (byte) random.nextInt(256);
+			var words = Swar.words(ByteBuffer.wrap(data));
+			int from = data.length == 0 ? 0 : random.nextInt(data.length);
+			assertEquals(scan(data, from, 0), Swar.indexOfStringEnd(words, from, data.length));
+			assertEquals(scan(data, from, 1), Swar.skipWhitespace(words, from, data.length));
+			assertEquals(scan(data, from, 2), Swar.indexOfStructural(words, from, data.length));
+		}
+	}
+
+	private static int scan(byte[] data, int from, int mode){
+		for(int i = from; i < data.length; i++){
+			int c = data[i] & 0xFF;
+			boolean found;
+			if(mode == 0)
+				found = c == '"' || c == '\\' || c < ' ';
+			else if(mode == 1)
+				found = c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != 0;
+			else
+				found = Swar.isStructural(c);
+			if(found)
+				return i;
+		}
+		return data.length;
+	}
+}
@@ -0,0 +1,141 @@
+package test.json;
+
+import common.json.JSONReader;
+import common.json.JSONWriter;
+import common.json.bind.BindingProcessor;
+import common.json.bind.JSONBindable;
+import common.json.bind.JSONProperty;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BindingTest {
+
+	enum Role {
+		ADMIN, USER
+	}
+
+	@JSONBindable
+	static class Address {
+		String city;
+		int zip;
+	}
+
+	@JSONBindable
+	static class Base {
+		long id;
+	}
+
+	@JSONBindable
+	static class Person extends Base {
+		String name;
+		@JSONProperty("full_age")
+		int age;
+		double score;
+		boolean active;
+		char initial;
+		Long optional;
+		BigDecimal balance;
+		Role role;
+		Address address;
+		List<String> tags;
+		Map<String, List<Integer>> groups;
+		transient String ignored = "ignored";
+		private String secret;
+
+		public String getSecret(){
+			return this.secret;
+		}
+
+		public void setSecret(String secret){
+			this.secret = secret;
+		}
+	}
+
+	@JSONBindable
+	static class Node {
+		String name;
+		List<Node> children;
+	}
+
+	private static final String PERSON = "{\"id\":7,\"name\":\"Ann\",\"full_age\":30,\"score\":0.5,\"active\":true,\"initial\":\"A\",\"optional\":null,"
+		+ "\"balance\":12345678901234567890.01,\"role\":\"ADMIN\",\"address\":{\"city\":\"Oslo\",\"zip\":150},\"tags\":[\"a\",\"b\"],"
+		+ "\"groups\":{\"x\":[1,2],\"y\":[]},\"secret\":\"s\"}";
+
+	@Test
+	public void readsAndWritesWithoutTree() throws Exception {
+		var person = BindingTest_PersonJSONBinder.INSTANCE.fromString(PERSON);
+		assertEquals(7, person.id);
+		assertEquals("Ann", person.name);
+		assertEquals(30, person.age);
+		assertEquals(0.5, person.score, 0);
+		assertTrue(person.active);
+		assertEquals('A', person.initial);
+		assertNull(person.optional);
+		assertEquals(new BigDecimal("12345678901234567890.01"), person.balance);
+		assertEquals(Role.ADMIN, person.role);
+		assertEquals("Oslo", person.address.city);
+		assertEquals(List.of("a", "b"), person.tags);
+		assertEquals(List.of(1, 2), person.groups.get("x"));
+		assertEquals("s", person.getSecret());
+		assertEquals(PERSON, BindingTest_PersonJSONBinder.INSTANCE.toString(person));
+	}
+
+	@Test
+	public void skipsUnknownKeysAndRecurses() throws Exception {
+		var json = "{\"extra\":{\"a\":[1,{\"b\":2}]},\"name\":\"root\",\"children\":[{\"name\":\"leaf\",\"children\":null}]}";
+		var node = BindingTest_NodeJSONBinder.INSTANCE.read(new JSONReader(new StringReader(json)));
+		assertEquals("leaf", node.children.get(0).name);
+		var out = new StringWriter();
+		var writer = new JSONWriter(out);
+		BindingTest_NodeJSONBinder.INSTANCE.write(writer, node);
+		writer.flush();
+		assertEquals("{\"name\":\"root\",\"children\":[{\"name\":\"leaf\",\"children\":null}]}", out.toString());
+	}
+
+	@Test(expected = ParseException.class)
+	public void rejectsNullPrimitive() throws Exception {
+		BindingTest_AddressJSONBinder.INSTANCE.fromString("{\"zip\":null}");
+	}
+
+	@Test(expected = ParseException.class)
+	public void rejectsUnknownConstant() throws Exception {
+		BindingTest_PersonJSONBinder.INSTANCE.fromString("{\"role\":\"ROOT\"}");
+	}
+
+	@Test
+	public void reportsUnsupportedClasses() throws Exception {
+		var compiler = ToolProvider.getSystemJavaCompiler();
+		var diagnostics = new DiagnosticCollector<JavaFileObject>();
+		var source = new SimpleJavaFileObject(URI.create("string:///p/Bad.java"), JavaFileObject.Kind.SOURCE){
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors){
+				return "package p; @common.json.bind.JSONBindable public class Bad { final int a = 1; Object b; }";
+			}
+		};
+		var output = Files.createTempDirectory("binding");
+		var task = compiler.getTask(null, null, diagnostics, List.of("-d", output.toString(), "-classpath", System.getProperty("java.class.path")), null, List.of(source));
+		task.setProcessors(List.of(new BindingProcessor()));
+		assertFalse(task.call());
+		var message = diagnostics.getDiagnostics().get(0).getMessage(null);
+		assertTrue(message, message.startsWith("Final fields cannot be bound"));
+	}
+}
@@ -0,0 +1,81 @@
+package test.json;
+
+import common.json.ByteParser;
+import common.json.Parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnitParamsRunner.class)
+public class ByteParserTest {
+
+	private static final String DATA = "{\"name\": \"Привет, \\\"мир\\\" \\u263A\", \"list\": [1, -2.5, 3e2, true, null, {}], \"€\": \"日本\"}";
+
+	@Test
+	@Parameters(method = "data_resultMatchesStringParser")
+	public void resultMatchesStringParser(String data) throws ParseException {
+		var bytes = data.getBytes(StandardCharsets.UTF_8);
+		var expected = new Parser(data).parse().toString();
+		assertEquals(expected, new ByteParser(bytes).parse().toString());
+		var direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		assertEquals(expected, new ByteParser(direct).parse().toString());
+	}
+
+	private Object[][] data_resultMatchesStringParser(){
+		return new Object[][]{
+			{"[]"},
+			{"{\"a\": {\"b\": [1, [2, {}]]}, \"c\": \"d\"}"},
+			{DATA},
+		};
+	}
+
+	@Test
+	public void mappedFileIsParsed() throws IOException, ParseException {
+		var file = Files.createTempFile("json", ".json");
+		try {
+			Files.write(file, DATA.getBytes(StandardCharsets.UTF_8));
+			assertEquals(new Parser(DATA).parse().toString(), ByteParser.map(file).parse().toString());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(expected = ParseException.class)
+	public void invalidDataThrowsException() throws ParseException {
+		new ByteParser("{\"a\": [1, 2}".getBytes(StandardCharsets.UTF_8)).parse();
+	}
+
+	@Test
+	public void invalidUtf8IsRejected() throws ParseException {
+		assertInvalidUtf8(new byte[]{'[', '"', 'a', (byte) 0xC0, (byte) 0x80, '"', ']'}, "Unexpected token \"0xC0\" at position 3. Invalid UTF-8 lead byte");
+		assertInvalidUtf8(new byte[]{'[', '"', (byte) 0xD0, '"', ']'}, "Unexpected token \"\"\" at position 3. Invalid UTF-8 continuation byte");
+		assertInvalidUtf8(new byte[]{'[', '"', (byte) 0xD0, '\\', 'n', '"', ']'}, "Unexpected token \"\\\" at position 3. Invalid UTF-8 continuation byte");
+		assertInvalidUtf8(new byte[]{'{', '"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"', ':', '1', '}'}, "Invalid UTF-8 sequence at position 2");
+		var valid = "[\"\uFFFD ok\"]".getBytes(StandardCharsets.UTF_8);
+		assertEquals("[\"\uFFFD ok\"]", new ByteParser(valid).parse().toString());
+		assertEquals("[\"\uFFFD ok\"]", new ByteParser(valid).setSlices(true).parse().toString());
+	}
+
+	private static void assertInvalidUtf8(byte[] data, String message){
+		for(boolean slices : new boolean[]{false, true}){
+			try {
+				new ByteParser(data).setSlices(slices).parse();
+				fail("Expected ParseException");
+			} catch(ParseException ex){
+				assertEquals(message, ex.getMessage());
+			}
+		}
+	}
+}
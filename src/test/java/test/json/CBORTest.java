@@ -0,0 +1,188 @@
+package test.json;
+
+import common.json.CBORDecoder;
+import common.json.CBOREncoder;
+import common.json.JSONEntity;
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.Parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CBORTest {
+
+	private static final String DOCUMENT = "{\"a\":1,\"b\":1.0,\"c\":[1,2,3],\"d\":[0.5,-1.5],\"e\":[1,\"x\",null,true,false],"
+		+ "\"f\":{\"g\":\"é中😀\"},\"h\":-9223372036854775808,\"i\":1E300,\"j\":[],\"k\":{}}";
+
+	@Test
+	public void encodesSpecificationVectors(){
+		assertEncoded("00", "0");
+		assertEncoded("17", "23");
+		assertEncoded("1818", "24");
+		assertEncoded("1903e8", "1000");
+		assertEncoded("1b000000e8d4a51000", "1000000000000");
+		assertEncoded("20", "-1");
+		assertEncoded("3863", "-100");
+		assertEncoded("f90000", "0.0");
+		assertEncoded("f98000", "-0.0");
+		assertEncoded("f93e00", "1.5");
+		assertEncoded("f97bff", "65504.0");
+		assertEncoded("fa47c35000", "100000.0");
+		assertEncoded("fb3ff199999999999a", "1.1");
+		assertEncoded("f90001", "5.960464477539063E-8");
+		assertEncoded("c249010000000000000000", "18446744073709551616");
+		assertEncoded("3bffffffffffffffff", "-18446744073709551616");
+		assertEncoded("f6", "null");
+		assertEncoded("f5", "true");
+		assertEncoded("6449455446", "\"IETF\"");
+		assertEncoded("83010203", "[1,2,3]");
+		assertEncoded("a26161016162820203", "{\"a\":1,\"b\":[2,3]}");
+	}
+
+	@Test
+	public void roundTripKeepsNumberKinds() throws Exception {
+		var entity = new Parser(DOCUMENT).parse();
+		var decoded = CBORDecoder.decode(CBOREncoder.encode(entity));
+		assertEquals(DOCUMENT, decoded.toString());
+		assertEquals("c48221196ab3", toHex(CBOREncoder.encode(new JSONNumber(new BigDecimal("273.15")))));
+		assertEquals(new BigDecimal("-273.15"), ((JSONNumber) CBORDecoder.decode(hex("c48221396ab2"))).bigDecimalValue());
+		var big = "[18446744073709551616,-18446744073709551617]";
+		assertEquals(big, CBORDecoder.decode(CBOREncoder.encode(new Parser(big).parse())).toString());
+	}
+
+	@Test
+	public void decodesIndefiniteLengths() throws Exception {
+		assertEquals("[1,[2,3],[4,5]]", CBORDecoder.decode(hex("9f018202039f0405ffff")).toString());
+		assertEquals("{\"a\":1,\"b\":[2,3]}", CBORDecoder.decode(hex("bf61610161629f0203ffff")).toString());
+		assertEquals("\"streaming\"", CBORDecoder.decode(hex("7f657374726561646d696e67ff")).toString());
+		assertEquals("[1.5,100000.0]", CBORDecoder.decode(hex("82f93e00fa47c35000")).toString());
+		assertNull(CBORDecoder.decode(hex("f7")));
+		assertEquals("1", CBORDecoder.decode(hex("c101")).toString());
+	}
+
+	@Test
+	public void streamsSequences() throws Exception {
+		var first = new Parser(DOCUMENT).parse();
+		var second = new JSONList();
+		for(int i = 0; i < 5000; i++)
+			second.value.add(new JSONNumber(i * 0.25));
+		var out = new ByteArrayOutputStream();
+		try(var encoder = new CBOREncoder(out)){
+			encoder.write(first).write(second).write(null);
+		}
+		var decoder = new CBORDecoder(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(DOCUMENT, decoder.read().toString());
+		assertEquals(second.toString(), decoder.read().toString());
+		assertNull(decoder.read());
+		assertFalse(decoder.hasNext());
+
+		var buffer = ByteBuffer.allocateDirect(out.size() + 16);
+		var encoder = new CBOREncoder(buffer);
+		encoder.write(first).write(second).write(null).flush();
+		assertEquals(out.size(), buffer.position());
+		buffer.flip();
+		var bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		assertArrayEquals(out.toByteArray(), bytes);
+		decoder = new CBORDecoder(buffer);
+		assertEquals(DOCUMENT, decoder.read().toString());
+		assertTrue(decoder.hasNext());
+		assertEquals(second.toString(), decoder.read().toString());
+		assertNull(decoder.read());
+		assertFalse(decoder.hasNext());
+	}
+
+	@Test
+	public void handlesDeepNesting() throws Exception {
+		var json = "[".repeat(100000) + "]".repeat(100000);
+		assertEquals(json, CBORDecoder.decode(CBOREncoder.encode(new Parser(json).parse())).toString());
+	}
+
+	@Test
+	public void decodesDeepTagChainsWithoutRecursion() throws Exception {
+		int count = 400000;
+		var tags = new byte[count + 1];
+		Arrays.fill(tags, (byte) 0xC6);
+		tags[count] = 0x01;
+		assertEquals("1", CBORDecoder.decode(tags).toString());
+		var nested = new byte[count * 2 + 1];
+		for(int i = 0; i < count; i++){
+			nested[i * 2] = (byte) 0xC6;
+			nested[i * 2 + 1] = (byte) 0x81;
+		}
+		nested[count * 2] = 0x01;
+		var value = CBORDecoder.decode(nested).toString();
+		assertEquals("[".repeat(count) + "1" + "]".repeat(count), value);
+		assertEquals("{\"a\":[1]}", CBORDecoder.decode(hex("a1c66161c6c68101")).toString());
+	}
+
+	@Test
+	public void rejectsInvalidTagsAndText(){
+		for(var data : new String[]{"9fc6ff", "c6", "c4821b800000000000000001", "c482c24901000000000000000001", "62c328", "7f61c3ff"}){
+			try {
+				CBORDecoder.decode(hex(data));
+				fail(data);
+			} catch(ParseException ex){
+				// Ожидаемая ошибка разбора
+			}
+		}
+	}
+
+	@Test(expected = ParseException.class)
+	public void rejectsTruncatedInput() throws Exception {
+		CBORDecoder.decode(hex("830102"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void rejectsNonTextKeys() throws Exception {
+		CBORDecoder.decode(hex("a10102"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void rejectsUnexpectedBreak() throws Exception {
+		CBORDecoder.decode(hex("8201ff"));
+	}
+
+	@Test(expected = ParseException.class)
+	public void rejectsTrailingBytes() throws Exception {
+		CBORDecoder.decode(hex("0101"));
+	}
+
+	private static void assertEncoded(String expected, String json){
+		JSONEntity entity;
+		try {
+			entity = ((JSONList) new Parser("[" + json + "]").parse()).value.get(0);
+		} catch(ParseException ex){
+			throw new AssertionError(ex);
+		}
+		assertEquals(json, expected, toHex(CBOREncoder.encode(entity)));
+	}
+
+	private static byte[] hex(String value){
+		var result = new byte[value.length() >> 1];
+		for(int i = 0; i < result.length; i++)
+			result[i] = (byte) Integer.parseInt(value.substring(i << 1, (i << 1) + 2), 16);
+		return result;
+	}
+
+	private static String toHex(byte[] value){
+		var result = new StringBuilder();
+		for(var b : value)
+			result.append(String.format("%02x", b));
+		return result.toString();
+	}
+}
@@ -0,0 +1,124 @@
+package test.json;
+
+import common.json.Columns;
+import common.json.JSONList;
+import common.json.Parser;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ColumnsTest {
+
+	private static final String RECORDS = "[" +
+		"{\"id\":1,\"price\":10,\"city\":\"Oslo\",\"active\":true,\"tags\":[\"a\"],\"mixed\":1}," +
+		"{\"id\":2,\"price\":2.5,\"city\":\"Rome\",\"active\":null,\"mixed\":\"x\"}," +
+		"{\"id\":3,\"city\":\"Oslo\",\"active\":false,\"note\":null,\"tags\":{\"k\":null}}," +
+		"{\"price\":-1e2,\"city\":null,\"active\":true,\"id\":4,\"late\":\"z\"}" +
+		"]";
+
+	@Test
+	public void storesTypedColumns() throws ParseException {
+		Columns columns = Columns.read(RECORDS);
+		assertEquals(4, columns.size());
+		assertEquals(List.of("id", "price", "city", "active", "tags", "mixed", "note", "late"), List.copyOf(columns.names()));
+
+		Columns.Column id = columns.get("id");
+		assertEquals(Columns.Column.Kind.LONG, id.getKind());
+		assertArrayEquals(new long[]{1, 2, 3, 4}, id.getLongs());
+		assertTrue(id.getNulls().isEmpty());
+
+		Columns.Column price = columns.get("price");
+		assertEquals(Columns.Column.Kind.DOUBLE, price.getKind());
+		assertArrayEquals(new double[]{10, 2.5, 0, -100}, price.getDoubles(), 0);
+		assertTrue(price.isNull(2));
+
+		Columns.Column city = columns.get("city");
+		assertEquals(Columns.Column.Kind.STRING, city.getKind());
+		assertArrayEquals(new String[]{"Oslo", "Rome"}, city.getDictionary());
+		assertArrayEquals(new int[]{0, 1, 0, -1}, city.getCodes());
+
+		Columns.Column active = columns.get("active");
+		assertEquals(Columns.Column.Kind.BOOLEAN, active.getKind());
+		assertEquals("{0, 3}", active.getBooleans().toString());
+		assertEquals("{1}", active.getNulls().toString());
+
+		Columns.Column tags = columns.get("tags");
+		assertEquals(Columns.Column.Kind.ENTITY, tags.getKind());
+		assertEquals("[\"a\"]", tags.get(0).toString());
+		assertNull(tags.get(1));
+		assertEquals("{\"k\":null}", tags.get(2).toString());
+
+		Columns.Column mixed = columns.get("mixed");
+		assertEquals(Columns.Column.Kind.ENTITY, mixed.getKind());
+		assertEquals("[1, \"x\", null, null]", Arrays.toString(mixed.getEntities()));
+
+		assertEquals(Columns.Column.Kind.NULL, columns.get("note").getKind());
+		assertEquals("{0, 1, 2, 3}", columns.get("note").getNulls().toString());
+		assertEquals("{0, 1, 2}", columns.get("late").getNulls().toString());
+		assertEquals("\"z\"", columns.get("late").get(3).toString());
+		assertNull(columns.get("missing"));
+	}
+
+	@Test
+	public void convertsParsedList() throws ParseException {
+		Columns streamed = Columns.read(RECORDS);
+		Columns converted = Columns.of((JSONList) new Parser(RECORDS).parse());
+		assertEquals(streamed.names(), converted.names());
+		for(String name : streamed.names()){
+			Columns.Column expected = streamed.get(name);
+			Columns.Column actual = converted.get(name);
+			assertEquals(expected.getKind(), actual.getKind());
+			assertEquals(expected.getNulls(), actual.getNulls());
+			for(int row = 0; row < streamed.size(); row++)
+				assertEquals(String.valueOf(expected.get(row)), String.valueOf(actual.get(row)));
+		}
+	}
+
+	@Test
+	public void keepsLargeIntegersExactWhenTheyFitLong() throws ParseException {
+		Columns columns = Columns.read("[{\"n\":9223372036854775807},{\"n\":-9223372036854775808},{\"n\":0}]");
+		assertArrayEquals(new long[]{Long.MAX_VALUE, Long.MIN_VALUE, 0}, columns.get("n").getLongs());
+		columns = Columns.read("[{\"n\":1},{\"n\":92233720368547758070}]");
+		assertArrayEquals(new double[]{1, 9.223372036854775807E19}, columns.get("n").getDoubles(), 0);
+	}
+
+	@Test
+	public void handlesManyRows() throws ParseException {
+		StringBuilder json = new StringBuilder("[");
+		for(int i = 0; i < 10000; i++)
+			json.append(i == 0 ? "" : ",").append("{\"i\":").append(i).append(i % 2 == 0 ? ",\"even\":true" : "").append('}');
+		Columns columns = Columns.read(json.append(']').toString());
+		long[] values = columns.get("i").getLongs();
+		assertEquals(10000, values.length);
+		assertEquals(49995000, Arrays.stream(values).sum());
+		assertEquals(5000, columns.get("even").getNulls().cardinality());
+		assertFalse(columns.get("even").isNull(9998));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsWrongArrayType() throws ParseException {
+		Columns.read("[{\"a\":1}]").get("a").getDoubles();
+	}
+
+	@Test
+	public void rejectsOtherShapes(){
+		for(String json : new String[]{"{\"a\":1}", "[1]", "[{\"a\":1}] []", "[{\"a\":}]"}){
+			try {
+				Columns.read(json);
+				fail("Expected ParseException for " + json);
+			} catch(ParseException ex){
+				assertTrue(ex.getMessage(), ex.getErrorOffset() >= 0);
+			}
+		}
+	}
+}
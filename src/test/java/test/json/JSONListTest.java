@@ -0,0 +1,87 @@
+package test.json;
+
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONString;
+import common.json.Parser;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JSONListTest {
+
+	@Test
+	public void numericListsReadWithoutBoxing() throws Exception {
+		var list = (JSONList) new Parser("[[1, 2, 3], [0.5, -1.5], [1, 2.5, null]]").parse();
+		var longs = (JSONList) list.value.get(0);
+		var doubles = (JSONList) list.value.get(1);
+		assertEquals(3, longs.getLong(2));
+		assertEquals(2d, longs.getDouble(1), 0);
+		assertEquals(-1.5, doubles.getDouble(1), 0);
+		assertEquals(0, doubles.getLong(0));
+		assertEquals(2.5, ((JSONList) list.value.get(2)).getDouble(1), 0);
+		assertEquals("[[1,2,3],[0.5,-1.5],[1,2.5,null]]", list.toString());
+		assertEquals("[\n\t1,\n\t2,\n\t3\n]", longs.prettify());
+	}
+
+	@Test
+	public void modificationsKeepValues(){
+		var list = new JSONList();
+		for(int i = 0; i < 10; i++)
+			list.value.add(new JSONNumber(i));
+		list.value.add(0, new JSONNumber(-1));
+		list.value.remove(5);
+		list.value.set(1, new JSONNumber(10));
+		assertEquals("[-1,10,1,2,3,5,6,7,8,9]", list.toString());
+		list.value.set(2, new JSONNumber(0.5));
+		list.value.add(new JSONString("x"));
+		assertEquals("[-1,10,0.5,2,3,5,6,7,8,9,\"x\"]", list.toString());
+		assertEquals(10, list.getLong(1));
+		list.value.clear();
+		assertTrue(list.value.isEmpty());
+		list.value.add(new JSONNumber(1.0));
+		assertEquals("[1.0]", list.toString());
+	}
+
+	@Test
+	public void searchesNumbersByValue() throws Exception {
+		var longs = (JSONList) new Parser("[1, 2, 3, 2]").parse();
+		assertTrue(longs.value.contains(new JSONNumber(2)));
+		assertFalse(longs.value.contains(new JSONNumber(2.0)));
+		assertFalse(longs.value.contains(new JSONString("2")));
+		assertEquals(1, longs.value.indexOf(new JSONNumber(2)));
+		assertEquals(3, longs.value.lastIndexOf(new JSONNumber(2)));
+		assertEquals(-1, longs.value.indexOf(new JSONNumber(4)));
+		assertTrue(longs.value.remove(new JSONNumber(2)));
+		assertEquals("[1,3,2]", longs.toString());
+
+		var doubles = (JSONList) new Parser("[0.5, -2.5, 1.5]").parse();
+		assertEquals(1, doubles.value.indexOf(new JSONNumber(-2.5)));
+		assertFalse(doubles.value.contains(new JSONNumber(1)));
+		assertTrue(doubles.value.remove(new JSONNumber(0.5)));
+		assertFalse(doubles.value.remove(new JSONNumber(0.5)));
+		assertEquals("[-2.5,1.5]", doubles.toString());
+
+		var mixed = (JSONList) new Parser("[1, \"x\", 1.5, 1]").parse();
+		assertEquals(0, mixed.value.indexOf(new JSONNumber(1)));
+		assertEquals(3, mixed.value.lastIndexOf(new JSONNumber(1)));
+		assertEquals(2, mixed.value.indexOf(new JSONNumber(1.5)));
+	}
+
+	@Test
+	public void numbersEqualByKindAndValue(){
+		assertEquals(new JSONNumber(7), new JSONNumber(7));
+		assertEquals(new JSONNumber(7).hashCode(), new JSONNumber(7).hashCode());
+		assertEquals(new JSONNumber(0.25), new JSONNumber(0.25));
+		assertEquals(new JSONNumber(new BigDecimal("1e30")), new JSONNumber(new BigDecimal("1000000000000000000000000000000")));
+		assertEquals(new JSONNumber(new BigDecimal("1e30")).hashCode(), new JSONNumber(new BigDecimal("1000000000000000000000000000000")).hashCode());
+		assertNotEquals(new JSONNumber(1), new JSONNumber(1.0));
+		assertNotEquals(new JSONNumber(1), new JSONNumber(2));
+	}
+}
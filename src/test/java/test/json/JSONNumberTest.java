@@ -0,0 +1,88 @@
+package test.json;
+
+import common.json.ByteParser;
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.Parser;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JSONNumberTest {
+
+	@Test
+	public void integersKeepFullPrecision() throws Exception {
+		var list = new Parser("[3000000000, -9223372036854775808, 9223372036854775807, 12345678901234567890123]").parse();
+		assertEquals("[3000000000,-9223372036854775808,9223372036854775807,12345678901234567890123]", list.toString());
+		assertEquals(Long.MIN_VALUE, number(list, 1).longValue());
+		assertEquals(new BigDecimal("12345678901234567890123"), number(list, 3).bigDecimalValue());
+		assertTrue(number(list, 3).isIntegral());
+	}
+
+	@Test
+	public void fractionsAreDoubles() throws Exception {
+		var list = new Parser("[1.0, 1e2, -0.0, 1.5E-3]").parse();
+		assertFalse(number(list, 0).isIntegral());
+		assertEquals(100d, number(list, 1).doubleValue(), 0);
+		assertEquals(Double.doubleToLongBits(-0d), Double.doubleToLongBits(number(list, 2).doubleValue()));
+		assertEquals(0.0015, number(list, 3).doubleValue(), 0);
+	}
+
+	@Test
+	public void randomDoublesRoundTrip(){
+		var random = new Random(42);
+		for(int i = 0; i < 100000; i++){
+			double value = Double.longBitsToDouble(random.nextLong());
+			if(Double.isNaN(value) || Double.isInfinite(value))
+				continue;
+			String text = Double.toString(value);
+			assertEquals(text, Double.doubleToLongBits(value), Double.doubleToLongBits(new JSONNumber(text).doubleValue()));
+		}
+	}
+
+	@Test
+	public void randomDecimalsMatchJdk(){
+		var random = new Random(42);
+		for(int i = 0; i < 100000; i++){
+			var text = new StringBuilder();
+			if(random.nextBoolean())
+				text.append('-');
+			text.append(random.nextInt(9) + 1);
+			int digits = random.nextInt(25);
+			for(int j = 0; j < digits; j++)
+				text.append(random.nextInt(10));
+			text.insert(text.length() - random.nextInt(digits + 1), '.');
+			if(text.charAt(text.length() - 1) == '.')
+				text.append('0');
+			text.append('e').append(random.nextInt(700) - 350);
+			String s = text.toString();
+			assertEquals(s, Double.doubleToLongBits(Double.parseDouble(s)), Double.doubleToLongBits(new JSONNumber(s).doubleValue()));
+		}
+	}
+
+	@Test
+	public void byteParserMatchesParser() throws Exception {
+		var json = "[0, -1, 0.1, 2.2250738585072014E-308, 4.9e-324, 1.7976931348623157e308, 1e400, 123456789012345678901234567890.5]";
+		var expected = new Parser(json).parse();
+		var actual = new ByteParser(json.getBytes(StandardCharsets.UTF_8)).parse();
+		for(int i = 0; i < 8; i++)
+			assertEquals(Double.doubleToLongBits(number(expected, i).doubleValue()), Double.doubleToLongBits(number(actual, i).doubleValue()));
+		assertEquals(Double.POSITIVE_INFINITY, number(actual, 6).doubleValue(), 0);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void rejectsInvalidText(){
+		new JSONNumber("01");
+	}
+
+	private static JSONNumber number(Object list, int index){
+		return (JSONNumber) ((JSONList) list).value.get(index);
+	}
+}
@@ -0,0 +1,242 @@
+package test.json;
+
+import common.json.JSONComplex;
+import common.json.JSONEntity;
+import common.json.JSONBoolean;
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONObject;
+import common.json.JSONPatch;
+import common.json.JSONString;
+import common.json.Parser;
+import common.json.PersistentObject;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONPatchTest {
+
+	private static JSONComplex parse(String json){
+		try {
+			return new Parser(json).parse();
+		} catch(ParseException ex){
+			throw new AssertionError(ex);
+		}
+	}
+
+	private static void assertApplied(String document, String patch, String expected){
+		var root = parse(document);
+		var result = new JSONPatch().apply(root, (JSONList) parse(patch));
+		assertEquals(expected, result.toString());
+	}
+
+	@Test
+	public void appliesSpecificationExamples(){
+		assertApplied("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\"}]", "{\"foo\":\"bar\",\"baz\":\"qux\"}");
+		assertApplied("{\"foo\":[\"bar\",\"baz\"]}", "[{\"op\":\"add\",\"path\":\"/foo/1\",\"value\":\"qux\"}]", "{\"foo\":[\"bar\",\"qux\",\"baz\"]}");
+		assertApplied("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"remove\",\"path\":\"/baz\"}]", "{\"foo\":\"bar\"}");
+		assertApplied("{\"foo\":[\"bar\",\"qux\",\"baz\"]}", "[{\"op\":\"remove\",\"path\":\"/foo/1\"}]", "{\"foo\":[\"bar\",\"baz\"]}");
+		assertApplied("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"replace\",\"path\":\"/baz\",\"value\":\"boo\"}]", "{\"baz\":\"boo\",\"foo\":\"bar\"}");
+		assertApplied("{\"foo\":{\"bar\":\"baz\",\"waldo\":\"fred\"},\"qux\":{\"corge\":\"grault\"}}", "[{\"op\":\"move\",\"from\":\"/foo/waldo\",\"path\":\"/qux/thud\"}]",
+			"{\"foo\":{\"bar\":\"baz\"},\"qux\":{\"corge\":\"grault\",\"thud\":\"fred\"}}");
+		assertApplied("{\"foo\":[\"all\",\"grass\",\"cows\",\"eat\"]}", "[{\"op\":\"move\",\"from\":\"/foo/1\",\"path\":\"/foo/3\"}]", "{\"foo\":[\"all\",\"cows\",\"eat\",\"grass\"]}");
+		assertApplied("{\"baz\":\"qux\",\"foo\":[\"a\",2,\"c\"]}", "[{\"op\":\"test\",\"path\":\"/baz\",\"value\":\"qux\"},{\"op\":\"test\",\"path\":\"/foo/1\",\"value\":2}]",
+			"{\"baz\":\"qux\",\"foo\":[\"a\",2,\"c\"]}");
+		assertApplied("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/child\",\"value\":{\"grandchild\":{}}}]", "{\"foo\":\"bar\",\"child\":{\"grandchild\":{}}}");
+		assertApplied("{\"/\":9,\"~1\":10}", "[{\"op\":\"test\",\"path\":\"/~01\",\"value\":10},{\"op\":\"copy\",\"from\":\"/~1\",\"path\":\"/x\"}]", "{\"/\":9,\"~1\":10,\"x\":9}");
+		assertApplied("{\"foo\":[\"bar\"]}", "[{\"op\":\"add\",\"path\":\"/foo/-\",\"value\":[\"abc\",\"def\"]}]", "{\"foo\":[\"bar\",[\"abc\",\"def\"]]}");
+		assertApplied("{\"a\":1}", "[{\"op\":\"replace\",\"path\":\"\",\"value\":[1]}]", "[1]");
+	}
+
+	@Test
+	public void movesWithRootPointer(){
+		assertApplied("{\"a\":[1]}", "[{\"op\":\"move\",\"from\":\"\",\"path\":\"\"}]", "{\"a\":[1]}");
+		assertApplied("{\"a\":[1]}", "[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"\"}]", "[1]");
+		try {
+			new JSONPatch().apply(parse("{\"a\":1}"), (JSONList) parse("[{\"op\":\"move\",\"from\":\"\",\"path\":\"/b\"}]"));
+			fail();
+		} catch(IllegalArgumentException e){
+			// Корень нельзя переместить в собственного потомка
+		}
+	}
+
+	@Test
+	public void rollsBackFailedPatches(){
+		var document = parse("{\"a\":{\"b\":[1,2,3]},\"c\":\"d\"}");
+		var before = document.toString();
+		var patch = (JSONList) parse("[{\"op\":\"remove\",\"path\":\"/a/b/0\"},{\"op\":\"replace\",\"path\":\"/c\",\"value\":1},{\"op\":\"add\",\"path\":\"/a/x\",\"value\":1},"
+			+ "{\"op\":\"move\",\"from\":\"/a/b\",\"path\":\"/e\"},{\"op\":\"test\",\"path\":\"/c\",\"value\":2}]");
+		try {
+			new JSONPatch().apply(document, patch);
+			fail();
+		} catch(IllegalArgumentException ex){
+			assertEquals("Operation 4: Test failed for \"/c\"", ex.getMessage());
+		}
+		assertEquals(before, document.toString());
+		for(var invalid : new String[]{"[{\"op\":\"remove\",\"path\":\"/x\"}]", "[{\"op\":\"add\",\"path\":\"/a/b/5\",\"value\":1}]", "[{\"op\":\"add\",\"path\":\"/a/b/01\",\"value\":1}]",
+			"[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/a/b/0\"}]", "[{\"op\":\"jump\",\"path\":\"/a\"}]", "[{\"op\":\"add\",\"path\":\"/a\"}]"}){
+			try {
+				new JSONPatch().apply(document, (JSONList) parse(invalid));
+				fail(invalid);
+			} catch(IllegalArgumentException ex){
+				assertEquals(before, document.toString());
+			}
+		}
+	}
+
+	@Test
+	public void diffsMinimally(){
+		var patch = new JSONPatch();
+		var source = parse("{\"a\":{\"big\":[1,2,3,{\"x\":\"y\"}],\"v\":1},\"b\":[1,2,3,4,5],\"c\":\"old\",\"d\":{\"k\":[true]}}");
+		var target = parse("{\"e\":{\"k\":[true]},\"a\":{\"v\":1,\"big\":[1,2,3,{\"x\":\"y\"}]},\"b\":[1,2,9,4,5,6],\"c\":\"new\"}");
+		assertEquals("[{\"op\":\"move\",\"from\":\"/d\",\"path\":\"/e\"},{\"op\":\"replace\",\"path\":\"/b/2\",\"value\":9},{\"op\":\"add\",\"path\":\"/b/5\",\"value\":6},"
+			+ "{\"op\":\"replace\",\"path\":\"/c\",\"value\":\"new\"}]", patch.diff(source, target).toString());
+		assertEquals("[]", patch.diff(source, parse(source.toString())).toString());
+		assertEquals("[{\"op\":\"replace\",\"path\":\"\",\"value\":[]}]", patch.diff(parse("{}"), parse("[]")).toString());
+		assertEquals("[{\"op\":\"remove\",\"path\":\"/0\"},{\"op\":\"remove\",\"path\":\"/0\"}]", patch.diff(parse("[1,2,3]"), parse("[3]")).toString());
+	}
+
+	@Test
+	public void comparesNumbersNumerically(){
+		var patch = new JSONPatch();
+		assertEquals(patch.hash(parse("[1]")), patch.hash(parse("[1.0]")));
+		assertTrue(patch.equal(parse("[1,{\"a\":-0.0}]"), parse("[1.0,{\"a\":0}]")));
+		assertTrue(patch.equal(new JSONNumber(new BigDecimal("1e20")), new JSONNumber(1e20)));
+		assertTrue(patch.equal(new JSONNumber(new BigDecimal("2.50")), new JSONNumber(2.5)));
+		assertFalse(patch.equal(new JSONNumber(9007199254740993L), new JSONNumber(9007199254740992d)));
+		assertFalse(patch.equal(parse("[1]"), parse("[1.5]")));
+		assertNotEquals(patch.hash(parse("{\"a\":1}")), patch.hash(parse("{\"a\":true}")));
+		assertEquals(patch.hash(parse("{\"a\":1,\"b\":[2.5]}")), patch.hash(parse("{\"b\":[2.5],\"a\":1}")));
+		assertFalse(patch.equal(parse("[\"1\"]"), parse("[1]")));
+		assertApplied("{\"a\":1}", "[{\"op\":\"test\",\"path\":\"/a\",\"value\":1.0}]", "{\"a\":1}");
+		assertApplied("{\"a\":[1.5,{\"b\":2}]}", "[{\"op\":\"test\",\"path\":\"/a\",\"value\":[1.50,{\"b\":2e0}]}]", "{\"a\":[1.5,{\"b\":2}]}");
+	}
+
+	@Test
+	public void rollsBackOnAnyFailure(){
+		var document = new JSONObject();
+		document.value.put("b", new JSONList());
+		document.value.put("c", PersistentObject.EMPTY.with("k", new JSONString("v")));
+		document.value.put("a", new JSONNumber(1));
+		var before = document.toString();
+		var patch = (JSONList) parse("[{\"op\":\"remove\",\"path\":\"/a\"},{\"op\":\"add\",\"path\":\"/b/-\",\"value\":1},{\"op\":\"add\",\"path\":\"/c/x\",\"value\":1}]");
+		try {
+			new JSONPatch().apply(document, patch);
+			fail();
+		} catch(UnsupportedOperationException ex){
+			assertEquals(before, document.toString());
+		}
+	}
+
+	@Test
+	public void roundTripsRandomDocuments(){
+		var random = new Random(7);
+		var patch = new JSONPatch();
+		for(int round = 0; round < 300; round++){
+			var source = new JSONList();
+			source.value.add(randomValue(random, 4));
+			var target = parse(source.toString());
+			for(int i = random.nextInt(5); i >= 0; i--)
+				mutate(random, target);
+			var operations = patch.diff(source, target);
+			var copy = parse(source.toString());
+			var result = patch.apply(copy, (JSONList) parse(operations.toString()));
+			assertTrue(operations.toString(), new JSONPatch().equal(target, result));
+			assertTrue(patch.equal(target, result));
+			assertEquals("[]", patch.diff(result, target).toString());
+		}
+	}
+
+	@Test
+	public void keepsCacheConsistentAfterApply(){
+		var patch = new JSONPatch();
+		var document = parse("{\"a\":{\"b\":[1,2]}}");
+		var inner = (JSONComplex) ((JSONObject) document).value.get("a");
+		long before = patch.hash(inner);
+		var result = patch.apply(document, (JSONList) parse("[{\"op\":\"add\",\"path\":\"/a/b/-\",\"value\":3}]"));
+		assertSame(document, result);
+		assertNotEquals(before, patch.hash(inner));
+		assertEquals("[]", patch.diff(document, parse("{\"a\":{\"b\":[1,2,3]}}")).toString());
+	}
+
+	private static JSONEntity randomValue(Random random, int depth){
+		int kind = random.nextInt(depth > 0 ? 8 : 5);
+		switch(kind){
+			case 0:
+				return new JSONNumber(random.nextInt(10));
+			case 1:
+				return new JSONString("s" + random.nextInt(5));
+			case 2:
+				return new JSONNumber(random.nextInt(3) + 0.5);
+			case 3:
+				return new JSONBoolean(random.nextBoolean());
+			case 4:
+				return null;
+			case 5:
+			case 6: {
+				int size = random.nextInt(5);
+				var object = new JSONObject();
+				for(int i = 0; i < size; i++)
+					object.value.put("k" + random.nextInt(8), randomValue(random, depth - 1));
+				return object;
+			}
+			default: {
+				var list = new JSONList();
+				int size = random.nextInt(6);
+				for(int i = 0; i < size; i++)
+					list.value.add(randomValue(random, depth - 1));
+				return list;
+			}
+		}
+	}
+
+	private static void mutate(Random random, JSONEntity root){
+		JSONEntity current = root;
+		while(true){
+			if(current instanceof JSONObject){
+				var map = ((JSONObject) current).value;
+				if(map.isEmpty() || random.nextInt(3) == 0){
+					if(!map.isEmpty() && random.nextBoolean())
+						map.remove(map.keySet().iterator().next());
+					else
+						map.put("n" + random.nextInt(4), randomValue(random, 2));
+					return;
+				}
+				var keys = map.keySet().toArray(new String[0]);
+				var key = keys[random.nextInt(keys.length)];
+				if(!(map.get(key) instanceof JSONComplex)){
+					map.put(key, randomValue(random, 1));
+					return;
+				}
+				current = map.get(key);
+			} else if(current instanceof JSONList){
+				var list = ((JSONList) current).value;
+				if(list.isEmpty() || random.nextInt(3) == 0){
+					if(!list.isEmpty() && random.nextBoolean())
+						list.remove(random.nextInt(list.size()));
+					else
+						list.add(random.nextInt(list.size() + 1), randomValue(random, 2));
+					return;
+				}
+				int index = random.nextInt(list.size());
+				if(!(list.get(index) instanceof JSONComplex)){
+					list.set(index, randomValue(random, 1));
+					return;
+				}
+				current = list.get(index);
+			} else {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package test.json;
+
+import common.json.JSONEntity;
+import common.json.JSONPath;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONPathTest {
+
+	private static final String STORE = "{\"store\":{\"book\":[" +
+		"{\"category\":\"reference\",\"author\":\"Nigel Rees\",\"title\":\"Sayings of the Century\",\"price\":8.95}," +
+		"{\"category\":\"fiction\",\"author\":\"Evelyn Waugh\",\"title\":\"Sword of Honour\",\"price\":12.99}," +
+		"{\"category\":\"fiction\",\"author\":\"Herman Melville\",\"title\":\"Moby Dick\",\"isbn\":\"0-553-21311-3\",\"price\":8.99}," +
+		"{\"category\":\"fiction\",\"author\":\"J. R. R. Tolkien\",\"title\":\"The Lord of the Rings\",\"isbn\":\"0-395-19395-8\",\"price\":22.99}" +
+		"],\"bicycle\":{\"color\":\"red\",\"price\":19.95}}}";
+
+	private static String select(String json, String expression) throws ParseException {
+		return toString(JSONPath.compile(expression).select(json.getBytes(StandardCharsets.UTF_8)).get(0));
+	}
+
+	private static String toString(List<JSONEntity> values){
+		StringBuilder result = new StringBuilder("[");
+		for(JSONEntity value : values)
+			result.append(result.length() > 1 ? "," : "").append(value);
+		return result.append(']').toString();
+	}
+
+	@Test
+	public void selectsChildrenAndDescendants() throws ParseException {
+		assertEquals("[\"Nigel Rees\",\"Evelyn Waugh\",\"Herman Melville\",\"J. R. R. Tolkien\"]", select(STORE, "$.store.book[*].author"));
+		assertEquals("[\"Nigel Rees\",\"Evelyn Waugh\",\"Herman Melville\",\"J. R. R. Tolkien\"]", select(STORE, "$..author"));
+		assertEquals("[8.95,12.99,8.99,22.99,19.95]", select(STORE, "$.store..price"));
+		assertEquals("[{\"color\":\"red\",\"price\":19.95}]", select(STORE, "$['store'][\"bicycle\"]"));
+		assertEquals("[\"red\",19.95]", select(STORE, "$.store.bicycle.*"));
+		assertEquals("[\"Moby Dick\"]", select(STORE, "$.store.book[2].title"));
+		assertEquals("[]", select(STORE, "$.store.book[7].title"));
+		assertEquals("[]", select(STORE, "$.store.bicycle[0]"));
+	}
+
+	@Test
+	public void selectsUnionsAndSlices() throws ParseException {
+		String list = "[0,1,2,3,4,5,6,7,8,9]";
+		assertEquals("[1,2]", select(list, "$[1:3]"));
+		assertEquals("[0,3,6,9]", select(list, "$[::3]"));
+		assertEquals("[7,8,9]", select(list, "$[7:]"));
+		assertEquals("[0,2,5]", select(list, "$[0, 5, 2]"));
+		assertEquals("[0,1,9]", select(list, "$[:2,9]"));
+		assertEquals("[\"Nigel Rees\",8.95]", select(STORE, "$.store.book[0]['author','price']"));
+		assertEquals("[[[1]],[1],1]", select("{\"a\":[[[1]]]}", "$..[0]"));
+	}
+
+	@Test
+	public void selectsInDocumentOrder() throws ParseException {
+		assertEquals("[{\"a\":{\"a\":1}},{\"a\":1},1]", select("{\"a\":{\"a\":{\"a\":1}},\"b\":2}", "$..a"));
+		assertEquals("[{\"b\":[1,{\"c\":2}]},[1,{\"c\":2}],1,{\"c\":2},2]", select("{\"a\":{\"b\":[1,{\"c\":2}]}}", "$..*"));
+	}
+
+	@Test
+	public void evaluatesManyPathsInOnePass() throws ParseException {
+		var path = JSONPath.compile("$.store.book[*].title", "$..price", "$.store.bicycle", "$.missing");
+		var result = path.select(STORE.getBytes(StandardCharsets.UTF_8));
+		assertEquals(4, result.size());
+		assertEquals("[\"Sayings of the Century\",\"Sword of Honour\",\"Moby Dick\",\"The Lord of the Rings\"]", toString(result.get(0)));
+		assertEquals("[8.95,12.99,8.99,22.99,19.95]", toString(result.get(1)));
+		assertEquals("[{\"color\":\"red\",\"price\":19.95}]", toString(result.get(2)));
+		assertEquals("[]", toString(result.get(3)));
+
+		List<String> order = new ArrayList<>();
+		path.select(ByteBuffer.wrap(STORE.getBytes(StandardCharsets.UTF_8)), (value, index) -> order.add(index + ":" + value));
+		assertEquals("2:{\"color\":\"red\",\"price\":19.95}", order.get(order.size() - 2));
+		assertEquals("1:19.95", order.get(order.size() - 1));
+	}
+
+	@Test
+	public void sharesValueMatchedByManyPaths() throws ParseException {
+		List<JSONEntity> values = new ArrayList<>();
+		JSONPath.compile("$.a", "$..a", "$.*").select(ByteBuffer.wrap("{\"a\":{}}".getBytes(StandardCharsets.UTF_8)), (value, index) -> values.add(value));
+		assertEquals(3, values.size());
+		assertTrue(values.get(0) == values.get(1) && values.get(1) == values.get(2));
+	}
+
+	@Test
+	public void matchesEscapedAndUnicodeKeys() throws ParseException {
+		String json = "{\"\\u0061\":1,\"ключ\":2,\"a\\\"b\":3,\"x\":{\"ключ\":4}}";
+		assertEquals("[1]", select(json, "$.a"));
+		assertEquals("[2,4]", select(json, "$..ключ"));
+		assertEquals("[3]", select(json, "$['a\"b']"));
+		assertEquals("[3]", select(json, "$[\"a\\\"b\"]"));
+	}
+
+	@Test
+	public void skipsSubtreesWithoutParsingThem() throws ParseException {
+		assertEquals("[1]", select("{\"skip\":[tru, {\"x\" 1}, \"\\q\"],\"b\":1}", "$.b"));
+		assertEquals("[\"}\"]", select("{\"skip\":{\"s\":\"]}\\\"[{\"},\"b\":\"}\"}", "$.b"));
+	}
+
+	@Test
+	public void readsBufferRegion() throws ParseException {
+		byte[] data = "xx{\"a\":1}yy".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(data, 2, 7);
+		List<String> values = new ArrayList<>();
+		JSONPath.compile("$.a").select(buffer, (value, index) -> values.add(value.toString()));
+		assertEquals("[1]", values.toString());
+		assertEquals(2, buffer.position());
+		assertEquals(9, buffer.limit());
+	}
+
+	@Test
+	public void reportsInvalidData(){
+		assertInvalid("", "Empty string", 0);
+		assertInvalid("{\"a\":1", "Unexpected end of input. Expected }", 6);
+		assertInvalid("{\"a\" 1}", "Unexpected token \"1\" at position 5. Expected colon", 5);
+		assertInvalid("[1 2]", "Unexpected token \"2\" at position 3. Expected comma or closing bracket", 3);
+		assertInvalid("{\"a\":1} x", "Unexpected token \"x\" at position 8. There should be no characters after data ending except for spaces", 8);
+		assertInvalid("{\"b\":[[1]", "Unexpected end of input. Expected closing bracket", 9);
+		assertInvalid("{\"a\":tru}", null, 8);
+	}
+
+	private static void assertInvalid(String json, String message, int position){
+		try {
+			select(json, "$.a");
+			fail("Expected ParseException for " + json);
+		} catch(ParseException ex){
+			if(message != null)
+				assertEquals(message, ex.getMessage());
+			assertEquals(position, ex.getErrorOffset());
+		}
+	}
+
+	@Test
+	public void rejectsUnsupportedExpressions(){
+		for(String expression : new String[]{"a.b", "$.", "$[-1]", "$[?(@.a)]", "$[1:2:0]", "$['a'", "$[a]", "$.a[1"}){
+			try {
+				JSONPath.compile(expression);
+				fail("Expected IllegalArgumentException for " + expression);
+			} catch(IllegalArgumentException ex){
+				assertTrue(ex.getMessage(), ex.getMessage().startsWith("Invalid JSONPath \"" + expression + "\""));
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package test.json;
+
+import common.json.JSONReader;
+import common.json.JSONToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JSONReaderTest {
+
+	private static JSONReader reader(String data){
+		return new JSONReader(new StringReader(data), 8);
+	}
+
+	@Test
+	public void objectIsReadTokenByToken() throws IOException, ParseException {
+		var r = reader("{\"id\": 12, \"name\": \"a\\\"b\\u00e9\", \"ok\": true, \"none\": null, \"pi\": -3.25e1}");
+		r.beginObject();
+		assertEquals("id", r.nextName());
+		assertEquals(12, r.nextLong());
+		assertEquals("name", r.nextName());
+		assertEquals("a\"bé", r.nextString());
+		assertEquals("ok", r.nextName());
+		assertTrue(r.nextBoolean());
+		assertEquals("none", r.nextName());
+		assertEquals(JSONToken.NULL, r.peek());
+		r.nextNull();
+		assertEquals("pi", r.nextName());
+		assertEquals(-32.5, r.nextDouble(), 0);
+		assertFalse(r.hasNext());
+		r.endObject();
+		assertEquals(JSONToken.END_DOCUMENT, r.peek());
+	}
+
+	@Test
+	public void listIsReadTokenByToken() throws IOException, ParseException {
+		var r = reader("[[], [1, 2], \"x\"]");
+		r.beginList();
+		r.beginList();
+		assertFalse(r.hasNext());
+		r.endList();
+		r.beginList();
+		assertEquals(1, r.nextInt());
+		assertEquals(2, r.nextInt());
+		r.endList();
+		assertEquals("x", r.nextString());
+		r.endList();
+		assertEquals(JSONToken.END_DOCUMENT, r.peek());
+	}
+
+	@Test
+	public void skipValueSkipsNestedStructures() throws IOException, ParseException {
+		var r = reader("{\"skip\": {\"a\": [1, {\"b\": \"]}\"}], \"c\": null}, \"keep\": 42}");
+		r.beginObject();
+		r.skipValue();
+		assertEquals("keep", r.nextName());
+		assertEquals(42, r.nextLong());
+		r.endObject();
+	}
+
+	@Test
+	public void longStringsCrossBufferBoundaries() throws IOException, ParseException {
+		var value = "abcdefghij".repeat(100);
+		var r = reader("[\"" + value + "\", 12345678901234]");
+		r.beginList();
+		assertEquals(value, r.nextString());
+		assertEquals(12345678901234L, r.nextLong());
+		r.endList();
+	}
+
+	@Test(expected = ParseException.class)
+	public void wrongTokenThrowsException() throws IOException, ParseException {
+		reader("[\"a\"]").nextString();
+	}
+
+	@Test(expected = ParseException.class)
+	public void trailingCommaThrowsException() throws IOException, ParseException {
+		var r = reader("[1,]");
+		r.beginList();
+		r.nextInt();
+		r.hasNext();
+	}
+}
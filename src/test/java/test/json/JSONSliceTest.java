@@ -0,0 +1,94 @@
+package test.json;
+
+import common.json.ByteParser;
+import common.json.JSONList;
+import common.json.JSONObject;
+import common.json.JSONSlice;
+import common.json.JSONString;
+import common.json.Parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONSliceTest {
+
+	private static final String DATA = "{\"a\":\"plain\",\"b\":\"esc\\\"aped\\\\\\n\\u0041\\/\",\"c\":\"юникод\",\"d\":[\"plain\",\"pl\\u0061in\",\"\"],\"e\":\"\\ud83d\\ude00 x\"}";
+
+	private static JSONList parseList(String json) throws ParseException {
+		return (JSONList) new ByteParser(json.getBytes(StandardCharsets.UTF_8)).setSlices(true).parse();
+	}
+
+	@Test
+	public void slicesMatchCopiedStrings() throws ParseException {
+		var copied = (JSONObject) new Parser(DATA).parse();
+		var sliced = (JSONObject) new ByteParser(DATA.getBytes(StandardCharsets.UTF_8)).setSlices(true).parse();
+		assertEquals(copied.toString(), sliced.toString());
+		for(String key : new String[]{"a", "b", "c", "e"}){
+			var slice = (JSONSlice) sliced.value.get(key);
+			String expected = ((JSONString) copied.value.get(key)).stringValue();
+			assertEquals(expected, slice.stringValue());
+			assertEquals(expected, slice.toString());
+			assertEquals(expected.hashCode(), slice.hashCode());
+			assertEquals(expected.length(), slice.length());
+			for(int i = 0; i < expected.length(); i++)
+				assertEquals(expected.charAt(i), slice.charAt(i));
+			assertEquals(expected.substring(1), slice.subSequence(1, slice.length()).toString());
+		}
+	}
+
+	@Test
+	public void worksOnTheBufferBeforeDecoding() throws ParseException {
+		var list = parseList("[\"abc\",\"abc\",\"ab\\u0063\",\"abd\",\"\"]");
+		var first = (JSONSlice) list.value.get(0);
+		assertEquals("abc".hashCode(), first.hashCode());
+		assertEquals(3, first.length());
+		assertEquals('b', first.charAt(1));
+		assertEquals(first, list.value.get(1));
+		assertEquals(first, list.value.get(2));
+		assertNotEquals(first, list.value.get(3));
+		assertEquals(0, ((JSONSlice) list.value.get(4)).length());
+		assertFalse(first.equals(new JSONString("abc")));
+		Set<JSONSlice> set = new HashSet<>();
+		for(int i = 0; i < list.value.size(); i++)
+			set.add((JSONSlice) list.value.get(i));
+		assertEquals(3, set.size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void checksIndexBeforeDecoding() throws ParseException {
+		((JSONSlice) parseList("[\"abc\"]").value.get(0)).charAt(3);
+	}
+
+	@Test
+	public void readsDirectBuffers() throws ParseException {
+		byte[] bytes = "[\"x\\ty\",\"ключ\"]".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		var list = (JSONList) new ByteParser(direct).setSlices(true).parse();
+		assertEquals("x\ty", ((JSONString) list.value.get(0)).stringValue());
+		assertEquals("ключ", ((JSONString) list.value.get(1)).stringValue());
+	}
+
+	@Test
+	public void validatesStringsWhileSlicing(){
+		for(String json : new String[]{"[\"\\q\"]", "[\"\\u00G0\"]", "[\"a\u0001\"]", "[\"abc"}){
+			try {
+				parseList(json);
+				fail("Expected ParseException for " + json);
+			} catch(ParseException ex){
+				assertTrue(ex.getMessage(), ex.getErrorOffset() > 0);
+			}
+		}
+	}
+}
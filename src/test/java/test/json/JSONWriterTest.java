@@ -0,0 +1,85 @@
+package test.json;
+
+import common.json.JSONBoolean;
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONObject;
+import common.json.JSONString;
+import common.json.JSONWriter;
+import common.json.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JSONWriterTest {
+
+	@Test
+	public void tokensAreWrittenWithSeparators() throws IOException {
+		var out = new StringBuilder();
+		var writer = new JSONWriter(out);
+		writer.beginObject();
+		writer.name("a").value(1);
+		writer.name("b").beginList().value(true).nullValue().value(-2.5).value("x").endList();
+		writer.name("c").beginObject().endObject();
+		writer.endObject();
+		writer.flush();
+		assertEquals("{\"a\":1,\"b\":[true,null,-2.5,\"x\"],\"c\":{}}", out.toString());
+	}
+
+	@Test
+	public void stringsAreEscaped(){
+		var list = new JSONList();
+		list.value.add(new JSONString("a\"b\\c\n\u0001é"));
+		assertEquals("[\"a\\\"b\\\\c\\n\\u0001é\"]", list.toString());
+	}
+
+	@Test
+	public void treeIsWritten() throws ParseException {
+		var data = "{\"a\":{\"b\":[1,[2,{}],\"q\\\"\"]},\"c\":\"d\",\"e\":null,\"f\":false}";
+		assertEquals(data, new Parser(data).parse().toString());
+		var object = new JSONObject();
+		object.value.put("n", new JSONNumber(3000000000L));
+		object.value.put("b", new JSONBoolean(true));
+		assertEquals("{\"n\":3000000000,\"b\":true}", object.toString());
+	}
+
+	@Test
+	public void deepTreeIsWritten() throws ParseException {
+		var data = "[".repeat(100000) + "]".repeat(100000);
+		assertEquals(data, new Parser(data).parse().toString());
+	}
+
+	@Test
+	public void outputStreamReceivesUtf8() throws IOException {
+		var out = new ByteArrayOutputStream();
+		var writer = new JSONWriter(out);
+		writer.beginList().value("日本").endList();
+		writer.close();
+		assertEquals("[\"日本\"]", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void prettifyIndentsNestedStructures() throws ParseException {
+		var data = new Parser("{\"a\": [1, {}], \"b\": {\"c\": []}}").parse();
+		assertEquals("{\n\t\"a\": [\n\t\t1,\n\t\t{}\n\t],\n\t\"b\": {\n\t\t\"c\": []\n\t}\n}", data.prettify());
+	}
+
+	@Test
+	public void keysAreSortedAndShortStructuresAreInlined() throws IOException, ParseException {
+		var data = new Parser("{\"z\": [1, 2, 3], \"a\": {\"y\": \"long value\", \"x\": [true, null]}}").parse();
+		var out = new StringBuilder();
+		new JSONWriter(out).setIndent("  ").setSortKeys(true).setMaxInlineWidth(20).value(data).flush();
+		assertEquals("{\n  \"a\": {\n    \"x\": [true, null],\n    \"y\": \"long value\"\n  },\n  \"z\": [1, 2, 3]\n}", out.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void valueWithoutNameThrowsException() throws IOException {
+		new JSONWriter(new StringBuilder()).beginObject().value(1);
+	}
+}
@@ -0,0 +1,49 @@
+package test.json;
+
+import common.json.ByteParser;
+import common.json.JSONObject;
+import common.json.KeyCache;
+import common.json.Parser;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class KeyCacheTest {
+
+	private static final String JSON = "{\"id\": 1, \"na\\u006De\": \"id\", \"ключ\": [{\"id\": 2}]}";
+
+	@Test
+	public void keysAreSharedBetweenDocuments() throws Exception {
+		var keys = new KeyCache();
+		var first = (JSONObject) new Parser(JSON).setKeyCache(keys).parse();
+		var second = (JSONObject) new Parser(JSON).setKeyCache(keys).parse();
+		assertSame(key(first, 0), key(second, 0));
+		assertSame(key(first, 1), key(second, 1));
+		assertEquals("name", key(first, 1));
+		var bytes = (JSONObject) new ByteParser(JSON.getBytes(StandardCharsets.UTF_8)).setKeyCache(keys).parse();
+		assertSame(key(first, 0), key(bytes, 0));
+		assertSame(key(first, 1), key(bytes, 1));
+		assertEquals(first.toString(), bytes.toString());
+	}
+
+	@Test
+	public void smallTableStaysCorrect() throws Exception {
+		var keys = new KeyCache(1);
+		var json = "{\"a\": {\"b\": 1, \"a\": 2, \"c\": 3}, \"b\": 4}";
+		assertEquals(new Parser(json).parse().toString(), new Parser(json).setKeyCache(keys).parse().toString());
+		assertEquals(new Parser(json).parse().toString(), new ByteParser(json.getBytes(StandardCharsets.UTF_8)).setKeyCache(keys).parse().toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsZeroCapacity(){
+		new KeyCache(0);
+	}
+
+	private static String key(JSONObject object, int index){
+		return object.value.keySet().toArray(new String[0])[index];
+	}
+}
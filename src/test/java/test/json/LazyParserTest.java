@@ -0,0 +1,96 @@
+package test.json;
+
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONObject;
+import common.json.JSONString;
+import common.json.LazyParser;
+import common.json.Parser;
+
+import java.text.ParseException;
+import java.util.ConcurrentModificationException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyParserTest {
+
+	private static final String DATA = "{\"a\": {\"b\": [1, [2, {}], \"x\\ty\"]}, \"c\": \"d\", \"e\": null, \"f\": true, \"k1\": 1, \"k2\": 2, \"k3\": 3, \"k4\": 4, \"k5\": 5, \"k6\": 6}";
+
+	@Test
+	public void resultMatchesEagerParser() throws ParseException {
+		assertEquals(new Parser(DATA).parse().toString(), new LazyParser(DATA).parse().toString());
+	}
+
+	@Test
+	public void valuesAreAccessibleByKeyAndIndex() throws ParseException {
+		var root = (JSONObject) new LazyParser(DATA).parse();
+		assertEquals(10, root.value.size());
+		assertEquals("d", ((JSONString) root.value.get("c")).stringValue());
+		assertEquals("6", root.value.get("k6").toString());
+		assertTrue(root.value.containsKey("e"));
+		assertNull(root.value.get("e"));
+		assertFalse(root.value.containsKey("z"));
+		var list = (JSONList) ((JSONObject) root.value.get("a")).value.get("b");
+		assertEquals(3, list.value.size());
+		assertEquals(1d, ((JSONNumber) list.value.get(0)).doubleValue(), 0);
+		assertEquals("x\ty", ((JSONString) list.value.get(2)).stringValue());
+		assertEquals(2, ((JSONList) list.value.get(1)).value.size());
+	}
+
+	@Test
+	public void lazyViewsCanBeModified() throws ParseException {
+		var root = (JSONObject) new LazyParser("{\"a\": [1, 2], \"b\": 3}").parse();
+		var list = (JSONList) root.value.get("a");
+		list.value.add(new JSONNumber(4));
+		list.value.remove(0);
+		root.value.put("c", new JSONString("d"));
+		root.value.remove("b");
+		assertEquals("{\"a\":[2,4],\"c\":\"d\"}", root.toString());
+	}
+
+	@Test
+	public void entriesSupportMapContract() throws ParseException {
+		var root = (JSONObject) new LazyParser("{\"a\": 1, \"b\": 2, \"c\": 3, \"d\": 4}").parse();
+		for(var entry : root.value.entrySet())
+			if(entry.getKey().equals("a"))
+				assertEquals("1", entry.setValue(new JSONNumber(10)).toString());
+		root.value.values().removeIf(value -> value.toString().equals("2"));
+		root.value.keySet().remove("c");
+		assertEquals("{\"a\":10,\"d\":4}", root.toString());
+
+		var other = (JSONObject) new LazyParser("{\"a\": 1, \"b\": 2}").parse();
+		var iterator = other.value.entrySet().iterator();
+		iterator.next();
+		other.value.put("c", null);
+		try {
+			iterator.hasNext();
+			fail();
+		} catch(ConcurrentModificationException e){
+			// Объект изменён не через итератор
+		}
+	}
+
+	@Test
+	public void duplicateKeysKeepLastValue() throws ParseException {
+		for(String json : new String[]{"{\"a\": 1, \"b\": 2, \"a\": 3}", "{\"a\": 1, \"k1\": 1, \"k2\": 2, \"k3\": 3, \"k4\": 4, \"k5\": 5, \"k6\": 6, \"k7\": 7, \"a\": 3}"}){
+			var root = (JSONObject) new LazyParser(json).parse();
+			int size = root.value.size();
+			assertEquals(new Parser(json).parse().toString(), root.toString());
+			assertEquals(size, root.value.entrySet().size());
+			assertEquals("3", root.value.get("a").toString());
+			root.value.put("x", null);
+			assertEquals(size + 1, root.value.size());
+		}
+	}
+
+	@Test(expected = ParseException.class)
+	public void invalidDataThrowsException() throws ParseException {
+		new LazyParser("{\"a\": [1, 2}").parse();
+	}
+}
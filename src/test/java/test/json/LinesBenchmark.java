@@ -0,0 +1,52 @@
+package test.json;
+
+import common.json.KeyCache;
+import common.json.LinesParser;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Измеряет пропускную способность {@link LinesParser} в зависимости от количества потоков пула.
+ * Запуск: {@code mvn test-compile exec:java -Dexec.mainClass=test.json.LinesBenchmark -Dexec.classpathScope=test}
+ */
+public class LinesBenchmark {
+
+	private static final int LINES = 500000;
+	private static final int ROUNDS = 6;
+
+	public static void main(String[] args) throws ParseException {
+		var bytes = lines(LINES).getBytes(StandardCharsets.UTF_8);
+		System.out.printf("Data size: %.1f MB, %d lines%n", bytes.length / 1e6, LINES);
+		int cores = Runtime.getRuntime().availableProcessors();
+		for(int threads = 1; threads <= cores; threads <<= 1){
+			var pool = new ForkJoinPool(threads);
+			var keys = new KeyCache();
+			double best = Double.MAX_VALUE;
+			for(int round = 0; round < ROUNDS; round++){
+				var count = new LongAdder();
+				long t0 = System.nanoTime();
+				new LinesParser(bytes).setPool(pool).setKeyCache(keys).forEach(value -> count.increment());
+				best = Math.min(best, (System.nanoTime() - t0) / 1e9);
+				if(count.sum() != LINES)
+					throw new IllegalStateException();
+			}
+			System.out.printf("%2d threads: %7.1f MB/s%n", threads, bytes.length / 1e6 / best);
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Создаёт строки с записями журнала
+	 */
+	private static String lines(int count){
+		var result = new StringBuilder();
+		for(int i = 0; i < count; i++)
+			result.append("{\"timestamp\":").append(1700000000000L + i).append(",\"level\":\"").append(i % 10 == 0 ? "WARN" : "INFO")
+				.append("\",\"message\":\"Request processed in ").append(i % 997).append(" ms\",\"latency\":").append(i % 997 * 0.25)
+				.append(",\"tags\":[\"api\",\"v").append(i % 3).append("\"],\"user\":{\"id\":").append(i % 5000).append(",\"name\":\"user").append(i % 5000).append("\"}}\n");
+		return result.toString();
+	}
+}
@@ -0,0 +1,102 @@
+package test.json;
+
+import common.json.JSONComplex;
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONObject;
+import common.json.KeyCache;
+import common.json.LinesParser;
+import common.json.Shapes;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LinesParserTest {
+
+	private static String lines(int count){
+		var result = new StringBuilder();
+		for(int i = 0; i < count; i++){
+			result.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\",\"tags\":[\"a\",\"b\"]}");
+			result.append(i % 7 == 0 ? "\r\n" : "\n");
+			if(i % 100 == 0)
+				result.append("\n  \n");
+		}
+		return result.toString();
+	}
+
+	private static long id(JSONComplex value){
+		return ((JSONNumber) ((JSONObject) value).value.get("id")).longValue();
+	}
+
+	@Test
+	public void parsesInOrder() throws Exception {
+		var data = lines(5000).getBytes(StandardCharsets.UTF_8);
+		var result = new LinesParser(data).setChunkSize(1000).setPool(new ForkJoinPool(4)).parse();
+		assertEquals(5000, result.size());
+		for(int i = 0; i < result.size(); i++)
+			assertEquals(i, id(result.get(i)));
+		assertEquals("{\"id\":42,\"name\":\"item 42\",\"tags\":[\"a\",\"b\"]}", result.get(42).toString());
+	}
+
+	@Test
+	public void deliversUnordered() throws Exception {
+		var data = lines(5000).getBytes(StandardCharsets.UTF_8);
+		var values = new ConcurrentLinkedQueue<JSONComplex>();
+		new LinesParser(data).setChunkSize(512).setKeyCache(new KeyCache()).setShapes(new Shapes()).forEach(values::add);
+		var ids = new ArrayList<Long>();
+		for(var value : values)
+			ids.add(id(value));
+		Collections.sort(ids);
+		assertEquals(5000, ids.size());
+		for(int i = 0; i < ids.size(); i++)
+			assertEquals(i, ids.get(i).longValue());
+	}
+
+	@Test
+	public void acceptsListsAndMissingTrailingNewline() throws Exception {
+		var result = new LinesParser("[1,2]\n\n{}\n[]".getBytes(StandardCharsets.UTF_8)).parse();
+		assertEquals(3, result.size());
+		assertTrue(result.get(0) instanceof JSONList);
+		assertEquals("{}", result.get(1).toString());
+		assertEquals("[]", result.get(2).toString());
+		assertEquals(0, new LinesParser(new byte[0]).parse().size());
+	}
+
+	@Test
+	public void reportsLineOfError() throws Exception {
+		var data = (lines(300) + "{\"id\":1,}\n" + lines(10)).getBytes(StandardCharsets.UTF_8);
+		for(int chunk : new int[]{64, 1 << 20}){
+			try {
+				new LinesParser(data).setChunkSize(chunk).parse();
+				fail();
+			} catch(ParseException ex){
+				assertTrue(ex.getMessage(), ex.getMessage().startsWith("Line 307: Unexpected token \"}\""));
+				assertEquals('}', data[ex.getErrorOffset()]);
+			}
+		}
+	}
+
+	@Test
+	public void mapsFiles() throws Exception {
+		var file = Files.createTempFile("lines", ".ndjson");
+		try {
+			Files.write(file, lines(1000).getBytes(StandardCharsets.UTF_8));
+			var result = LinesParser.map(file).setChunkSize(4096).parse();
+			assertEquals(1000, result.size());
+			assertEquals(999, id(result.get(999)));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
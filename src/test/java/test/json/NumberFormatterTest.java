@@ -0,0 +1,67 @@
+package test.json;
+
+import common.json.JSONNumber;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class NumberFormatterTest {
+
+	@Test
+	public void formatsTypicalValues(){
+		assertEquals("0.0", format(0d));
+		assertEquals("-0.0", format(-0d));
+		assertEquals("1.0", format(1d));
+		assertEquals("0.1", format(0.1));
+		assertEquals("0.3", format(0.3));
+		assertEquals("0.30000000000000004", format(0.1 + 0.2));
+		assertEquals("-123.456", format(-123.456));
+		assertEquals("0.002", format(0.002));
+		assertEquals("0.000001", format(1e-6));
+		assertEquals("1E-7", format(1e-7));
+		assertEquals("3000000000.0", format(3e9));
+		assertEquals("100000000000000000000.0", format(1e20));
+		assertEquals("1E22", format(1e22));
+		assertEquals("1E23", format(1e23));
+		assertEquals("1.7976931348623157E308", format(Double.MAX_VALUE));
+		assertEquals("2.2250738585072014E-308", format(Double.MIN_NORMAL));
+		assertEquals("4.9E-324", format(Double.MIN_VALUE));
+		assertEquals("9007199254740992.0", format(0x1p53));
+	}
+
+	@Test
+	public void randomValuesRoundTripWithShortestDigits(){
+		var random = new Random(42);
+		for(int i = 0; i < 100000; i++){
+			double value = Double.longBitsToDouble(random.nextLong());
+			if(Double.isNaN(value) || Double.isInfinite(value))
+				continue;
+			String text = format(value);
+			assertEquals(text, Double.doubleToLongBits(value), Double.doubleToLongBits(Double.parseDouble(text)));
+			if(i % 10 == 0)
+				assertEquals(value + "", shortest(value), new BigDecimal(text).stripTrailingZeros());
+		}
+	}
+
+	private static String format(double value){
+		return new JSONNumber(value).toString();
+	}
+
+	/**
+	 * Находит кратчайшее представление перебором точности
+	 */
+	private static BigDecimal shortest(double value){
+		var exact = new BigDecimal(value);
+		for(int precision = 1; ; precision++){
+			var candidate = exact.round(new MathContext(precision, RoundingMode.HALF_EVEN));
+			if(candidate.doubleValue() == value)
+				return candidate.stripTrailingZeros();
+		}
+	}
+}
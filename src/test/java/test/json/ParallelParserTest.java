@@ -0,0 +1,95 @@
+package test.json;
+
+import common.json.ByteParser;
+import common.json.JSONList;
+import common.json.ParallelParser;
+import common.json.Shapes;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelParserTest {
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+	private static byte[] records(int count){
+		var result = new StringBuilder("[\n");
+		for(int i = 0; i < count; i++){
+			if(i > 0)
+				result.append(",\n");
+			result.append("  {\"id\":").append(i).append(",\"text\":\"}, {\\\"id\\\": ").append(i).append("}, [\",\"items\":[{\"a\":1}, {\"b\":[2, 3]}],\"ok\":true}");
+		}
+		return result.append("\n]\n").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void assertSame(byte[] data, int chunkSize, boolean parallel) throws ParseException {
+		var parser = new ParallelParser(data).setChunkSize(chunkSize).setPool(POOL);
+		var result = parser.parse();
+		assertEquals(new ByteParser(data).parse().toString(), result.toString());
+		assertEquals(parser.getChunkCount() > 1, parallel);
+	}
+
+	@Test
+	public void parsesRecordsInChunks() throws Exception {
+		var data = records(2000);
+		assertSame(data, 1000, true);
+		assertSame(data, 37, true);
+		assertSame(data, data.length, false);
+		var result = (JSONList) new ParallelParser(data).setChunkSize(500).setShapes(new Shapes()).parse();
+		assertEquals(2000, result.value.size());
+	}
+
+	@Test
+	public void recoversFromCutsInsideStrings() throws Exception {
+		var result = new StringBuilder("[");
+		for(int i = 0; i < 500; i++)
+			result.append(i > 0 ? "," : "").append("{\"s\":\"").append("},{\\\"x\\\":[1],{".repeat(i % 13)).append("\"}");
+		assertSame(result.append("]").toString().getBytes(StandardCharsets.UTF_8), 64, true);
+	}
+
+	@Test
+	public void keepsPrimitiveNumbers() throws Exception {
+		var text = new StringBuilder("[");
+		for(int i = 0; i < 100000; i++)
+			text.append(i > 0 ? ", " : "").append(i * 3);
+		var data = text.append("]").toString().getBytes(StandardCharsets.UTF_8);
+		var parser = new ParallelParser(data).setChunkSize(4096).setPool(POOL);
+		var list = (JSONList) parser.parse();
+		assertTrue(parser.getChunkCount() > 10);
+		assertEquals(100000, list.value.size());
+		for(int i = 0; i < 100000; i++)
+			assertEquals(i * 3, list.getLong(i));
+	}
+
+	@Test
+	public void fallsBackForOtherDocuments() throws Exception {
+		assertSame("{\"a\":[1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16]}".getBytes(StandardCharsets.UTF_8), 4, false);
+		assertSame("[[1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16]]".getBytes(StandardCharsets.UTF_8), 4, false);
+		assertSame("[]".getBytes(StandardCharsets.UTF_8), 1, false);
+		assertSame(new byte[]{' ', '[', ']', ' '}, 1, false);
+	}
+
+	@Test
+	public void reportsSameErrors() throws Exception {
+		var data = new String(records(1000), StandardCharsets.UTF_8).replace("{\"id\":700,", "{\"id\":700,,").getBytes(StandardCharsets.UTF_8);
+		String expected = null;
+		try {
+			new ByteParser(data).parse();
+		} catch(ParseException ex){
+			expected = ex.getMessage();
+		}
+		try {
+			new ParallelParser(data).setChunkSize(1000).setPool(POOL).parse();
+			fail();
+		} catch(ParseException ex){
+			assertEquals(expected, ex.getMessage());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package test.json;
+
+import common.json.JSONList;
+import common.json.JSONObject;
+import common.json.Parser;
+import common.json.ParserPool;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnitParamsRunner.class)
+public class ParserTest {
+
+	@Test
+	@Parameters(method = "data_parsedDataIsCorrect")
+	public void parsedDataIsCorrect(String expected, String data) throws ParseException {
+		assertEquals(expected, new Parser(data).parse().toString());
+	}
+
+	private Object[][] data_parsedDataIsCorrect(){
+		return new Object[][]{
+			{"{}", "{}"},
+			{"[]", " [ ] "},
+			{"{\"a\":1}", "{\"a\": 1}"},
+			{"[1,\"b\",true,false,null]", "[1, \"b\", true, false, null]"},
+			{"{\"a\":{\"b\":[1,[2,{}]]},\"c\":\"d\"}", "{\"a\": {\"b\": [1, [2, {}]]}, \"c\": \"d\"}"},
+			{"{\"key\":{\"keyInner\":\"value}Inner\"}}", "{\"key\": {\"keyInner\": \"value}Inner\"}}"},
+			{"[\"\u00e9\"]", "[\"\\u00e9\"]"},
+		};
+	}
+
+	@Test
+	@Parameters(method = "data_invalidDataThrowsException")
+	public void invalidDataThrowsException(String data){
+		try {
+			new Parser(data).parse();
+		} catch(ParseException ex){
+			return;
+		}
+		throw new AssertionError("Expected ParseException for " + data);
+	}
+
+	private Object[][] data_invalidDataThrowsException(){
+		return new Object[][]{
+			{""},
+			{"   "},
+			{"1"},
+			{"{"},
+			{"[1,]"},
+			{"[,1]"},
+			{"{\"a\" 1}"},
+			{"{\"a\": 1]"},
+			{"[1}"},
+			{"[01]"},
+			{"[1.]"},
+			{"[tru]"},
+			{"[\"a]"},
+			{"[] []"},
+		};
+	}
+
+	@Test
+	public void deepNestingDoesNotOverflowStack() throws ParseException {
+		int depth = 100000;
+		var data = new StringBuilder();
+		for(int i = 0; i < depth; i++)
+			data.append('[');
+		for(int i = 0; i < depth; i++)
+			data.append(']');
+		Object current = new Parser(data.toString()).parse();
+		int actual = 1;
+		while(((JSONList) current).value.size() > 0){
+			current = ((JSONList) current).value.get(0);
+			actual++;
+		}
+		assertEquals(depth, actual);
+	}
+
+	@Test
+	public void parserCanBeReused() throws ParseException {
+		var parser = new Parser("{\"a\": [1, 2]}");
+		assertEquals(parser.parse().toString(), parser.parse().toString());
+		assertTrue(parser.parse() instanceof JSONObject);
+	}
+
+	@Test
+	public void parserCanBeResetToOtherData() throws ParseException {
+		var parser = new Parser();
+		assertEquals("[1,\"a\\\"b\"]", parser.parse("[1, \"a\\\"b\"]").toString());
+		try {
+			parser.parse("{\"a\": [[[\"unterminated");
+			fail();
+		} catch(ParseException ex){}
+		assertEquals("{\"b\":\"c\\nd\"}", parser.parse("{\"b\": \"c\\nd\"}").toString());
+		var deep = "[".repeat(5000) + "]".repeat(5000);
+		parser.parse(deep);
+		assertEquals("[true,false]", parser.parse("[true, false]").toString());
+		assertEquals("[]", parser.reset(" [] ").parse().toString());
+	}
+
+	@Test
+	public void poolParsesOnManyThreads() throws InterruptedException {
+		var pool = new ParserPool();
+		var errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++){
+			int id = t;
+			threads[t] = new Thread(() -> {
+				try {
+					for(int i = 0; i < 2000; i++){
+						var data = "{\"thread\": " + id + ", \"i\": [" + i + "]}";
+						assertEquals(data.replace(" ", ""), pool.parse(data).toString());
+					}
+				} catch(Throwable ex){
+					synchronized(errors){
+						errors.add(ex);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for(var thread : threads)
+			thread.join();
+		assertEquals(List.of(), errors);
+	}
+}
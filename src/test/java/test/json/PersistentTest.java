@@ -0,0 +1,201 @@
+package test.json;
+
+import common.json.JSONBoolean;
+import common.json.JSONComplex;
+import common.json.JSONEntity;
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONObject;
+import common.json.JSONPatch;
+import common.json.JSONString;
+import common.json.Parser;
+import common.json.Persistent;
+import common.json.PersistentList;
+import common.json.PersistentObject;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistentTest {
+
+	@Test
+	public void objectMatchesHashMap(){
+		var random = new Random(19);
+		var expected = new HashMap<String, JSONEntity>();
+		var object = PersistentObject.EMPTY;
+		// "Aa" и "BB" имеют одинаковый хеш, что проверяет узлы коллизий
+		String[] keys = {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB"};
+		for(int i = 0; i < 20000; i++){
+			String key = random.nextInt(4) == 0 ? keys[random.nextInt(keys.length)] : "k" + random.nextInt(3000);
+			if(random.nextInt(3) == 0){
+				expected.remove(key);
+				object = object.without(key);
+			} else {
+				JSONEntity value = random.nextInt(10) == 0 ? null : new JSONNumber(i);
+				expected.put(key, value);
+				object = object.with(key, value);
+			}
+		}
+		assertEquals(expected.size(), object.value.size());
+		assertEquals(expected, object.value);
+		assertEquals(new HashMap<>(object.value), expected);
+		for(var key : expected.keySet())
+			assertTrue(object.value.containsKey(key));
+		for(var key : expected.keySet())
+			object = object.without(key);
+		assertSame(PersistentObject.EMPTY, object);
+	}
+
+	@Test
+	public void listMatchesArrayList(){
+		var random = new Random(20);
+		var expected = new ArrayList<JSONEntity>();
+		var list = PersistentList.EMPTY;
+		for(int i = 0; i < 40000; i++){
+			var value = new JSONNumber(i);
+			int op = random.nextInt(10);
+			if(op < 6 || expected.isEmpty()){
+				expected.add(value);
+				list = list.plus(value);
+			} else if(op < 8){
+				int index = random.nextInt(expected.size());
+				expected.set(index, value);
+				list = list.with(index, value);
+			} else {
+				expected.remove(expected.size() - 1);
+				list = list.pop();
+			}
+			if(i % 997 == 0)
+				assertEquals(expected, list.value);
+		}
+		assertEquals(expected, list.value);
+		var first = new JSONString("first");
+		list = list.insert(100, null).insert(0, first).remove(50);
+		expected.add(100, null);
+		expected.add(0, first);
+		expected.remove(50);
+		assertEquals(expected, list.value);
+		while(!expected.isEmpty()){
+			expected.remove(expected.size() - 1);
+			list = list.pop();
+		}
+		assertSame(PersistentList.EMPTY, list);
+		assertEquals(70000, bulk(70000).value.size());
+		assertEquals(new JSONNumber(69999).longValue(), bulk(70000).getLong(69999));
+	}
+
+	@Test
+	public void keepsOldVersions(){
+		var first = bulk(2000);
+		var second = first.with(1500, new JSONString("x")).plus(null);
+		assertEquals(2000, first.value.size());
+		assertEquals(1500, first.getLong(1500));
+		assertEquals("x", ((JSONString) second.get(1500)).stringValue());
+		assertNull(second.get(2000));
+		var object = PersistentObject.EMPTY.with("a", first);
+		var updated = object.with("b", new JSONBoolean(true));
+		assertSame(first, updated.get("a"));
+		assertNull(object.get("b"));
+		assertSame(object, object.with("a", first));
+		assertSame(object, object.without("missing"));
+	}
+
+	@Test
+	public void freezesAndUpdatesByPath() throws ParseException {
+		var source = new Parser("{\"config\":{\"hosts\":[\"a\",\"b\"],\"port\":80},\"empty\":[],\"flag\":true}").parse();
+		var root = (PersistentObject) Persistent.freeze(source);
+		assertTrue(new JSONPatch().equal(source, root));
+		assertSame(root, Persistent.freeze(root));
+		var config = (PersistentObject) root.get("config");
+		var hosts = config.get("hosts");
+
+		var changed = (PersistentObject) Persistent.with(root, new JSONNumber(8080), "config", "port");
+		assertEquals(80, ((JSONNumber) ((PersistentObject) root.get("config")).get("port")).longValue());
+		assertEquals(8080, ((JSONNumber) ((PersistentObject) changed.get("config")).get("port")).longValue());
+		assertSame(hosts, ((PersistentObject) changed.get("config")).get("hosts"));
+		assertSame(root.get("flag"), changed.get("flag"));
+
+		var appended = Persistent.with(changed, new Parser("{\"name\":\"c\"}").parse(), "config", "hosts", 2);
+		assertTrue(((JSONList) ((JSONObject) ((JSONObject) appended).value.get("config")).value.get("hosts")).value.get(2) instanceof PersistentObject);
+		var removed = Persistent.without(appended, "config", "hosts", 0);
+		assertEquals("[\"b\",{\"name\":\"c\"}]", ((JSONObject) ((JSONObject) removed).value.get("config")).value.get("hosts").toString());
+		assertSame(root, Persistent.without(root, "missing"));
+		for(Object[] path : new Object[][]{{}, {"config", "missing", "x"}, {"config", "hosts", 5}, {"flag", "x"}, {0}})
+			try {
+				Persistent.with(root, null, path);
+				fail();
+			} catch(IllegalArgumentException ex){}
+	}
+
+	@Test
+	public void rejectsMutation(){
+		var object = PersistentObject.EMPTY.with("a", null);
+		var list = PersistentList.of(new JSONNumber(1));
+		try {
+			object.value.put("b", null);
+			fail();
+		} catch(UnsupportedOperationException ex){}
+		try {
+			list.value.add(null);
+			fail();
+		} catch(UnsupportedOperationException ex){}
+		assertEquals("{\"a\":null}", object.toString());
+		assertEquals("[1]", list.toString());
+	}
+
+	@Test
+	public void readersSeeConsistentSnapshots() throws InterruptedException {
+		var shared = new JSONComplex[]{bulk(0)};
+		var errors = new ArrayList<Throwable>();
+		Thread[] readers = new Thread[3];
+		for(int t = 0; t < readers.length; t++){
+			readers[t] = new Thread(() -> {
+				try {
+					for(int i = 0; i < 2000; i++){
+						JSONList snapshot;
+						synchronized(shared){
+							snapshot = (JSONList) shared[0];
+						}
+						for(int j = 0; j < snapshot.value.size(); j++)
+							if(snapshot.getLong(j) != j)
+								throw new AssertionError("Element " + j);
+					}
+				} catch(Throwable ex){
+					synchronized(errors){
+						errors.add(ex);
+					}
+				}
+			});
+			readers[t].start();
+		}
+		var list = bulk(0);
+		for(int i = 0; i < 5000; i++){
+			list = list.plus(new JSONNumber(i));
+			synchronized(shared){
+				shared[0] = list;
+			}
+		}
+		for(var reader : readers)
+			reader.join();
+		assertEquals(List.of(), errors);
+	}
+
+	private static PersistentList bulk(int size){
+		JSONEntity[] items = new JSONEntity[size];
+		for(int i = 0; i < size; i++)
+			items[i] = new JSONNumber(i);
+		return PersistentList.of(items);
+	}
+
+}
@@ -0,0 +1,92 @@
+package test.json;
+
+import common.json.ByteParser;
+import common.json.Projection;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ProjectionTest {
+
+	private static final String RECORD = "{\"id\":1,\"skip\":{\"a\":[1,2,{\"b\":\"\\u0041\\n\"}],\"c\":null},\"user\":{\"name\":\"Ann\",\"age\":30,\"tags\":[\"x\"]}," +
+		"\"tags\":[\"a\",{\"id\":2}],\"flag\":true,\"key.with.dots\":\"d\",\"\\u0069d\":3}";
+
+	private static String parse(String json, Projection projection, boolean validate) throws ParseException {
+		return new ByteParser(json.getBytes(StandardCharsets.UTF_8)).setProjection(projection).setValidateSkipped(validate).parse().toString();
+	}
+
+	@Test
+	public void materializesOnlyProjectedKeys() throws ParseException {
+		for(boolean validate : new boolean[]{true, false}){
+			assertEquals("{\"id\":3,\"user\":{\"name\":\"Ann\"}}", parse(RECORD, Projection.of("id", "user.name"), validate));
+			assertEquals("{\"user\":{\"name\":\"Ann\",\"age\":30,\"tags\":[\"x\"]}}", parse(RECORD, Projection.of("user.name", "user"), validate));
+			assertEquals("{\"user\":{\"tags\":[\"x\"]},\"tags\":[\"a\",{\"id\":2}]}", parse(RECORD, Projection.of("user.tags", "tags"), validate));
+			assertEquals("{\"key.with.dots\":\"d\"}", parse(RECORD, new Projection().add("key.with.dots"), validate));
+			assertEquals("{}", parse(RECORD, Projection.of("missing", "flag.value", "id.x"), validate));
+		}
+	}
+
+	@Test
+	public void appliesProjectionToListElements() throws ParseException {
+		String json = "[{\"id\":1,\"v\":{\"w\":2,\"x\":3}},{\"v\":[{\"w\":4},{\"x\":5}]},7]";
+		assertEquals("[{\"id\":1,\"v\":{\"w\":2}},{\"v\":[{\"w\":4},{}]},7]", parse(json, Projection.of("id", "v.w"), true));
+		assertEquals(parse(json, null, true), parse(json, Projection.of("id", "v"), true));
+	}
+
+	@Test
+	public void validatesSkippedValuesByDefault(){
+		Projection projection = Projection.of("id");
+		assertInvalid("{\"id\":1,\"skip\":[tru]}", projection, "Unexpected token \"]\" at position 19. Expected true value");
+		assertInvalid("{\"id\":1,\"skip\":{\"a\" 1}}", projection, "Unexpected token \"1\" at position 20. Expected colon");
+		assertInvalid("{\"id\":1,\"skip\":[1,]}", projection, "Unexpected token \"]\" at position 18. Unknown value type");
+		assertInvalid("{\"id\":1,\"skip\":[1}}", projection, "Unexpected token \"}\" at position 17. Wrong closing bracket for list json type");
+		assertInvalid("{\"id\":1,\"skip\":\"\\q\"}", projection, "Unexpected token \"q\" at position 17. Unknown escape sequence");
+		assertInvalid("{\"id\":1,\"skip\":01}", projection, "Unexpected token \"1\" at position 16. Expected comma or closing bracket");
+		assertInvalid("{\"id\":1,\"skip\":[[1]", projection, "Unexpected end of input. Expected ]");
+	}
+
+	@Test
+	public void validatesUtf8OfSkippedKeys() throws ParseException {
+		var data = new byte[]{'{', '"', (byte) 0xFF, '"', ':', '1', ',', '"', 'i', 'd', '"', ':', '2', '}'};
+		for(var projection : new Projection[]{null, Projection.of("id"), Projection.of("x.y")}){
+			try {
+				new ByteParser(data).setProjection(projection).parse();
+				fail("Expected ParseException");
+			} catch(ParseException ex){
+				assertEquals("Unexpected token \"0xFF\" at position 2. Invalid UTF-8 lead byte", ex.getMessage());
+			}
+		}
+		assertEquals("{\"id\":2}", new ByteParser(data).setProjection(Projection.of("id")).setValidateSkipped(false).parse().toString());
+	}
+
+	@Test
+	public void skipsWithoutValidationOnRequest() throws ParseException {
+		assertEquals("{\"id\":1}", parse("{\"skip\":[tru, {\"a\" 1}, \"\\q\", 01],\"id\":1}", Projection.of("id"), false));
+		assertEquals("{\"id\":\"]\"}", parse("{\"skip\":{\"s\":\"]}\\\"[{\"},\"id\":\"]\"}", Projection.of("id"), false));
+		try {
+			parse("{\"id\":1,\"skip\":[[1]", Projection.of("id"), false);
+			fail("Expected ParseException");
+		} catch(ParseException ex){
+			assertEquals("Unexpected end of input. Expected closing bracket", ex.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsEmptyPath(){
+		new Projection().add();
+	}
+
+	private static void assertInvalid(String json, Projection projection, String message){
+		try {
+			parse(json, projection, true);
+			fail("Expected ParseException for " + json);
+		} catch(ParseException ex){
+			assertEquals(message, ex.getMessage());
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package test.json;
+
+import common.json.JSONEntity;
+import common.json.JSONNumber;
+import common.json.Parser;
+import common.json.PushParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PushParserTest {
+
+	private static final String DOCUMENT = "{\"name\":\"Привет, мир 😀 \\u00e9\\n\\\"q\\\"\",\"n\":[-12.5e-3,0,123456789012345678901234567890,true,false,null],"
+		+ "\"o\":{\"a\":{},\"b\":[]},\"x\":-0.0}";
+
+	private static List<JSONEntity> parse(byte[] data, int... cuts) throws ParseException {
+		var result = new ArrayList<JSONEntity>();
+		var parser = PushParser.values(result::add);
+		int from = 0;
+		for(int cut : cuts){
+			parser.feed(Arrays.copyOfRange(data, from, cut));
+			from = cut;
+		}
+		parser.feed(Arrays.copyOfRange(data, from, data.length));
+		parser.end();
+		return result;
+	}
+
+	@Test
+	public void acceptsChunksSplitAnywhere() throws Exception {
+		var data = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+		var expected = new Parser(DOCUMENT).parse().toString();
+		for(int i = 0; i <= data.length; i++)
+			for(int j = i; j <= data.length; j += 7){
+				var result = parse(data, i, j);
+				assertEquals(1, result.size());
+				assertEquals(expected, result.get(0).toString());
+			}
+		var bytes = new ArrayList<JSONEntity>();
+		var parser = PushParser.values(bytes::add);
+		for(byte b : data)
+			parser.feed(new byte[]{b});
+		parser.end();
+		assertEquals(expected, bytes.get(0).toString());
+	}
+
+	@Test
+	public void emitsValuesAsSoonAsTheyComplete() throws Exception {
+		var result = new ArrayList<JSONEntity>();
+		var parser = PushParser.values(result::add);
+		parser.feed("{\"a\":1}\n[1,".getBytes(StandardCharsets.UTF_8));
+		assertEquals(1, result.size());
+		parser.feed("2]\n\"s\" 42".getBytes(StandardCharsets.UTF_8));
+		assertEquals(3, result.size());
+		parser.feed(ByteBuffer.allocateDirect(8).put("1 null".getBytes(StandardCharsets.UTF_8)).flip());
+		assertEquals(5, result.size());
+		assertEquals(421, ((JSONNumber) result.get(3)).longValue());
+		parser.feed(" 7".getBytes(StandardCharsets.UTF_8));
+		assertEquals(5, result.size());
+		parser.end();
+		assertEquals(6, result.size());
+		assertNull(result.get(4));
+		assertEquals("[1,2]", result.get(1).toString());
+	}
+
+	@Test
+	public void reportsTokens() throws Exception {
+		var events = new StringBuilder();
+		var parser = new PushParser(new PushParser.Handler(){
+			@Override
+			public void beginObject(){
+				events.append('{');
+			}
+
+			@Override
+			public void endObject(){
+				events.append('}');
+			}
+
+			@Override
+			public void name(String name){
+				events.append(name).append(':');
+			}
+
+			@Override
+			public void value(JSONNumber value){
+				events.append(value.longValue()).append(';');
+			}
+
+			@Override
+			public void endDocument(){
+				events.append('$');
+			}
+		});
+		parser.feed("{\"a\":1,\"b\":{\"c\":2}}".getBytes(StandardCharsets.UTF_8)).end();
+		assertEquals("{a:1;b:{c:2;}}$", events.toString());
+	}
+
+	@Test
+	public void rejectsInvalidData() throws Exception {
+		assertError("{\"a\" 1}", "Unexpected token \"1\". Expected colon at position 5");
+		assertError("[1,]", "Unexpected token \"]\". Unknown value type at position 3");
+		assertError("[1}", "Unexpected token \"}\". Expected comma or closing bracket at position 2");
+		assertError("[01]", "Invalid number \"01\" at position 3");
+		assertError("[tru]", "Unexpected token \"]\". Expected true value at position 4");
+		assertError("{\"a\":[1", "Unexpected end of input. Expected ] at position 7");
+		assertError("\"abc", "Unexpected end of input. Expected closing double quote at position 4");
+		try {
+			PushParser.values(value -> {}).feed(new byte[]{'"', (byte) 0xC0, (byte) 0x80, '"'});
+			fail();
+		} catch(ParseException ex){
+			assertTrue(ex.getMessage().startsWith("Unexpected token \"0xC0\". Invalid UTF-8 lead byte"));
+		}
+		try {
+			PushParser.values(value -> {}).feed(new byte[]{'"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"'});
+			fail();
+		} catch(ParseException ex){
+			assertTrue(ex.getMessage().startsWith("Invalid UTF-8 sequence"));
+		}
+	}
+
+	private static void assertError(String json, String message){
+		try {
+			parse(json.getBytes(StandardCharsets.UTF_8), json.length() / 2);
+			fail(json);
+		} catch(ParseException ex){
+			assertEquals(message, ex.getMessage());
+		}
+	}
+}
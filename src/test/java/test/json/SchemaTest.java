@@ -0,0 +1,211 @@
+package test.json;
+
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONObject;
+import common.json.PushParser;
+import common.json.Schema;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnitParamsRunner.class)
+public class SchemaTest {
+
+	private static final String SCHEMA = "{"
+		+ "\"$schema\": \"https://json-schema.org/draft/2020-12/schema\", \"title\": \"Service\", \"type\": \"object\","
+		+ "\"required\": [\"name\", \"port\"],"
+		+ "\"additionalProperties\": false,"
+		+ "\"properties\": {"
+		+ "  \"name\": {\"type\": \"string\", \"minLength\": 2, \"maxLength\": 8, \"pattern\": \"^[a-z]+$\"},"
+		+ "  \"port\": {\"type\": \"integer\", \"minimum\": 1, \"exclusiveMaximum\": 65536},"
+		+ "  \"mode\": {\"enum\": [\"fast\", \"safe\", null, 1]},"
+		+ "  \"ratio\": {\"type\": [\"number\", \"null\"], \"minimum\": 0, \"maximum\": 1},"
+		+ "  \"hosts\": {\"type\": \"array\", \"minItems\": 1, \"maxItems\": 3, \"items\": {\"type\": \"object\", \"required\": [\"h\"], \"properties\": {\"h\": {\"type\": \"string\"}}}},"
+		+ "  \"meta\": {\"type\": \"object\", \"maxProperties\": 2},"
+		+ "  \"a/b\": {\"const\": true},"
+		+ "  \"free\": true"
+		+ "}}";
+
+	private static final Schema COMPILED;
+
+	static {
+		try {
+			COMPILED = Schema.compile(SCHEMA);
+		} catch(ParseException ex){
+			throw new AssertionError(ex);
+		}
+	}
+
+	@Test
+	@Parameters(method = "data_validDocumentsPass")
+	public void validDocumentsPass(String data) throws ParseException {
+		COMPILED.validate(data);
+		assertEquals(JSONObject.fromString(data).toString(), COMPILED.parse(data).toString());
+	}
+
+	private Object[][] data_validDocumentsPass(){
+		return new Object[][]{
+			{"{\"name\": \"api\", \"port\": 80}"},
+			{"{\"port\": 65535.0, \"name\": \"ab\", \"mode\": null, \"ratio\": 0.5}"},
+			{"{\"name\": \"ab\", \"port\": 1, \"mode\": 1.0, \"ratio\": null, \"hosts\": [{\"h\": \"x\", \"extra\": [1, {}]}]}"},
+			{"{\"name\": \"ab\", \"port\": 1, \"meta\": {\"a\": [[]], \"b\": {\"c\": 1}}, \"a/b\": true, \"free\": [1, \"x\", {\"y\": null}]}"},
+		};
+	}
+
+	@Test
+	@Parameters(method = "data_invalidDocumentsFail")
+	public void invalidDocumentsFail(String message, String data){
+		try {
+			COMPILED.validate(data);
+			fail(data);
+		} catch(ParseException ex){
+			assertEquals(message, ex.getMessage().replaceAll(" at position \\d+$", ""));
+		}
+		try {
+			COMPILED.parse(data);
+			fail(data);
+		} catch(ParseException ex){
+			assertEquals(message, ex.getMessage().replaceAll(" at position \\d+$", ""));
+		}
+	}
+
+	private Object[][] data_invalidDocumentsFail(){
+		return new Object[][]{
+			{"Schema violation at \"\": Expected object", "[]"},
+			{"Schema violation at \"\": Missing required property \"port\"", "{\"name\": \"api\"}"},
+			{"Schema violation at \"/name\": Expected string", "{\"name\": 1}"},
+			{"Schema violation at \"/name\": Expected at least 2 characters", "{\"name\": \"a\"}"},
+			{"Schema violation at \"/name\": Expected at most 8 characters", "{\"name\": \"abcdefghi\"}"},
+			{"Schema violation at \"/name\": Value does not match pattern \"^[a-z]+$\"", "{\"name\": \"Api\"}"},
+			{"Schema violation at \"/port\": Expected integer", "{\"port\": 1.5}"},
+			{"Schema violation at \"/port\": Value is less than 1", "{\"port\": 0}"},
+			{"Schema violation at \"/port\": Value is not less than 65536", "{\"port\": 65536}"},
+			{"Schema violation at \"/mode\": Value is not in the enumeration", "{\"mode\": \"slow\"}"},
+			{"Schema violation at \"/mode\": Value is not in the enumeration", "{\"mode\": []}"},
+			{"Schema violation at \"/ratio\": Expected null or number", "{\"ratio\": \"1\"}"},
+			{"Schema violation at \"/ratio\": Value is greater than 1", "{\"ratio\": 1.5}"},
+			{"Schema violation at \"/hosts\": Expected at least 1 items", "{\"hosts\": []}"},
+			{"Schema violation at \"/hosts\": Expected at most 3 items", "{\"hosts\": [{\"h\": \"a\"}, {\"h\": \"a\"}, {\"h\": \"a\"}, {\"h\": \"a\"}]}"},
+			{"Schema violation at \"/hosts/1\": Missing required property \"h\"", "{\"hosts\": [{\"h\": \"a\"}, {}]}"},
+			{"Schema violation at \"/hosts/0/h\": Expected string", "{\"hosts\": [{\"h\": false}]}"},
+			{"Schema violation at \"/meta\": Expected at most 2 properties", "{\"meta\": {\"a\": 1, \"b\": 2, \"c\": 3}}"},
+			{"Schema violation at \"/a~1b\": Value is not in the enumeration", "{\"a/b\": false}"},
+			{"Schema violation at \"/unknown\": Property is not allowed", "{\"name\": \"ab\", \"port\": 1, \"unknown\": 1}"},
+		};
+	}
+
+	@Test
+	public void failsFastOnPushParser() throws ParseException {
+		var documents = new ArrayList<Object>();
+		var parser = new PushParser(COMPILED.validating(new PushParser.Handler(){
+			@Override
+			public void endObject(){
+				documents.add(null);
+			}
+		}));
+		parser.feed("{\"name\": \"ok\", \"port\": 8}\n{\"name\": \"ok\", ".getBytes(StandardCharsets.UTF_8));
+		assertEquals(1, documents.size());
+		try {
+			parser.feed("\"port\": -5, \"hosts\": [".getBytes(StandardCharsets.UTF_8));
+			fail();
+		} catch(ParseException ex){
+			assertEquals("Schema violation at \"/port\": Value is less than 1 at position 51", ex.getMessage());
+			assertEquals(51, ex.getErrorOffset());
+		}
+	}
+
+	@Test
+	public void supportsDraftVariants() throws ParseException {
+		var schema = Schema.compile("{\"type\": \"number\", \"minimum\": 0, \"exclusiveMinimum\": true, \"maximum\": 10, \"exclusiveMaximum\": false}");
+		schema.validate("10");
+		try {
+			schema.validate("0");
+			fail();
+		} catch(ParseException ex){
+			assertTrue(ex.getMessage().startsWith("Schema violation at \"\": Value is not greater than 0"));
+		}
+		Schema.compile("true").validate("[{\"any\": [null]}]");
+		try {
+			Schema.compile("{\"items\": false}").validate("[1]");
+			fail();
+		} catch(ParseException ex){
+			assertTrue(ex.getMessage().startsWith("Schema violation at \"/0\": Value is not allowed"));
+		}
+		Schema.compile("{\"items\": false}").validate("[]");
+	}
+
+	@Test
+	public void intersectsEnumAndConst() throws ParseException {
+		for(var definition : new String[]{"{\"enum\": [1, 2, \"x\"], \"const\": 2}", "{\"const\": 2, \"enum\": [1, 2, \"x\"]}"}){
+			var schema = Schema.compile(definition);
+			schema.validate("2");
+			for(var invalid : new String[]{"1", "\"x\""}){
+				try {
+					schema.validate(invalid);
+					fail(definition + " accepted " + invalid);
+				} catch(ParseException ex){
+					assertTrue(ex.getMessage().startsWith("Schema violation at \"\": Value is not in the enumeration"));
+				}
+			}
+		}
+		try {
+			Schema.compile("{\"enum\": [1], \"const\": 2}").validate("1");
+			fail();
+		} catch(ParseException ex){
+			assertTrue(ex.getMessage().startsWith("Schema violation at \"\": Value is not in the enumeration"));
+		}
+	}
+
+	@Test
+	public void comparesDecimalEnumerationsExactly() throws ParseException {
+		var values = new JSONList();
+		values.value.add(new JSONNumber(new BigDecimal("0.1000000000000000000001")));
+		values.value.add(new JSONNumber(new BigDecimal("1.0")));
+		values.value.add(new JSONNumber(new BigDecimal("2.50")));
+		var definition = new JSONObject();
+		definition.value.put("enum", values);
+		var schema = Schema.compile(definition);
+		schema.validate("1");
+		schema.validate("2.5");
+		try {
+			schema.validate("0.1");
+			fail();
+		} catch(ParseException ex){
+			assertTrue(ex.getMessage().startsWith("Schema violation at \"\": Value is not in the enumeration"));
+		}
+	}
+
+	@Test
+	public void countsDistinctProperties() throws ParseException {
+		Schema.compile("{\"maxProperties\": 1}").validate("{\"a\": 1, \"a\": 2}");
+		try {
+			Schema.compile("{\"minProperties\": 2}").validate("{\"a\": 1, \"a\": 2}");
+			fail();
+		} catch(ParseException ex){
+			assertTrue(ex.getMessage().startsWith("Schema violation at \"\": Expected at least 2 properties"));
+		}
+	}
+
+	@Test
+	public void rejectsUnsupportedSchemas() throws ParseException {
+		for(var definition : new String[]{"{\"anyOf\": []}", "{\"properties\": {\"a\": {\"$ref\": \"#\"}}}", "{\"type\": \"date\"}", "{\"minLength\": -1}",
+			"{\"pattern\": \"(\"}", "{\"enum\": [[1]]}", "{\"items\": 1}"}){
+			try {
+				Schema.compile(definition);
+				fail(definition);
+			} catch(IllegalArgumentException ex){}
+		}
+	}
+}
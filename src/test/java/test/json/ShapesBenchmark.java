@@ -0,0 +1,52 @@
+package test.json;
+
+import common.json.JSONComplex;
+import common.json.KeyCache;
+import common.json.Parser;
+import common.json.Shapes;
+
+import java.lang.ref.Reference;
+import java.text.ParseException;
+
+/**
+ * Сравнивает память, занимаемую объектами в компактном представлении {@link Shapes},
+ * с представлением на {@code LinkedHashMap}. Ключи в обоих случаях общие благодаря {@link KeyCache},
+ * поэтому разница - это только накладные расходы самих объектов.
+ * Запуск: {@code mvn test-compile exec:java -Dexec.mainClass=test.json.ShapesBenchmark -Dexec.classpathScope=test}
+ */
+public class ShapesBenchmark {
+
+	private static final int OBJECTS = 200000;
+
+	public static void main(String[] args) throws ParseException {
+		var json = document(OBJECTS);
+		var keys = new KeyCache();
+		long base = used();
+		JSONComplex maps = new Parser(json).setKeyCache(keys).parse();
+		long mapBytes = used() - base;
+		Reference.reachabilityFence(maps);
+		maps = null;
+		base = used();
+		JSONComplex shapes = new Parser(json).setKeyCache(keys).setShapes(new Shapes()).parse();
+		long shapeBytes = used() - base;
+		Reference.reachabilityFence(shapes);
+		System.out.printf("%d objects: LinkedHashMap %.1f MB (%d B/object), shapes %.1f MB (%d B/object)%n", OBJECTS, mapBytes / 1e6, mapBytes / OBJECTS, shapeBytes / 1e6, shapeBytes / OBJECTS);
+	}
+
+	private static String document(int objects){
+		var result = new StringBuilder("[");
+		for(int i = 0; i < objects; i++){
+			if(i > 0)
+				result.append(',');
+			result.append("{\"id\":").append(i).append(",\"active\":true,\"score\":null,\"tags\":null,\"parent\":null,\"kind\":false}");
+		}
+		return result.append(']').toString();
+	}
+
+	private static long used(){
+		var runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,90 @@
+package test.json;
+
+import common.json.JSONList;
+import common.json.JSONNumber;
+import common.json.JSONObject;
+import common.json.Parser;
+import common.json.Shapes;
+
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShapesTest {
+
+	@Test
+	public void parsedObjectsMatchDefaultLayout() throws Exception {
+		var json = "[{\"a\": 1, \"b\": {\"c\": [true, null]}}, {\"a\": 2, \"b\": {}}, {\"b\": 3, \"a\": 4}, {\"a\": 5, \"a\": 6}]";
+		var expected = new Parser(json).parse();
+		var actual = new Parser(json).setShapes(new Shapes()).parse();
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.prettify(), actual.prettify());
+		var first = (JSONObject) ((JSONList) actual).value.get(0);
+		assertEquals(((JSONObject) ((JSONList) expected).value.get(0)).value.keySet(), first.value.keySet());
+	}
+
+	@Test
+	public void mapOperations(){
+		var object = new Shapes().newObject();
+		assertNull(object.value.put("x", new JSONNumber(1)));
+		object.value.put("y", null);
+		assertTrue(object.value.containsKey("y"));
+		assertFalse(object.value.containsKey("z"));
+		assertEquals(1, ((JSONNumber) object.value.put("x", new JSONNumber(2))).longValue());
+		assertEquals("{\"x\":2,\"y\":null}", object.toString());
+		object.value.entrySet().iterator().next().setValue(new JSONNumber(3));
+		assertEquals("{\"x\":3,\"y\":null}", object.toString());
+		object.value.remove("x");
+		object.value.put("z", new JSONNumber(4));
+		assertEquals("{\"y\":null,\"z\":4}", object.toString());
+	}
+
+	@Test
+	public void viewsSupportRemoval(){
+		var shapes = new Shapes();
+		var object = shapes.newObject();
+		for(String key : new String[]{"a", "b", "c", "d"})
+			object.value.put(key, new JSONNumber(key.charAt(0)));
+		object.value.keySet().remove("b");
+		object.value.values().removeIf(value -> ((JSONNumber) value).longValue() == 'c');
+		assertEquals("{\"a\":97,\"d\":100}", object.toString());
+		var other = shapes.newObject();
+		other.value.put("a", null);
+		other.value.put("b", null);
+		other.value.entrySet().removeIf(entry -> entry.getKey().equals("a"));
+		assertEquals("{\"b\":null}", other.toString());
+		var iterator = other.value.entrySet().iterator();
+		other.value.put("c", null);
+		try {
+			iterator.next();
+			fail();
+		} catch(ConcurrentModificationException e){
+			// Объект изменён не через итератор
+		}
+	}
+
+	@Test
+	public void largeAndVariedObjectsFallBack(){
+		var shapes = new Shapes();
+		var expected = new LinkedHashMap<String, Object>();
+		var object = shapes.newObject();
+		for(int i = 0; i < 200; i++){
+			object.value.put("k" + i, new JSONNumber(i));
+			expected.put("k" + i, i);
+		}
+		assertEquals(200, object.value.size());
+		assertEquals(expected.keySet(), object.value.keySet());
+		for(int i = 0; i < 200; i++){
+			var single = shapes.newObject();
+			single.value.put("key" + i, null);
+			assertEquals("{\"key" + i + "\":null}", single.toString());
+		}
+	}
+}